@@ -6,7 +6,9 @@
 package Raven;
 
 import common.D2.Vector2D;
+import common.Game.GameContext;
 import common.Messaging.Telegram;
+import common.misc.TokenReader;
 import static common.misc.utils.MaxOf;
 import java.io.InputStream;
 import java.io.PrintStream;
@@ -27,12 +29,6 @@ abstract public class BaseGameEntity {
      * this is a generic flag.
      */
     private boolean m_bTag;
-    /**
-     * this is the next valid ID. Each time a BaseGameEntity is instantiated
-     * this value is updated
-     */
-    private static int m_iNextValidID = 0;
-
     /**
      * this must be called within each constructor to make sure the ID is set
      * correctly. It verifies that the value passed to the method is greater or
@@ -41,11 +37,11 @@ abstract public class BaseGameEntity {
      */
     private void SetID(int val) {
         //make sure the val is equal to or greater than the next available ID
-        assert (val >= m_iNextValidID) : "<BaseGameEntity::SetID>: invalid ID";
+        assert (val >= GetNextValidID()) : "<BaseGameEntity::SetID>: invalid ID";
 
         m_ID = val;
 
-        m_iNextValidID = m_ID + 1;
+        GameContext.Current().SetNextValidID(m_ID + 1);
     }
     /**
      * its location in the environment
@@ -90,18 +86,22 @@ abstract public class BaseGameEntity {
     public void Read(Scanner is) {
     }
 
+    public void Read(TokenReader is) {
+    }
+
     /**
-     * use this to grab the next valid ID
+     * use this to grab the next valid ID. Each time a BaseGameEntity is
+     * instantiated this value is updated (it is kept per GameContext)
      */
     public static int GetNextValidID() {
-        return m_iNextValidID;
+        return GameContext.Current().GetNextValidID();
     }
 
     /**
      * use this can be used to reset the next ID
      */
     public static void ResetNextValidID() {
-        m_iNextValidID = 0;
+        GameContext.Current().SetNextValidID(0);
     }
 
     public Vector2D Pos() {
@@ -0,0 +1,248 @@
+/**
+ * Desc: the line of sight tests between the bots, shared by all of them. The
+ * bots often test the same pair of bots (each bot looks at the other one,
+ * or hears it), so the result of a test is kept in a matrix of bits and
+ * used again until one of the bots moves or the walls do.
+ *
+ * The matrix is indexed by the slots of the bots (see Raven_Bot.GetSlot).
+ * When it is refreshed at the start of the bots' update it notes the
+ * position of every bot the tests are made from. A test
+ * between two bots which are still where the matrix saw them is looked up
+ * (and made, the first time); any other test is simply made. The result of
+ * a test does not depend on which of the two bots asks, so the matrix is
+ * symmetric and the bots may fill it while they think at the same time.
+ *
+ * It also tells the vision updates of the bots (see Raven_SensoryMemory)
+ * when a test they have made may have gone out of date and how many new
+ * tests they may make. The map is divided into cells and a test is out of
+ * date when one of the bots has moved to another cell or a door has moved
+ * since. The tests available to an update-step are shared out evenly among
+ * the bots updating their vision in it, so the vision costs as much as has
+ * changed (up to the budget) however many bots there are.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package Raven;
+
+import static Raven.lua.Raven_Scriptor.script;
+import common.D2.Vector2D;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class BotVisibility {
+
+    private final Raven_Game m_pWorld;
+    /**
+     * the bot in every slot and the position the tests of the slot were made
+     * from
+     */
+    private Raven_Bot[] m_Bots = new Raven_Bot[0];
+    private double[] m_dPosX = new double[0];
+    private double[] m_dPosY = new double[0];
+    private int m_iNumSlots = 0;
+    /**
+     * the matrix has a row of m_iRowLength bits (a whole number of words) for
+     * every slot. A bit of m_Known is set when the test between the two slots
+     * has been made and the bit of m_Visible then holds its result
+     */
+    private int m_iRowLength = 0;
+    private AtomicLongArray m_Known = new AtomicLongArray(0);
+    private AtomicLongArray m_Visible = new AtomicLongArray(0);
+    /**
+     * the size of the cells the bots' positions are sorted into
+     */
+    private final double m_dCellSize;
+    /**
+     * changes whenever a door moves
+     */
+    private int m_iWallsVersion = 0;
+    /**
+     * the line of sight tests the vision updates may make per update-step,
+     * how many of them every slot may make in this one and the slot the
+     * tests left over from sharing them out go to first
+     */
+    private final int m_iMaxTestsPerUpdate;
+    private int[] m_iTestQuota = new int[0];
+    private int m_iNextExtraTest = 0;
+
+    public BotVisibility(Raven_Game world) {
+        m_pWorld = world;
+        m_dCellSize = script().GetDouble("Vision_CellSize");
+        m_iMaxTestsPerUpdate = script().GetInt("Vision_MaxLOSTestsPerUpdate");
+    }
+
+    /**
+     * forgets the tests of the bots that have moved or taken the slot of a
+     * removed bot (or all of them if the walls have moved). Must be called
+     * before the bots start using the matrix in an update-step
+     */
+    public void Refresh(List<Raven_Bot> bots, int NumSlots, boolean WallsMoved) {
+        if (NumSlots > m_iRowLength) {
+            Grow(NumSlots);
+        } else if (WallsMoved) {
+            for (int i = 0; i < m_Known.length(); ++i) {
+                m_Known.set(i, 0L);
+            }
+        }
+        if (WallsMoved) {
+            ++m_iWallsVersion;
+        }
+        m_iNumSlots = NumSlots;
+
+        for (Raven_Bot bot : bots) {
+            final int slot = bot.GetSlot();
+            if (m_Bots[slot] != bot
+                    || m_dPosX[slot] != bot.m_vPosition.x || m_dPosY[slot] != bot.m_vPosition.y) {
+                Forget(slot);
+                m_Bots[slot] = bot;
+                m_dPosX[slot] = bot.m_vPosition.x;
+                m_dPosY[slot] = bot.m_vPosition.y;
+            }
+        }
+    }
+
+    /**
+     * makes room for the given number of slots, forgetting all the tests
+     */
+    private void Grow(int NumSlots) {
+        m_iRowLength = (NumSlots + 63) & ~63;
+        m_Bots = Arrays.copyOf(m_Bots, m_iRowLength);
+        m_dPosX = Arrays.copyOf(m_dPosX, m_iRowLength);
+        m_dPosY = Arrays.copyOf(m_dPosY, m_iRowLength);
+        m_iTestQuota = Arrays.copyOf(m_iTestQuota, m_iRowLength);
+        m_Known = new AtomicLongArray(m_iRowLength * m_iRowLength / 64);
+        m_Visible = new AtomicLongArray(m_iRowLength * m_iRowLength / 64);
+    }
+
+    /**
+     * shares out the line of sight tests of this update-step among the bots
+     * which are going to update their vision. Every bot gets the same number
+     * of tests, and the tests left over go to the next few bots in turn, so
+     * over several update-steps no bot gets more than the others. Must be
+     * called after Refresh
+     */
+    public void ShareOutTests(List<Raven_Bot> ThinkingBots) {
+        int NumSeeing = 0;
+        for (Raven_Bot bot : ThinkingBots) {
+            if (bot.isVisionUpdateDue()) {
+                ++NumSeeing;
+            }
+        }
+        if (NumSeeing == 0) {
+            return;
+        }
+
+        final int quota = m_iMaxTestsPerUpdate / NumSeeing;
+        final int extra = m_iMaxTestsPerUpdate % NumSeeing;
+        int i = 0;
+        for (Raven_Bot bot : ThinkingBots) {
+            if (bot.isVisionUpdateDue()) {
+                m_iTestQuota[bot.GetSlot()] = quota
+                        + ((i - m_iNextExtraTest + NumSeeing) % NumSeeing < extra ? 1 : 0);
+                ++i;
+            }
+        }
+        m_iNextExtraTest = (m_iNextExtraTest + extra) % NumSeeing;
+    }
+
+    /**
+     * @return the number of line of sight tests the vision update of the bot
+     * may make in this update-step
+     */
+    public int GetTestQuota(Raven_Bot bot) {
+        return m_iTestQuota[bot.GetSlot()];
+    }
+
+    /**
+     * @return a number that changes whenever a door moves (so the walls may
+     * block different lines of sight)
+     */
+    public int GetWallsVersion() {
+        return m_iWallsVersion;
+    }
+
+    /**
+     * @return the cell containing the position of the bot
+     */
+    public long Cell(Raven_Bot bot) {
+        final long x = (long) Math.floor(bot.m_vPosition.x / m_dCellSize);
+        final long y = (long) Math.floor(bot.m_vPosition.y / m_dCellSize);
+        return (x << 32) ^ (y & 0xffffffffL);
+    }
+
+    /**
+     * forgets the tests between the slot and every other slot
+     */
+    private void Forget(int slot) {
+        final int RowWords = m_iRowLength / 64;
+        for (int w = slot * RowWords; w < (slot + 1) * RowWords; ++w) {
+            m_Known.set(w, 0L);
+        }
+        for (int row = 0; row < m_iNumSlots; ++row) {
+            Set(m_Known, row * m_iRowLength + slot, false);
+        }
+    }
+
+    /**
+     * @return true if the bot is in the slot and has not moved since the
+     * matrix was refreshed
+     */
+    private boolean isCurrent(Raven_Bot bot, int slot) {
+        return slot >= 0 && slot < m_iNumSlots && m_Bots[slot] == bot
+                && m_dPosX[slot] == bot.m_vPosition.x && m_dPosY[slot] == bot.m_vPosition.y;
+    }
+
+    private boolean isSet(AtomicLongArray bits, int bit) {
+        return (bits.get(bit >> 6) & (1L << (bit & 63))) != 0;
+    }
+
+    /**
+     * sets one bit without losing the bits of the same word set by other
+     * threads at the same time
+     */
+    private void Set(AtomicLongArray bits, int bit, boolean value) {
+        final int word = bit >> 6;
+        final long mask = 1L << (bit & 63);
+        long w;
+        do {
+            w = bits.get(word);
+        } while (!bits.compareAndSet(word, w, value ? w | mask : w & ~mask));
+    }
+
+    /**
+     * returns true if the ray between the two bots is unobstructed
+     */
+    public boolean isLOSOkay(Raven_Bot pFirst, Raven_Bot pSecond) {
+        int s1 = pFirst.GetSlot();
+        int s2 = pSecond.GetSlot();
+        if (!isCurrent(pFirst, s1) || !isCurrent(pSecond, s2)) {
+            return m_pWorld.isLOSOkay(pFirst.Pos(), pSecond.Pos());
+        }
+
+        final int bit = s1 * m_iRowLength + s2;
+        if (isSet(m_Known, bit)) {
+            return isSet(m_Visible, bit);
+        }
+
+        //the test is always made from the bot in the lower slot, so the result
+        //is the same whichever bot asks first
+        if (s1 > s2) {
+            int temp = s1;
+            s1 = s2;
+            s2 = temp;
+        }
+        final boolean LOS = m_pWorld.isLOSOkay(new Vector2D(m_dPosX[s1], m_dPosY[s1]),
+                new Vector2D(m_dPosX[s2], m_dPosY[s2]));
+
+        //the result is written before it is marked as known
+        final int bit12 = s1 * m_iRowLength + s2;
+        final int bit21 = s2 * m_iRowLength + s1;
+        Set(m_Visible, bit12, LOS);
+        Set(m_Visible, bit21, LOS);
+        Set(m_Known, bit12, true);
+        Set(m_Known, bit21, true);
+
+        return LOS;
+    }
+}
@@ -24,7 +24,7 @@ class GraveMarkers {
 
 		GraveRecord(Vector2D pos) {
 			Position = new Vector2D(pos);
-			TimeCreated = Clock.GetCurrentTime();
+			TimeCreated = Clock().GetCurrentTime();
 		}
 	}
 
@@ -65,7 +65,7 @@ class GraveMarkers {
 		Iterator<GraveRecord> it = m_GraveList.iterator();
 		while (it.hasNext()) {
 			GraveRecord gr = it.next();
-			if (Clock.GetCurrentTime() - gr.TimeCreated > m_dLifeTime) {
+			if (Clock().GetCurrentTime() - gr.TimeCreated > m_dLifeTime) {
 				it.remove();
 			}
 		}
@@ -82,10 +82,10 @@ class GraveMarkers {
 					facing.Perp(),
 					new Vector2D(1, 1));
 
-			gdi.BrownPen();
-			gdi.ClosedShape(m_vecRIPVBTrans);
-			gdi.TextColor(133, 90, 0);
-			gdi.TextAtPos(gr.Position.x - 9, gr.Position.y - 5, "RIP");
+			gdi().BrownPen();
+			gdi().ClosedShape(m_vecRIPVBTrans);
+			gdi().TextColor(133, 90, 0);
+			gdi().TextAtPos(gr.Position.x - 9, gr.Position.y - 5, "RIP");
 		}
 	}
 
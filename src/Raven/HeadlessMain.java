@@ -0,0 +1,121 @@
+/**
+ * Desc: entry point for running Raven without a window. No Swing window,
+ * back buffer or input caches are created and the game is stepped as fast
+ * as the CPU allows (there is no frame rate cap). Intended for batch jobs
+ * that simulate many matches back to back.
+ *
+ * Every match gets its own GameContext so matches can be run side by side
+ * on a pool of worker threads.
+ *
+ * usage: HeadlessMain [NumMatches] [NumTicksPerMatch] [Seed] [NumThreads]
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package Raven;
+
+import static Raven.Constants.FrameRate;
+import static Raven.lua.Raven_Scriptor.script;
+import Raven.navigation.PathManager;
+import Raven.navigation.Raven_PathPlanner;
+import common.Game.GameContext;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class HeadlessMain {
+
+    /**
+     * runs a single match of NumTicks update steps on the start map and
+     * returns the game so the caller can inspect the result. The match runs
+     * on the context bound to the calling thread.
+     */
+    public static Raven_Game RunMatch(int NumTicks) {
+        Raven_Game game = new Raven_Game();
+
+        for (int tick = 0; tick < NumTicks; ++tick) {
+            game.Update();
+        }
+
+        return game;
+    }
+
+    /**
+     * runs a match in a fresh context on the calling thread and returns the
+     * final scores and the latency of the path search queue as a printable
+     * string
+     */
+    public static String RunMatch(long Seed, int NumTicks) {
+        GameContext ctx = new GameContext();
+        GameContext prev = ctx.Bind();
+        try {
+            //the game clock advances one frame per update, exactly as it does
+            //when the game is played in real time
+            ctx.GetClock().SetTimeStep(1.0 / FrameRate);
+            //seed random number generator
+            common.misc.utils.setSeed(Seed);
+
+            Raven_Game game = RunMatch(NumTicks);
+
+            StringBuilder scores = new StringBuilder();
+            Iterator<Raven_Bot> it = game.GetAllBots().iterator();
+            while (it.hasNext()) {
+                Raven_Bot bot = it.next();
+                scores.append(" ").append(bot.ID()).append(":").append(bot.Score());
+            }
+
+            PathManager<Raven_PathPlanner> manager = game.GetPathManager();
+            scores.append(String.format("%n  path searches: %d, average latency %.2f updates (%.3f ms), max %.3f ms",
+                    manager.GetNumFinishedSearches(),
+                    manager.GetAverageLatencyInUpdates(),
+                    manager.GetAverageLatency() * 1000,
+                    manager.GetMaxLatency() * 1000));
+            return scores.toString();
+        } finally {
+            GameContext.Bind(prev);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        //make sure nothing tries to open a window
+        System.setProperty("java.awt.headless", "true");
+
+        int NumMatches = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        final int NumTicks = args.length > 1 ? Integer.parseInt(args[1]) : 60 * 60;
+        long Seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        int NumThreads = args.length > 3 ? Integer.parseInt(args[3])
+                : Runtime.getRuntime().availableProcessors();
+
+        System.out.println("Map: " + script().GetString("StartMap")
+                + " Matches: " + NumMatches + " Ticks: " + NumTicks
+                + " Threads: " + NumThreads);
+
+        long start = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(NumThreads);
+        List<Future<String>> results = new ArrayList<Future<String>>(NumMatches);
+        for (int match = 0; match < NumMatches; ++match) {
+            final long MatchSeed = Seed + match;
+            results.add(pool.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return RunMatch(MatchSeed, NumTicks);
+                }
+            }));
+        }
+        pool.shutdown();
+
+        for (int match = 0; match < NumMatches; ++match) {
+            System.out.println("Match " + match + " scores" + results.get(match).get());
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d ticks in %.3f s (%.0f ticks/s)%n",
+                (long) NumMatches * NumTicks, seconds,
+                NumMatches * (double) NumTicks / seconds);
+    }
+}
@@ -12,6 +12,7 @@ import static Raven.resource.*;
 import static Raven.Raven_UserOptions.UserOptions;
 import static common.misc.WindowUtils.Window;
 import static common.windows.MAKEPOINTS;
+import static common.Time.CrudeTimer.Clock;
 import common.Time.PrecisionTimer;
 import static common.misc.Cgdi.gdi;
 import common.misc.CppToJava;
@@ -57,18 +58,18 @@ public class Main {
      */
     static void CheckAllMenuItemsAppropriately(MyMenuBar hwnd) {
         //make sure the menu items are ticked/unticked accordingly
-        CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SHOW_NAVGRAPH, UserOptions.m_bShowGraph);
-        CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SHOW_PATH, UserOptions.m_bShowPathOfSelectedBot);
-        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_IDS, UserOptions.m_bShowBotIDs);
-        CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SMOOTH_PATHS_QUICK, UserOptions.m_bSmoothPathsQuick);
-        CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SMOOTH_PATHS_PRECISE, UserOptions.m_bSmoothPathsPrecise);
-        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_HEALTH, UserOptions.m_bShowBotHealth);
-        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_TARGET, UserOptions.m_bShowTargetOfSelectedBot);
-        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_FOV, UserOptions.m_bOnlyShowBotsInTargetsFOV);
-        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_SCORES, UserOptions.m_bShowScore);
-        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_GOAL_Q, UserOptions.m_bShowGoalsOfSelectedBot);
-        CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SHOW_INDICES, UserOptions.m_bShowNodeIndices);
-        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_SENSED, UserOptions.m_bShowOpponentsSensedBySelectedBot);
+        CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SHOW_NAVGRAPH, UserOptions().m_bShowGraph);
+        CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SHOW_PATH, UserOptions().m_bShowPathOfSelectedBot);
+        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_IDS, UserOptions().m_bShowBotIDs);
+        CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SMOOTH_PATHS_QUICK, UserOptions().m_bSmoothPathsQuick);
+        CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SMOOTH_PATHS_PRECISE, UserOptions().m_bSmoothPathsPrecise);
+        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_HEALTH, UserOptions().m_bShowBotHealth);
+        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_TARGET, UserOptions().m_bShowTargetOfSelectedBot);
+        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_FOV, UserOptions().m_bOnlyShowBotsInTargetsFOV);
+        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_SCORES, UserOptions().m_bShowScore);
+        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_GOAL_Q, UserOptions().m_bShowGoalsOfSelectedBot);
+        CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SHOW_INDICES, UserOptions().m_bShowNodeIndices);
+        CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_SENSED, UserOptions().m_bShowOpponentsSensedBySelectedBot);
     }
 
     public static void HandleMenuItems(int ID, MyMenuBar hwnd) {
@@ -81,12 +82,12 @@ public class Main {
                         if (f.isDirectory()) {
                             return true;
                         }
-                        return f.getName().endsWith(".map");
+                        return f.getName().endsWith(".map") || f.getName().endsWith(".mapc");
                     }
 
                     @Override
                     public String getDescription() {
-                        return "Raven Map (*.map)";
+                        return "Raven Map (*.map, *.mapc)";
                     }
                 });
                 java.io.File currentDir = new java.io.File(".");
@@ -127,67 +128,67 @@ public class Main {
                 break;
 
             case IDM_NAVIGATION_SHOW_NAVGRAPH:
-                UserOptions.m_bShowGraph = !UserOptions.m_bShowGraph;
-                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SHOW_NAVGRAPH, UserOptions.m_bShowGraph);
+                UserOptions().m_bShowGraph = !UserOptions().m_bShowGraph;
+                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SHOW_NAVGRAPH, UserOptions().m_bShowGraph);
                 break;
 
             case IDM_NAVIGATION_SHOW_PATH:
-                UserOptions.m_bShowPathOfSelectedBot = !UserOptions.m_bShowPathOfSelectedBot;
-                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SHOW_PATH, UserOptions.m_bShowPathOfSelectedBot);
+                UserOptions().m_bShowPathOfSelectedBot = !UserOptions().m_bShowPathOfSelectedBot;
+                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SHOW_PATH, UserOptions().m_bShowPathOfSelectedBot);
                 break;
 
             case IDM_NAVIGATION_SHOW_INDICES:
-                UserOptions.m_bShowNodeIndices = !UserOptions.m_bShowNodeIndices;
-                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SHOW_INDICES, UserOptions.m_bShowNodeIndices);
+                UserOptions().m_bShowNodeIndices = !UserOptions().m_bShowNodeIndices;
+                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SHOW_INDICES, UserOptions().m_bShowNodeIndices);
                 break;
 
             case IDM_NAVIGATION_SMOOTH_PATHS_QUICK:
-                UserOptions.m_bSmoothPathsQuick = !UserOptions.m_bSmoothPathsQuick;
-                UserOptions.m_bSmoothPathsPrecise = false;
-                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SMOOTH_PATHS_PRECISE, UserOptions.m_bSmoothPathsPrecise);
-                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SMOOTH_PATHS_QUICK, UserOptions.m_bSmoothPathsQuick);
+                UserOptions().m_bSmoothPathsQuick = !UserOptions().m_bSmoothPathsQuick;
+                UserOptions().m_bSmoothPathsPrecise = false;
+                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SMOOTH_PATHS_PRECISE, UserOptions().m_bSmoothPathsPrecise);
+                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SMOOTH_PATHS_QUICK, UserOptions().m_bSmoothPathsQuick);
                 break;
 
             case IDM_NAVIGATION_SMOOTH_PATHS_PRECISE:
-                UserOptions.m_bSmoothPathsPrecise = !UserOptions.m_bSmoothPathsPrecise;
-                UserOptions.m_bSmoothPathsQuick = false;
-                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SMOOTH_PATHS_QUICK, UserOptions.m_bSmoothPathsQuick);
-                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SMOOTH_PATHS_PRECISE, UserOptions.m_bSmoothPathsPrecise);
+                UserOptions().m_bSmoothPathsPrecise = !UserOptions().m_bSmoothPathsPrecise;
+                UserOptions().m_bSmoothPathsQuick = false;
+                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SMOOTH_PATHS_QUICK, UserOptions().m_bSmoothPathsQuick);
+                CheckMenuItemAppropriately(hwnd, IDM_NAVIGATION_SMOOTH_PATHS_PRECISE, UserOptions().m_bSmoothPathsPrecise);
                 break;
 
             case IDM_BOTS_SHOW_IDS:
-                UserOptions.m_bShowBotIDs = !UserOptions.m_bShowBotIDs;
-                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_IDS, UserOptions.m_bShowBotIDs);
+                UserOptions().m_bShowBotIDs = !UserOptions().m_bShowBotIDs;
+                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_IDS, UserOptions().m_bShowBotIDs);
                 break;
 
             case IDM_BOTS_SHOW_HEALTH:
-                UserOptions.m_bShowBotHealth = !UserOptions.m_bShowBotHealth;
-                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_HEALTH, UserOptions.m_bShowBotHealth);
+                UserOptions().m_bShowBotHealth = !UserOptions().m_bShowBotHealth;
+                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_HEALTH, UserOptions().m_bShowBotHealth);
                 break;
 
             case IDM_BOTS_SHOW_TARGET:
-                UserOptions.m_bShowTargetOfSelectedBot = !UserOptions.m_bShowTargetOfSelectedBot;
-                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_TARGET, UserOptions.m_bShowTargetOfSelectedBot);
+                UserOptions().m_bShowTargetOfSelectedBot = !UserOptions().m_bShowTargetOfSelectedBot;
+                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_TARGET, UserOptions().m_bShowTargetOfSelectedBot);
                 break;
 
             case IDM_BOTS_SHOW_SENSED:
-                UserOptions.m_bShowOpponentsSensedBySelectedBot = !UserOptions.m_bShowOpponentsSensedBySelectedBot;
-                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_SENSED, UserOptions.m_bShowOpponentsSensedBySelectedBot);
+                UserOptions().m_bShowOpponentsSensedBySelectedBot = !UserOptions().m_bShowOpponentsSensedBySelectedBot;
+                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_SENSED, UserOptions().m_bShowOpponentsSensedBySelectedBot);
                 break;
 
             case IDM_BOTS_SHOW_FOV:
-                UserOptions.m_bOnlyShowBotsInTargetsFOV = !UserOptions.m_bOnlyShowBotsInTargetsFOV;
-                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_FOV, UserOptions.m_bOnlyShowBotsInTargetsFOV);
+                UserOptions().m_bOnlyShowBotsInTargetsFOV = !UserOptions().m_bOnlyShowBotsInTargetsFOV;
+                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_FOV, UserOptions().m_bOnlyShowBotsInTargetsFOV);
                 break;
 
             case IDM_BOTS_SHOW_SCORES:
-                UserOptions.m_bShowScore = !UserOptions.m_bShowScore;
-                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_SCORES, UserOptions.m_bShowScore);
+                UserOptions().m_bShowScore = !UserOptions().m_bShowScore;
+                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_SCORES, UserOptions().m_bShowScore);
                 break;
 
             case IDM_BOTS_SHOW_GOAL_Q:
-                UserOptions.m_bShowGoalsOfSelectedBot = !UserOptions.m_bShowGoalsOfSelectedBot;
-                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_GOAL_Q, UserOptions.m_bShowGoalsOfSelectedBot);
+                UserOptions().m_bShowGoalsOfSelectedBot = !UserOptions().m_bShowGoalsOfSelectedBot;
+                CheckMenuItemAppropriately(hwnd, IDM_BOTS_SHOW_GOAL_Q, UserOptions().m_bShowGoalsOfSelectedBot);
                 break;
         }
     }
@@ -208,6 +209,10 @@ public class Main {
         cyClient = buffer.getHeight();
         //seed random number generator
         common.misc.utils.setSeed(0);
+        //the game clock advances one frame per update
+        Clock().SetTimeStep(1.0 / FrameRate);
+        //the path searches may take as long as a frame allows
+        UserOptions().m_bTimedPathSearches = true;
 
         hWnd.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         Point center = GraphicsEnvironment.getLocalGraphicsEnvironment().getCenterPoint();
@@ -226,13 +231,13 @@ public class Main {
             @Override
             public void paint(Graphics g) {
                 super.paint(g);
-                gdi.StartDrawing(hdcBackBuffer);
+                gdi().StartDrawing(hdcBackBuffer);
                 //fill our backbuffer with white
-                gdi.fillRect(Color.WHITE, 0, 0, WindowWidth, WindowHeight);
+                gdi().fillRect(Color.WHITE, 0, 0, WindowWidth, WindowHeight);
                 RavenGameLock.lock();
                 g_pRaven.Render();
                 RavenGameLock.unlock();
-                gdi.StopDrawing(hdcBackBuffer);
+                gdi().StopDrawing(hdcBackBuffer);
                 g.drawImage(buffer, 0, 0, null);
             }
         };
@@ -7,9 +7,18 @@
 NumBots   = 3
 
 --this is the maximum number of search cycles allocated to *all* current path
--- planning searches per update
+-- planning searches per update in the headless matches, so the matches play
+-- out the same on any machine
 MaxSearchCyclesPerUpdateStep = 1000
 
+--the time (in seconds) spent on *all* current path planning searches per
+--update in the windowed game
+MaxSearchTimePerUpdateStep = 0.002
+
+--if true the path planning searches run on worker threads and the paths are
+--ready at the start of the next update
+AsyncPathPlanning = false
+
 --the name of the default map
 StartMap = "./src/maps/Raven_DM1.map"
 
@@ -17,6 +26,18 @@ StartMap = "./src/maps/Raven_DM1.map"
 NumCellsX = 10
 NumCellsY = 10
 
+--the hierarchical path planner divides the map into clusters of
+--NumCellsPerCluster x NumCellsPerCluster cells
+NumCellsPerCluster = 2
+
+--the number of landmark nodes the A* heuristic of the path planner measures
+--the distances from
+NumLandmarks = 8
+
+--the number of paths the path planners remember, so a path asked for again
+--is not searched for again
+PathCacheSize = 256
+
 --how long the graves remain on screen
 GraveLifetime = 5
 
@@ -53,6 +74,17 @@ Bot_VisionUpdateFreq = 4
 --note that a frequency of -1 will disable the feature and a frequency of zero
 --will ensure the feature is updated every bot update
 
+--a bot only tests the line of sight to an opponent again when one of them
+--has moved to another cell of this size (or a door has moved) since the last
+--test, and only re-checks its field of view when it has turned by more than
+--this angle (in degrees)
+Vision_CellSize = 8
+Vision_FacingThreshold = 5
+
+--the most line of sight tests the vision updates of all the bots may make
+--in one update-step. The tests left over wait for the next vision update
+Vision_MaxLOSTestsPerUpdate = 100
+
 
 --the bot's field of view (in degrees)
 Bot_FOV = 180
@@ -119,6 +151,14 @@ Weapon_RespawnDelay  = 15
 -------------------------[[ weapon parameters ]]-------------------------------
 -------------------------------------------------------------------------------
 
+--the desirability of a weapon is read from a grid sampled from the weapon's
+--fuzzy rules. The grid starts with this many cells along each input and is
+--made finer (up to the maximum) until it is nowhere further than the error
+--from the rules
+Weapon_FuzzySurfaceResolution    = 32
+Weapon_FuzzySurfaceMaxResolution = 512
+Weapon_FuzzySurfaceMaxError      = 0.25
+
 Blaster_FiringFreq       = 3
 Blaster_MaxSpeed		 = 5
 Blaster_DefaultRounds    = 0 --not used, a blaster always has ammo
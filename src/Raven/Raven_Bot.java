@@ -2,6 +2,8 @@ package Raven;
 
 import static Raven.Constants.FrameRate;
 import Raven.goals.composite.Goal_Think;
+import Raven.goals.evaluation.Goal_Evaluator;
+import Raven.goals.evaluation.Raven_FeatureContext;
 import static Raven.Raven_Messages.message_type.Msg_YouGotMeYouSOB;
 import static Raven.Raven_ObjectEnumerations.type_bot;
 import Raven.navigation.Raven_PathPlanner;
@@ -16,6 +18,7 @@ import static common.D2.Vector2D.Vec2DDistance;
 import static common.D2.Vector2D.Vec2DDistanceSq;
 import static common.D2.Vector2D.Vec2DNormalize;
 import static common.D2.Transformation.WorldTransform;
+import static common.Time.CrudeTimer.Clock;
 import common.Time.Regulator;
 import static common.Debug.DbgConsole.debug_con;
 import static common.Messaging.MessageDispatcher.Dispatcher;
@@ -81,12 +84,29 @@ public class Raven_Bot extends MovingEntity {
      * shooting them
      */
     private Raven_WeaponSystem m_pWeaponSys;
+    /**
+     * the features the goal evaluators and the weapon selection rate the
+     * situation by, worked out once per update-step
+     */
+    private Raven_FeatureContext m_pFeatures;
     //A regulator object limits the update frequency of a specific AI component
     private Regulator m_pWeaponSelectionRegulator;
     private Regulator m_pGoalArbitrationRegulator;
     private Regulator m_pTargetSelectionRegulator;
     private Regulator m_pTriggerTestRegulator;
     private Regulator m_pVisionUpdateRegulator;
+    /**
+     * the regulated updates that are due this update-step. They are set by
+     * ScheduleThinking and carried out by Think
+     */
+    private boolean m_bTargetSelectionDue;
+    private boolean m_bGoalArbitrationDue;
+    private boolean m_bVisionUpdateDue;
+    private boolean m_bWeaponSelectionDue;
+    /**
+     * the goal evaluator chosen by Think. Its goal is set by Act
+     */
+    private Goal_Evaluator m_pPendingGoal;
     /**
      * the bot's health. Every time the bot is shot this value is decreased. If
      * it reaches zero then the bot dies (and respawns)
@@ -113,20 +133,23 @@ public class Raven_Bot extends MovingEntity {
     private double m_dFieldOfView;
     /**
      * to show that a player has been hit it is surrounded by a thick red circle
-     * for a fraction of a second. This variable represents the number of
-     * update-steps the circle gets drawn
-     */
-    private int m_iNumUpdatesHitPersistant;
-    /**
-     * set to true when the bot is hit, and remains true until
-     * m_iNumUpdatesHitPersistant becomes zero. (used by the render method to
-     * draw a thick red circle around a bot to indicate it's been hit)
+     * for a fraction of a second. The bot counts as hit (see isHit) until
+     * this time of the game clock. It is kept on the game clock, not counted
+     * down by the render method, because the path manager serves the bots
+     * under fire first and the game must play the same whether it is drawn
+     * or not
      */
-    private boolean m_bHit;
+    private double m_dTimeHitEnds;
     /**
      * set to true when a human player takes over control of the bot
      */
     private boolean m_bPossessed;
+    /**
+     * the index of the bot among the bots of the game (the lowest one free
+     * when the bot was added). The tables kept for every bot are indexed by
+     * it (see BotVisibility and Raven_SensoryMemory)
+     */
+    private int m_iSlot = -1;
     /**
      * a vertex buffer containing the bot's geometry
      */
@@ -171,7 +194,9 @@ public class Raven_Bot extends MovingEntity {
         m_vVelocity.Truncate(m_dMaxSpeed);
 
         //update the position
+        Vector2D OldPos = Pos();
         m_vPosition.add(m_vVelocity);
+        m_pWorld.GetBotGrid().UpdateEntity(this, OldPos);
 
         //if the vehicle has a non zero velocity the heading and side vectors must 
         //be updated
@@ -195,7 +220,7 @@ public class Raven_Bot extends MovingEntity {
         final int NumBotVerts = bot.length;
 
         m_dBoundingRadius = 0.0;
-        double scale = script.GetDouble("Bot_Scale");
+        double scale = script().GetDouble("Bot_Scale");
 
         for (int vtx = 0; vtx < NumBotVerts; ++vtx) {
             m_vecBotVB.add(bot[vtx]);
@@ -216,27 +241,26 @@ public class Raven_Bot extends MovingEntity {
     public Raven_Bot(Raven_Game world, Vector2D pos) {
 
         super(new Vector2D(pos),
-                script.GetDouble("Bot_Scale"),
+                script().GetDouble("Bot_Scale"),
                 new Vector2D(0, 0),
-                script.GetDouble("Bot_MaxSpeed"),
+                script().GetDouble("Bot_MaxSpeed"),
                 new Vector2D(1, 0),
-                script.GetDouble("Bot_Mass"),
-                new Vector2D(script.GetDouble("Bot_Scale"), script.GetDouble("Bot_Scale")),
-                script.GetDouble("Bot_MaxHeadTurnRate"),
-                script.GetDouble("Bot_MaxForce"));
+                script().GetDouble("Bot_Mass"),
+                new Vector2D(script().GetDouble("Bot_Scale"), script().GetDouble("Bot_Scale")),
+                script().GetDouble("Bot_MaxHeadTurnRate"),
+                script().GetDouble("Bot_MaxForce"));
 
-        m_iMaxHealth = script.GetInt("Bot_MaxHealth");
-        m_iHealth = script.GetInt("Bot_MaxHealth");
+        m_iMaxHealth = script().GetInt("Bot_MaxHealth");
+        m_iHealth = script().GetInt("Bot_MaxHealth");
         m_pPathPlanner = null;
         m_pSteering = null;
         m_pWorld = world;
         m_pBrain = null;
-        m_iNumUpdatesHitPersistant = (int) (FrameRate * script.GetDouble("HitFlashTime"));
-        m_bHit = false;
+        m_dTimeHitEnds = 0.0;
         m_iScore = 0;
         m_Status = spawning;
         m_bPossessed = false;
-        m_dFieldOfView = DegsToRads(script.GetDouble("Bot_FOV"));
+        m_dFieldOfView = DegsToRads(script().GetDouble("Bot_FOV"));
 
         SetEntityType(type_bot);
 
@@ -252,11 +276,11 @@ public class Raven_Bot extends MovingEntity {
         m_pSteering = new Raven_Steering(world, this);
 
         //create the regulators
-        m_pWeaponSelectionRegulator = new Regulator(script.GetDouble("Bot_WeaponSelectionFrequency"));
-        m_pGoalArbitrationRegulator = new Regulator(script.GetDouble("Bot_GoalAppraisalUpdateFreq"));
-        m_pTargetSelectionRegulator = new Regulator(script.GetDouble("Bot_TargetingUpdateFreq"));
-        m_pTriggerTestRegulator = new Regulator(script.GetDouble("Bot_TriggerUpdateFreq"));
-        m_pVisionUpdateRegulator = new Regulator(script.GetDouble("Bot_VisionUpdateFreq"));
+        m_pWeaponSelectionRegulator = new Regulator(script().GetDouble("Bot_WeaponSelectionFrequency"));
+        m_pGoalArbitrationRegulator = new Regulator(script().GetDouble("Bot_GoalAppraisalUpdateFreq"));
+        m_pTargetSelectionRegulator = new Regulator(script().GetDouble("Bot_TargetingUpdateFreq"));
+        m_pTriggerTestRegulator = new Regulator(script().GetDouble("Bot_TriggerUpdateFreq"));
+        m_pVisionUpdateRegulator = new Regulator(script().GetDouble("Bot_VisionUpdateFreq"));
 
         //create the goal queue
         m_pBrain = new Goal_Think(this);
@@ -265,11 +289,13 @@ public class Raven_Bot extends MovingEntity {
         m_pTargSys = new Raven_TargetingSystem(this);
 
         m_pWeaponSys = new Raven_WeaponSystem(this,
-                script.GetDouble("Bot_ReactionTime"),
-                script.GetDouble("Bot_AimAccuracy"),
-                script.GetDouble("Bot_AimPersistance"));
+                script().GetDouble("Bot_ReactionTime"),
+                script().GetDouble("Bot_AimAccuracy"),
+                script().GetDouble("Bot_AimPersistance"));
+
+        m_pSensoryMem = new Raven_SensoryMemory(this, script().GetDouble("Bot_MemorySpan"));
 
-        m_pSensoryMem = new Raven_SensoryMemory(this, script.GetDouble("Bot_MemorySpan"));
+        m_pFeatures = new Raven_FeatureContext(this);
     }
 
     //-------------------------------- dtor ---------------------------------------
@@ -290,23 +316,17 @@ public class Raven_Bot extends MovingEntity {
         m_pVisionUpdateRegulator = null;
         m_pWeaponSys = null;
         m_pSensoryMem = null;
+        m_pFeatures = null;
     }
 
     //the usual suspects
     @Override
     public void Render() {
-        //when a bot is hit by a projectile this value is set to a constant user
-        //defined value which dictates how long the bot should have a thick red
-        //circle drawn around it (to indicate it's been hit) The circle is drawn
-        //as long as this value is positive. (see Render)
-        m_iNumUpdatesHitPersistant--;
-
-
         if (isDead() || isSpawning()) {
             return;
         }
 
-        gdi.BluePen();
+        gdi().BluePen();
 
         m_vecBotVBTrans = WorldTransform(m_vecBotVB,
                 Pos(),
@@ -314,45 +334,111 @@ public class Raven_Bot extends MovingEntity {
                 Facing().Perp(),
                 Scale());
 
-        gdi.ClosedShape(m_vecBotVBTrans);
+        gdi().ClosedShape(m_vecBotVBTrans);
 
         //draw the head
-        gdi.BrownBrush();
-        gdi.Circle(Pos(), 6.0 * Scale().x);
+        gdi().BrownBrush();
+        gdi().Circle(Pos(), 6.0 * Scale().x);
 
 
         //render the bot's weapon
         m_pWeaponSys.RenderCurrentWeapon();
 
         //render a thick red circle if the bot gets hit by a weapon
-        if (m_bHit) {
-            gdi.ThickRedPen();
-            gdi.HollowBrush();
-            gdi.Circle(m_vPosition, BRadius() + 1);
-
-            if (m_iNumUpdatesHitPersistant <= 0) {
-                m_bHit = false;
-            }
+        if (isHit()) {
+            gdi().ThickRedPen();
+            gdi().HollowBrush();
+            gdi().Circle(m_vPosition, BRadius() + 1);
         }
 
-        gdi.TransparentText();
-        gdi.TextColor(0, 255, 0);
+        gdi().TransparentText();
+        gdi().TextColor(0, 255, 0);
 
-        if (UserOptions.m_bShowBotIDs) {
-            gdi.TextAtPos(Pos().x - 10, Pos().y - 20, ttos(ID()));
+        if (UserOptions().m_bShowBotIDs) {
+            gdi().TextAtPos(Pos().x - 10, Pos().y - 20, ttos(ID()));
         }
 
-        if (UserOptions.m_bShowBotHealth) {
-            gdi.TextAtPos(Pos().x - 40, Pos().y - 5, "H:" + ttos(Health()));
+        if (UserOptions().m_bShowBotHealth) {
+            gdi().TextAtPos(Pos().x - 40, Pos().y - 5, "H:" + ttos(Health()));
         }
 
-        if (UserOptions.m_bShowScore) {
-            gdi.TextAtPos(Pos().x - 40, Pos().y + 10, "Scr:" + ttos(Score()));
+        if (UserOptions().m_bShowScore) {
+            gdi().TextAtPos(Pos().x - 40, Pos().y + 10, "Scr:" + ttos(Score()));
         }
     }
 
+    /**
+     * The bot's update is split into three steps so the game can run the
+     * expensive middle one for all bots at once:
+     *
+     * ScheduleThinking - decides which regulated updates are due (uses the
+     * random number generator so it must be called for each bot in turn)
+     * Think - senses the world and decides what to do. Only reads the world
+     * and writes the bot's own sensory memory, targeting and weapon systems
+     * Act - carries out the decisions: moves, sets new goals and shoots
+     */
     @Override
     public void Update() {
+        if (ScheduleThinking()) {
+            Think();
+        }
+        Act();
+    }
+
+    /**
+     * checks the regulators and returns true if Think has anything to do this
+     * update-step
+     */
+    public boolean ScheduleThinking() {
+        //if the bot is under AI control but not scripted
+        if (isPossessed()) {
+            m_bTargetSelectionDue = m_bGoalArbitrationDue = false;
+            m_bVisionUpdateDue = m_bWeaponSelectionDue = false;
+            return false;
+        }
+
+        m_bTargetSelectionDue = m_pTargetSelectionRegulator.isReady();
+        m_bGoalArbitrationDue = m_pGoalArbitrationRegulator.isReady();
+        m_bVisionUpdateDue = m_pVisionUpdateRegulator.isReady();
+        m_bWeaponSelectionDue = m_pWeaponSelectionRegulator.isReady();
+
+        return m_bTargetSelectionDue || m_bGoalArbitrationDue
+                || m_bVisionUpdateDue || m_bWeaponSelectionDue;
+    }
+
+    /**
+     * the perception and decision part of the update. Does not change the
+     * world so it may run concurrently for different bots.
+     */
+    public void Think() {
+        //examine all the opponents in the bots sensory memory and select one
+        //to be the current target
+        if (m_bTargetSelectionDue) {
+            m_pTargSys.Update();
+        }
+
+        //appraise all possible high level goals. The winner is arbitrated in Act
+        if (m_bGoalArbitrationDue) {
+            m_pPendingGoal = m_pBrain.SelectMostDesirable();
+        }
+
+        //update the sensory memory with any visual stimulus
+        if (m_bVisionUpdateDue) {
+            m_pSensoryMem.UpdateVision();
+        }
+
+        //select the appropriate weapon to use from the weapons currently in
+        //the inventory
+        if (m_bWeaponSelectionDue) {
+            m_pWeaponSys.SelectWeapon();
+        }
+    }
+
+    /**
+     * the part of the update that changes the world. Must be called for each
+     * bot in turn.
+     */
+    public void Act() {
         //process the currently active goal. Note this is required even if the bot
         //is under user control. This is because a goal is created whenever a user 
         //clicks on an area of the map that necessitates a path planning request.
@@ -363,26 +449,10 @@ public class Raven_Bot extends MovingEntity {
 
         //if the bot is under AI control but not scripted
         if (!isPossessed()) {
-            //examine all the opponents in the bots sensory memory and select one
-            //to be the current target
-            if (m_pTargetSelectionRegulator.isReady()) {
-                m_pTargSys.Update();
-            }
-
-            //appraise and arbitrate between all possible high level goals
-            if (m_pGoalArbitrationRegulator.isReady()) {
-                m_pBrain.Arbitrate();
-            }
-
-            //update the sensory memory with any visual stimulus
-            if (m_pVisionUpdateRegulator.isReady()) {
-                m_pSensoryMem.UpdateVision();
-            }
-
-            //select the appropriate weapon to use from the weapons currently in
-            //the inventory
-            if (m_pWeaponSelectionRegulator.isReady()) {
-                m_pWeaponSys.SelectWeapon();
+            //switch to the goal chosen by Think
+            if (m_pPendingGoal != null) {
+                m_pPendingGoal.SetGoal(this);
+                m_pPendingGoal = null;
             }
 
             //this method aims the bot's current weapon at the current target
@@ -412,7 +482,7 @@ public class Raven_Bot extends MovingEntity {
 
                 //if this bot is now dead let the shooter know
                 if (isDead()) {
-                    Dispatcher.DispatchMsg(SEND_MSG_IMMEDIATELY,
+                    Dispatcher().DispatchMsg(SEND_MSG_IMMEDIATELY,
                             ID(),
                             msg.Sender,
                             Msg_YouGotMeYouSOB,
@@ -526,9 +596,8 @@ public class Raven_Bot extends MovingEntity {
             SetDead();
         }
 
-        m_bHit = true;
-
-        m_iNumUpdatesHitPersistant = (int) (FrameRate * script.GetDouble("HitFlashTime"));
+        //the bot shows it has been hit for a user defined time
+        m_dTimeHitEnds = Clock().GetCurrentTime() + script().GetDouble("HitFlashTime");
     }
 
     public void IncreaseHealth(int val) {
@@ -570,6 +639,13 @@ public class Raven_Bot extends MovingEntity {
         return m_Status == Status.alive;
     }
 
+    /**
+     * @return true if the bot has been hit during the last few update-steps
+     */
+    public boolean isHit() {
+        return Clock().GetCurrentTime() < m_dTimeHitEnds;
+    }
+
     public boolean isSpawning() {
         return m_Status == Status.spawning;
     }
@@ -621,6 +697,7 @@ public class Raven_Bot extends MovingEntity {
     public void TakePossession() {
         if (!(isSpawning() || isDead())) {
             m_bPossessed = true;
+            m_pPendingGoal = null;
 
             debug_con.print("Player Possesses bot ").print(this.ID()).print("");
         }
@@ -643,9 +720,12 @@ public class Raven_Bot extends MovingEntity {
      */
     public void Spawn(Vector2D pos) {
         SetAlive();
+        m_pPendingGoal = null;
         m_pBrain.RemoveAllSubgoals();
         m_pTargSys.ClearTarget();
+        Vector2D OldPos = Pos();
         SetPos(pos);
+        m_pWorld.GetBotGrid().UpdateEntity(this, OldPos);
         m_pWeaponSys.Initialize();
         RestoreHealthToMaximum();
     }
@@ -664,6 +744,29 @@ public class Raven_Bot extends MovingEntity {
         return m_pWorld.isLOSOkay(Pos(), pos);
     }
 
+    /**
+     * returns true if the bot has line of sight to the other bot. (The
+     * result is shared with the other bot, see BotVisibility)
+     */
+    public boolean hasLOSto(Raven_Bot bot) {
+        return m_pWorld.isLOSOkay(this, bot);
+    }
+
+    /**
+     * @return true if the bot updates its vision in this update-step
+     */
+    boolean isVisionUpdateDue() {
+        return m_bVisionUpdateDue;
+    }
+
+    int GetSlot() {
+        return m_iSlot;
+    }
+
+    void SetSlot(int slot) {
+        m_iSlot = slot;
+    }
+
     /**
      * returns true if this bot can move directly to the given position without
      * bumping into any walls
@@ -744,6 +847,10 @@ public class Raven_Bot extends MovingEntity {
         return m_pTargSys.GetTarget();
     }
 
+    public Raven_FeatureContext GetFeatures() {
+        return m_pFeatures;
+    }
+
     public Raven_WeaponSystem GetWeaponSys() {
         return m_pWeaponSys;
     }
@@ -10,6 +10,8 @@ import static common.D2.Vector2D.sub;
 import static common.D2.Vector2D.Vec2DNormalize;
 import common.Messaging.Telegram;
 import static common.misc.Cgdi.gdi;
+import common.misc.ScannerTokenReader;
+import common.misc.TokenReader;
 import static common.misc.Stream_Utility_function.GetValueFromStream_Int;
 import static common.misc.utils.clamp;
 import java.io.InputStream;
@@ -32,6 +34,11 @@ class Raven_Door extends BaseGameEntity {
         open, opening, closed, closing
     };
     protected door_status m_Status;
+    /**
+     * the map the door is part of. It is told whenever the door changes its
+     * status
+     */
+    private final Raven_Map m_pMap;
     /**
      * a sliding door is created from two walls, back to back.These walls must
      * be added to a map's geometry in order for an agent to detect them
@@ -64,11 +71,21 @@ class Raven_Door extends BaseGameEntity {
      */
     protected double m_dCurrentSize;
 
+    /**
+     * changes the status of the door and lets the map know about it
+     */
+    protected void SetStatus(door_status status) {
+        if (m_Status != status) {
+            m_Status = status;
+            m_pMap.DoorStateChanged(this);
+        }
+    }
+
     //---------------------------- Open -------------------------------------------
     protected void Open() {
         if (m_Status == door_status.opening) {
             if (m_dCurrentSize < 2) {
-                m_Status = door_status.open;
+                SetStatus(door_status.open);
 
                 m_iNumTicksCurrentlyOpen = m_iNumTicksStayOpen;
 
@@ -89,7 +106,7 @@ class Raven_Door extends BaseGameEntity {
     protected void Close() {
         if (m_Status == door_status.closing) {
             if (m_dCurrentSize == m_dSize) {
-                m_Status = door_status.closed;
+                SetStatus(door_status.closed);
                 return;
 
             }
@@ -121,7 +138,12 @@ class Raven_Door extends BaseGameEntity {
     }
     
     public Raven_Door(Raven_Map pMap, Scanner is) {
+        this(pMap, new ScannerTokenReader(is));
+    }
+
+    public Raven_Door(Raven_Map pMap, TokenReader is) {
         super(GetValueFromStream_Int(is));
+        m_pMap = pMap;
         m_Status = door_status.closed;
         m_iNumTicksStayOpen = 60;                   //MGC!
         Read(is);
@@ -146,8 +168,8 @@ class Raven_Door extends BaseGameEntity {
     //the usual suspects
     @Override
     public void Render() {
-        gdi.ThickBluePen();
-        gdi.Line(m_vP1, m_vP2);
+        gdi().ThickBluePen();
+        gdi().Line(m_vP1, m_vP2);
     }
 
 //--------------------------- Update ------------------------------------------
@@ -166,7 +188,7 @@ class Raven_Door extends BaseGameEntity {
 
             case open: {
                 if (m_iNumTicksCurrentlyOpen-- < 0) {
-                    m_Status = door_status.closing;
+                    SetStatus(door_status.closing);
                 }
             }
         }
@@ -178,7 +200,7 @@ class Raven_Door extends BaseGameEntity {
     public boolean HandleMessage(final Telegram msg) {
         if (msg.Msg == Msg_OpenSesame) {
             if (m_Status != door_status.open) {
-                m_Status = door_status.opening;
+                SetStatus(door_status.opening);
             }
 
             return true;
@@ -194,6 +216,11 @@ class Raven_Door extends BaseGameEntity {
     
     @Override
     public void Read(Scanner in) {
+        Read(new ScannerTokenReader(in));
+    }
+
+    @Override
+    public void Read(TokenReader in) {
         double x, y;
         
         //grab the hinge points
@@ -232,6 +259,21 @@ class Raven_Door extends BaseGameEntity {
         m_Switches.add(id);
     }
 
+    /**
+     * @return true if the door is opening or closing (so its walls move)
+     */
+    public boolean isMoving() {
+        return m_Status == door_status.opening || m_Status == door_status.closing;
+    }
+
+    /**
+     * @return true if the door is closed or closing (so a bot has to use a
+     * switch to get through)
+     */
+    public boolean isShut() {
+        return m_Status == door_status.closed || m_Status == door_status.closing;
+    }
+
     public List<Integer> GetSwitchIDs() {
         return new ArrayList<Integer>(m_Switches);
     }
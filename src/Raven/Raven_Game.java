@@ -15,6 +15,7 @@ import static Raven.Raven_ObjectEnumerations.type_shotgun;
 import static Raven.Raven_UserOptions.UserOptions;
 import static Raven.DEFINE.*;
 import Raven.goals.Raven_Goal_Types.GoalTypeToString;
+import Raven.navigation.PathCache;
 import Raven.navigation.PathManager;
 import Raven.navigation.Raven_PathPlanner;
 import common.D2.Vector2D;
@@ -31,6 +32,7 @@ import static common.Debug.DbgConsole.debug_con;
 import static common.Game.EntityFunctionTemplates.TagNeighbors;
 import static common.Game.EntityManager.EntityMgr;
 import static common.Messaging.MessageDispatcher.Dispatcher;
+import static common.Time.CrudeTimer.Clock;
 import static common.Messaging.MessageDispatcher.SEND_MSG_IMMEDIATELY;
 import static common.Messaging.MessageDispatcher.SENDER_ID_IRRELEVANT;
 import static common.misc.Stream_Utility_function.ttos;
@@ -41,10 +43,15 @@ import static common.misc.WindowUtils.GetClientCursorPosition;
 import static common.misc.WindowUtils.IS_KEY_PRESSED;
 import common.windows.POINTS;
 import java.awt.event.KeyEvent;
+import common.Game.EntityGrid;
+import common.Game.GameContext;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Author: Mat Buckland (www.ai-junkie.com)
@@ -69,6 +76,14 @@ public class Raven_Game {
      * a list of all the bots that are inhabiting the map
      */
     private List<Raven_Bot> m_Bots = new LinkedList<Raven_Bot>();
+    /**
+     * the number of update-steps so far
+     */
+    private long m_lNumUpdates = 0;
+    /**
+     * the slots taken by the bots (see Raven_Bot.GetSlot)
+     */
+    private BitSet m_UsedSlots = new BitSet();
     /**
      * the user may select a bot to control manually. This is a pointer to that
      * bot
@@ -83,6 +98,10 @@ public class Raven_Game {
      * this class manages all the path planning requests
      */
     private PathManager<Raven_PathPlanner> m_pPathManager;
+    /**
+     * the paths found by the path planners of all the bots
+     */
+    private PathCache m_pPathCache;
     /**
      * if true the game will be paused
      */
@@ -96,6 +115,81 @@ public class Raven_Game {
      * manages the graves
      */
     private GraveMarkers m_pGraveMarkers;
+    /**
+     * the bots sorted into a grid of cells so proximity queries don't have to
+     * test every bot. Kept up to date by the bots as they move
+     */
+    private EntityGrid<Raven_Bot> m_pBotGrid;
+    /**
+     * the line of sight tests between the bots, shared by all of them
+     */
+    private BotVisibility m_pVisibility;
+    /**
+     * the bots tagged by the last call to TagRaven_BotsWithinViewRange
+     */
+    private List<Raven_Bot> m_TaggedBots = new ArrayList<Raven_Bot>();
+    /**
+     * used by the proximity queries run from the game's own thread
+     */
+    private List<Raven_Bot> m_QueryResult = new ArrayList<Raven_Bot>();
+    /**
+     * the largest bounding radius of any bot. Queries that must take the
+     * radius of the other bot into account are widened by this much
+     */
+    private double m_dMaxBotRadius = 0.0;
+    /**
+     * the bots that are alive at the start of this update-step and the ones
+     * among them that have something to think about
+     */
+    private List<Raven_Bot> m_LivingBots = new ArrayList<Raven_Bot>();
+    private List<Raven_Bot> m_ThinkingBots = new ArrayList<Raven_Bot>();
+    /**
+     * the think phase of the bots is only spread over the fork/join pool when
+     * at least this many bots need it. Below that the overhead is not worth it
+     */
+    private static final int ParallelThinkThreshold = 16;
+
+    /**
+     * runs Think for a range of bots, splitting the range in halves until it
+     * is small enough to be run by one thread
+     */
+    private static class ThinkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int NumBotsPerTask = 4;
+        private final GameContext m_Context;
+        private final List<Raven_Bot> m_Bots;
+        private final int m_iFrom;
+        private final int m_iTo;
+
+        ThinkTask(GameContext context, List<Raven_Bot> bots, int from, int to) {
+            m_Context = context;
+            m_Bots = bots;
+            m_iFrom = from;
+            m_iTo = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (m_iTo - m_iFrom > NumBotsPerTask) {
+                int mid = (m_iFrom + m_iTo) >>> 1;
+                invokeAll(new ThinkTask(m_Context, m_Bots, m_iFrom, mid),
+                        new ThinkTask(m_Context, m_Bots, mid, m_iTo));
+                return;
+            }
+
+            //the worker threads must see the services of this match
+            GameContext prev = m_Context.Bind();
+            try {
+                for (int i = m_iFrom; i < m_iTo; ++i) {
+                    m_Bots.get(i).Think();
+                }
+            } finally {
+                GameContext.Bind(prev);
+            }
+        }
+    }
 
     /**
      * this iterates through each trigger, testing each one against each bot
@@ -132,6 +226,7 @@ public class Raven_Game {
         //clear the containers
         m_Projectiles.clear();
         m_Bots.clear();
+        m_UsedSlots.clear();
 
         m_pSelectedBot = null;
 
@@ -156,13 +251,13 @@ public class Raven_Game {
             //select a random spawn point
             Vector2D pos = m_pMap.GetRandomSpawnPoint();
 
-            //check to see if it's occupied
-            Iterator<Raven_Bot> it = m_Bots.iterator();
+            //check to see if it's occupied. Only the bots closer than the
+            //largest bounding radius can occupy it
+            m_pBotGrid.QueryRadius(pos, m_dMaxBotRadius, m_QueryResult);
 
             boolean bAvailable = true;
 
-            while (it.hasNext()) {
-                Raven_Bot curBot = it.next();
+            for (Raven_Bot curBot : m_QueryResult) {
                 //if the spawn point is unoccupied spawn a bot
                 if (Vec2DDistance(pos, curBot.Pos()) < curBot.BRadius()) {
                     bAvailable = false;
@@ -188,7 +283,7 @@ public class Raven_Game {
         Iterator<Raven_Bot> it = m_Bots.iterator();
         while (it.hasNext()) {
             Raven_Bot curBot = it.next();
-            Dispatcher.DispatchMsg(SEND_MSG_IMMEDIATELY,
+            Dispatcher().DispatchMsg(SEND_MSG_IMMEDIATELY,
                     SENDER_ID_IRRELEVANT,
                     curBot.ID(),
                     Msg_UserHasRemovedBot,
@@ -204,9 +299,10 @@ public class Raven_Game {
         m_bRemoveABot = false;
         m_pMap = null;
         m_pPathManager = null;
+        m_pPathCache = null;
         m_pGraveMarkers = null;
         //load in the default map
-        LoadMap(script.GetString("StartMap"));
+        LoadMap(script().GetString("StartMap"));
         
         TODO("Odstranit automaticky vyber bota");
         if(m_Bots.size() > 0)  {
@@ -235,7 +331,7 @@ public class Raven_Game {
 
         //render all the bots unless the user has selected the option to only 
         //render those bots that are in the fov of the selected bot
-        if (m_pSelectedBot != null && UserOptions.m_bOnlyShowBotsInTargetsFOV) {
+        if (m_pSelectedBot != null && UserOptions().m_bOnlyShowBotsInTargetsFOV) {
             List<Raven_Bot> VisibleBots = GetAllBotsInFOV(m_pSelectedBot);
             Iterator<Raven_Bot> it = VisibleBots.iterator();
             while (it.hasNext()) {
@@ -261,64 +357,64 @@ public class Raven_Game {
             curW.next().Render();
         }
 
-        // gdi.TextAtPos(300, Constants.WindowHeight - 70, "Num Current Searches: " + ttos(m_pPathManager.GetNumActiveSearches()));
+        // gdi().TextAtPos(300, Constants.WindowHeight - 70, "Num Current Searches: " + ttos(m_pPathManager.GetNumActiveSearches()));
 
         //render a red circle around the selected bot (blue if possessed)
         if (m_pSelectedBot != null) {
             if (m_pSelectedBot.isPossessed()) {
-                gdi.BluePen();
-                gdi.HollowBrush();
-                gdi.Circle(m_pSelectedBot.Pos(), m_pSelectedBot.BRadius() + 1);
+                gdi().BluePen();
+                gdi().HollowBrush();
+                gdi().Circle(m_pSelectedBot.Pos(), m_pSelectedBot.BRadius() + 1);
             } else {
-                gdi.RedPen();
-                gdi.HollowBrush();
-                gdi.Circle(m_pSelectedBot.Pos(), m_pSelectedBot.BRadius() + 1);
+                gdi().RedPen();
+                gdi().HollowBrush();
+                gdi().Circle(m_pSelectedBot.Pos(), m_pSelectedBot.BRadius() + 1);
             }
 
 
-            if (UserOptions.m_bShowOpponentsSensedBySelectedBot) {
+            if (UserOptions().m_bShowOpponentsSensedBySelectedBot) {
                 m_pSelectedBot.GetSensoryMem().RenderBoxesAroundRecentlySensed();
             }
 
             //render a square around the bot's target
-            if (UserOptions.m_bShowTargetOfSelectedBot && m_pSelectedBot.GetTargetBot() != null) {
+            if (UserOptions().m_bShowTargetOfSelectedBot && m_pSelectedBot.GetTargetBot() != null) {
 
-                gdi.ThickRedPen();
+                gdi().ThickRedPen();
 
                 Vector2D p = m_pSelectedBot.GetTargetBot().Pos();
                 double b = m_pSelectedBot.GetTargetBot().BRadius();
 
-                gdi.Line(p.x - b, p.y - b, p.x + b, p.y - b);
-                gdi.Line(p.x + b, p.y - b, p.x + b, p.y + b);
-                gdi.Line(p.x + b, p.y + b, p.x - b, p.y + b);
-                gdi.Line(p.x - b, p.y + b, p.x - b, p.y - b);
+                gdi().Line(p.x - b, p.y - b, p.x + b, p.y - b);
+                gdi().Line(p.x + b, p.y - b, p.x + b, p.y + b);
+                gdi().Line(p.x + b, p.y + b, p.x - b, p.y + b);
+                gdi().Line(p.x - b, p.y + b, p.x - b, p.y - b);
             }
 
 
 
             //render the path of the bot
-            if (UserOptions.m_bShowPathOfSelectedBot) {
+            if (UserOptions().m_bShowPathOfSelectedBot) {
                 m_pSelectedBot.GetBrain().Render();
             }
 
             //display the bot's goal stack
-            if (UserOptions.m_bShowGoalsOfSelectedBot) {
+            if (UserOptions().m_bShowGoalsOfSelectedBot) {
                 Vector2D p = new Vector2D(m_pSelectedBot.Pos().x - 50, m_pSelectedBot.Pos().y);
 
                 m_pSelectedBot.GetBrain().RenderAtPos(p, GoalTypeToString.Instance());
             }
 
-            if (UserOptions.m_bShowGoalAppraisals) {
+            if (UserOptions().m_bShowGoalAppraisals) {
                 m_pSelectedBot.GetBrain().RenderEvaluations(5, 415);
             }
 
-            if (UserOptions.m_bShowWeaponAppraisals) {
+            if (UserOptions().m_bShowWeaponAppraisals) {
                 m_pSelectedBot.GetWeaponSys().RenderDesirabilities();
             }
 
             if (IS_KEY_PRESSED(KeyEvent.VK_Q) && m_pSelectedBot.isPossessed()) {
-                gdi.TextColor(255, 0, 0);
-                gdi.TextAtPos(GetClientCursorPosition(), "Queuing");
+                gdi().TextColor(255, 0, 0);
+                gdi().TextAtPos(GetClientCursorPosition(), "Queuing");
             }
         }
     }
@@ -332,6 +428,11 @@ public class Raven_Game {
             return;
         }
 
+        ++m_lNumUpdates;
+
+        //advance the game clock (only has an effect in virtual time)
+        Clock().Tick();
+
         m_pGraveMarkers.Update();
 
         //get any player keyboard input
@@ -360,6 +461,8 @@ public class Raven_Game {
         //update the bots
         boolean bSpawnPossible = true;
 
+        m_LivingBots.clear();
+        m_ThinkingBots.clear();
         Iterator<Raven_Bot> botsIt = m_Bots.iterator();
         while (botsIt.hasNext()) {
             Raven_Bot curBot = botsIt.next();
@@ -375,9 +478,39 @@ public class Raven_Game {
 
                 //change its status to spawning
                 curBot.SetSpawning();
-            } //if this bot is alive update it.
+            } //if this bot is alive find out what it has to think about
             else if (curBot.isAlive()) {
-                curBot.Update();
+                m_LivingBots.add(curBot);
+                if (curBot.ScheduleThinking()) {
+                    m_ThinkingBots.add(curBot);
+                }
+            }
+        }
+
+        //the bots that have not moved (and not been moved by a door) since
+        //the last update-step still see each other the same way
+        boolean DoorsMoving = false;
+        for (Raven_Door door : m_pMap.GetDoors()) {
+            DoorsMoving |= door.isMoving();
+        }
+        m_pVisibility.Refresh(m_Bots, GetNumSlots(), DoorsMoving);
+        m_pVisibility.ShareOutTests(m_ThinkingBots);
+
+        //let the bots sense the world and make their decisions. Nothing in the
+        //world changes while they do so they can all think at the same time
+        if (m_ThinkingBots.size() >= ParallelThinkThreshold) {
+            ForkJoinPool.commonPool().invoke(
+                    new ThinkTask(GameContext.Current(), m_ThinkingBots, 0, m_ThinkingBots.size()));
+        } else {
+            for (Raven_Bot curBot : m_ThinkingBots) {
+                curBot.Think();
+            }
+        }
+
+        //then let the bots act on their decisions, one after another
+        for (Raven_Bot curBot : m_LivingBots) {
+            if (curBot.isAlive()) {
+                curBot.Act();
             }
         }
 
@@ -394,6 +527,9 @@ public class Raven_Game {
                 }
                 NotifyAllBotsOfRemoval(pBot);
                 m_Bots.remove(pBot);
+                m_UsedSlots.clear(pBot.GetSlot());
+                m_pBotGrid.RemoveEntity(pBot);
+                m_TaggedBots.remove(pBot);
                 pBot = null;
             }
 
@@ -413,19 +549,38 @@ public class Raven_Game {
         m_pMap = null;
         m_pGraveMarkers = null;
         m_pPathManager = null;
+        m_pPathCache = null;
+
+        //every map starts at time zero
+        Clock().Reset();
 
         //in with the new
-        m_pGraveMarkers = new GraveMarkers(script.GetDouble("GraveLifetime"));
-        m_pPathManager = new PathManager<Raven_PathPlanner>(script.GetInt("MaxSearchCyclesPerUpdateStep"));
+        m_pGraveMarkers = new GraveMarkers(script().GetDouble("GraveLifetime"));
+        m_pPathManager = new PathManager<Raven_PathPlanner>(script().GetInt("MaxSearchCyclesPerUpdateStep"),
+                script().GetDouble("MaxSearchTimePerUpdateStep"),
+                UserOptions().m_bTimedPathSearches,
+                script().GetBool("AsyncPathPlanning"));
+        m_pPathCache = new PathCache(script().GetInt("PathCacheSize"));
+        m_pVisibility = new BotVisibility(this);
         m_pMap = new Raven_Map();
 
         //make sure the entity manager is reset
-        EntityMgr.Reset();
+        EntityMgr().Reset();
+
 
+        //the bots should not wait for a weapon's fuzzy surface when they pick
+        //the weapon up
+        Raven_WeaponSystem.CompileDesirabilitySurfaces();
 
         //load the new map data
         if (m_pMap.LoadMap(filename)) {
-            AddBots(script.GetInt("NumBots"));
+            m_pBotGrid = new EntityGrid<Raven_Bot>(m_pMap.GetSizeX(),
+                    m_pMap.GetSizeY(),
+                    script().GetInt("NumCellsX"),
+                    script().GetInt("NumCellsY"));
+            m_TaggedBots.clear();
+
+            AddBots(script().GetInt("NumBots"));
 
             return true;
         }
@@ -441,15 +596,19 @@ public class Raven_Game {
             //create a bot. (its position is irrelevant at this point because it will
             //not be rendered until it is spawned)
             Raven_Bot rb = new Raven_Bot(this, new Vector2D());
+            rb.SetSlot(m_UsedSlots.nextClearBit(0));
+            m_UsedSlots.set(rb.GetSlot());
 
             //switch the default steering behaviors on
             rb.GetSteering().WallAvoidanceOn();
             rb.GetSteering().SeparationOn();
 
             m_Bots.add(rb);
+            m_pBotGrid.AddEntity(rb);
+            m_dMaxBotRadius = Math.max(m_dMaxBotRadius, rb.BRadius());
 
             //register the bot with the entity manager
-            EntityMgr.RegisterEntity(rb);
+            EntityMgr().RegisterEntity(rb);
 
 
             if (def(LOG_CREATIONAL_STUFF)) {
@@ -527,7 +686,7 @@ public class Raven_Game {
             curPos.add(mul(ToB, 0.5 * BoundingRadius));
 
             //test all walls against the new position
-            if (doWallsIntersectCircle(m_pMap.GetWalls(), curPos, BoundingRadius)) {
+            if (doWallsIntersectCircle(m_pMap.GetWallGrid(), curPos, BoundingRadius)) {
                 return true;
             }
         }
@@ -556,9 +715,7 @@ public class Raven_Game {
                     pBot.FieldOfView())) {
                 //cast a ray from between the bots to test visibility. If the bot is
                 //visible add it to the vector
-                if (!doWallsObstructLineSegment(pBot.Pos(),
-                        curBot.Pos(),
-                        m_pMap.GetWalls())) {
+                if (isLOSOkay(pBot, curBot)) {
                     VisibleBots.add(curBot);
                 }
             }
@@ -582,9 +739,7 @@ public class Raven_Game {
                     pFirst.FieldOfView())) {
                 //test the line segment connecting the bot's positions against the walls.
                 //If the bot is visible add it to the vector
-                if (!doWallsObstructLineSegment(pFirst.Pos(),
-                        pSecond.Pos(),
-                        m_pMap.GetWalls())) {
+                if (isLOSOkay(pFirst, pSecond)) {
                     return true;
                 }
             }
@@ -597,7 +752,16 @@ public class Raven_Game {
      * returns true if the ray between A and B is unobstructed.
      */
     public boolean isLOSOkay(Vector2D A, Vector2D B) {
-        return !doWallsObstructLineSegment(A, B, m_pMap.GetWalls());
+        return !doWallsObstructLineSegment(A, B, m_pMap.GetWallGrid());
+    }
+
+    /**
+     * returns true if the ray between the two bots is unobstructed. The
+     * result is looked up in the line of sight matrix shared by all the bots
+     * while neither of them moves
+     */
+    public boolean isLOSOkay(Raven_Bot pFirst, Raven_Bot pSecond) {
+        return m_pVisibility.isLOSOkay(pFirst, pSecond);
     }
 
     /**
@@ -628,7 +792,7 @@ public class Raven_Game {
         //now test to see which one is closest and visible
         Iterator<Integer> idIt = SwitchIDs.iterator();
         while (idIt.hasNext()) {
-            BaseGameEntity trig = EntityMgr.GetEntityFromID(idIt.next());
+            BaseGameEntity trig = EntityMgr().GetEntityFromID(idIt.next());
 
             if (isLOSOkay(botPos, trig.Pos())) {
                 double dist = Vec2DDistanceSq(botPos, trig.Pos());
@@ -649,9 +813,10 @@ public class Raven_Game {
      * method returns NULL
      */
     public Raven_Bot GetBotAtPosition(Vector2D CursorPos) {
-        Iterator<Raven_Bot> it = m_Bots.iterator();
-        while (it.hasNext()) {
-            Raven_Bot curBot = it.next();
+        //called from the gui thread so it can't use m_QueryResult
+        List<Raven_Bot> near = new ArrayList<Raven_Bot>();
+        m_pBotGrid.QueryRadius(CursorPos, m_dMaxBotRadius * 2, near);
+        for (Raven_Bot curBot : near) {
             if (Vec2DDistance(curBot.Pos(), CursorPos) < curBot.BRadius()*2) {
                 if (curBot.isAlive()) {
                     return curBot;
@@ -794,11 +959,63 @@ public class Raven_Game {
         return m_pPathManager;
     }
 
+    public PathCache GetPathCache() {
+        return m_pPathCache;
+    }
+
+    /**
+     * returns the number of update-steps so far
+     */
+    public long GetNumUpdates() {
+        return m_lNumUpdates;
+    }
+
     public int GetNumBots() {
         return m_Bots.size();
     }
 
-    public void TagRaven_BotsWithinViewRange(BaseGameEntity pRaven_Bot, double range) {
-        TagNeighbors(pRaven_Bot, m_Bots, range);
+    /**
+     * returns the number of the slots up to the highest one taken by a bot
+     * (see Raven_Bot.GetSlot)
+     */
+    public int GetNumSlots() {
+        return m_UsedSlots.length();
+    }
+
+    public BotVisibility GetVisibility() {
+        return m_pVisibility;
+    }
+
+    public EntityGrid<Raven_Bot> GetBotGrid() {
+        return m_pBotGrid;
+    }
+
+    public double GetMaxBotRadius() {
+        return m_dMaxBotRadius;
+    }
+
+    /**
+     * tags the bots within range of the given bot (taking their bounding
+     * radius into account) and returns them
+     */
+    public List<Raven_Bot> TagRaven_BotsWithinViewRange(BaseGameEntity pRaven_Bot, double range) {
+        //clear the tags set by the previous call
+        for (Raven_Bot curBot : m_TaggedBots) {
+            curBot.UnTag();
+        }
+
+        //the bounding radius of the other bot is added to the range so look
+        //as far as the largest radius further
+        m_pBotGrid.QueryRadius(pRaven_Bot.Pos(), range + m_dMaxBotRadius, m_QueryResult);
+        TagNeighbors(pRaven_Bot, m_QueryResult, range);
+
+        m_TaggedBots.clear();
+        for (Raven_Bot curBot : m_QueryResult) {
+            if (curBot.IsTagged()) {
+                m_TaggedBots.add(curBot);
+            }
+        }
+
+        return m_TaggedBots;
     }
 }
\ No newline at end of file
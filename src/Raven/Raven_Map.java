@@ -9,7 +9,15 @@ import static Raven.Raven_ObjectEnumerations.*;
 import Raven.triggers.Trigger_HealthGiver;
 import Raven.triggers.Trigger_WeaponGiver;
 import common.D2.Vector2D;
+import static common.D2.Vector2D.Vec2DDistance;
 import common.D2.Wall2D;
+import common.D2.WallGrid;
+import common.Graph.ClusterGraph;
+import common.Graph.CompactGraph;
+import common.Graph.DistanceField;
+import common.Graph.DynamicEdgeCosts;
+import common.Graph.LandmarkTable;
+import common.Graph.PathCostTable;
 import static common.misc.Cgdi.gdi;
 import static common.Debug.DbgConsole.debug_con;
 import common.Triggers.TriggerSystem;
@@ -22,6 +30,7 @@ import static common.Graph.HandyGraphFunctions.CreateAllPairsCostsTable;
 import static common.Graph.HandyGraphFunctions.GraphHelper_DrawUsingGDI;
 import common.Triggers.Trigger;
 import static common.misc.utils.Maximum;
+import static common.misc.utils.MaxDouble;
 import common.misc.CellSpacePartition;
 import common.misc.Cgdi;
 import static common.misc.CppToJava.FindWindow;
@@ -29,12 +38,19 @@ import static common.misc.CppToJava.ResizeWindow;
 import static common.misc.utils.RandInt;
 import static common.misc.WindowUtils.ErrorBox;
 import static common.misc.WindowUtils.Window;
+import common.misc.BufferTokenReader;
+import common.misc.ScannerTokenReader;
+import common.misc.TokenReader;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -58,6 +74,10 @@ public class Raven_Map {
         public GraphNode(Scanner stream) {
             super(stream);
         }
+
+        public GraphNode(int idx, Vector2D pos) {
+            super(idx, pos);
+        }
     }
 
     public static class NavGraph extends SparseGraph<Raven_Map.GraphNode, NavGraphEdge> {
@@ -85,12 +105,33 @@ public class Raven_Map {
      * the walls that comprise the current map's architecture.
      */
     private List<Wall2D> m_Walls = new ArrayList<Wall2D>();
+    /**
+     * the walls added with AddWall(from, to). These belong to the doors and
+     * can move so they are not partitioned with the rest of the walls
+     */
+    private List<Wall2D> m_DynamicWalls = new ArrayList<Wall2D>();
+    /**
+     * the static walls are partitioned enabling fast intersection tests
+     */
+    private WallGrid m_pWallGrid;
     /**
      * trigger are objects that define a region of space. When a raven bot
      * enters that area, it 'triggers' an event. That event may be anything from
      * increasing a bot's health to opening a door or requesting a lift.
      */
     private TriggerSystem m_TriggerSystem = new TriggerSystem();
+    /**
+     * the health and weapon givers, and whether each of them was active when
+     * the triggers were last updated
+     */
+    private List<Trigger<Raven_Bot>> m_ItemGivers = new ArrayList<Trigger<Raven_Bot>>();
+    private boolean[] m_bGiverActive;
+    /**
+     * the cost from every graph node to the closest active giver of each
+     * type (and the way there), following the current costs of the edges
+     * through the doors
+     */
+    private Map<Integer, DistanceField> m_ItemFields = new HashMap<Integer, DistanceField>();
     /**
      * this holds a number of spawn positions. When a bot is instantiated it
      * will appear at a randomly selected point chosen from this vector
@@ -100,10 +141,40 @@ public class Raven_Map {
      * a map may contain a number of sliding doors.
      */
     private List<Raven_Door> m_Doors = new ArrayList<Raven_Door>();
+    /**
+     * incremented whenever a door changes its status, so the users of the
+     * map can tell their paths may be out of date (see PathCache)
+     */
+    private int m_iDoorVersion = 0;
+    /**
+     * the version of the edge costs (see DynamicEdgeCosts.Version) in which
+     * the cost of going through every door last changed, by door ID
+     */
+    private Map<Integer, Integer> m_DoorCostVersions = new HashMap<Integer, Integer>();
     /**
      * this map's accompanying navigation graph
      */
     private NavGraph m_pNavGraph;
+    /**
+     * a compressed sparse row copy of the navgraph used by the path searches
+     */
+    private CompactGraph m_pCompactGraph;
+    /**
+     * the abstract graph of the clusters of the navgraph used by the
+     * hierarchical path searches
+     */
+    private ClusterGraph m_pClusterGraph;
+    /**
+     * the costs from a few landmark nodes to every node, used by the A*
+     * heuristic of the path searches
+     */
+    private LandmarkTable m_pLandmarks;
+    /**
+     * the current costs of the navgraph edges going through doors. While a
+     * door is shut its edges cost as much more as the detour to its closest
+     * switch and back
+     */
+    private DynamicEdgeCosts m_pEdgeCosts;
     /**
      * the graph nodes will be partitioned enabling fast lookup
      */
@@ -123,8 +194,8 @@ public class Raven_Map {
 
         m_pSpacePartition = new CellSpace(m_iSizeX,
                 m_iSizeY,
-                script.GetInt("NumCellsX"),
-                script.GetInt("NumCellsY"),
+                script().GetInt("NumCellsX"),
+                script().GetInt("NumCellsY"),
                 m_pNavGraph.NumNodes());
 
         //add the graph nodes to the space partition
@@ -133,37 +204,76 @@ public class Raven_Map {
             m_pSpacePartition.AddEntity(pN);
         }
     }
+    /**
+     * divides the navgraph nodes into clusters of NumCellsPerCluster x
+     * NumCellsPerCluster cells of the cell space partition and builds the
+     * abstract graph of the clusters
+     */
+    private void PartitionClusters() {
+        final int CellsPerCluster = Math.max(1, script().GetInt("NumCellsPerCluster"));
+        final int ClustersX = (m_pSpacePartition.NumCellsX() + CellsPerCluster - 1) / CellsPerCluster;
+        final int ClustersY = (m_pSpacePartition.NumCellsY() + CellsPerCluster - 1) / CellsPerCluster;
+
+        int[] ClusterOfNode = new int[m_pCompactGraph.NumNodes()];
+        for (int n = 0; n < m_pCompactGraph.NumNodes(); ++n) {
+            Vector2D pos = new Vector2D(m_pCompactGraph.NodeX(n), m_pCompactGraph.NodeY(n));
+            ClusterOfNode[n] = m_pSpacePartition.PositionToCellX(pos) / CellsPerCluster
+                    + m_pSpacePartition.PositionToCellY(pos) / CellsPerCluster * ClustersX;
+        }
+
+        m_pClusterGraph = new ClusterGraph(m_pCompactGraph, ClustersX * ClustersY, ClusterOfNode);
+    }
+
+    /**
+     * puts the static walls into a grid with about as many cells as there are
+     * walls. The door walls are added to the grid as dynamic walls
+     */
+    private void PartitionWalls() {
+        List<Wall2D> StaticWalls = new ArrayList<Wall2D>(m_Walls);
+        StaticWalls.removeAll(m_DynamicWalls);
+
+        int NumCells = (int) Math.ceil(Math.sqrt(StaticWalls.size()));
+        NumCells = Math.max(1, Math.min(NumCells, 256));
+
+        m_pWallGrid = new WallGrid(m_iSizeX, m_iSizeY, NumCells, NumCells, StaticWalls);
+
+        for (Wall2D w : m_DynamicWalls) {
+            m_pWallGrid.AddDynamicWall(w);
+        }
+    }
     /**
      * this will hold a pre-calculated lookup table of the cost to travel from
      * one node to any other.
      */
-    private List<ArrayList<Double>> m_PathCosts = new ArrayList<ArrayList<Double>>();
+    private PathCostTable m_PathCosts;
 
     //stream constructors for loading from a file
-    private void AddWall(Scanner in) {
+    private void AddWall(TokenReader in) {
         m_Walls.add(new Wall2D(in));
     }
 
-    private void AddHealth_Giver(Scanner in) {
+    private void AddHealth_Giver(TokenReader in) {
         Trigger_HealthGiver hg = new Trigger_HealthGiver(in);
 
         m_TriggerSystem.Register(hg);
+        m_ItemGivers.add(hg);
         //let the corresponding navgraph node point to this object
         GraphNode node = m_pNavGraph.GetNode(hg.GraphNodeIndex());
 
         node.SetExtraInfo(hg);
 
         //register the entity 
-        EntityMgr.RegisterEntity(hg);
+        EntityMgr().RegisterEntity(hg);
     }
 
-    private void AddWeapon_Giver(int type_of_weapon, Scanner in) {
+    private void AddWeapon_Giver(int type_of_weapon, TokenReader in) {
         Trigger_WeaponGiver wg = new Trigger_WeaponGiver(in);
 
         wg.SetEntityType(type_of_weapon);
 
         //add it to the appropriate vectors
         m_TriggerSystem.Register(wg);
+        m_ItemGivers.add(wg);
 
         //let the corresponding navgraph node point to this object
         GraphNode node = m_pNavGraph.GetNode(wg.GraphNodeIndex());
@@ -171,29 +281,29 @@ public class Raven_Map {
         node.SetExtraInfo(wg);
 
         //register the entity 
-        EntityMgr.RegisterEntity(wg);
+        EntityMgr().RegisterEntity(wg);
     }
 
-    private void AddDoor(Scanner in) {
+    private void AddDoor(TokenReader in) {
         Raven_Door pDoor = new Raven_Door(this, in);
 
         m_Doors.add(pDoor);
 
         //register the entity 
-        EntityMgr.RegisterEntity(pDoor);
+        EntityMgr().RegisterEntity(pDoor);
     }
 
-    private void AddDoorTrigger(Scanner in) {
+    private void AddDoorTrigger(TokenReader in) {
         Trigger_OnButtonSendMsg<Raven_Bot> tr = new Trigger_OnButtonSendMsg<Raven_Bot>(in);
 
         m_TriggerSystem.Register(tr);
 
         //register the entity 
-        EntityMgr.RegisterEntity(tr);
+        EntityMgr().RegisterEntity(tr);
 
     }
 
-    private void AddSpawnPoint(Scanner in) {
+    private void AddSpawnPoint(TokenReader in) {
         double x, y, dummy;
 
         dummy = in.nextDouble(); //dummy values are artifacts from the map editor
@@ -211,14 +321,23 @@ public class Raven_Map {
     private void Clear() {
         //delete the triggers
         m_TriggerSystem.Clear();
+        m_ItemGivers.clear();
+        m_ItemFields.clear();
 
         //delete the doors
         m_Doors.clear();
+        m_DoorCostVersions.clear();
         m_Walls.clear();
+        m_DynamicWalls.clear();
+        m_pWallGrid = null;
         m_SpawnPoints.clear();
 
         //delete the navgraph
         m_pNavGraph = null;
+        m_pCompactGraph = null;
+        m_pClusterGraph = null;
+        m_pLandmarks = null;
+        m_pEdgeCosts = null;
 
         //delete the partioning info
         m_pSpacePartition = null;
@@ -244,8 +363,8 @@ public class Raven_Map {
 
     public void Render() {
         //render the navgraph
-        if (UserOptions.m_bShowGraph) {
-            GraphHelper_DrawUsingGDI(m_pNavGraph, Cgdi.grey, UserOptions.m_bShowNodeIndices);
+        if (UserOptions().m_bShowGraph) {
+            GraphHelper_DrawUsingGDI(m_pNavGraph, Cgdi.grey, UserOptions().m_bShowNodeIndices);
         }
         //render any doors
         Iterator<Raven_Door> curDoor = m_Doors.iterator();
@@ -258,21 +377,27 @@ public class Raven_Map {
         //render all the walls
         Iterator<Wall2D> curWall = m_Walls.iterator();
         while (curWall.hasNext()) {
-            gdi.ThickBlackPen();
+            gdi().ThickBlackPen();
             curWall.next().Render();
         }
 
         for (Vector2D curSp : m_SpawnPoints) {
-            gdi.GreyBrush();
-            gdi.GreyPen();
-            gdi.Circle(curSp, 7);
+            gdi().GreyBrush();
+            gdi().GreyPen();
+            gdi().Circle(curSp, 7);
         }
     }
 
     /**
-     * load and sets up the game environment from map file
+     * load and sets up the game environment from map file. The file is either
+     * a text map made by the map editor or a map compiled by
+     * Raven_MapCompiler
      */
     public boolean LoadMap(final String filename) {
+        if (Raven_MapCompiler.isCompiledMap(filename)) {
+            return LoadCompiledMap(filename);
+        }
+
         FileInputStream stream;
         try {
             stream = new FileInputStream(filename);
@@ -299,22 +424,107 @@ public class Raven_Map {
             debug_con.print("NavGraph for ").print(filename).print(" loaded okay").print("");
         }
 
-        //determine the average distance between graph nodes so that we can
-        //partition them efficiently
-        m_dCellSpaceNeighborhoodRange = CalculateAverageGraphEdgeLength(m_pNavGraph) + 1;
+        //load in the map size and adjust the client window accordingly
+        int SizeX = in.nextInt();
+        int SizeY = in.nextInt();
+        SetSize(SizeX, SizeY);
+
+        if (def(LOG_CREATIONAL_STUFF)) {
+            debug_con.print("Loading map...").print("");
+        }
+
+        //now create the environment entities
+        TokenReader tokens = new ScannerTokenReader(in);
+        while (tokens.hasNext()) {
+            //get type of next map object
+            AddEntity(tokens.nextInt(), tokens);
+        }
+
+        FinishLoading(filename);
+
+        return true;
+    }
+
+    /**
+     * loads a map compiled by Raven_MapCompiler. The file is memory mapped and
+     * the numbers are read straight from the mapping.
+     */
+    private boolean LoadCompiledMap(final String filename) {
+        ByteBuffer map;
+        try {
+            map = Raven_MapCompiler.Open(filename);
+        } catch (IOException ex) {
+            ErrorBox("Bad Map File '" + filename + "': " + ex.getMessage());
+            return false;
+        }
+        Clear();
+
+        BaseGameEntity.ResetNextValidID();
+
+        //the nodes: indexes, then x and then y positions
+        m_pNavGraph = new NavGraph(false);
+        final int NumNodes = map.getInt();
+        final int IndexAt = map.position();
+        final int XAt = IndexAt + 4 * NumNodes;
+        final int YAt = XAt + 8 * NumNodes;
+        for (int n = 0; n < NumNodes; ++n) {
+            Vector2D pos = new Vector2D(map.getDouble(XAt + 8 * n), map.getDouble(YAt + 8 * n));
+            m_pNavGraph.AddLoadedNode(new GraphNode(map.getInt(IndexAt + 4 * n), pos));
+        }
+        map.position(YAt + 8 * NumNodes);
+
+        //the edges, already in the order of the edge lists (both directions)
+        final int NumEdges = map.getInt();
+        final int FromAt = map.position();
+        final int ToAt = FromAt + 4 * NumEdges;
+        final int CostAt = ToAt + 4 * NumEdges;
+        final int FlagsAt = CostAt + 8 * NumEdges;
+        final int IDAt = FlagsAt + 4 * NumEdges;
+        for (int e = 0; e < NumEdges; ++e) {
+            m_pNavGraph.AppendEdge(new NavGraphEdge(map.getInt(FromAt + 4 * e),
+                    map.getInt(ToAt + 4 * e),
+                    map.getDouble(CostAt + 8 * e),
+                    map.getInt(FlagsAt + 4 * e),
+                    map.getInt(IDAt + 4 * e)));
+        }
+        map.position(IDAt + 4 * NumEdges);
 
         if (def(LOG_CREATIONAL_STUFF)) {
-            debug_con.print("Average edge length is ").print(CalculateAverageGraphEdgeLength(m_pNavGraph)).print("");
+            debug_con.print("NavGraph for ").print(filename).print(" loaded okay").print("");
         }
 
+        int SizeX = map.getInt();
+        int SizeY = map.getInt();
+        SetSize(SizeX, SizeY);
+
         if (def(LOG_CREATIONAL_STUFF)) {
-            debug_con.print("Neighborhood range set to ").print(m_dCellSpaceNeighborhoodRange).print("");
+            debug_con.print("Loading map...").print("");
         }
 
+        //the entities: type, number of tokens and the tokens
+        final int NumEntities = map.getInt();
+        for (int i = 0; i < NumEntities; ++i) {
+            int EntityType = map.getInt();
+            int NumTokens = map.getInt();
+            int next = map.position() + 8 * NumTokens;
 
-        //load in the map size and adjust the client window accordingly
-        m_iSizeX = in.nextInt();
-        m_iSizeY = in.nextInt();
+            AddEntity(EntityType, new BufferTokenReader(map, NumTokens));
+
+            map.position(next);
+        }
+
+        FinishLoading(filename);
+
+        return true;
+    }
+
+    /**
+     * sets the size of the map, partitions the navgraph nodes and adjusts the
+     * client window accordingly
+     */
+    private void SetSize(int SizeX, int SizeY) {
+        m_iSizeX = SizeX;
+        m_iSizeY = SizeY;
 
         if (def(LOG_CREATIONAL_STUFF)) {
             debug_con.print("Partitioning navgraph nodes...").print("");
@@ -331,84 +541,141 @@ public class Raven_Map {
 
          Window hwnd = FindWindow();
 
-         final int ExtraHeightRqdToDisplayInfo = 0; // 50;
-         ResizeWindow(hwnd, m_iSizeX, m_iSizeY + ExtraHeightRqdToDisplayInfo);
+         //there is no window when the game is run headless
+         if (hwnd != null) {
+             final int ExtraHeightRqdToDisplayInfo = 0; // 50;
+             ResizeWindow(hwnd, m_iSizeX, m_iSizeY + ExtraHeightRqdToDisplayInfo);
+         }
+    }
 
+    /**
+     * creates a map object of the given type from its tokens
+     */
+    private void AddEntity(int EntityType, TokenReader in) {
         if (def(LOG_CREATIONAL_STUFF)) {
-            debug_con.print("Loading map...").print("");
+            debug_con.print("Creating a ").print(GetNameOfType(EntityType)).print("");
         }
 
+        //create the object
+        switch (EntityType) {
+            case type_wall:
 
-        //now create the environment entities
-        while (in.hasNext()) {
-            //get type of next map object
-            int EntityType;
+                AddWall(in);
+                break;
 
-            EntityType = in.nextInt();
+            case type_sliding_door:
 
-            if (def(LOG_CREATIONAL_STUFF)) {
-                debug_con.print("Creating a ").print(GetNameOfType(EntityType)).print("");
-            }
+                AddDoor(in);
+                break;
 
-            //create the object
-            switch (EntityType) {
-                case type_wall:
+            case type_door_trigger:
 
-                    AddWall(in);
-                    break;
+                AddDoorTrigger(in);
+                break;
 
-                case type_sliding_door:
+            case type_spawn_point:
 
-                    AddDoor(in);
-                    break;
+                AddSpawnPoint(in);
+                break;
 
-                case type_door_trigger:
+            case type_health:
 
-                    AddDoorTrigger(in);
-                    break;
+                AddHealth_Giver(in);
+                break;
 
-                case type_spawn_point:
+            case type_shotgun:
 
-                    AddSpawnPoint(in);
-                    break;
+                AddWeapon_Giver(type_shotgun, in);
+                break;
 
-                case type_health:
+            case type_rail_gun:
 
-                    AddHealth_Giver(in);
-                    break;
+                AddWeapon_Giver(type_rail_gun, in);
+                break;
 
-                case type_shotgun:
+            case type_rocket_launcher:
 
-                    AddWeapon_Giver(type_shotgun, in);
-                    break;
+                AddWeapon_Giver(type_rocket_launcher, in);
+                break;
 
-                case type_rail_gun:
+            default:
 
-                    AddWeapon_Giver(type_rail_gun, in);
-                    break;
+                throw new RuntimeException("<Map::Load>: Attempting to load undefined object");
 
-                case type_rocket_launcher:
+            //return false;
 
-                    AddWeapon_Giver(type_rocket_launcher, in);
-                    break;
+        }//end switch
+    }
 
-                default:
+    /**
+     * builds everything derived from the loaded navgraph and walls
+     */
+    private void FinishLoading(final String filename) {
+        if (def(LOG_CREATIONAL_STUFF)) {
+            debug_con.print(filename).print(" loaded okay").print("");
+        }
+
+        //partition the walls
+        PartitionWalls();
 
-                    throw new RuntimeException("<Map::Load>: Attempting to load undefined object");
+        //the navgraph is not changed from now on so the searches can use a
+        //compact copy of it
+        m_pCompactGraph = new CompactGraph(m_pNavGraph);
 
-                //return false;
+        //and the hierarchical searches an abstract graph of its clusters
+        PartitionClusters();
 
-            }//end switch
+        //choose the landmarks of the A* heuristic
+        m_pLandmarks = new LandmarkTable(m_pCompactGraph, script().GetInt("NumLandmarks"));
+
+        //the costs of the edges through the doors follow the doors from now on
+        m_pEdgeCosts = new DynamicEdgeCosts(m_pCompactGraph, NavGraphEdge.goes_through_door);
+        for (Raven_Door door : m_Doors) {
+            UpdateDoorEdgeCosts(door);
         }
 
-        if (def(LOG_CREATIONAL_STUFF)) {
-            debug_con.print(filename).print(" loaded okay").print("");
+        //find the way from every node to the closest active giver of each type
+        m_bGiverActive = new boolean[m_ItemGivers.size()];
+        for (int i = 0; i < m_ItemGivers.size(); ++i) {
+            Trigger<Raven_Bot> giver = m_ItemGivers.get(i);
+            DistanceField field = m_ItemFields.get(giver.EntityType());
+            if (field == null) {
+                field = new DistanceField(m_pEdgeCosts);
+                m_ItemFields.put(giver.EntityType(), field);
+            }
+            m_bGiverActive[i] = giver.isActive();
+            if (m_bGiverActive[i]) {
+                field.AddSource(giver.GraphNodeIndex());
+            }
         }
 
-        //calculate the cost lookup table
-        m_PathCosts = CreateAllPairsCostsTable(m_pNavGraph);
+        //use the tables cached by an earlier load of the same map if there are
+        //any, else build them and cache them
+        byte[] hash = Raven_MapCache.CalculateHash(m_pCompactGraph, m_Walls);
+        Raven_MapCache cache = Raven_MapCache.Load(filename, hash, m_pCompactGraph.NumNodes());
+
+        if (cache == null) {
+            //calculate the cost lookup table
+            cache = new Raven_MapCache(CalculateAverageGraphEdgeLength(m_pNavGraph),
+                    CreateAllPairsCostsTable(m_pCompactGraph));
+            cache.Save(filename, hash);
+        } else if (def(LOG_CREATIONAL_STUFF)) {
+            debug_con.print("Cached tables for ").print(filename).print(" loaded okay").print("");
+        }
 
-        return true;
+        m_PathCosts = cache.GetPathCosts();
+
+        //determine the average distance between graph nodes so that we can
+        //partition them efficiently
+        m_dCellSpaceNeighborhoodRange = cache.GetAverageEdgeLength() + 1;
+
+        if (def(LOG_CREATIONAL_STUFF)) {
+            debug_con.print("Average edge length is ").print(cache.GetAverageEdgeLength()).print("");
+        }
+
+        if (def(LOG_CREATIONAL_STUFF)) {
+            debug_con.print("Neighborhood range set to ").print(m_dCellSpaceNeighborhoodRange).print("");
+        }
     }
 
     /**
@@ -419,6 +686,10 @@ public class Raven_Map {
         Wall2D w = new Wall2D(from, to);
 
         m_Walls.add(w);
+        m_DynamicWalls.add(w);
+        if (m_pWallGrid != null) {
+            m_pWallGrid.AddDynamicWall(w);
+        }
 
         return w;
     }
@@ -439,7 +710,7 @@ public class Raven_Map {
                 && nd2 >= 0 && nd2 < m_pNavGraph.NumNodes() :
                 "<Raven_Map::CostBetweenNodes>: invalid index";
 
-        return m_PathCosts.get(nd1).get(nd2);
+        return m_PathCosts.GetCost(nd1, nd2);
     }
 
     /**
@@ -463,6 +734,29 @@ public class Raven_Map {
      */
     public void UpdateTriggerSystem(List<Raven_Bot> bots) {
         m_TriggerSystem.Update(bots);
+
+        //the givers picked up or respawned during the update change the ways
+        //to the closest givers of their type
+        for (int i = 0; i < m_ItemGivers.size(); ++i) {
+            Trigger<Raven_Bot> giver = m_ItemGivers.get(i);
+            if (giver.isActive() != m_bGiverActive[i]) {
+                m_bGiverActive[i] = giver.isActive();
+                DistanceField field = m_ItemFields.get(giver.EntityType());
+                if (m_bGiverActive[i]) {
+                    field.AddSource(giver.GraphNodeIndex());
+                } else {
+                    field.RemoveSource(giver.GraphNodeIndex());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the costs from the graph nodes to the closest active giver of
+     * the given type, or null if the map has no giver of that type
+     */
+    public DistanceField GetItemField(int ItemType) {
+        return m_ItemFields.get(ItemType);
     }
 
     public TriggerSystem.TriggerList GetTriggers() {
@@ -473,6 +767,22 @@ public class Raven_Map {
         return m_Walls;
     }
 
+    public CompactGraph GetCompactNavGraph() {
+        return m_pCompactGraph;
+    }
+
+    public ClusterGraph GetClusterGraph() {
+        return m_pClusterGraph;
+    }
+
+    public LandmarkTable GetLandmarks() {
+        return m_pLandmarks;
+    }
+
+    public WallGrid GetWallGrid() {
+        return m_pWallGrid;
+    }
+
     public NavGraph GetNavGraph() {
         return m_pNavGraph;
     }
@@ -481,6 +791,76 @@ public class Raven_Map {
         return m_Doors;
     }
 
+    /**
+     * called by a door when it changes its status
+     */
+    void DoorStateChanged(Raven_Door door) {
+        ++m_iDoorVersion;
+
+        if (m_pEdgeCosts != null) {
+            UpdateDoorEdgeCosts(door);
+        }
+    }
+
+    /**
+     * sets the costs of the edges going through the door. A bot can only get
+     * through a shut door after going to one of its switches, so the edge
+     * costs as much more as the way from its start to the closest switch
+     * and back
+     */
+    private void UpdateDoorEdgeCosts(Raven_Door door) {
+        for (int i = 0; i < m_pEdgeCosts.NumDynamicEdges(); ++i) {
+            final int e = m_pEdgeCosts.DynamicEdge(i);
+            if (m_pCompactGraph.EdgeIDofIntersectingEntity(e) != door.ID()) {
+                continue;
+            }
+
+            double cost = m_pCompactGraph.EdgeCost(e);
+            if (door.isShut()) {
+                Vector2D from = m_pCompactGraph.GetNode(m_pCompactGraph.EdgeFrom(e)).Pos();
+                double ClosestSwitch = MaxDouble;
+                for (int id : door.GetSwitchIDs()) {
+                    BaseGameEntity sw = EntityMgr().GetEntityFromID(id);
+                    if (sw != null) {
+                        ClosestSwitch = Math.min(ClosestSwitch, Vec2DDistance(from, sw.Pos()));
+                    }
+                }
+                if (ClosestSwitch < MaxDouble) {
+                    cost += 2 * ClosestSwitch;
+                }
+            }
+            if (cost != m_pEdgeCosts.DynamicCost(i)) {
+                m_pEdgeCosts.SetDynamicCost(i, cost);
+                m_DoorCostVersions.put(door.ID(), m_pEdgeCosts.Version());
+
+                //the ways to the closest givers may change with it
+                for (DistanceField field : m_ItemFields.values()) {
+                    field.EdgeCostChanged(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the current costs of the edges going through doors
+     */
+    public DynamicEdgeCosts GetEdgeCosts() {
+        return m_pEdgeCosts;
+    }
+
+    public int GetDoorVersion() {
+        return m_iDoorVersion;
+    }
+
+    /**
+     * @return true if the cost of going through the door with the given ID
+     * changed after the edge costs had the given version
+     */
+    public boolean DoorCostChangedSince(int DoorID, int EdgeCostVersion) {
+        Integer version = m_DoorCostVersions.get(DoorID);
+        return version != null && version > EdgeCostVersion;
+    }
+
     public List<Vector2D> GetSpawnPoints() {
         return m_SpawnPoints;
     }
@@ -0,0 +1,235 @@
+/**
+ * Desc: an on-disk cache of the tables Raven_Map derives from a map when it is
+ * loaded (the average navgraph edge length and the all-pairs path costs
+ * table). The tables are written into a binary file next to the map
+ * (map file name + ".cache") and the next time the map is loaded the file is
+ * memory mapped instead of building the tables again.
+ *
+ * The file starts with a header holding a magic number, the format version, a
+ * SHA-256 hash of the navgraph and the walls the tables were built from and
+ * the number of graph nodes. A file whose header does not match the map being
+ * loaded is ignored (and replaced), so editing a map never uses stale tables.
+ *
+ * File layout (little endian):
+ *   int magic, int version, byte[32] hash, int NumNodes,
+ *   double AverageEdgeLength, float[NumNodes * NumNodes] PathCosts
+ *
+ * The costs are mapped in the chunks of PathCostTable, so the file may be
+ * larger than the 2 GB a single mapping can hold.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package Raven;
+
+import common.D2.Wall2D;
+import static common.Debug.DbgConsole.debug_con;
+import common.Graph.CompactGraph;
+import common.Graph.PathCostTable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+public class Raven_MapCache {
+
+    private static final int Magic = 0x52564e43; //"RVNC"
+    private static final int Version = 1;
+    private static final int HashSize = 32;
+    private static final int HeaderSize = 4 + 4 + HashSize + 4 + 8;
+    private final double m_dAverageEdgeLength;
+    private final PathCostTable m_PathCosts;
+
+    public Raven_MapCache(double AverageEdgeLength, PathCostTable PathCosts) {
+        m_dAverageEdgeLength = AverageEdgeLength;
+        m_PathCosts = PathCosts;
+    }
+
+    public double GetAverageEdgeLength() {
+        return m_dAverageEdgeLength;
+    }
+
+    public PathCostTable GetPathCosts() {
+        return m_PathCosts;
+    }
+
+    /**
+     * @return the name of the cache file of the given map file
+     */
+    public static Path CacheFileName(String MapFileName) {
+        return Paths.get(MapFileName + ".cache");
+    }
+
+    /**
+     * calculates the hash of everything the cached tables depend on: the
+     * nodes and edges of the navgraph and the walls
+     */
+    public static byte[] CalculateHash(CompactGraph G, List<Wall2D> walls) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+
+        buf.putInt(G.NumNodes());
+        for (int n = 0; n < G.NumNodes(); ++n) {
+            if (buf.remaining() < 24) {
+                Digest(md, buf);
+            }
+            buf.putInt(G.GetNode(n).Index());
+            buf.putDouble(G.NodeX(n));
+            buf.putDouble(G.NodeY(n));
+        }
+        Digest(md, buf);
+
+        buf.putInt(G.NumEdges());
+        for (int e = 0; e < G.NumEdges(); ++e) {
+            if (buf.remaining() < 28) {
+                Digest(md, buf);
+            }
+            buf.putInt(G.EdgeFrom(e));
+            buf.putInt(G.EdgeTo(e));
+            buf.putDouble(G.EdgeCost(e));
+            buf.putInt(G.EdgeFlags(e));
+            buf.putInt(G.EdgeIDofIntersectingEntity(e));
+        }
+        Digest(md, buf);
+
+        buf.putInt(walls.size());
+        for (Wall2D w : walls) {
+            if (buf.remaining() < 32) {
+                Digest(md, buf);
+            }
+            buf.putDouble(w.From().x);
+            buf.putDouble(w.From().y);
+            buf.putDouble(w.To().x);
+            buf.putDouble(w.To().y);
+        }
+        Digest(md, buf);
+
+        return md.digest();
+    }
+
+    private static void Digest(MessageDigest md, ByteBuffer buf) {
+        buf.flip();
+        md.update(buf);
+        buf.clear();
+    }
+
+    /**
+     * memory maps the cache file of the map if it exists and was built from a
+     * map with the given hash and number of nodes.
+     *
+     * @return the cached tables or null if there is no valid cache file
+     */
+    public static Raven_MapCache Load(String MapFileName, byte[] hash, int NumNodes) {
+        Path file = CacheFileName(MapFileName);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        long TableSize = 4L * NumNodes * NumNodes;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() != HeaderSize + TableSize) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HeaderSize).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (ch.read(header) < 0) {
+                    return null;
+                }
+            }
+            header.flip();
+
+            byte[] FileHash = new byte[HashSize];
+            if (header.getInt() != Magic || header.getInt() != Version) {
+                return null;
+            }
+            header.get(FileHash);
+            if (!Arrays.equals(FileHash, hash) || header.getInt() != NumNodes) {
+                return null;
+            }
+            double AverageEdgeLength = header.getDouble();
+
+            //FileChannel.map cannot map more than Integer.MAX_VALUE bytes at
+            //once, so every chunk of the table is mapped on its own. The
+            //mappings stay valid after the channel has been closed.
+            FloatBuffer[] costs = new FloatBuffer[PathCostTable.NumChunks(NumNodes)];
+            long position = HeaderSize;
+            for (int i = 0; i < costs.length; ++i) {
+                long size = 4L * PathCostTable.ChunkSize(NumNodes, i);
+                MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, position, size);
+                costs[i] = map.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+                position += size;
+            }
+            return new Raven_MapCache(AverageEdgeLength, new PathCostTable(NumNodes, costs));
+        } catch (IOException ex) {
+            debug_con.print("Cannot read ").print(file).print(": ").print(ex.getMessage()).print("");
+            return null;
+        }
+    }
+
+    /**
+     * writes the cache file of the map. The file is written under a temporary
+     * name and then renamed, so a match loading the map at the same time
+     * never sees half a file. Failing to write the cache is not an error (the
+     * tables are just built again next time).
+     */
+    public void Save(String MapFileName, byte[] hash) {
+        Path file = CacheFileName(MapFileName).toAbsolutePath();
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HeaderSize).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(Magic);
+                header.putInt(Version);
+                header.put(hash);
+                header.putInt(m_PathCosts.NumNodes());
+                header.putDouble(m_dAverageEdgeLength);
+                header.flip();
+                while (header.hasRemaining()) {
+                    ch.write(header);
+                }
+
+                ByteBuffer chunk = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < m_PathCosts.NumChunks(); ++i) {
+                    FloatBuffer costs = m_PathCosts.GetChunk(i);
+                    while (costs.hasRemaining()) {
+                        chunk.clear();
+                        while (costs.hasRemaining() && chunk.remaining() >= 4) {
+                            chunk.putFloat(costs.get());
+                        }
+                        chunk.flip();
+                        while (chunk.hasRemaining()) {
+                            ch.write(chunk);
+                        }
+                    }
+                }
+            }
+
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            debug_con.print("Cannot write ").print(file).print(": ").print(ex.getMessage()).print("");
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
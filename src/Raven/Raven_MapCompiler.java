@@ -0,0 +1,227 @@
+/**
+ * Desc: compiles a text map made by the map editor into a binary file that
+ * Raven_Map loads without parsing any text. The compiled map is memory mapped
+ * and the loader reads the numbers straight out of the mapping.
+ *
+ * The navgraph is stored as flat arrays. The edges are stored exactly as they
+ * are in the edge lists of the loaded graph (both directions of every edge,
+ * in the same order), so loading them is just appending. Every other map
+ * object (walls, doors, door triggers, spawn points, item givers) is stored as
+ * a record of its type and the numbers that follow the type in the text map,
+ * so the objects read themselves from a compiled map with the same Read
+ * method (see TokenReader).
+ *
+ * File layout (little endian):
+ *   int magic, int version,
+ *   int NumNodes, int[NumNodes] index, double[NumNodes] x, double[NumNodes] y,
+ *   int NumEdges, int[NumEdges] from, int[NumEdges] to, double[NumEdges] cost,
+ *     int[NumEdges] flags, int[NumEdges] IDofIntersectingEntity,
+ *   int SizeX, int SizeY,
+ *   int NumEntities, NumEntities * (int type, int NumTokens, double[NumTokens] tokens)
+ *
+ * Usage: java Raven.Raven_MapCompiler map_file [compiled_file]
+ * (the compiled file defaults to the map file name with ".mapc" in place of
+ * ".map")
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package Raven;
+
+import common.Graph.GraphEdgeTypes.NavGraphEdge;
+import common.Graph.SparseGraph;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Scanner;
+
+public class Raven_MapCompiler {
+
+    private static final int Magic = 0x4d4e5652; //"RVNM"
+    private static final int Version = 1;
+
+    /**
+     * @return true if the file starts like a compiled map
+     */
+    public static boolean isCompiledMap(String filename) {
+        try (InputStream in = new FileInputStream(filename)) {
+            byte[] head = new byte[4];
+            if (in.read(head) != 4) {
+                return false;
+            }
+            return ByteBuffer.wrap(head).order(ByteOrder.LITTLE_ENDIAN).getInt() == Magic;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * memory maps a compiled map.
+     *
+     * @return the mapping positioned at the number of nodes
+     */
+    public static ByteBuffer Open(String filename) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            //the mapping stays valid after the channel has been closed
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (map.remaining() < 8 || map.getInt() != Magic) {
+                throw new IOException("not a compiled map");
+            }
+            if (map.getInt() != Version) {
+                throw new IOException("unsupported version of a compiled map");
+            }
+            return map;
+        }
+    }
+
+    /**
+     * compiles the text map MapFileName into the file OutFileName. The map
+     * objects must be written one per line (as the map editor writes them).
+     */
+    public static void Compile(String MapFileName, String OutFileName) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        Path file = Paths.get(OutFileName).toAbsolutePath();
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+
+        try (Scanner in = new Scanner(new FileInputStream(MapFileName));
+                FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            in.useLocale(Locale.US);
+
+            //load the navgraph the same way Raven_Map does, so the edge lists
+            //hold the edges in both directions
+            Raven_Map.NavGraph graph = new Raven_Map.NavGraph(false);
+            graph.Load(in, Raven_Map.GraphNode.class, NavGraphEdge.class);
+
+            out.putInt(Magic);
+            out.putInt(Version);
+
+            final int NumNodes = graph.NumNodes();
+            Put(ch, out, NumNodes);
+            for (int n = 0; n < NumNodes; ++n) {
+                Put(ch, out, graph.GetNode(n).Index());
+            }
+            for (int n = 0; n < NumNodes; ++n) {
+                Put(ch, out, graph.GetNode(n).Pos().x);
+            }
+            for (int n = 0; n < NumNodes; ++n) {
+                Put(ch, out, graph.GetNode(n).Pos().y);
+            }
+
+            int NumEdges = 0;
+            for (int n = 0; n < NumNodes; ++n) {
+                SparseGraph.EdgeIterator<Raven_Map.GraphNode, NavGraphEdge> EdgeItr =
+                        new SparseGraph.EdgeIterator<Raven_Map.GraphNode, NavGraphEdge>(graph, n);
+                for (NavGraphEdge pE = EdgeItr.begin(); !EdgeItr.end(); pE = EdgeItr.next()) {
+                    ++NumEdges;
+                }
+            }
+            Put(ch, out, NumEdges);
+            for (int field = 0; field < 5; ++field) {
+                for (int n = 0; n < NumNodes; ++n) {
+                    SparseGraph.EdgeIterator<Raven_Map.GraphNode, NavGraphEdge> EdgeItr =
+                            new SparseGraph.EdgeIterator<Raven_Map.GraphNode, NavGraphEdge>(graph, n);
+                    for (NavGraphEdge pE = EdgeItr.begin(); !EdgeItr.end(); pE = EdgeItr.next()) {
+                        switch (field) {
+                            case 0:
+                                Put(ch, out, pE.From());
+                                break;
+                            case 1:
+                                Put(ch, out, pE.To());
+                                break;
+                            case 2:
+                                Put(ch, out, pE.Cost());
+                                break;
+                            case 3:
+                                Put(ch, out, pE.Flags());
+                                break;
+                            default:
+                                Put(ch, out, pE.IDofIntersectingEntity());
+                        }
+                    }
+                }
+            }
+
+            //the map size
+            Put(ch, out, in.nextInt());
+            Put(ch, out, in.nextInt());
+
+            //the map objects, one per line. The number of objects is not known
+            //until all the lines have been read so it is patched in afterwards
+            Flush(ch, out);
+            long NumEntitiesAt = ch.position();
+            Put(ch, out, 0);
+            int NumEntities = 0;
+            while (in.hasNextLine()) {
+                String line = in.nextLine().trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] tokens = line.split("\\s+");
+                Put(ch, out, Integer.parseInt(tokens[0]));
+                Put(ch, out, tokens.length - 1);
+                for (int t = 1; t < tokens.length; ++t) {
+                    Put(ch, out, Double.parseDouble(tokens[t]));
+                }
+                ++NumEntities;
+            }
+            Flush(ch, out);
+
+            ByteBuffer count = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            count.putInt(NumEntities).flip();
+            while (count.hasRemaining()) {
+                ch.write(count, NumEntitiesAt + count.position());
+            }
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tmp);
+            throw ex;
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void Put(FileChannel ch, ByteBuffer out, int val) throws IOException {
+        if (out.remaining() < 4) {
+            Flush(ch, out);
+        }
+        out.putInt(val);
+    }
+
+    private static void Put(FileChannel ch, ByteBuffer out, double val) throws IOException {
+        if (out.remaining() < 8) {
+            Flush(ch, out);
+        }
+        out.putDouble(val);
+    }
+
+    private static void Flush(FileChannel ch, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            ch.write(out);
+        }
+        out.clear();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java Raven.Raven_MapCompiler map_file [compiled_file]");
+            System.exit(1);
+        }
+        String MapFileName = args[0];
+        String OutFileName = args.length > 1 ? args[1]
+                : MapFileName.replaceFirst("\\.map$", "") + ".mapc";
+
+        Compile(MapFileName, OutFileName);
+        System.out.println(MapFileName + " compiled to " + OutFileName);
+    }
+}
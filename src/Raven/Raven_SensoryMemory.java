@@ -4,75 +4,106 @@
  */
 package Raven;
 
+import static Raven.lua.Raven_Scriptor.script;
 import common.D2.Vector2D;
 import static common.D2.Vector2D.isSecondInFOVOfFirst;
 import static common.Time.CrudeTimer.Clock;
 import static common.misc.Cgdi.gdi;
+import static common.misc.utils.DegsToRads;
 import static common.misc.utils.MaxDouble;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map.Entry;
 
-class MemoryRecord {
+public class Raven_SensoryMemory {
 
+    /**
+     * the flags of a memory record
+     */
+    private static final byte HasRecord = 1;
+    /**
+     * set if opponent is within the field of view of the owner
+     */
+    private static final byte WithinFOV = 2;
+    /**
+     * set if there is no obstruction between the opponent and the owner,
+     * permitting a shot.
+     */
+    private static final byte Shootable = 4;
+    /**
+     * set once the vision update has tested the line of sight to the opponent
+     */
+    private static final byte Seen = 8;
+    /**
+     * set during the vision update if the line of sight must be tested again
+     */
+    private static final byte OutOfDate = 16;
+    /**
+     * the owner of this instance
+     */
+    private Raven_Bot m_pOwner;
+    /**
+     * the memory is used to simulate memory of sensory events. A record is
+     * created for each opponent in the environment. Each record is updated
+     * whenever the opponent is encountered. (when it is seen or heard)
+     *
+     * The records are kept in arrays indexed by the slots of the opponents
+     * (see Raven_Bot.GetSlot), one array for each field of a record.
+     * m_Opponents holds the opponent each record belongs to.
+     */
+    private Raven_Bot[] m_Opponents = new Raven_Bot[0];
+    private byte[] m_Flags = new byte[0];
     /**
      * records the time the opponent was last sensed (seen or heard). This is
      * used to determine if a bot can 'remember' this record or not. (if
      * CurrentTime() - m_dTimeLastSensed is greater than the bot's memory span,
      * the data in this record is made unavailable to clients)
      */
-    public double fTimeLastSensed;
+    private double[] m_dTimeLastSensed = new double[0];
     /**
      * it can be useful to know how long an opponent has been visible. This
      * variable is tagged with the current time whenever an opponent first
      * becomes visible. It's then a simple matter to calculate how long the
      * opponent has been in view (CurrentTime - fTimeBecameVisible)
      */
-    public double fTimeBecameVisible;
+    private double[] m_dTimeBecameVisible = new double[0];
     /**
      * it can also be useful to know the last time an opponent was seen
      */
-    public double fTimeLastVisible;
+    private double[] m_dTimeLastVisible = new double[0];
     /**
-     * a vector marking the position where the opponent was last sensed. This
-     * can be used to help hunt down an opponent if it goes out of view
+     * the position where the opponent was last sensed. This can be used to
+     * help hunt down an opponent if it goes out of view
      */
-    public Vector2D vLastSensedPosition = new Vector2D();
+    private double[] m_dLastSensedPosX = new double[0];
+    private double[] m_dLastSensedPosY = new double[0];
     /**
-     * set to true if opponent is within the field of view of the owner
+     * the cells of the owner and the opponent (see BotVisibility.Cell) and
+     * the version of the walls when the vision update last tested the line of
+     * sight between them. Until one of them changes the test is not made
+     * again
      */
-    public boolean bWithinFOV;
+    private long[] m_OwnerCell = new long[0];
+    private long[] m_OpponentCell = new long[0];
+    private int[] m_iWallsVersion = new int[0];
     /**
-     * set to true if there is no obstruction between the opponent and the
-     * owner, permitting a shot.
+     * the facing of the owner when the vision update last checked which
+     * opponents are within its field of view, and the cosine of the angle the
+     * owner must turn by before they are checked again
      */
-    public boolean bShootable;
-
-    public MemoryRecord() {
-        fTimeLastSensed = -999;
-        fTimeBecameVisible = -999;
-        fTimeLastVisible = 0;
-        bWithinFOV = false;
-        bShootable = false;
-    }
-}
-
-public class Raven_SensoryMemory {
-
-    private class MemoryMap extends HashMap<Raven_Bot, MemoryRecord> {
-    }
+    private double m_dFacingX = 0;
+    private double m_dFacingY = 0;
+    private double m_dCosFacingThreshold;
     /**
-     * the owner of this instance
+     * the slot the vision update starts testing the out of date lines of
+     * sight from, so no opponent waits for its test longer than the others
      */
-    private Raven_Bot m_pOwner;
+    private int m_iNextSlotToTest = 0;
     /**
-     * this container is used to simulate memory of sensory events. A
-     * MemoryRecord is created for each opponent in the environment. Each record
-     * is updated whenever the opponent is encountered. (when it is seen or
-     * heard)
+     * the list returned by GetListOfRecentlySensedOpponents, filled again by
+     * every call
      */
-    private MemoryMap m_MemoryMap = new MemoryMap();
+    private List<Raven_Bot> m_RecentlySensed = new ArrayList<Raven_Bot>();
     /**
      * a bot has a memory span equivalent to this value. When a bot requests a
      * list of all recently sensed opponents this value is used to determine if
@@ -82,20 +113,76 @@ public class Raven_SensoryMemory {
 
     /**
      * this methods checks to see if there is an existing record for pBot. If
-     * not a new MemoryRecord record is made and added to the memory map.(called
-     * by UpdateWithSoundSource & UpdateVision)
+     * not a new record is made and added to the memory.(called by
+     * UpdateWithSoundSource & UpdateVision)
+     *
+     * @return the slot of the record
      */
-    private void MakeNewRecordIfNotAlreadyPresent(Raven_Bot pOpponent) {
+    private int MakeNewRecordIfNotAlreadyPresent(Raven_Bot pOpponent) {
+        final int slot = pOpponent.GetSlot();
+        if (slot >= m_Opponents.length) {
+            Grow(slot + 1);
+        }
+
         //else check to see if this Opponent already exists in the memory. If it doesn't,
         //create a new record
-        if (m_MemoryMap.get(pOpponent) == null) {
-            m_MemoryMap.put(pOpponent, new MemoryRecord());
+        if (m_Opponents[slot] != pOpponent || (m_Flags[slot] & HasRecord) == 0) {
+            m_Opponents[slot] = pOpponent;
+            m_Flags[slot] = HasRecord;
+            m_dTimeLastSensed[slot] = -999;
+            m_dTimeBecameVisible[slot] = -999;
+            m_dTimeLastVisible[slot] = 0;
+            m_dLastSensedPosX[slot] = 0;
+            m_dLastSensedPosY[slot] = 0;
+        }
+        return slot;
+    }
+
+    /**
+     * makes room for the records of the given number of slots
+     */
+    private void Grow(int NumSlots) {
+        final int size = Math.max(NumSlots, 2 * m_Opponents.length);
+        m_Opponents = Arrays.copyOf(m_Opponents, size);
+        m_Flags = Arrays.copyOf(m_Flags, size);
+        m_dTimeLastSensed = Arrays.copyOf(m_dTimeLastSensed, size);
+        m_dTimeBecameVisible = Arrays.copyOf(m_dTimeBecameVisible, size);
+        m_dTimeLastVisible = Arrays.copyOf(m_dTimeLastVisible, size);
+        m_dLastSensedPosX = Arrays.copyOf(m_dLastSensedPosX, size);
+        m_dLastSensedPosY = Arrays.copyOf(m_dLastSensedPosY, size);
+        m_OwnerCell = Arrays.copyOf(m_OwnerCell, size);
+        m_OpponentCell = Arrays.copyOf(m_OpponentCell, size);
+        m_iWallsVersion = Arrays.copyOf(m_iWallsVersion, size);
+    }
+
+    /**
+     * @return the slot of the record of the opponent or -1 if there is none
+     * (or no opponent is given)
+     */
+    private int FindRecord(Raven_Bot pOpponent) {
+        if (pOpponent == null) {
+            return -1;
+        }
+        final int slot = pOpponent.GetSlot();
+        if (slot >= 0 && slot < m_Opponents.length && m_Opponents[slot] == pOpponent
+                && (m_Flags[slot] & HasRecord) != 0) {
+            return slot;
+        }
+        return -1;
+    }
+
+    private void SetFlag(int slot, byte flag, boolean value) {
+        if (value) {
+            m_Flags[slot] |= flag;
+        } else {
+            m_Flags[slot] &= ~flag;
         }
     }
 
     public Raven_SensoryMemory(Raven_Bot owner, double MemorySpan) {
         m_pOwner = owner;
         m_dMemorySpan = MemorySpan;
+        m_dCosFacingThreshold = Math.cos(DegsToRads(script().GetDouble("Vision_FacingThreshold")));
     }
 
     /**
@@ -111,22 +198,21 @@ public class Raven_SensoryMemory {
         if (m_pOwner != pNoiseMaker) {
             //if the bot is already part of the memory then update its data, else
             //create a new memory record and add it to the memory
-            MakeNewRecordIfNotAlreadyPresent(pNoiseMaker);
-
-            MemoryRecord info = m_MemoryMap.get(pNoiseMaker);
+            final int slot = MakeNewRecordIfNotAlreadyPresent(pNoiseMaker);
 
-            //test if there is LOS between bots 
-            if (m_pOwner.GetWorld().isLOSOkay(m_pOwner.Pos(), pNoiseMaker.Pos())) {
-                info.bShootable = true;
+            //test if there is LOS between bots
+            if (m_pOwner.hasLOSto(pNoiseMaker)) {
+                SetFlag(slot, Shootable, true);
 
                 //record the position of the bot
-                info.vLastSensedPosition = pNoiseMaker.Pos();
+                m_dLastSensedPosX[slot] = pNoiseMaker.m_vPosition.x;
+                m_dLastSensedPosY[slot] = pNoiseMaker.m_vPosition.y;
             } else {
-                info.bShootable = false;
+                SetFlag(slot, Shootable, false);
             }
 
             //record the time it was sensed
-            info.fTimeLastSensed = (double) Clock.GetCurrentTime();
+            m_dTimeLastSensed[slot] = (double) Clock().GetCurrentTime();
         }
     }
 
@@ -134,7 +220,11 @@ public class Raven_SensoryMemory {
      * this removes a bot's record from memory
      */
     public void RemoveBotFromMemory(Raven_Bot pBot) {
-        m_MemoryMap.remove(pBot);
+        final int slot = FindRecord(pBot);
+        if (slot >= 0) {
+            m_Opponents[slot] = null;
+            m_Flags[slot] = 0;
+        }
     }
 
     /**
@@ -142,46 +232,128 @@ public class Raven_SensoryMemory {
      * updates the records of those that are in the owner's FOV this method
      * iterates through all the bots in the game world to test if they are in
      * the field of view. Each bot's memory record is updated accordingly
+     *
+     * The line of sight to an opponent is only tested again when the owner or
+     * the opponent has moved to another cell or a door has moved since the
+     * last test, and no more tests are made than the owner's share of the
+     * update-step (see BotVisibility.ShareOutTests). The other tests wait for
+     * the next update, the current target's first. Until then the record
+     * keeps what the last test found.
      */
     public void UpdateVision() {
+        final BotVisibility visibility = m_pOwner.GetWorld().GetVisibility();
+        final long OwnerCell = visibility.Cell(m_pOwner);
+        final int WallsVersion = visibility.GetWallsVersion();
+
+        //check the field of view again if the owner has turned enough
+        final Vector2D facing = m_pOwner.Facing();
+        final boolean Turned = facing.x * m_dFacingX + facing.y * m_dFacingY < m_dCosFacingThreshold;
+        if (Turned) {
+            m_dFacingX = facing.x;
+            m_dFacingY = facing.y;
+        }
+
         //for each bot in the world test to see if it is visible to the owner of
         //this class
         final List<Raven_Bot> bots = m_pOwner.GetWorld().GetAllBots();
+        boolean AnyOutOfDate = false;
         for (Raven_Bot curBot : bots) {
             //make sure the bot being examined is not this bot
             if (m_pOwner != curBot) {
                 //make sure it is part of the memory map
-                MakeNewRecordIfNotAlreadyPresent(curBot);
-
-                //get a reference to this bot's data
-                MemoryRecord info = m_MemoryMap.get(curBot);
-
-                //test if there is LOS between bots 
-                if (m_pOwner.GetWorld().isLOSOkay(m_pOwner.Pos(), curBot.Pos())) {
-                    info.bShootable = true;
-
-                    //test if the bot is within FOV
-                    if (isSecondInFOVOfFirst(m_pOwner.Pos(),
-                            m_pOwner.Facing(),
-                            curBot.Pos(),
-                            m_pOwner.FieldOfView())) {
-                        info.fTimeLastSensed = Clock.GetCurrentTime();
-                        info.vLastSensedPosition = curBot.Pos();
-                        info.fTimeLastVisible = Clock.GetCurrentTime();
-
-                        if (info.bWithinFOV == false) {
-                            info.bWithinFOV = true;
-                            info.fTimeBecameVisible = info.fTimeLastSensed;
-                        }
-                    } else {
-                        info.bWithinFOV = false;
-                    }
-                } else {
-                    info.bShootable = false;
-                    info.bWithinFOV = false;
+                final int slot = MakeNewRecordIfNotAlreadyPresent(curBot);
+
+                if ((m_Flags[slot] & Seen) == 0
+                        || m_OwnerCell[slot] != OwnerCell
+                        || m_OpponentCell[slot] != visibility.Cell(curBot)
+                        || m_iWallsVersion[slot] != WallsVersion) {
+                    SetFlag(slot, OutOfDate, true);
+                    AnyOutOfDate = true;
+                } //nothing is in the way yet, so only the field of view may
+                //have changed
+                else if ((m_Flags[slot] & Shootable) != 0
+                        && (Turned || (m_Flags[slot] & WithinFOV) != 0)) {
+                    UpdateFOV(slot, curBot);
                 }
             }
         }//next bot
+
+        if (!AnyOutOfDate) {
+            return;
+        }
+
+        //test the lines of sight that are out of date, the current target's
+        //first and then the others in turn
+        int quota = visibility.GetTestQuota(m_pOwner);
+        final Raven_Bot target = m_pOwner.GetTargetBot();
+        if (quota > 0 && target != null) {
+            final int slot = FindRecord(target);
+            if (slot >= 0 && (m_Flags[slot] & OutOfDate) != 0) {
+                TestLOS(slot, OwnerCell, WallsVersion);
+                --quota;
+            }
+        }
+
+        final int NumSlots = m_Opponents.length;
+        for (int i = 0; i < NumSlots && quota > 0; ++i) {
+            final int slot = (m_iNextSlotToTest + i) % NumSlots;
+            if ((m_Flags[slot] & OutOfDate) != 0) {
+                TestLOS(slot, OwnerCell, WallsVersion);
+                --quota;
+                m_iNextSlotToTest = slot + 1;
+            }
+        }
+
+        for (int slot = 0; slot < NumSlots; ++slot) {
+            SetFlag(slot, OutOfDate, false);
+        }
+    }
+
+    /**
+     * tests the line of sight to the opponent in the slot and updates its
+     * record
+     */
+    private void TestLOS(int slot, long OwnerCell, int WallsVersion) {
+        final Raven_Bot curBot = m_Opponents[slot];
+        m_OwnerCell[slot] = OwnerCell;
+        m_OpponentCell[slot] = m_pOwner.GetWorld().GetVisibility().Cell(curBot);
+        m_iWallsVersion[slot] = WallsVersion;
+        SetFlag(slot, Seen, true);
+        SetFlag(slot, OutOfDate, false);
+
+        //test if there is LOS between bots
+        if (m_pOwner.hasLOSto(curBot)) {
+            SetFlag(slot, Shootable, true);
+
+            UpdateFOV(slot, curBot);
+        } else {
+            SetFlag(slot, Shootable, false);
+            SetFlag(slot, WithinFOV, false);
+        }
+    }
+
+    /**
+     * tests if the opponent in the slot, which the owner has LOS to, is
+     * within the FOV and updates its record
+     */
+    private void UpdateFOV(int slot, Raven_Bot curBot) {
+        //test if the bot is within FOV
+        if (isSecondInFOVOfFirst(m_pOwner.Pos(),
+                m_pOwner.Facing(),
+                curBot.Pos(),
+                m_pOwner.FieldOfView())) {
+            m_dTimeLastSensed[slot] = Clock().GetCurrentTime();
+            m_dLastSensedPosX[slot] = curBot.m_vPosition.x;
+            m_dLastSensedPosY[slot] = curBot.m_vPosition.y;
+            m_dTimeLastVisible[slot] = Clock().GetCurrentTime();
+
+            if ((m_Flags[slot] & WithinFOV) == 0) {
+                SetFlag(slot, WithinFOV, true);
+                m_dTimeBecameVisible[slot] = m_dTimeLastSensed[slot];
+            }
+        } else {
+            SetFlag(slot, WithinFOV, false);
+        }
     }
 
     /**
@@ -189,9 +361,9 @@ public class Raven_SensoryMemory {
      * obscured by walls)
      */
     public boolean isOpponentShootable(Raven_Bot pOpponent) {
-        MemoryRecord mr = m_MemoryMap.get(pOpponent);
-        if (mr != null) {
-            return mr.bShootable;
+        final int slot = FindRecord(pOpponent);
+        if (slot >= 0) {
+            return (m_Flags[slot] & Shootable) != 0;
         }
 
         return false;
@@ -201,9 +373,9 @@ public class Raven_SensoryMemory {
      * returns true if the bot given as a parameter is within FOV
      */
     public boolean isOpponentWithinFOV(Raven_Bot pOpponent) {
-        MemoryRecord mr = m_MemoryMap.get(pOpponent);
-        if (mr != null) {
-            return mr.bWithinFOV;
+        final int slot = FindRecord(pOpponent);
+        if (slot >= 0) {
+            return (m_Flags[slot] & WithinFOV) != 0;
         }
 
         return false;
@@ -213,9 +385,9 @@ public class Raven_SensoryMemory {
      * returns the last recorded position of the bot
      */
     public Vector2D GetLastRecordedPositionOfOpponent(Raven_Bot pOpponent) {
-        MemoryRecord mr = m_MemoryMap.get(pOpponent);
-        if (mr != null) {
-            return new Vector2D(mr.vLastSensedPosition);
+        final int slot = FindRecord(pOpponent);
+        if (slot >= 0) {
+            return new Vector2D(m_dLastSensedPosX[slot], m_dLastSensedPosY[slot]);
         }
         throw new RuntimeException("< Raven_SensoryMemory::GetLastRecordedPositionOfOpponent>: Attempting to get position of unrecorded bot");
     }
@@ -224,9 +396,9 @@ public class Raven_SensoryMemory {
      * returns the amount of time the given bot has been visible
      */
     public double GetTimeOpponentHasBeenVisible(Raven_Bot pOpponent) {
-        MemoryRecord mr = m_MemoryMap.get(pOpponent);
-        if (mr != null && mr.bWithinFOV) {
-            return Clock.GetCurrentTime() - mr.fTimeBecameVisible;
+        final int slot = FindRecord(pOpponent);
+        if (slot >= 0 && (m_Flags[slot] & WithinFOV) != 0) {
+            return Clock().GetCurrentTime() - m_dTimeBecameVisible[slot];
         }
 
         return 0;
@@ -236,9 +408,9 @@ public class Raven_SensoryMemory {
      * returns the amount of time the given bot has been visible
      */
     public double GetTimeSinceLastSensed(Raven_Bot pOpponent) {
-        MemoryRecord mr = m_MemoryMap.get(pOpponent);
-        if (mr != null && mr.bWithinFOV) {
-            return Clock.GetCurrentTime() - mr.fTimeLastSensed;
+        final int slot = FindRecord(pOpponent);
+        if (slot >= 0 && (m_Flags[slot] & WithinFOV) != 0) {
+            return Clock().GetCurrentTime() - m_dTimeLastSensed[slot];
         }
         return 0;
     }
@@ -248,52 +420,69 @@ public class Raven_SensoryMemory {
      * returns a high value if opponent has never been seen or not present
      */
     public double GetTimeOpponentHasBeenOutOfView(Raven_Bot pOpponent) {
-        MemoryRecord mr = m_MemoryMap.get(pOpponent);
-        if (mr != null) {
+        final int slot = FindRecord(pOpponent);
+        if (slot >= 0) {
 
-            return Clock.GetCurrentTime() - mr.fTimeLastVisible;
+            return Clock().GetCurrentTime() - m_dTimeLastVisible[slot];
         }
 
         return MaxDouble;
     }
 
+    /**
+     * @return true if the record in the slot has been updated within the last
+     * m_dMemorySpan seconds
+     */
+    private boolean isRecentlySensed(int slot, double CurrentTime) {
+        return (m_Flags[slot] & HasRecord) != 0
+                && (CurrentTime - m_dTimeLastSensed[slot]) <= m_dMemorySpan;
+    }
+
     /**
      * this method returns a list of all the opponents that have had their
      * records updated within the last m_dMemorySpan seconds.
      *
+     * The same list is filled again by the next call, so it must not be kept
+     * or changed by the caller.
+     *
      * @return a list of the bots that have been sensed recently
      */
     public List<Raven_Bot> GetListOfRecentlySensedOpponents() {
         //this will store all the opponents the bot can remember
-        List<Raven_Bot> opponents = new ArrayList<Raven_Bot>();
+        m_RecentlySensed.clear();
 
-        double CurrentTime = Clock.GetCurrentTime();
+        double CurrentTime = Clock().GetCurrentTime();
 
-        for (Entry<Raven_Bot, MemoryRecord> curRecord : m_MemoryMap.entrySet()) {
+        for (int slot = 0; slot < m_Opponents.length; ++slot) {
             //if this bot has been updated in the memory recently, add to list
-            if ((CurrentTime - curRecord.getValue().fTimeLastSensed) <= m_dMemorySpan) {
-                opponents.add(curRecord.getKey());
+            if (isRecentlySensed(slot, CurrentTime)) {
+                m_RecentlySensed.add(m_Opponents[slot]);
             }
         }
 
-        return opponents;
+        return m_RecentlySensed;
     }
 
     /**
      * renders boxes around the opponents it has sensed recently.
      */
     public void RenderBoxesAroundRecentlySensed() {
-        List<Raven_Bot> opponents = GetListOfRecentlySensedOpponents();
-        for (Raven_Bot it : opponents) {
-            gdi.OrangePen();
+        double CurrentTime = Clock().GetCurrentTime();
+
+        for (int slot = 0; slot < m_Opponents.length; ++slot) {
+            if (!isRecentlySensed(slot, CurrentTime)) {
+                continue;
+            }
+            Raven_Bot it = m_Opponents[slot];
+            gdi().OrangePen();
             Vector2D p = it.Pos();
             double b = it.BRadius();
 
-            gdi.Line(p.x - b, p.y - b, p.x + b, p.y - b);
-            gdi.Line(p.x + b, p.y - b, p.x + b, p.y + b);
-            gdi.Line(p.x + b, p.y + b, p.x - b, p.y + b);
-            gdi.Line(p.x - b, p.y + b, p.x - b, p.y - b);
+            gdi().Line(p.x - b, p.y - b, p.x + b, p.y - b);
+            gdi().Line(p.x + b, p.y - b, p.x + b, p.y + b);
+            gdi().Line(p.x + b, p.y + b, p.x - b, p.y + b);
+            gdi().Line(p.x - b, p.y + b, p.x - b, p.y - b);
         }
 
     }
-}
\ No newline at end of file
+}
@@ -120,6 +120,10 @@ public class Raven_Steering {
      * how far the agent can 'see'
      */
     private double m_dViewDistance;
+    /**
+     * the bots within view distance found by the last call to Calculate
+     */
+    private List<Raven_Bot> m_Neighbors = new ArrayList<Raven_Bot>();
     /**
      * binary flags to indicate whether or not a behavior should be active
      */
@@ -407,7 +411,7 @@ public class Raven_Steering {
         //also a good behavior to add into this mix)
 
         if (On(separation)) {
-            force = mul(Separation(m_pWorld.GetAllBots()), m_dWeightSeparation);
+            force = mul(Separation(m_Neighbors), m_dWeightSeparation);
 
             if (!AccumulateForce(m_vSteeringForce, force)) {
                 return m_vSteeringForce;
@@ -449,11 +453,11 @@ public class Raven_Steering {
         m_pWorld = world;
         m_pRaven_Bot = agent;
         m_iFlags = 0;
-        m_dWeightSeparation = script.GetDouble("SeparationWeight");
-        m_dWeightWander = script.GetDouble("WanderWeight");
-        m_dWeightWallAvoidance = script.GetDouble("WallAvoidanceWeight");
-        m_dViewDistance = script.GetDouble("ViewDistance");
-        m_dWallDetectionFeelerLength = script.GetDouble("WallDetectionFeelerLength");
+        m_dWeightSeparation = script().GetDouble("SeparationWeight");
+        m_dWeightWander = script().GetDouble("WanderWeight");
+        m_dWeightWallAvoidance = script().GetDouble("WallAvoidanceWeight");
+        m_dViewDistance = script().GetDouble("ViewDistance");
+        m_dWallDetectionFeelerLength = script().GetDouble("WallDetectionFeelerLength");
         m_Feelers = new ArrayList<Vector2D>(3);
         m_Deceleration = Deceleration.normal;
         m_pTargetAgent1 = null;
@@ -461,8 +465,8 @@ public class Raven_Steering {
         m_dWanderDistance = WanderDist;
         m_dWanderJitter = WanderJitterPerSec;
         m_dWanderRadius = WanderRad;
-        m_dWeightSeek = script.GetDouble("SeekWeight");
-        m_dWeightArrive = script.GetDouble("ArriveWeight");
+        m_dWeightSeek = script().GetDouble("SeekWeight");
+        m_dWeightArrive = script().GetDouble("ArriveWeight");
         m_bCellSpaceOn = false;
         m_SummingMethod = summing_method.prioritized;
 
@@ -491,7 +495,7 @@ public class Raven_Steering {
 
         //tag neighbors if any of the following 3 group behaviors are switched on
         if (On(separation)) {
-            m_pWorld.TagRaven_BotsWithinViewRange(m_pRaven_Bot, m_dViewDistance);
+            m_Neighbors = m_pWorld.TagRaven_BotsWithinViewRange(m_pRaven_Bot, m_dViewDistance);
         }
 
         m_vSteeringForce = CalculatePrioritized();
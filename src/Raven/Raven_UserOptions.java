@@ -1,4 +1,6 @@
 package Raven;
+
+import common.Game.GameContext;
 /**
 * Name:   Raven_UserOptions.h
 *
@@ -9,9 +11,15 @@ package Raven;
 
 public class Raven_UserOptions {
 	
-	public static Raven_UserOptions UserOptions = new Raven_UserOptions();
+	/**
+	 * @return the options of the match driven by the calling thread
+	 */
+	public static Raven_UserOptions UserOptions() {
+		return GameContext.Current().GetUserOptions();
+	}
 
-	private Raven_UserOptions() {
+	//one instance per GameContext
+	public Raven_UserOptions() {
 		m_bShowGraph = false;
 
 		m_bShowPathOfSelectedBot = true;
@@ -27,6 +35,7 @@ public class Raven_UserOptions {
 		m_bShowNodeIndices = false;
 		m_bShowOpponentsSensedBySelectedBot = true;
 		m_bShowWeaponAppraisals = false;
+		m_bTimedPathSearches = false;
 	}
 
 	//copy ctor and assignment should be private
@@ -36,7 +45,7 @@ public class Raven_UserOptions {
 	}
 
 	public static Raven_UserOptions Instance() {
-		return UserOptions;
+		return UserOptions();
 	}
 	
 	public boolean m_bShowGraph;
@@ -53,4 +62,11 @@ public class Raven_UserOptions {
 	public boolean m_bShowBotIDs;
 	public boolean m_bShowBotHealth;
 	public boolean m_bShowScore;
+	/**
+	 * true if the path searches of an update-step are limited by time
+	 * (MaxSearchTimePerUpdateStep) instead of by search cycles
+	 * (MaxSearchCyclesPerUpdateStep). The windowed game sets it, the headless
+	 * matches count cycles so they play out the same on any machine
+	 */
+	public boolean m_bTimedPathSearches;
 }
@@ -15,7 +15,6 @@ import common.D2.Vector2D;
 import static common.D2.Vector2D.add;
 import static common.D2.Vector2D.sub;
 import static common.D2.Vector2D.mul;
-import static common.D2.Vector2D.Vec2DDistance;
 import static common.D2.Transformation.Vec2DRotateAroundOrigin;
 import static common.misc.Cgdi.gdi;
 import static common.misc.utils.MinDouble;
@@ -116,6 +115,18 @@ public class Raven_WeaponSystem {
         m_WeaponMap.clear();
     }
 
+    /**
+     * compiles the desirability surfaces of all the weapon types for the
+     * match of the calling thread, so no weapon has to compile its surface
+     * when it is created (see Raven_Weapon.CompileDesirabilitySurface)
+     */
+    public static void CompileDesirabilitySurfaces() {
+        Blaster.DesirabilitySurface();
+        RailGun.DesirabilitySurface();
+        ShotGun.DesirabilitySurface();
+        RocketLauncher.DesirabilitySurface();
+    }
+
     /**
      * sets up the weapon map with just one weapon: the blaster initializes the
      * weapons
@@ -196,7 +207,7 @@ public class Raven_WeaponSystem {
         //weapon.
         if (m_pOwner.GetTargetSys().isTargetPresent()) {
             //calculate the distance to the target
-            double DistToTarget = Vec2DDistance(m_pOwner.Pos(), m_pOwner.GetTargetSys().GetTarget().Pos());
+            double DistToTarget = m_pOwner.GetFeatures().DistanceToTarget();
 
             //for each weapon in the inventory calculate its desirability given the 
             //current situation. The most desirable weapon is selected
@@ -336,7 +347,7 @@ public class Raven_WeaponSystem {
                 double score = curWeap.getValue().GetLastDesirabilityScore();
                 String type = GetNameOfType(curWeap.getValue().GetType());
 
-                gdi.TextAtPos(p.x + 10.0, p.y - offset, ttos(score) + " " + type);
+                gdi().TextAtPos(p.x + 10.0, p.y - offset, ttos(score) + " " + type);
 
                 offset += 15;
             }
@@ -33,11 +33,11 @@ public class Bolt extends Raven_Projectile {
                 shooter.ID(),
                 shooter.Pos(),
                 shooter.Facing(),
-                script.GetInt("Bolt_Damage"),
-                script.GetDouble("Bolt_Scale"),
-                script.GetDouble("Bolt_MaxSpeed"),
-                script.GetDouble("Bolt_Mass"),
-                script.GetDouble("Bolt_MaxForce"));
+                script().GetInt("Bolt_Damage"),
+                script().GetDouble("Bolt_Scale"),
+                script().GetDouble("Bolt_MaxSpeed"),
+                script().GetDouble("Bolt_Mass"),
+                script().GetDouble("Bolt_MaxForce"));
 
         assert !target.equals(new Vector2D());
     }
@@ -73,7 +73,7 @@ public class Bolt extends Raven_Projectile {
 
                 //send a message to the bot to let it know it's been hit, and who the
                 //shot came from
-                Dispatcher.DispatchMsg(SEND_MSG_IMMEDIATELY,
+                Dispatcher().DispatchMsg(SEND_MSG_IMMEDIATELY,
                         m_iShooterID,
                         hit.ID(),
                         Msg_TakeThatMF,
@@ -86,7 +86,7 @@ public class Bolt extends Raven_Projectile {
                     m_vPosition,
                     dist,
                     m_vImpactPoint,
-                    m_pWorld.GetMap().GetWalls())) {
+                    m_pWorld.GetMap().GetWallGrid())) {
                 m_bDead = true;
                 m_bImpacted = true;
 
@@ -101,7 +101,7 @@ public class Bolt extends Raven_Projectile {
     //-----------------------------------------------------------------------------
     @Override
     public void Render() {
-        gdi.ThickGreenPen();
-        gdi.Line(Pos(), sub(Pos(), Velocity()));
+        gdi().ThickGreenPen();
+        gdi().Line(Pos(), sub(Pos(), Velocity()));
     }
 }
\ No newline at end of file
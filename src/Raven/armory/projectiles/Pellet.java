@@ -44,7 +44,7 @@ public class Pellet extends Raven_Projectile {
                 m_vPosition,
                 DistToClosestImpact,
                 m_vImpactPoint,
-                m_pWorld.GetMap().GetWalls());
+                m_pWorld.GetMap().GetWallGrid());
 
         //test to see if the ray between the current position of the shell and 
         //the start position intersects with any bots.
@@ -65,7 +65,7 @@ public class Pellet extends Raven_Projectile {
 
         //send a message to the bot to let it know it's been hit, and who the
         //shot came from
-        Dispatcher.DispatchMsg(SEND_MSG_IMMEDIATELY,
+        Dispatcher().DispatchMsg(SEND_MSG_IMMEDIATELY,
                 m_iShooterID,
                 hit.ID(),
                 Msg_TakeThatMF,
@@ -76,7 +76,7 @@ public class Pellet extends Raven_Projectile {
      * returns true if the shot is still to be rendered
      */
     private boolean isVisibleToPlayer() {
-        return Clock.GetCurrentTime() < m_dTimeOfCreation + m_dTimeShotIsVisible;
+        return Clock().GetCurrentTime() < m_dTimeOfCreation + m_dTimeShotIsVisible;
     }
 
     //-------------------------- ctor ---------------------------------------------
@@ -88,13 +88,13 @@ public class Pellet extends Raven_Projectile {
                 shooter.ID(),
                 shooter.Pos(),
                 shooter.Facing(),
-                script.GetInt("Pellet_Damage"),
-                script.GetDouble("Pellet_Scale"),
-                script.GetDouble("Pellet_MaxSpeed"),
-                script.GetDouble("Pellet_Mass"),
-                script.GetDouble("Pellet_MaxForce"));
+                script().GetInt("Pellet_Damage"),
+                script().GetDouble("Pellet_Scale"),
+                script().GetDouble("Pellet_MaxSpeed"),
+                script().GetDouble("Pellet_Mass"),
+                script().GetDouble("Pellet_MaxForce"));
 
-        m_dTimeShotIsVisible = script.GetDouble("Pellet_Persistance");
+        m_dTimeShotIsVisible = script().GetDouble("Pellet_Persistance");
     }
 
     //------------------------------ Update ---------------------------------------
@@ -127,11 +127,11 @@ public class Pellet extends Raven_Projectile {
     @Override
     public void Render() {
         if (isVisibleToPlayer() && m_bImpacted) {
-            gdi.YellowPen();
-            gdi.Line(m_vOrigin, m_vImpactPoint);
+            gdi().YellowPen();
+            gdi().Line(m_vOrigin, m_vImpactPoint);
 
-            gdi.BrownBrush();
-            gdi.Circle(m_vImpactPoint, 3);
+            gdi().BrownBrush();
+            gdi().Circle(m_vImpactPoint, 3);
         }
     }
 }
\ No newline at end of file
@@ -67,9 +67,11 @@ public abstract class Raven_Projectile extends MovingEntity {
 		Raven_Bot ClosestIntersectingBot = null;
 		double ClosestSoFar = MaxDouble;
 
-		//iterate through all entities checking against the line segment FromTo
+		//iterate through all entities near the line segment FromTo
+		List<Raven_Bot> near = new ArrayList<Raven_Bot>();
+		m_pWorld.GetBotGrid().QuerySegment(From, To, m_pWorld.GetMaxBotRadius(), near);
 
-		for (Raven_Bot curBot : m_pWorld.GetAllBots()) {
+		for (Raven_Bot curBot : near) {
 			//make sure we don't check against the shooter of the projectile
 			if (curBot.ID() != m_iShooterID) {
 				//if the distance to FromTo is less than the entity's bounding radius then
@@ -79,7 +81,7 @@ public abstract class Raven_Projectile extends MovingEntity {
 					double Dist = Vec2DDistanceSq(curBot.Pos(), m_vOrigin);
 
 					if (Dist < ClosestSoFar) {
-						Dist = ClosestSoFar;
+						ClosestSoFar = Dist;
 						ClosestIntersectingBot = curBot;
 					}
 				}
@@ -95,8 +97,11 @@ public abstract class Raven_Projectile extends MovingEntity {
 		//this will hold any bots that are intersecting with the line segment
 		List<Raven_Bot> hits = new ArrayList<Raven_Bot>();
 
-		//iterate through all entities checking against the line segment FromTo
-		for (Raven_Bot curBot : m_pWorld.GetAllBots()) {
+		//iterate through all entities near the line segment FromTo
+		List<Raven_Bot> near = new ArrayList<Raven_Bot>();
+		m_pWorld.GetBotGrid().QuerySegment(From, To, m_pWorld.GetMaxBotRadius(), near);
+
+		for (Raven_Bot curBot : near) {
 			//make sure we don't check against the shooter of the projectile
 			if ((curBot.ID() != m_iShooterID)) {
 				//if the distance to FromTo is less than the entities bounding radius then
@@ -140,7 +145,7 @@ public abstract class Raven_Projectile extends MovingEntity {
 		m_iShooterID = ShooterID;
 
 
-		m_dTimeOfCreation = Clock.GetCurrentTime();
+		m_dTimeOfCreation = Clock().GetCurrentTime();
 	}
 
 	//unimportant for this class unless you want to implement a full state 
@@ -39,7 +39,7 @@ public class Rocket extends Raven_Projectile {
             if (Vec2DDistance(Pos(), curBot.Pos()) < m_dBlastRadius + curBot.BRadius()) {
                 //send a message to the bot to let it know it's been hit, and who the
                 //shot came from
-                Dispatcher.DispatchMsg(SEND_MSG_IMMEDIATELY,
+                Dispatcher().DispatchMsg(SEND_MSG_IMMEDIATELY,
                         m_iShooterID,
                         curBot.ID(),
                         Msg_TakeThatMF,
@@ -69,7 +69,7 @@ public class Rocket extends Raven_Projectile {
 
             //send a message to the bot to let it know it's been hit, and who the
             //shot came from
-            Dispatcher.DispatchMsg(SEND_MSG_IMMEDIATELY,
+            Dispatcher().DispatchMsg(SEND_MSG_IMMEDIATELY,
                     m_iShooterID,
                     hit.ID(),
                     Msg_TakeThatMF,
@@ -85,7 +85,7 @@ public class Rocket extends Raven_Projectile {
                 m_vPosition,
                 dist,
                 m_vImpactPoint,
-                m_pWorld.GetMap().GetWalls())) {
+                m_pWorld.GetMap().GetWallGrid())) {
             m_bImpacted = true;
 
             //test for bots within the blast radius and inflict damage
@@ -115,14 +115,14 @@ public class Rocket extends Raven_Projectile {
                 shooter.ID(),
                 shooter.Pos(),
                 shooter.Facing(),
-                script.GetInt("Rocket_Damage"),
-                script.GetDouble("Rocket_Scale"),
-                script.GetDouble("Rocket_MaxSpeed"),
-                script.GetDouble("Rocket_Mass"),
-                script.GetDouble("Rocket_MaxForce"));
+                script().GetInt("Rocket_Damage"),
+                script().GetDouble("Rocket_Scale"),
+                script().GetDouble("Rocket_MaxSpeed"),
+                script().GetDouble("Rocket_Mass"),
+                script().GetDouble("Rocket_MaxForce"));
 
         m_dCurrentBlastRadius = 0.0;
-        m_dBlastRadius = script.GetDouble("Rocket_BlastRadius");
+        m_dBlastRadius = script().GetDouble("Rocket_BlastRadius");
         assert (!target.equals(new Vector2D()));
     }
 
@@ -140,7 +140,7 @@ public class Rocket extends Raven_Projectile {
 
             TestForImpact();
         } else {
-            m_dCurrentBlastRadius += script.GetDouble("Rocket_ExplosionDecayRate");
+            m_dCurrentBlastRadius += script().GetDouble("Rocket_ExplosionDecayRate");
 
             //when the rendered blast circle becomes equal in size to the blast radius
             //the rocket can be removed from the game
@@ -155,13 +155,13 @@ public class Rocket extends Raven_Projectile {
     @Override
     public void Render() {
 
-        gdi.RedPen();
-        gdi.OrangeBrush();
-        gdi.Circle(Pos(), 2);
+        gdi().RedPen();
+        gdi().OrangeBrush();
+        gdi().Circle(Pos(), 2);
 
         if (m_bImpacted) {
-            gdi.HollowBrush();
-            gdi.Circle(Pos(), m_dCurrentBlastRadius);
+            gdi().HollowBrush();
+            gdi().Circle(Pos(), m_dCurrentBlastRadius);
         }
     }
 }
@@ -43,7 +43,7 @@ public class Slug extends Raven_Projectile {
                 m_vPosition,
                 DistToClosestImpact,
                 m_vImpactPoint,
-                m_pWorld.GetMap().GetWalls());
+                m_pWorld.GetMap().GetWallGrid());
 
         //test to see if the ray between the current position of the slug and 
         //the start position intersects with any bots.
@@ -59,7 +59,7 @@ public class Slug extends Raven_Projectile {
             {
                 //send a message to the bot to let it know it's been hit, and who the
                 //shot came from
-                Dispatcher.DispatchMsg(SEND_MSG_IMMEDIATELY,
+                Dispatcher().DispatchMsg(SEND_MSG_IMMEDIATELY,
                         m_iShooterID,
                         it.ID(),
                         Msg_TakeThatMF,
@@ -73,7 +73,7 @@ public class Slug extends Raven_Projectile {
      * returns true if the shot is still to be rendered
      */
     private boolean isVisibleToPlayer() {
-        return Clock.GetCurrentTime() < m_dTimeOfCreation + m_dTimeShotIsVisible;
+        return Clock().GetCurrentTime() < m_dTimeOfCreation + m_dTimeShotIsVisible;
     }
 
     public Slug(Raven_Bot shooter, Vector2D target) {
@@ -83,13 +83,13 @@ public class Slug extends Raven_Projectile {
                 shooter.ID(),
                 shooter.Pos(),
                 shooter.Facing(),
-                script.GetInt("Slug_Damage"),
-                script.GetDouble("Slug_Scale"),
-                script.GetDouble("Slug_MaxSpeed"),
-                script.GetDouble("Slug_Mass"),
-                script.GetDouble("Slug_MaxForce"));
+                script().GetInt("Slug_Damage"),
+                script().GetDouble("Slug_Scale"),
+                script().GetDouble("Slug_MaxSpeed"),
+                script().GetDouble("Slug_Mass"),
+                script().GetDouble("Slug_MaxForce"));
 
-        m_dTimeShotIsVisible = script.GetDouble("Slug_Persistance");
+        m_dTimeShotIsVisible = script().GetDouble("Slug_Persistance");
     }
 
     //-------------------------- Render -------------------------------------------
@@ -97,8 +97,8 @@ public class Slug extends Raven_Projectile {
     @Override
     public void Render() {
         if (isVisibleToPlayer() && m_bImpacted) {
-            gdi.GreenPen();
-            gdi.Line(m_vOrigin, m_vImpactPoint);
+            gdi().GreenPen();
+            gdi().Line(m_vOrigin, m_vImpactPoint);
         }
     }
 
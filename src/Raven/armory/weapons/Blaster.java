@@ -10,6 +10,7 @@ import static Raven.lua.Raven_Scriptor.script;
 import static common.D2.Transformation.WorldTransform;
 import common.D2.Vector2D;
 import common.fuzzy.FuzzyModule;
+import common.fuzzy.FuzzySurface;
 import common.fuzzy.FuzzyVariable;
 import common.fuzzy.FzSet;
 import common.fuzzy.fuzzyHedges.FzVery;
@@ -18,24 +19,36 @@ import static common.misc.Cgdi.gdi;
 public class Blaster extends Raven_Weapon {
 
     /**
-     * set up some fuzzy variables and rules
+     * sets up a fuzzy module with the fuzzy variables and rules of the
+     * blaster
      */
-    @Override
-    protected void InitializeFuzzyModule() {
-        FuzzyVariable DistToTarget = m_FuzzyModule.CreateFLV("DistToTarget");
+    private static FuzzyModule CreateFuzzyModule() {
+        FuzzyModule Module = new FuzzyModule();
+
+        FuzzyVariable DistToTarget = Module.CreateFLV("DistToTarget");
 
         FzSet Target_Close = DistToTarget.AddLeftShoulderSet("Target_Close", 0, 25, 150);
         FzSet Target_Medium = DistToTarget.AddTriangularSet("Target_Medium", 25, 150, 300);
         FzSet Target_Far = DistToTarget.AddRightShoulderSet("Target_Far", 150, 300, 1000);
 
-        FuzzyVariable Desirability = m_FuzzyModule.CreateFLV("Desirability");
+        FuzzyVariable Desirability = Module.CreateFLV("Desirability");
         FzSet VeryDesirable = Desirability.AddRightShoulderSet("VeryDesirable", 50, 75, 100);
         FzSet Desirable = Desirability.AddTriangularSet("Desirable", 25, 50, 75);
         FzSet Undesirable = Desirability.AddLeftShoulderSet("Undesirable", 0, 25, 50);
 
-        m_FuzzyModule.AddRule(Target_Close, Desirable);
-        m_FuzzyModule.AddRule(Target_Medium, new FzVery(Undesirable));
-        m_FuzzyModule.AddRule(Target_Far, new FzVery(Undesirable));
+        Module.AddRule(Target_Close, Desirable);
+        Module.AddRule(Target_Medium, new FzVery(Undesirable));
+        Module.AddRule(Target_Far, new FzVery(Undesirable));
+
+        return Module;
+    }
+
+    /**
+     * @return the desirability surface of the blaster in the match of the
+     * calling thread (see Raven_Weapon.CompileDesirabilitySurface)
+     */
+    public static FuzzySurface DesirabilitySurface() {
+        return CompileDesirabilitySurface(type_blaster, CreateFuzzyModule(), "DistToTarget", null);
     }
 
     //--------------------------- ctor --------------------------------------------
@@ -43,11 +56,11 @@ public class Blaster extends Raven_Weapon {
     public Blaster(Raven_Bot owner) {
 
         super(type_blaster,
-                script.GetInt("Blaster_DefaultRounds"),
-                script.GetInt("Blaster_MaxRoundsCarried"),
-                script.GetDouble("Blaster_FiringFreq"),
-                script.GetDouble("Blaster_IdealRange"),
-                script.GetDouble("Bolt_MaxSpeed"),
+                script().GetInt("Blaster_DefaultRounds"),
+                script().GetInt("Blaster_MaxRoundsCarried"),
+                script().GetDouble("Blaster_FiringFreq"),
+                script().GetDouble("Blaster_IdealRange"),
+                script().GetDouble("Bolt_MaxSpeed"),
                 owner);
 
         //setup the vertex buffer
@@ -64,7 +77,7 @@ public class Blaster extends Raven_Weapon {
         }
 
         //setup the fuzzy module
-        InitializeFuzzyModule();
+        SetFuzzyModule(CreateFuzzyModule(), "DistToTarget", null);
     }
 
     //------------------------------ ShootAt --------------------------------------
@@ -78,17 +91,21 @@ public class Blaster extends Raven_Weapon {
 
             //add a trigger to the game so that the other bots can hear this shot
             //(provided they are within range)
-            m_pOwner.GetWorld().GetMap().AddSoundTrigger(m_pOwner, script.GetDouble("Blaster_SoundRange"));
+            m_pOwner.GetWorld().GetMap().AddSoundTrigger(m_pOwner, script().GetDouble("Blaster_SoundRange"));
         }
     }
 
     //---------------------------- Desirability -----------------------------------
     @Override
     public double GetDesirability(double DistToTarget) {
-        //fuzzify distance and amount of ammo
-        m_FuzzyModule.Fuzzify("DistToTarget", DistToTarget);
+        if (m_DesirabilitySurface.Covers(DistToTarget)) {
+            m_dLastDesirabilityScore = m_DesirabilitySurface.Evaluate(DistToTarget);
+        } else {
+            //fuzzify distance and amount of ammo
+            m_FuzzyModule.Fuzzify(m_iDistToTargetFLV, DistToTarget);
 
-        m_dLastDesirabilityScore = m_FuzzyModule.DeFuzzify("Desirability", FuzzyModule.DefuzzifyMethod.max_av);
+            m_dLastDesirabilityScore = m_FuzzyModule.DeFuzzify(m_iDesirabilityFLV, FuzzyModule.DefuzzifyMethod.max_av);
+        }
 
         return m_dLastDesirabilityScore;
     }
@@ -102,7 +119,7 @@ public class Blaster extends Raven_Weapon {
                 m_pOwner.Facing().Perp(),
                 m_pOwner.Scale());
 
-        gdi.GreenPen();
-        gdi.ClosedShape(m_vecWeaponVBTrans);
+        gdi().GreenPen();
+        gdi().ClosedShape(m_vecWeaponVBTrans);
     }
 }
@@ -11,6 +11,7 @@ import static Raven.lua.Raven_Scriptor.script;
 import static common.D2.Transformation.WorldTransform;
 import common.D2.Vector2D;
 import common.fuzzy.FuzzyModule;
+import common.fuzzy.FuzzySurface;
 import common.fuzzy.FuzzyVariable;
 import common.fuzzy.FzSet;
 import common.fuzzy.fuzzyHedges.FzFairly;
@@ -21,24 +22,26 @@ import static common.misc.Cgdi.gdi;
 public class RailGun extends Raven_Weapon {
 
     /**
-     * set up some fuzzy variables and rules
+     * sets up a fuzzy module with the fuzzy variables and rules of the
+     * rail gun
      */
-    @Override
-    protected void InitializeFuzzyModule() {
+    private static FuzzyModule CreateFuzzyModule() {
+        FuzzyModule Module = new FuzzyModule();
+
 
-        FuzzyVariable DistanceToTarget = m_FuzzyModule.CreateFLV("DistanceToTarget");
+        FuzzyVariable DistanceToTarget = Module.CreateFLV("DistanceToTarget");
 
         FzSet Target_Close = DistanceToTarget.AddLeftShoulderSet("Target_Close", 0, 25, 150);
         FzSet Target_Medium = DistanceToTarget.AddTriangularSet("Target_Medium", 25, 150, 300);
         FzSet Target_Far = DistanceToTarget.AddRightShoulderSet("Target_Far", 150, 300, 1000);
 
-        FuzzyVariable Desirability = m_FuzzyModule.CreateFLV("Desirability");
+        FuzzyVariable Desirability = Module.CreateFLV("Desirability");
 
         FzSet VeryDesirable = Desirability.AddRightShoulderSet("VeryDesirable", 50, 75, 100);
         FzSet Desirable = Desirability.AddTriangularSet("Desirable", 25, 50, 75);
         FzSet Undesirable = Desirability.AddLeftShoulderSet("Undesirable", 0, 25, 50);
 
-        FuzzyVariable AmmoStatus = m_FuzzyModule.CreateFLV("AmmoStatus");
+        FuzzyVariable AmmoStatus = Module.CreateFLV("AmmoStatus");
 
         FzSet Ammo_Loads = AmmoStatus.AddRightShoulderSet("Ammo_Loads", 15, 30, 100);
         FzSet Ammo_Okay = AmmoStatus.AddTriangularSet("Ammo_Okay", 0, 15, 30);
@@ -46,17 +49,27 @@ public class RailGun extends Raven_Weapon {
 
 
 
-        m_FuzzyModule.AddRule(new FzAND(Target_Close, Ammo_Loads), new FzFairly(Desirable));
-        m_FuzzyModule.AddRule(new FzAND(Target_Close, Ammo_Okay), new FzFairly(Desirable));
-        m_FuzzyModule.AddRule(new FzAND(Target_Close, Ammo_Low), Undesirable);
+        Module.AddRule(new FzAND(Target_Close, Ammo_Loads), new FzFairly(Desirable));
+        Module.AddRule(new FzAND(Target_Close, Ammo_Okay), new FzFairly(Desirable));
+        Module.AddRule(new FzAND(Target_Close, Ammo_Low), Undesirable);
 
-        m_FuzzyModule.AddRule(new FzAND(Target_Medium, Ammo_Loads), VeryDesirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Medium, Ammo_Okay), Desirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Medium, Ammo_Low), Desirable);
+        Module.AddRule(new FzAND(Target_Medium, Ammo_Loads), VeryDesirable);
+        Module.AddRule(new FzAND(Target_Medium, Ammo_Okay), Desirable);
+        Module.AddRule(new FzAND(Target_Medium, Ammo_Low), Desirable);
 
-        m_FuzzyModule.AddRule(new FzAND(Target_Far, Ammo_Loads), new FzVery(VeryDesirable));
-        m_FuzzyModule.AddRule(new FzAND(Target_Far, Ammo_Okay), new FzVery(VeryDesirable));
-        m_FuzzyModule.AddRule(new FzAND(Target_Far, new FzFairly(Ammo_Low)), VeryDesirable);
+        Module.AddRule(new FzAND(Target_Far, Ammo_Loads), new FzVery(VeryDesirable));
+        Module.AddRule(new FzAND(Target_Far, Ammo_Okay), new FzVery(VeryDesirable));
+        Module.AddRule(new FzAND(Target_Far, new FzFairly(Ammo_Low)), VeryDesirable);
+
+        return Module;
+    }
+
+    /**
+     * @return the desirability surface of the rail gun in the match of the
+     * calling thread (see Raven_Weapon.CompileDesirabilitySurface)
+     */
+    public static FuzzySurface DesirabilitySurface() {
+        return CompileDesirabilitySurface(type_rail_gun, CreateFuzzyModule(), "DistanceToTarget", "AmmoStatus");
     }
 
     //--------------------------- ctor --------------------------------------------
@@ -64,11 +77,11 @@ public class RailGun extends Raven_Weapon {
     public RailGun(Raven_Bot owner) {
 
         super(type_rail_gun,
-                script.GetInt("RailGun_DefaultRounds"),
-                script.GetInt("RailGun_MaxRoundsCarried"),
-                script.GetDouble("RailGun_FiringFreq"),
-                script.GetDouble("RailGun_IdealRange"),
-                script.GetDouble("Slug_MaxSpeed"),
+                script().GetInt("RailGun_DefaultRounds"),
+                script().GetInt("RailGun_MaxRoundsCarried"),
+                script().GetDouble("RailGun_FiringFreq"),
+                script().GetDouble("RailGun_IdealRange"),
+                script().GetDouble("Slug_MaxSpeed"),
                 owner);
 
 
@@ -86,7 +99,7 @@ public class RailGun extends Raven_Weapon {
         }
 
         //setup the fuzzy module
-        InitializeFuzzyModule();
+        SetFuzzyModule(CreateFuzzyModule(), "DistanceToTarget", "AmmoStatus");
 
     }
 
@@ -103,7 +116,7 @@ public class RailGun extends Raven_Weapon {
 
             //add a trigger to the game so that the other bots can hear this shot
             //(provided they are within range)
-            m_pOwner.GetWorld().GetMap().AddSoundTrigger(m_pOwner, script.GetDouble("RailGun_SoundRange"));
+            m_pOwner.GetWorld().GetMap().AddSoundTrigger(m_pOwner, script().GetDouble("RailGun_SoundRange"));
         }
     }
 
@@ -112,12 +125,14 @@ public class RailGun extends Raven_Weapon {
     public double GetDesirability(double DistToTarget) {
         if (m_iNumRoundsLeft == 0) {
             m_dLastDesirabilityScore = 0;
+        } else if (m_DesirabilitySurface.Covers(DistToTarget, m_iNumRoundsLeft)) {
+            m_dLastDesirabilityScore = m_DesirabilitySurface.Evaluate(DistToTarget, m_iNumRoundsLeft);
         } else {
             //fuzzify distance and amount of ammo
-            m_FuzzyModule.Fuzzify("DistanceToTarget", DistToTarget);
-            m_FuzzyModule.Fuzzify("AmmoStatus", (double) m_iNumRoundsLeft);
+            m_FuzzyModule.Fuzzify(m_iDistToTargetFLV, DistToTarget);
+            m_FuzzyModule.Fuzzify(m_iAmmoStatusFLV, (double) m_iNumRoundsLeft);
 
-            m_dLastDesirabilityScore = m_FuzzyModule.DeFuzzify("Desirability", FuzzyModule.DefuzzifyMethod.max_av);
+            m_dLastDesirabilityScore = m_FuzzyModule.DeFuzzify(m_iDesirabilityFLV, FuzzyModule.DefuzzifyMethod.max_av);
         }
 
         return m_dLastDesirabilityScore;
@@ -132,8 +147,8 @@ public class RailGun extends Raven_Weapon {
                 m_pOwner.Facing().Perp(),
                 m_pOwner.Scale());
 
-        gdi.BluePen();
+        gdi().BluePen();
 
-        gdi.ClosedShape(m_vecWeaponVBTrans);
+        gdi().ClosedShape(m_vecWeaponVBTrans);
     }
 }
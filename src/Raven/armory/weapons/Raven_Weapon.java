@@ -6,12 +6,16 @@
 package Raven.armory.weapons;
 
 import Raven.Raven_Bot;
+import static Raven.lua.Raven_Scriptor.script;
 import common.D2.Vector2D;
+import common.Game.GameContext;
 import static common.Time.CrudeTimer.Clock;
 import common.fuzzy.FuzzyModule;
+import common.fuzzy.FuzzySurface;
 import static common.misc.utils.clamp;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 abstract public class Raven_Weapon {
 
@@ -26,9 +30,24 @@ abstract public class Raven_Weapon {
 	/**
 	 * fuzzy logic is used to determine the desirability of a weapon. Each
 	 * weapon owns its own instance of a fuzzy module because each has a
-	 * different rule set for inferring desirability.
+	 * different rule set for inferring desirability (see SetFuzzyModule).
 	 */
-	protected FuzzyModule m_FuzzyModule = new FuzzyModule();
+	protected FuzzyModule m_FuzzyModule;
+	/**
+	 * the desirability of the weapon sampled from the fuzzy module (see
+	 * FuzzySurface). The weapons of the same type all have the same rules, so
+	 * the surface is compiled once per match (see
+	 * Raven_WeaponSystem.CompileDesirabilitySurfaces) and shared by the
+	 * weapons of the match
+	 */
+	protected FuzzySurface m_DesirabilitySurface;
+	/**
+	 * the handles of the variables of the fuzzy module the desirability is
+	 * worked out from (-1 for a variable the weapon does not use)
+	 */
+	protected int m_iDistToTargetFLV = -1;
+	protected int m_iAmmoStatusFLV = -1;
+	protected int m_iDesirabilityFLV = -1;
 	/**
 	 * amount of ammo carried for this weapon
 	 */
@@ -67,7 +86,7 @@ abstract public class Raven_Weapon {
 	 * @return true if the weapon is ready to be discharged
 	 */
 	protected boolean isReadyForNextShot() {
-		if (Clock.GetCurrentTime() > m_dTimeNextAvailable) {
+		if (Clock().GetCurrentTime() > m_dTimeNextAvailable) {
 			return true;
 		}
 
@@ -78,14 +97,57 @@ abstract public class Raven_Weapon {
 	 * this is called when a shot is fired to update m_dTimeNextAvailable
 	 */
 	protected void UpdateTimeWeaponIsNextAvailable() {
-		m_dTimeNextAvailable = Clock.GetCurrentTime() + 1.0 / m_dRateOfFire;
+		m_dTimeNextAvailable = Clock().GetCurrentTime() + 1.0 / m_dRateOfFire;
 	}
 
 	/**
-	 * this method initializes the fuzzy module with the appropriate fuzzy
-	 * variables and rule base.
-	 */
-	abstract protected void InitializeFuzzyModule();
+	 * @return the desirability surface of the "Desirability" variable of the
+	 * fuzzy module of a weapon of the given type in the match of the calling
+	 * thread. The surface is compiled only if no weapon of the type has done so
+	 * yet in the match (the surfaces are kept by the GameContext of the calling
+	 * thread), so the module can be thrown away afterwards
+	 *
+	 * @param DistVar the name of the distance to target variable
+	 * @param AmmoVar the name of the ammo status variable, or null if the
+	 * weapon does not use it
+	 */
+	protected static FuzzySurface CompileDesirabilitySurface(int WeaponType,
+			FuzzyModule Module,
+			String DistVar,
+			String AmmoVar) {
+		final Map<Integer, FuzzySurface> DesirabilitySurfaces = GameContext.Current().GetDesirabilitySurfaces();
+		synchronized (DesirabilitySurfaces) {
+			FuzzySurface surface = DesirabilitySurfaces.get(WeaponType);
+			if (surface == null) {
+				surface = FuzzySurface.Compile(Module,
+						DistVar,
+						AmmoVar,
+						"Desirability",
+						FuzzyModule.DefuzzifyMethod.max_av,
+						script().GetInt("Weapon_FuzzySurfaceResolution"),
+						script().GetInt("Weapon_FuzzySurfaceMaxResolution"),
+						script().GetDouble("Weapon_FuzzySurfaceMaxError"));
+				DesirabilitySurfaces.put(WeaponType, surface);
+			}
+			return surface;
+		}
+	}
+
+	/**
+	 * makes Module the fuzzy module of the weapon, looks up the handles of its
+	 * variables and sets m_DesirabilitySurface (see CompileDesirabilitySurface)
+	 *
+	 * @param DistVar the name of the distance to target variable
+	 * @param AmmoVar the name of the ammo status variable, or null if the
+	 * weapon does not use it
+	 */
+	protected void SetFuzzyModule(FuzzyModule Module, String DistVar, String AmmoVar) {
+		m_FuzzyModule = Module;
+		m_iDistToTargetFLV = m_FuzzyModule.GetHandle(DistVar);
+		m_iAmmoStatusFLV = AmmoVar != null ? m_FuzzyModule.GetHandle(AmmoVar) : -1;
+		m_iDesirabilityFLV = m_FuzzyModule.GetHandle("Desirability");
+		m_DesirabilitySurface = CompileDesirabilitySurface(m_iType, Module, DistVar, AmmoVar);
+	}
 	/**
 	 * vertex buffers containing the weapon's geometry
 	 */
@@ -107,7 +169,7 @@ abstract public class Raven_Weapon {
 		m_dLastDesirabilityScore = 0;
 		m_dIdealRange = IdealRange;
 		m_dMaxProjectileSpeed = ProjectileSpeed;
-		m_dTimeNextAvailable = Clock.GetCurrentTime();
+		m_dTimeNextAvailable = Clock().GetCurrentTime();
 	}
 
 	@Override
@@ -11,6 +11,7 @@ import static Raven.lua.Raven_Scriptor.script;
 import static common.D2.Transformation.WorldTransform;
 import common.D2.Vector2D;
 import common.fuzzy.FuzzyModule;
+import common.fuzzy.FuzzySurface;
 import common.fuzzy.FuzzyVariable;
 import common.fuzzy.FzSet;
 import common.fuzzy.fuzzyOperators.FzAND;
@@ -19,38 +20,50 @@ import static common.misc.Cgdi.gdi;
 public class RocketLauncher extends Raven_Weapon {
 
     /**
-     * set up some fuzzy variables and rules
+     * sets up a fuzzy module with the fuzzy variables and rules of the
+     * rocket launcher
      */
-    @Override
-    protected void InitializeFuzzyModule() {
-        FuzzyVariable DistToTarget = m_FuzzyModule.CreateFLV("DistToTarget");
+    private static FuzzyModule CreateFuzzyModule() {
+        FuzzyModule Module = new FuzzyModule();
+
+        FuzzyVariable DistToTarget = Module.CreateFLV("DistToTarget");
 
         FzSet Target_Close = DistToTarget.AddLeftShoulderSet("Target_Close", 0, 25, 150);
         FzSet Target_Medium = DistToTarget.AddTriangularSet("Target_Medium", 25, 150, 300);
         FzSet Target_Far = DistToTarget.AddRightShoulderSet("Target_Far", 150, 300, 1000);
 
-        FuzzyVariable Desirability = m_FuzzyModule.CreateFLV("Desirability");
+        FuzzyVariable Desirability = Module.CreateFLV("Desirability");
         FzSet VeryDesirable = Desirability.AddRightShoulderSet("VeryDesirable", 50, 75, 100);
         FzSet Desirable = Desirability.AddTriangularSet("Desirable", 25, 50, 75);
         FzSet Undesirable = Desirability.AddLeftShoulderSet("Undesirable", 0, 25, 50);
 
-        FuzzyVariable AmmoStatus = m_FuzzyModule.CreateFLV("AmmoStatus");
+        FuzzyVariable AmmoStatus = Module.CreateFLV("AmmoStatus");
         FzSet Ammo_Loads = AmmoStatus.AddRightShoulderSet("Ammo_Loads", 10, 30, 100);
         FzSet Ammo_Okay = AmmoStatus.AddTriangularSet("Ammo_Okay", 0, 10, 30);
         FzSet Ammo_Low = AmmoStatus.AddTriangularSet("Ammo_Low", 0, 0, 10);
 
 
-        m_FuzzyModule.AddRule(new FzAND(Target_Close, Ammo_Loads), Undesirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Close, Ammo_Okay), Undesirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Close, Ammo_Low), Undesirable);
+        Module.AddRule(new FzAND(Target_Close, Ammo_Loads), Undesirable);
+        Module.AddRule(new FzAND(Target_Close, Ammo_Okay), Undesirable);
+        Module.AddRule(new FzAND(Target_Close, Ammo_Low), Undesirable);
 
-        m_FuzzyModule.AddRule(new FzAND(Target_Medium, Ammo_Loads), VeryDesirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Medium, Ammo_Okay), VeryDesirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Medium, Ammo_Low), Desirable);
+        Module.AddRule(new FzAND(Target_Medium, Ammo_Loads), VeryDesirable);
+        Module.AddRule(new FzAND(Target_Medium, Ammo_Okay), VeryDesirable);
+        Module.AddRule(new FzAND(Target_Medium, Ammo_Low), Desirable);
 
-        m_FuzzyModule.AddRule(new FzAND(Target_Far, Ammo_Loads), Desirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Far, Ammo_Okay), Undesirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Far, Ammo_Low), Undesirable);
+        Module.AddRule(new FzAND(Target_Far, Ammo_Loads), Desirable);
+        Module.AddRule(new FzAND(Target_Far, Ammo_Okay), Undesirable);
+        Module.AddRule(new FzAND(Target_Far, Ammo_Low), Undesirable);
+
+        return Module;
+    }
+
+    /**
+     * @return the desirability surface of the rocket launcher in the match of the
+     * calling thread (see Raven_Weapon.CompileDesirabilitySurface)
+     */
+    public static FuzzySurface DesirabilitySurface() {
+        return CompileDesirabilitySurface(type_rocket_launcher, CreateFuzzyModule(), "DistToTarget", "AmmoStatus");
     }
 
     //--------------------------- ctor --------------------------------------------
@@ -58,11 +71,11 @@ public class RocketLauncher extends Raven_Weapon {
     public RocketLauncher(Raven_Bot owner) {
 
         super(type_rocket_launcher,
-                script.GetInt("RocketLauncher_DefaultRounds"),
-                script.GetInt("RocketLauncher_MaxRoundsCarried"),
-                script.GetDouble("RocketLauncher_FiringFreq"),
-                script.GetDouble("RocketLauncher_IdealRange"),
-                script.GetDouble("Rocket_MaxSpeed"),
+                script().GetInt("RocketLauncher_DefaultRounds"),
+                script().GetInt("RocketLauncher_MaxRoundsCarried"),
+                script().GetDouble("RocketLauncher_FiringFreq"),
+                script().GetDouble("RocketLauncher_IdealRange"),
+                script().GetDouble("Rocket_MaxSpeed"),
                 owner);
         //setup the vertex buffer
 
@@ -81,7 +94,7 @@ public class RocketLauncher extends Raven_Weapon {
         }
 
         //setup the fuzzy module
-        InitializeFuzzyModule();
+        SetFuzzyModule(CreateFuzzyModule(), "DistToTarget", "AmmoStatus");
 
     }
 
@@ -98,7 +111,7 @@ public class RocketLauncher extends Raven_Weapon {
 
             //add a trigger to the game so that the other bots can hear this shot
             //(provided they are within range)
-            m_pOwner.GetWorld().GetMap().AddSoundTrigger(m_pOwner, script.GetDouble("RocketLauncher_SoundRange"));
+            m_pOwner.GetWorld().GetMap().AddSoundTrigger(m_pOwner, script().GetDouble("RocketLauncher_SoundRange"));
         }
     }
 
@@ -107,12 +120,14 @@ public class RocketLauncher extends Raven_Weapon {
     public double GetDesirability(double DistToTarget) {
         if (m_iNumRoundsLeft == 0) {
             m_dLastDesirabilityScore = 0;
+        } else if (m_DesirabilitySurface.Covers(DistToTarget, m_iNumRoundsLeft)) {
+            m_dLastDesirabilityScore = m_DesirabilitySurface.Evaluate(DistToTarget, m_iNumRoundsLeft);
         } else {
             //fuzzify distance and amount of ammo
-            m_FuzzyModule.Fuzzify("DistToTarget", DistToTarget);
-            m_FuzzyModule.Fuzzify("AmmoStatus", (double) m_iNumRoundsLeft);
+            m_FuzzyModule.Fuzzify(m_iDistToTargetFLV, DistToTarget);
+            m_FuzzyModule.Fuzzify(m_iAmmoStatusFLV, (double) m_iNumRoundsLeft);
 
-            m_dLastDesirabilityScore = m_FuzzyModule.DeFuzzify("Desirability", FuzzyModule.DefuzzifyMethod.max_av);
+            m_dLastDesirabilityScore = m_FuzzyModule.DeFuzzify(m_iDesirabilityFLV, FuzzyModule.DefuzzifyMethod.max_av);
         }
 
         return m_dLastDesirabilityScore;
@@ -127,7 +142,7 @@ public class RocketLauncher extends Raven_Weapon {
                 m_pOwner.Facing().Perp(),
                 m_pOwner.Scale());
 
-        gdi.RedPen();
-        gdi.ClosedShape(m_vecWeaponVBTrans);
+        gdi().RedPen();
+        gdi().ClosedShape(m_vecWeaponVBTrans);
     }
 }
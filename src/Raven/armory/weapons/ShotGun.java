@@ -14,6 +14,7 @@ import common.D2.Vector2D;
 import static common.D2.Vector2D.add;
 import static common.D2.Vector2D.sub;
 import common.fuzzy.FuzzyModule;
+import common.fuzzy.FuzzySurface;
 import common.fuzzy.FuzzyVariable;
 import common.fuzzy.FzSet;
 import common.fuzzy.fuzzyOperators.FzAND;
@@ -23,39 +24,51 @@ import static common.misc.utils.RandInRange;
 public class ShotGun extends Raven_Weapon {
 
     /**
-     * /* set up some fuzzy variables and rules
+     * sets up a fuzzy module with the fuzzy variables and rules of the
+     * shotgun
      */
-    @Override
-    protected void InitializeFuzzyModule() {
-        FuzzyVariable DistanceToTarget = m_FuzzyModule.CreateFLV("DistanceToTarget");
+    private static FuzzyModule CreateFuzzyModule() {
+        FuzzyModule Module = new FuzzyModule();
+
+        FuzzyVariable DistanceToTarget = Module.CreateFLV("DistanceToTarget");
 
         FzSet Target_Close = DistanceToTarget.AddLeftShoulderSet("Target_Close", 0, 25, 150);
         FzSet Target_Medium = DistanceToTarget.AddTriangularSet("Target_Medium", 25, 150, 300);
         FzSet Target_Far = DistanceToTarget.AddRightShoulderSet("Target_Far", 150, 300, 1000);
 
-        FuzzyVariable Desirability = m_FuzzyModule.CreateFLV("Desirability");
+        FuzzyVariable Desirability = Module.CreateFLV("Desirability");
 
         FzSet VeryDesirable = Desirability.AddRightShoulderSet("VeryDesirable", 50, 75, 100);
         FzSet Desirable = Desirability.AddTriangularSet("Desirable", 25, 50, 75);
         FzSet Undesirable = Desirability.AddLeftShoulderSet("Undesirable", 0, 25, 50);
 
-        FuzzyVariable AmmoStatus = m_FuzzyModule.CreateFLV("AmmoStatus");
+        FuzzyVariable AmmoStatus = Module.CreateFLV("AmmoStatus");
         FzSet Ammo_Loads = AmmoStatus.AddRightShoulderSet("Ammo_Loads", 30, 60, 100);
         FzSet Ammo_Okay = AmmoStatus.AddTriangularSet("Ammo_Okay", 0, 30, 60);
         FzSet Ammo_Low = AmmoStatus.AddTriangularSet("Ammo_Low", 0, 0, 30);
 
 
-        m_FuzzyModule.AddRule(new FzAND(Target_Close, Ammo_Loads), VeryDesirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Close, Ammo_Okay), VeryDesirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Close, Ammo_Low), VeryDesirable);
+        Module.AddRule(new FzAND(Target_Close, Ammo_Loads), VeryDesirable);
+        Module.AddRule(new FzAND(Target_Close, Ammo_Okay), VeryDesirable);
+        Module.AddRule(new FzAND(Target_Close, Ammo_Low), VeryDesirable);
 
-        m_FuzzyModule.AddRule(new FzAND(Target_Medium, Ammo_Loads), VeryDesirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Medium, Ammo_Okay), Desirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Medium, Ammo_Low), Undesirable);
+        Module.AddRule(new FzAND(Target_Medium, Ammo_Loads), VeryDesirable);
+        Module.AddRule(new FzAND(Target_Medium, Ammo_Okay), Desirable);
+        Module.AddRule(new FzAND(Target_Medium, Ammo_Low), Undesirable);
 
-        m_FuzzyModule.AddRule(new FzAND(Target_Far, Ammo_Loads), Desirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Far, Ammo_Okay), Undesirable);
-        m_FuzzyModule.AddRule(new FzAND(Target_Far, Ammo_Low), Undesirable);
+        Module.AddRule(new FzAND(Target_Far, Ammo_Loads), Desirable);
+        Module.AddRule(new FzAND(Target_Far, Ammo_Okay), Undesirable);
+        Module.AddRule(new FzAND(Target_Far, Ammo_Low), Undesirable);
+
+        return Module;
+    }
+
+    /**
+     * @return the desirability surface of the shotgun in the match of the
+     * calling thread (see Raven_Weapon.CompileDesirabilitySurface)
+     */
+    public static FuzzySurface DesirabilitySurface() {
+        return CompileDesirabilitySurface(type_shotgun, CreateFuzzyModule(), "DistanceToTarget", "AmmoStatus");
     }
     /**
      * how much shot the each shell contains
@@ -71,15 +84,15 @@ public class ShotGun extends Raven_Weapon {
     public ShotGun(Raven_Bot owner) {
 
         super(type_shotgun,
-                script.GetInt("ShotGun_DefaultRounds"),
-                script.GetInt("ShotGun_MaxRoundsCarried"),
-                script.GetDouble("ShotGun_FiringFreq"),
-                script.GetDouble("ShotGun_IdealRange"),
-                script.GetDouble("Pellet_MaxSpeed"),
+                script().GetInt("ShotGun_DefaultRounds"),
+                script().GetInt("ShotGun_MaxRoundsCarried"),
+                script().GetDouble("ShotGun_FiringFreq"),
+                script().GetDouble("ShotGun_IdealRange"),
+                script().GetDouble("Pellet_MaxSpeed"),
                 owner);
 
-        m_iNumBallsInShell = script.GetInt("ShotGun_NumBallsInShell");
-        m_dSpread = script.GetDouble("ShotGun_Spread");
+        m_iNumBallsInShell = script().GetInt("ShotGun_NumBallsInShell");
+        m_dSpread = script().GetDouble("ShotGun_Spread");
 
 
         //setup the vertex buffer
@@ -100,7 +113,7 @@ public class ShotGun extends Raven_Weapon {
         }
 
         //setup the fuzzy module
-        InitializeFuzzyModule();
+        SetFuzzyModule(CreateFuzzyModule(), "DistanceToTarget", "AmmoStatus");
 
     }
 
@@ -130,7 +143,7 @@ public class ShotGun extends Raven_Weapon {
 
             //add a trigger to the game so that the other bots can hear this shot
             //(provided they are within range)
-            m_pOwner.GetWorld().GetMap().AddSoundTrigger(m_pOwner, script.GetDouble("ShotGun_SoundRange"));
+            m_pOwner.GetWorld().GetMap().AddSoundTrigger(m_pOwner, script().GetDouble("ShotGun_SoundRange"));
         }
     }
 
@@ -139,12 +152,14 @@ public class ShotGun extends Raven_Weapon {
     public double GetDesirability(double DistToTarget) {
         if (m_iNumRoundsLeft == 0) {
             m_dLastDesirabilityScore = 0;
+        } else if (m_DesirabilitySurface.Covers(DistToTarget, m_iNumRoundsLeft)) {
+            m_dLastDesirabilityScore = m_DesirabilitySurface.Evaluate(DistToTarget, m_iNumRoundsLeft);
         } else {
             //fuzzify distance and amount of ammo
-            m_FuzzyModule.Fuzzify("DistanceToTarget", DistToTarget);
-            m_FuzzyModule.Fuzzify("AmmoStatus", (double) m_iNumRoundsLeft);
+            m_FuzzyModule.Fuzzify(m_iDistToTargetFLV, DistToTarget);
+            m_FuzzyModule.Fuzzify(m_iAmmoStatusFLV, (double) m_iNumRoundsLeft);
 
-            m_dLastDesirabilityScore = m_FuzzyModule.DeFuzzify("Desirability", FuzzyModule.DefuzzifyMethod.max_av);
+            m_dLastDesirabilityScore = m_FuzzyModule.DeFuzzify(m_iDesirabilityFLV, FuzzyModule.DefuzzifyMethod.max_av);
         }
 
         return m_dLastDesirabilityScore;
@@ -159,9 +174,9 @@ public class ShotGun extends Raven_Weapon {
                 m_pOwner.Facing().Perp(),
                 m_pOwner.Scale());
 
-        gdi.BrownPen();
+        gdi().BrownPen();
 
-        gdi.PolyLine(m_vecWeaponVBTrans);
+        gdi().PolyLine(m_vecWeaponVBTrans);
 
     }
 }
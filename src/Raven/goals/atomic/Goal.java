@@ -125,21 +125,21 @@ abstract public class Goal<entity_type extends Raven_Bot> {
      */
     public void RenderAtPos(Vector2D pos, TypeToString tts) {
         pos.y += 15;
-        gdi.TransparentText();
+        gdi().TransparentText();
         if (isComplete()) {
-            gdi.TextColor(0, 255, 0);
+            gdi().TextColor(0, 255, 0);
         }
         if (isInactive()) {
-            gdi.TextColor(0, 0, 0);
+            gdi().TextColor(0, 0, 0);
         }
         if (hasFailed()) {
-            gdi.TextColor(255, 0, 0);
+            gdi().TextColor(255, 0, 0);
         }
         if (isActive()) {
-            gdi.TextColor(0, 0, 255);
+            gdi().TextColor(0, 0, 255);
         }
 
-        gdi.TextAtPos(pos.x, pos.y, tts.Convert(GetType()));
+        gdi().TextAtPos(pos.x, pos.y, tts.Convert(GetType()));
     }
 
     /**
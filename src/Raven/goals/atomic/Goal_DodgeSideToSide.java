@@ -73,11 +73,11 @@ public class Goal_DodgeSideToSide extends Goal<Raven_Bot> {
     public void Render() {
         //def(SHOW_TARGET);
         if (def(SHOW_TARGET)) {
-            gdi.OrangePen();
-            gdi.HollowBrush();
+            gdi().OrangePen();
+            gdi().HollowBrush();
 
-            gdi.Line(m_pOwner.Pos(), m_vStrafeTarget);
-            gdi.Circle(m_vStrafeTarget, 3);
+            gdi().Line(m_pOwner.Pos(), m_vStrafeTarget);
+            gdi().Circle(m_vStrafeTarget, 3);
         }
     }
 
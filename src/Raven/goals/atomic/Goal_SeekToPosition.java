@@ -27,7 +27,7 @@ public class Goal_SeekToPosition extends Goal<Raven_Bot> {
      * currently active waypoint
      */
     private boolean isStuck() {
-        double TimeTaken = Clock.GetCurrentTime() - m_dStartTime;
+        double TimeTaken = Clock().GetCurrentTime() - m_dStartTime;
 
         if (TimeTaken > m_dTimeToReachPos) {
             debug_con.print("BOT ").print(m_pOwner.ID()).print(" IS STUCK!!").print("");
@@ -51,7 +51,7 @@ public class Goal_SeekToPosition extends Goal<Raven_Bot> {
         m_iStatus = active;
 
         //record the time the bot starts this goal
-        m_dStartTime = Clock.GetCurrentTime();
+        m_dStartTime = Clock().GetCurrentTime();
 
         //This value is used to determine if the bot becomes stuck 
         m_dTimeToReachPos = m_pOwner.CalculateTimeToReachPosition(m_vPosition);
@@ -97,14 +97,14 @@ public class Goal_SeekToPosition extends Goal<Raven_Bot> {
     @Override
     public void Render() {
         if (m_iStatus == active) {
-            gdi.GreenBrush();
-            gdi.BlackPen();
-            gdi.Circle(m_vPosition, 3);
+            gdi().GreenBrush();
+            gdi().BlackPen();
+            gdi().Circle(m_vPosition, 3);
         } else if (m_iStatus == inactive) {
 
-            gdi.RedBrush();
-            gdi.BlackPen();
-            gdi.Circle(m_vPosition, 3);
+            gdi().RedBrush();
+            gdi().BlackPen();
+            gdi().Circle(m_vPosition, 3);
         }
     }
 }
\ No newline at end of file
@@ -33,7 +33,7 @@ public class Goal_TraverseEdge extends Goal<Raven_Bot> {
      * currently active waypoint
      */
     public boolean isStuck() {
-        double TimeTaken = Clock.GetCurrentTime() - m_dStartTime;
+        double TimeTaken = Clock().GetCurrentTime() - m_dStartTime;
 
         if (TimeTaken > m_dTimeExpected) {
             debug_con.print("BOT ").print(m_pOwner.ID()).print(" IS STUCK!!").print("");
@@ -66,13 +66,13 @@ public class Goal_TraverseEdge extends Goal<Raven_Bot> {
         //change in the bot's max possible speed as it follows this edge
         switch (m_Edge.Behavior()) {
             case NavGraphEdge.swim: {
-                m_pOwner.SetMaxSpeed(script.GetDouble("Bot_MaxSwimmingSpeed"));
+                m_pOwner.SetMaxSpeed(script().GetDouble("Bot_MaxSwimmingSpeed"));
             }
 
             break;
 
             case NavGraphEdge.crawl: {
-                m_pOwner.SetMaxSpeed(script.GetDouble("Bot_MaxCrawlingSpeed"));
+                m_pOwner.SetMaxSpeed(script().GetDouble("Bot_MaxCrawlingSpeed"));
             }
 
             break;
@@ -80,7 +80,7 @@ public class Goal_TraverseEdge extends Goal<Raven_Bot> {
 
 
         //record the time the bot starts this goal
-        m_dStartTime = Clock.GetCurrentTime();
+        m_dStartTime = Clock().GetCurrentTime();
 
         //calculate the expected time required to reach the this waypoint. This value
         //is used to determine if the bot becomes stuck 
@@ -129,17 +129,17 @@ public class Goal_TraverseEdge extends Goal<Raven_Bot> {
         m_pOwner.GetSteering().ArriveOff();
 
         //return max speed back to normal
-        m_pOwner.SetMaxSpeed(script.GetDouble("Bot_MaxSpeed"));
+        m_pOwner.SetMaxSpeed(script().GetDouble("Bot_MaxSpeed"));
     }
 
     @Override
     public void Render() {
         if (m_iStatus == active) {
-            gdi.BluePen();
-            gdi.Line(m_pOwner.Pos(), m_Edge.Destination());
-            gdi.GreenBrush();
-            gdi.BlackPen();
-            gdi.Circle(m_Edge.Destination(), 3);
+            gdi().BluePen();
+            gdi().Line(m_pOwner.Pos(), m_Edge.Destination());
+            gdi().GreenBrush();
+            gdi().BlackPen();
+            gdi().Circle(m_Edge.Destination(), 3);
         }
     }
 }
\ No newline at end of file
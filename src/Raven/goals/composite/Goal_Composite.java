@@ -142,7 +142,7 @@ public abstract class Goal_Composite<entity_type extends Raven_Bot> extends Goal
 
         pos.x += 10;
 
-        gdi.TransparentText();
+        gdi().TransparentText();
 
         ListIterator<Goal<entity_type>> it = m_SubGoals.listIterator(m_SubGoals.size());
         while (it.hasPrevious()) {
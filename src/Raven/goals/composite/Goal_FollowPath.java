@@ -1,7 +1,9 @@
 package Raven.goals.composite;
 
 import Raven.Raven_Bot;
+import Raven.Raven_Map;
 import static Raven.goals.Raven_Goal_Types.goal_follow_path;
+import static Raven.goals.Raven_Goal_Types.goal_negotiate_door;
 import Raven.goals.atomic.Goal_TraverseEdge;
 import Raven.navigation.PathEdge;
 import common.Graph.GraphEdgeTypes.NavGraphEdge;
@@ -86,6 +88,29 @@ public class Goal_FollowPath extends Goal_Composite<Raven_Bot> {
         return m_iStatus;
     }
 
+    /**
+     * @return true if the cost of going through a door on the edges not yet
+     * started on changed after the door edge costs had the given version
+     * (see Raven_Map.DoorCostChangedSince)
+     */
+    public boolean PassesDoorChangedSince(int EdgeCostVersion) {
+        Raven_Map map = m_pOwner.GetWorld().GetMap();
+        for (PathEdge edge : m_Path) {
+            if (edge.Behavior() == NavGraphEdge.goes_through_door
+                    && map.DoorCostChangedSince(edge.DoorID(), EdgeCostVersion)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true while the bot is getting through a door of the path
+     */
+    public boolean isNegotiatingDoor() {
+        return !m_SubGoals.isEmpty() && m_SubGoals.getFirst().GetType() == goal_negotiate_door;
+    }
+
     @Override
     public void Render() {
         //render all the path waypoints remaining on the path list
@@ -94,12 +119,12 @@ public class Goal_FollowPath extends Goal_Composite<Raven_Bot> {
 
         while (it.hasNext()) {
             PathEdge path = it.next();
-            gdi.BlackPen();
-            gdi.LineWithArrow(path.Source(), path.Destination(), 5);
+            gdi().BlackPen();
+            gdi().LineWithArrow(path.Source(), path.Destination(), 5);
 
-            gdi.RedBrush();
-            gdi.BlackPen();
-            gdi.Circle(path.Destination(), 3);
+            gdi().RedBrush();
+            gdi().BlackPen();
+            gdi().Circle(path.Destination(), 3);
         }
 
         //forward the request to the subgoals
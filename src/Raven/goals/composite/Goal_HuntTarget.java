@@ -82,9 +82,9 @@ public class Goal_HuntTarget extends Goal_Composite<Raven_Bot> {
         if (def(SHOW_LAST_RECORDED_POSITION)) {
             //render last recorded position as a green circle
             if (m_pOwner.GetTargetSys().isTargetPresent()) {
-                gdi.GreenPen();
-                gdi.RedBrush();
-                gdi.Circle(m_pOwner.GetTargetSys().GetLastRecordedPosition(), 3);
+                gdi().GreenPen();
+                gdi().RedBrush();
+                gdi().Circle(m_pOwner.GetTargetSys().GetLastRecordedPosition(), 3);
             }
         }
 
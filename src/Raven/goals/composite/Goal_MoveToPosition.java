@@ -1,6 +1,7 @@
 package Raven.goals.composite;
 
 import Raven.Raven_Bot;
+import static Raven.goals.Raven_Goal_Types.goal_follow_path;
 import static Raven.goals.Raven_Goal_Types.goal_move_to_position;
 import Raven.goals.atomic.Goal_SeekToPosition;
 import common.D2.Vector2D;
@@ -13,6 +14,11 @@ public class Goal_MoveToPosition extends Goal_Composite<Raven_Bot> {
      * the position the bot wants to reach
      */
     private Vector2D m_vDestination;
+    /**
+     * the version of the door edge costs the path was requested with (see
+     * DynamicEdgeCosts.Version)
+     */
+    private int m_iEdgeCostVersion;
 
     public Goal_MoveToPosition(Raven_Bot pBot,
             Vector2D pos) {
@@ -29,6 +35,8 @@ public class Goal_MoveToPosition extends Goal_Composite<Raven_Bot> {
         //make sure the subgoal list is clear.
         RemoveAllSubgoals();
 
+        m_iEdgeCostVersion = m_pOwner.GetWorld().GetMap().GetEdgeCosts().Version();
+
         //requests a path to the target position from the path planner. Because, for
         //demonstration purposes, the Raven path planner uses time-slicing when 
         //processing the path requests the bot may have to wait a few update cycles
@@ -45,6 +53,24 @@ public class Goal_MoveToPosition extends Goal_Composite<Raven_Bot> {
         //if status is inactive, call Activate()
         ActivateIfInactive();
 
+        //a door may have opened or closed since the path was requested.
+        //While the planner is still searching the request is just made
+        //again (the planner repairs its last search, so this is cheap). A
+        //path being followed is only replanned if a door on the rest of it
+        //changed, and not before the bot is through the door it is
+        //negotiating
+        final int EdgeCostVersion = m_pOwner.GetWorld().GetMap().GetEdgeCosts().Version();
+        if (isActive() && m_iEdgeCostVersion != EdgeCostVersion) {
+            Goal_FollowPath path = GetFollowPath();
+            if (path == null) {
+                Activate();
+            } else if (!path.PassesDoorChangedSince(m_iEdgeCostVersion)) {
+                m_iEdgeCostVersion = EdgeCostVersion;
+            } else if (!path.isNegotiatingDoor()) {
+                Activate();
+            }
+        }
+
         //process the subgoals
         m_iStatus = ProcessSubgoals();
 
@@ -54,6 +80,17 @@ public class Goal_MoveToPosition extends Goal_Composite<Raven_Bot> {
         return m_iStatus;
     }
 
+    /**
+     * @return the path the bot follows or null if it still waits for the
+     * path planner
+     */
+    private Goal_FollowPath GetFollowPath() {
+        if (m_SubGoals.isEmpty() || m_SubGoals.getFirst().GetType() != goal_follow_path) {
+            return null;
+        }
+        return (Goal_FollowPath) m_SubGoals.getFirst();
+    }
+
     @Override
     public void Terminate() {
 		RemoveAllSubgoals();
@@ -102,14 +139,14 @@ public class Goal_MoveToPosition extends Goal_Composite<Raven_Bot> {
         super.Render();
 
         //draw a bullseye
-        gdi.BlackPen();
-        gdi.BlueBrush();
-        gdi.Circle(m_vDestination, 6);
-        gdi.RedBrush();
-        gdi.RedPen();
-        gdi.Circle(m_vDestination, 4);
-        gdi.YellowBrush();
-        gdi.YellowPen();
-        gdi.Circle(m_vDestination, 2);
+        gdi().BlackPen();
+        gdi().BlueBrush();
+        gdi().Circle(m_vDestination, 6);
+        gdi().RedBrush();
+        gdi().RedPen();
+        gdi().Circle(m_vDestination, 4);
+        gdi().YellowBrush();
+        gdi().YellowPen();
+        gdi().Circle(m_vDestination, 2);
     }
 }
\ No newline at end of file
@@ -78,6 +78,15 @@ public class Goal_Think extends Goal_Composite<Raven_Bot> {
      * has the highest score as the current goal
      */
     public void Arbitrate() {
+        SelectMostDesirable().SetGoal(m_pOwner);
+    }
+
+    /**
+     * returns the goal evaluator with the highest score without setting its
+     * goal. This only reads the state of the world so it may be called for
+     * several bots at once.
+     */
+    public Goal_Evaluator SelectMostDesirable() {
         double best = 0;
         Goal_Evaluator MostDesirable = null;
 
@@ -95,7 +104,7 @@ public class Goal_Think extends Goal_Composite<Raven_Bot> {
 
         assert (MostDesirable != null) : "<Goal_Think::Arbitrate>: no evaluator selected";
 
-        MostDesirable.SetGoal(m_pOwner);
+        return MostDesirable;
     }
 
     /**
@@ -187,7 +196,7 @@ public class Goal_Think extends Goal_Composite<Raven_Bot> {
      * this renders the evaluations (goal scores) at the specified location
      */
     public void RenderEvaluations(int left, int top) {
-        gdi.TextColor(Cgdi.black);
+        gdi().TextColor(Cgdi.black);
 
         Iterator<Goal_Evaluator> it = m_Evaluators.iterator();
         while (it.hasNext()) {
@@ -30,8 +30,8 @@ public class AttackTargetGoal_Evaluator extends Goal_Evaluator {
             final double Tweaker = 1.0;
 
             Desirability = Tweaker
-                    * Raven_Feature.Health(pBot)
-                    * Raven_Feature.TotalWeaponStrength(pBot);
+                    * pBot.GetFeatures().Health()
+                    * pBot.GetFeatures().TotalWeaponStrength();
 
             //bias the value according to the personality of the bot
             Desirability *= m_dCharacterBias;
@@ -47,10 +47,10 @@ public class AttackTargetGoal_Evaluator extends Goal_Evaluator {
 
     @Override
     public void RenderInfo(Vector2D Position, Raven_Bot pBot) {
-        gdi.TextAtPos(Position, "AT: " + ttos(CalculateDesirability(pBot), 2));
+        gdi().TextAtPos(Position, "AT: " + ttos(CalculateDesirability(pBot), 2));
         return;
 
         //String s = ttos(Raven_Feature.Health(pBot)) + ", " + ttos(Raven_Feature.TotalWeaponStrength(pBot));
-        //gdi.TextAtPos(Vector2D.add(Position, new Vector2D(0, 12)), s);
+        //gdi().TextAtPos(Vector2D.add(Position, new Vector2D(0, 12)), s);
     }
 }
\ No newline at end of file
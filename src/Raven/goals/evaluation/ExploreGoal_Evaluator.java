@@ -32,6 +32,6 @@ public class ExploreGoal_Evaluator extends Goal_Evaluator {
 
     @Override
     public void RenderInfo(Vector2D Position, Raven_Bot pBot) {
-        gdi.TextAtPos(Position, "EX: " + ttos(CalculateDesirability(pBot), 2));
+        gdi().TextAtPos(Position, "EX: " + ttos(CalculateDesirability(pBot), 2));
     }
 }
\ No newline at end of file
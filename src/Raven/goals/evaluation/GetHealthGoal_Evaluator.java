@@ -21,7 +21,7 @@ public class GetHealthGoal_Evaluator extends Goal_Evaluator {
     @Override
     public double CalculateDesirability(Raven_Bot pBot) {
         //first grab the distance to the closest instance of a health item
-        double Distance = Raven_Feature.DistanceToItem(pBot, type_health);
+        double Distance = pBot.GetFeatures().DistanceToItem(type_health);
 
         //if the distance feature is rated with a value of 1 it means that the
         //item is either not present on the map or too far away to be worth 
@@ -35,8 +35,8 @@ public class GetHealthGoal_Evaluator extends Goal_Evaluator {
             //the desirability of finding a health item is proportional to the amount
             //of health remaining and inversely proportional to the distance from the
             //nearest instance of a health item.
-            double Desirability = Tweaker * (1 - Raven_Feature.Health(pBot))
-                    / (Raven_Feature.DistanceToItem(pBot, type_health));
+            double Desirability = Tweaker * (1 - pBot.GetFeatures().Health())
+                    / (pBot.GetFeatures().DistanceToItem(type_health));
 
             //ensure the value is in the range 0 to 1
             Desirability = clamp(Desirability, 0.0, 1.0);
@@ -55,10 +55,10 @@ public class GetHealthGoal_Evaluator extends Goal_Evaluator {
 
     @Override
     public void RenderInfo(Vector2D Position, Raven_Bot pBot) {
-        gdi.TextAtPos(Position, "H: " + ttos(CalculateDesirability(pBot), 2));
+        gdi().TextAtPos(Position, "H: " + ttos(CalculateDesirability(pBot), 2));
         return;
 
         //String s = ttos(1 - Raven_Feature.Health(pBot)) + ", " + ttos(Raven_Feature.DistanceToItem(pBot, type_health));
-        //gdi.TextAtPos(Vector2D.add(Position, new Vector2D(0, 15)), s);
+        //gdi().TextAtPos(Vector2D.add(Position, new Vector2D(0, 15)), s);
     }
 }
\ No newline at end of file
@@ -27,7 +27,7 @@ public class GetWeaponGoal_Evaluator extends Goal_Evaluator {
     @Override
     public double CalculateDesirability(Raven_Bot pBot) {
         //grab the distance to the closest instance of the weapon type
-        double Distance = Raven_Feature.DistanceToItem(pBot, m_iWeaponType);
+        double Distance = pBot.GetFeatures().DistanceToItem(m_iWeaponType);
 
         //if the distance feature is rated with a value of 1 it means that the
         //item is either not present on the map or too far away to be worth 
@@ -40,10 +40,9 @@ public class GetWeaponGoal_Evaluator extends Goal_Evaluator {
 
             double Health, WeaponStrength;
 
-            Health = Raven_Feature.Health(pBot);
+            Health = pBot.GetFeatures().Health();
 
-            WeaponStrength = Raven_Feature.IndividualWeaponStrength(pBot,
-                    m_iWeaponType);
+            WeaponStrength = pBot.GetFeatures().IndividualWeaponStrength(m_iWeaponType);
 
             double Desirability = (Tweaker * Health * (1 - WeaponStrength)) / Distance;
 
@@ -76,6 +75,6 @@ public class GetWeaponGoal_Evaluator extends Goal_Evaluator {
                 break;
         }
 
-        gdi.TextAtPos(Position, s + ttos(CalculateDesirability(pBot), 2));
+        gdi().TextAtPos(Position, s + ttos(CalculateDesirability(pBot), 2));
     }
 }
\ No newline at end of file
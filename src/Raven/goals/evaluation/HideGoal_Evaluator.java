@@ -29,8 +29,8 @@ public class HideGoal_Evaluator extends Goal_Evaluator {
             final double Tweaker = 0.5;
 
             Desirability = Tweaker
-                    * (1 - (Raven_Feature.Health(pBot)
-                    *  Raven_Feature.TotalWeaponStrength(pBot)));
+                    * (1 - (pBot.GetFeatures().Health()
+                    *  pBot.GetFeatures().TotalWeaponStrength()));
                     
 
             //bias the value according to the personality of the bot
@@ -47,10 +47,10 @@ public class HideGoal_Evaluator extends Goal_Evaluator {
 
     @Override
     public void RenderInfo(Vector2D Position, Raven_Bot pBot) {
-        gdi.TextAtPos(Position, "AT: " + ttos(CalculateDesirability(pBot), 2));
+        gdi().TextAtPos(Position, "AT: " + ttos(CalculateDesirability(pBot), 2));
         return;
 
         //String s = ttos(Raven_Feature.Health(pBot)) + ", " + ttos(Raven_Feature.TotalWeaponStrength(pBot));
-        //gdi.TextAtPos(Vector2D.add(Position, new Vector2D(0, 12)), s);
+        //gdi().TextAtPos(Vector2D.add(Position, new Vector2D(0, 12)), s);
     }
 }
\ No newline at end of file
@@ -32,10 +32,16 @@ public class Raven_Feature {
      */
     public static double DistanceToItem(Raven_Bot pBot, int ItemType) {
         //determine the distance to the closest instance of the item type
-        double DistanceToItem = pBot.GetPathPlanner().GetCostToClosestItem(ItemType);
+        return RateDistanceToItem(pBot.GetPathPlanner().GetCostToClosestItem(ItemType));
+    }
 
-        //if the previous method returns a negative value then there is no item of
-        //the specified type present in the game world at this time.
+    /**
+     * returns the rating of DistanceToItem for the given cost of the path to
+     * the closest item
+     */
+    static double RateDistanceToItem(double DistanceToItem) {
+        //if the cost is negative then there is no item of the specified type
+        //present in the game world at this time.
         if (DistanceToItem < 0) {
             return 1;
         }
@@ -100,15 +106,15 @@ public class Raven_Feature {
         switch (WeaponType) {
             case type_rail_gun:
 
-                return script.GetDouble("RailGun_MaxRoundsCarried");
+                return script().GetDouble("RailGun_MaxRoundsCarried");
 
             case type_rocket_launcher:
 
-                return script.GetDouble("RocketLauncher_MaxRoundsCarried");
+                return script().GetDouble("RocketLauncher_MaxRoundsCarried");
 
             case type_shotgun:
 
-                return script.GetDouble("ShotGun_MaxRoundsCarried");
+                return script().GetDouble("ShotGun_MaxRoundsCarried");
 
             default:
 
@@ -0,0 +1,168 @@
+/**
+ * Desc: the features of one bot (see Raven_Feature) worked out at most once
+ * per update-step. The goal evaluators and the weapon selection of the bot
+ * all ask for the same few features; the first to ask works a feature out
+ * and the others read it.
+ *
+ * The features are those of the bot when they were first asked for in the
+ * update-step. Only the bot itself (from its own thread while it thinks)
+ * and the rendering use its context.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package Raven.goals.evaluation;
+
+import Raven.Raven_Bot;
+import static Raven.Raven_ObjectEnumerations.type_health;
+import static Raven.Raven_ObjectEnumerations.type_rail_gun;
+import static Raven.Raven_ObjectEnumerations.type_rocket_launcher;
+import static Raven.Raven_ObjectEnumerations.type_shotgun;
+import static common.D2.Vector2D.Vec2DDistance;
+import static common.Graph.NodeTypeEnumerations.invalid_node_index;
+
+public class Raven_FeatureContext {
+
+    /**
+     * the item types whose distances are kept
+     */
+    private static final int[] ItemTypes = {type_health, type_shotgun, type_rail_gun, type_rocket_launcher};
+    private final Raven_Bot m_pOwner;
+    /**
+     * the update-step the features below belong to
+     */
+    private long m_lUpdate = -1;
+    private boolean m_bHealthKnown;
+    private double m_dHealth;
+    private boolean m_bClosestNodeKnown;
+    private int m_iClosestNode;
+    /**
+     * for every item type: whether its distance and the strength of the weapon
+     * of the type are known, and their values
+     */
+    private final boolean[] m_bDistanceKnown = new boolean[ItemTypes.length];
+    private final double[] m_dDistanceToItem = new double[ItemTypes.length];
+    private final boolean[] m_bStrengthKnown = new boolean[ItemTypes.length];
+    private final double[] m_dWeaponStrength = new double[ItemTypes.length];
+    private boolean m_bTotalStrengthKnown;
+    private double m_dTotalWeaponStrength;
+    private boolean m_bDistanceToTargetKnown;
+    private Raven_Bot m_pTarget;
+    private double m_dDistanceToTarget;
+
+    public Raven_FeatureContext(Raven_Bot owner) {
+        m_pOwner = owner;
+    }
+
+    /**
+     * forgets the features if they were worked out in an earlier update-step
+     */
+    private void Refresh() {
+        final long update = m_pOwner.GetWorld().GetNumUpdates();
+        if (update == m_lUpdate) {
+            return;
+        }
+        m_lUpdate = update;
+        m_bHealthKnown = false;
+        m_bClosestNodeKnown = false;
+        m_bTotalStrengthKnown = false;
+        m_bDistanceToTargetKnown = false;
+        for (int i = 0; i < ItemTypes.length; ++i) {
+            m_bDistanceKnown[i] = false;
+            m_bStrengthKnown[i] = false;
+        }
+    }
+
+    private static int IndexOf(int ItemType) {
+        for (int i = 0; i < ItemTypes.length; ++i) {
+            if (ItemTypes[i] == ItemType) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * see Raven_Feature.Health
+     */
+    public double Health() {
+        Refresh();
+        if (!m_bHealthKnown) {
+            m_dHealth = Raven_Feature.Health(m_pOwner);
+            m_bHealthKnown = true;
+        }
+        return m_dHealth;
+    }
+
+    /**
+     * @return the closest navgraph node the bot can walk to (or
+     * invalid_node_index if there is none)
+     */
+    public int ClosestNode() {
+        Refresh();
+        if (!m_bClosestNodeKnown) {
+            m_iClosestNode = m_pOwner.GetPathPlanner().GetClosestNodeToBot();
+            m_bClosestNodeKnown = true;
+        }
+        return m_iClosestNode;
+    }
+
+    /**
+     * see Raven_Feature.DistanceToItem
+     */
+    public double DistanceToItem(int ItemType) {
+        Refresh();
+        final int i = IndexOf(ItemType);
+        if (i < 0) {
+            return Raven_Feature.DistanceToItem(m_pOwner, ItemType);
+        }
+        if (!m_bDistanceKnown[i]) {
+            final int nd = ClosestNode();
+            m_dDistanceToItem[i] = Raven_Feature.RateDistanceToItem(nd == invalid_node_index ? -1
+                    : m_pOwner.GetPathPlanner().GetCostToClosestItem(nd, ItemType));
+            m_bDistanceKnown[i] = true;
+        }
+        return m_dDistanceToItem[i];
+    }
+
+    /**
+     * see Raven_Feature.IndividualWeaponStrength
+     */
+    public double IndividualWeaponStrength(int WeaponType) {
+        Refresh();
+        final int i = IndexOf(WeaponType);
+        if (i < 0) {
+            return Raven_Feature.IndividualWeaponStrength(m_pOwner, WeaponType);
+        }
+        if (!m_bStrengthKnown[i]) {
+            m_dWeaponStrength[i] = Raven_Feature.IndividualWeaponStrength(m_pOwner, WeaponType);
+            m_bStrengthKnown[i] = true;
+        }
+        return m_dWeaponStrength[i];
+    }
+
+    /**
+     * see Raven_Feature.TotalWeaponStrength
+     */
+    public double TotalWeaponStrength() {
+        Refresh();
+        if (!m_bTotalStrengthKnown) {
+            m_dTotalWeaponStrength = Raven_Feature.TotalWeaponStrength(m_pOwner);
+            m_bTotalStrengthKnown = true;
+        }
+        return m_dTotalWeaponStrength;
+    }
+
+    /**
+     * @return the distance to the current target. The bot must have a target
+     */
+    public double DistanceToTarget() {
+        Refresh();
+        final Raven_Bot target = m_pOwner.GetTargetSys().GetTarget();
+        if (!m_bDistanceToTargetKnown || m_pTarget != target) {
+            m_pTarget = target;
+            m_dDistanceToTarget = Vec2DDistance(m_pOwner.Pos(), target.Pos());
+            m_bDistanceToTargetKnown = true;
+        }
+        return m_dDistanceToTarget;
+    }
+}
@@ -5,13 +5,20 @@
  */
 package Raven.lua;
 
+import common.Game.GameContext;
 import common.script.Scriptor;
 
 public class Raven_Scriptor extends Scriptor {
 
-    public static Raven_Scriptor script = new Raven_Scriptor();
+    /**
+     * @return the script of the match driven by the calling thread
+     */
+    public static Raven_Scriptor script() {
+        return GameContext.Current().GetScript();
+    }
 
-    private Raven_Scriptor() {
+    //one instance per GameContext
+    public Raven_Scriptor() {
         super();
         RunScriptFile("Raven/Params.lua");
     }
@@ -22,6 +29,6 @@ public class Raven_Scriptor extends Scriptor {
     // Raven_Scriptor& operator=(const Raven_Scriptor&);
 
     public static Raven_Scriptor Instance() {
-        return script;
+        return script();
     }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+/**
+ * Desc: a cache of the paths found by the path planners, so that a path many
+ * bots ask for (from a spawn point to a popular spot, say) is searched for
+ * only once. A path is kept as the list of the graph nodes it goes through
+ * and the cache holds a limited number of paths, dropping the least recently
+ * used one when it is full.
+ *
+ * The cached paths are only valid for the graph and the doors as they were
+ * when the paths were found. Every lookup passes the current version of both
+ * (see SparseGraph.Version and Raven_Map.GetDoorVersion) and the cache is
+ * emptied as soon as either differs from the versions the cache was filled
+ * with.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package Raven.navigation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class PathCache {
+
+    /**
+     * a cached path: the nodes it goes through and its cost
+     */
+    public static class CachedPath {
+
+        private final int[] m_Nodes;
+        private final double m_dCost;
+
+        public CachedPath(int[] nodes, double cost) {
+            m_Nodes = nodes;
+            m_dCost = cost;
+        }
+
+        public int[] Nodes() {
+            return m_Nodes;
+        }
+
+        public int Target() {
+            return m_Nodes[m_Nodes.length - 1];
+        }
+
+        public double Cost() {
+            return m_dCost;
+        }
+    }
+    private final Map<Long, CachedPath> m_Paths;
+    private int m_iGraphVersion = -1;
+    private int m_iDoorVersion = -1;
+    private int m_iNumLookups = 0;
+    private int m_iNumHits = 0;
+
+    public PathCache(final int MaxPaths) {
+        m_Paths = new LinkedHashMap<Long, CachedPath>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedPath> eldest) {
+                return size() > MaxPaths;
+            }
+        };
+    }
+
+    /**
+     * @return the key of a path from node source to node target
+     */
+    public static long PositionKey(int source, int target) {
+        return ((long) source << 33) | (target & 0xffffffffL);
+    }
+
+    /**
+     * @return the cached path with the given key or null if there is none
+     */
+    public CachedPath Lookup(long key, int GraphVersion, int DoorVersion) {
+        Validate(GraphVersion, DoorVersion);
+
+        ++m_iNumLookups;
+        CachedPath path = m_Paths.get(key);
+        if (path != null) {
+            ++m_iNumHits;
+        }
+        return path;
+    }
+
+    public void Store(long key, CachedPath path, int GraphVersion, int DoorVersion) {
+        Validate(GraphVersion, DoorVersion);
+
+        m_Paths.put(key, path);
+    }
+
+    /**
+     * removes a path that is no longer valid
+     */
+    public void Remove(long key) {
+        m_Paths.remove(key);
+    }
+
+    /**
+     * empties the cache if the graph or the doors have changed
+     */
+    private void Validate(int GraphVersion, int DoorVersion) {
+        if (GraphVersion != m_iGraphVersion || DoorVersion != m_iDoorVersion) {
+            m_Paths.clear();
+            m_iGraphVersion = GraphVersion;
+            m_iDoorVersion = DoorVersion;
+        }
+    }
+
+    public int Size() {
+        return m_Paths.size();
+    }
+
+    public int GetNumLookups() {
+        return m_iNumLookups;
+    }
+
+    public int GetNumHits() {
+        return m_iNumHits;
+    }
+}
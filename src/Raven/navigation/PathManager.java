@@ -2,72 +2,305 @@
  * Desc: a template class to manage a number of graph searches, and to
  * distribute the calculation of each search over several update-steps
  *
+ * Every update-step the manager spends a fixed number of search cycles on the
+ * searches, so a game stepped faster or slower than real time, or on a
+ * busier machine, plays out exactly the same. A manager may be given a time
+ * budget instead (the windowed game uses one, see
+ * Raven_UserOptions.m_bTimedPathSearches), so a frame takes about as long
+ * however many bots are waiting for a path.
+ *
+ * The most urgent searches are served first: the search of the bot possessed
+ * by the player, then the searches of the bots that have just been hit, then
+ * the rest. Searches of the same urgency are served in the order they were
+ * registered.
+ *
+ * In the asynchronous mode every search is handed to a worker thread as soon
+ * as it is registered and runs to the end there. The searches only read the
+ * compact copy of the navgraph (and the tables built from it), which never
+ * changes during a match. At the start of the next update-step the manager
+ * waits for the searches registered during the previous one and lets the
+ * bots know about the results, in the same order as the other mode would.
+ * So a path is ready in the next update-step however long the search takes,
+ * and the game plays out the same however fast the worker threads are.
+ *
  * @author Petr (http://www.sallyx.org/)
  */
 package Raven.navigation;
 
 import static Raven.navigation.TimeSlicedGraphAlgorithms.target_found;
 import static Raven.navigation.TimeSlicedGraphAlgorithms.target_not_found;
-import java.util.Iterator;
-import java.util.LinkedList;
+import static Raven.navigation.TimeSlicedGraphAlgorithms.search_incomplete;
+import Raven.Raven_Bot;
+import Raven.navigation.TimeSlicedGraphAlgorithms.Graph_SearchTimeSliced;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class PathManager<path_planner extends Raven_PathPlanner> {
 
 	/**
-	 * a container of all the active search requests
+	 * the urgency of a search request, most urgent first
+	 */
+	private static final int PossessedBot = 0;
+	private static final int BotUnderFire = 1;
+	private static final int OtherBot = 2;
+
+	/**
+	 * a registered search request
+	 */
+	private static class SearchRequest<path_planner> {
+
+		final path_planner m_pPlanner;
+		/**
+		 * the update-step and the time (System.nanoTime) the request was
+		 * registered at
+		 */
+		final long m_lRegisteredUpdate;
+		final long m_lRegisteredTime;
+		int m_iPriority;
+		/**
+		 * the search running on a worker thread and its result (asynchronous
+		 * mode only)
+		 */
+		SearchJob m_Job;
+		Future<Integer> m_Result;
+
+		SearchRequest(path_planner planner, long update, long time) {
+			m_pPlanner = planner;
+			m_lRegisteredUpdate = update;
+			m_lRegisteredTime = time;
+		}
+	}
+
+	/**
+	 * runs a search to the end on a worker thread. The search must not be
+	 * touched by the game until the job is over
+	 */
+	private static class SearchJob implements Callable<Integer> {
+
+		private final Graph_SearchTimeSliced<?> m_pSearch;
+		private volatile boolean m_bCancelled = false;
+
+		SearchJob(Graph_SearchTimeSliced<?> search) {
+			m_pSearch = search;
+		}
+
+		/**
+		 * makes the job stop after the current search cycle
+		 */
+		void Cancel() {
+			m_bCancelled = true;
+		}
+
+		@Override
+		public Integer call() {
+			int result;
+			do {
+				if (m_bCancelled) {
+					return search_incomplete;
+				}
+				result = m_pSearch.CycleOnce();
+			} while (result == search_incomplete);
+
+			return result;
+		}
+	}
+
+	private static final Comparator<SearchRequest<?>> ByPriority = new Comparator<SearchRequest<?>>() {
+		@Override
+		public int compare(SearchRequest<?> r1, SearchRequest<?> r2) {
+			return r1.m_iPriority - r2.m_iPriority;
+		}
+	};
+	/**
+	 * all the active search requests in the order they were registered
+	 */
+	private Map<path_planner, SearchRequest<path_planner>> m_SearchRequests =
+			new LinkedHashMap<path_planner, SearchRequest<path_planner>>();
+	/**
+	 * the requests served by the current update-step, most urgent first
 	 */
-	private List<path_planner> m_SearchRequests = new LinkedList<path_planner>();
+	private List<SearchRequest<path_planner>> m_Queue = new ArrayList<SearchRequest<path_planner>>();
 	/**
-	 * this is the total number of search cycles allocated to the manager. Each
-	 * update-step these are divided equally amongst all registered path
-	 * requests
+	 * this is the total number of search cycles allocated to the manager per
+	 * update-step (unless the manager has a time budget)
 	 */
 	private int m_iNumSearchCyclesPerUpdate;
+	/**
+	 * this is the time (in nanoseconds) allocated to the manager per
+	 * update-step if it has a time budget
+	 */
+	private long m_lSearchTimePerUpdate;
+	/**
+	 * true if the searches of an update-step are limited by time instead of
+	 * by search cycles
+	 */
+	private final boolean m_bTimeBudget;
+	/**
+	 * true if the searches run on worker threads
+	 */
+	private final boolean m_bAsync;
+	/**
+	 * the number of update-steps so far
+	 */
+	private long m_lNumUpdates = 0;
+	/**
+	 * the statistics of the finished searches: how many there were, and how
+	 * long they waited from being registered to being finished in total and
+	 * at most
+	 */
+	private long m_lNumFinishedSearches = 0;
+	private long m_lTotalLatencyUpdates = 0;
+	private long m_lTotalLatencyTime = 0;
+	private long m_lMaxLatencyTime = 0;
 
-	public PathManager(int NumCyclesPerUpdate) {
+	/**
+	 * @param NumCyclesPerUpdate the number of search cycles per update-step
+	 * @param SearchTimePerUpdate the time (in seconds) spent on the searches
+	 * per update-step if TimeBudget is true
+	 * @param TimeBudget true to limit the searches of an update-step by time
+	 * instead of by search cycles
+	 * @param Async true to run the searches on worker threads
+	 */
+	public PathManager(int NumCyclesPerUpdate, double SearchTimePerUpdate, boolean TimeBudget, boolean Async) {
 		m_iNumSearchCyclesPerUpdate = NumCyclesPerUpdate;
+		m_lSearchTimePerUpdate = (long) (SearchTimePerUpdate * 1e9);
+		m_bTimeBudget = TimeBudget;
+		m_bAsync = Async;
 	}
 
 	/**
-	 * every time this is called the total amount of search cycles available
-	 * will be shared out equally between all the active path requests. If a
-	 * search completes successfully or fails the method will notify the
-	 * relevant bot
-	 * ///////////////////////////////////////////////////////////////////////////////
+	 * @return true if the searches run on worker threads
+	 */
+	public boolean isAsync() {
+		return m_bAsync;
+	}
+
+	/**
+	 * waits for the job of a request to finish
 	 *
+	 * @return the result of the search
+	 */
+	private static int WaitFor(SearchRequest<?> request) {
+		try {
+			return request.m_Result.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ex);
+		} catch (ExecutionException ex) {
+			throw new RuntimeException(ex.getCause());
+		}
+	}
+
+	/**
+	 * @return the urgency of the request of the given planner
+	 */
+	private int Priority(path_planner planner) {
+		Raven_Bot bot = planner.GetOwner();
+		if (bot.isPossessed()) {
+			return PossessedBot;
+		}
+		if (bot.isHit()) {
+			return BotUnderFire;
+		}
+		return OtherBot;
+	}
+
+	/**
+	 * every time this is called the searches are updated, the most urgent
+	 * first, until the time (or the number of search cycles) available for
+	 * this update-step has been used up. If a search completes successfully
+	 * or fails the method will notify the relevant bot
+	 * ///////////////////////////////////////////////////////////////////////////////
 	 *
-	 * This method iterates through all the active path planning requests
-	 * updating their searches until the user specified total number of search
-	 * cycles has been satisfied.
 	 *
 	 * If a path is found or the search is unsuccessful the relevant agent is
 	 * notified accordingly by Telegram
 	 */
 	public void UpdateSearches() {
-		int NumCyclesRemaining = m_iNumSearchCyclesPerUpdate;
-
-		//iterate through the search requests until either all requests have been
-		//fulfilled or there are no search cycles remaining for this update-step.
-		Iterator<path_planner> iterator = m_SearchRequests.iterator();
-		while (NumCyclesRemaining-- > 0 && !m_SearchRequests.isEmpty()) {
-			path_planner curPath = iterator.next();
-			//make one search cycle of this path request
-			int result = curPath.CycleOnce();
-
-			//if the search has terminated remove from the list
-			if ((result == target_found) || (result == target_not_found)) {
-				//remove this path from the path list
-				iterator.remove();
+		++m_lNumUpdates;
+		if (m_SearchRequests.isEmpty()) {
+			return;
+		}
+
+		final boolean CountCycles = !m_bTimeBudget;
+		final long start = System.nanoTime();
+		int NumCycles = 0;
+
+		//the requests are registered oldest first, and the sort keeps that
+		//order among the requests of the same urgency
+		m_Queue.clear();
+		for (SearchRequest<path_planner> request : m_SearchRequests.values()) {
+			request.m_iPriority = Priority(request.m_pPlanner);
+			m_Queue.add(request);
+		}
+		Collections.sort(m_Queue, ByPriority);
+
+		if (m_bAsync) {
+			DeliverResults();
+			return;
+		}
+
+		for (int i = 0; i < m_Queue.size(); ++i) {
+			SearchRequest<path_planner> request = m_Queue.get(i);
+
+			//run the search until it terminates or the update-step is over
+			//(at least one cycle is run per update-step however short the
+			//time is). A bot told about its path may ask for a new one straight
+			//away, in which case this request is no longer registered
+			int result;
+			do {
+				if (CountCycles ? NumCycles >= m_iNumSearchCyclesPerUpdate
+						: NumCycles > 0 && System.nanoTime() - start >= m_lSearchTimePerUpdate) {
+					return;
+				}
+				if (m_SearchRequests.get(request.m_pPlanner) != request) {
+					break;
+				}
+				result = request.m_pPlanner.CycleOnce();
+				++NumCycles;
+			} while ((result != target_found) && (result != target_not_found));
+
+			//if the search has terminated remove it from the requests
+			if (m_SearchRequests.get(request.m_pPlanner) == request) {
+				m_SearchRequests.remove(request.m_pPlanner);
+				RecordLatency(request);
 			}
+		}
+	}
 
-			//the iterator may now be pointing to the end of the list. If this is so,
-			// it must be reset to the beginning.
-			if (!iterator.hasNext()) {
-				iterator = m_SearchRequests.iterator();
+	/**
+	 * lets the bots know the results of the searches run on the worker
+	 * threads, most urgent first
+	 */
+	private void DeliverResults() {
+		for (SearchRequest<path_planner> request : m_Queue) {
+			//a bot told about its path may ask for a new one straight away, in
+			//which case the new request waits for the next update-step
+			if (m_SearchRequests.get(request.m_pPlanner) != request) {
+				continue;
 			}
+			int result = WaitFor(request);
+			m_SearchRequests.remove(request.m_pPlanner);
+			RecordLatency(request);
 
-		}//end while
+			request.m_pPlanner.NotifyOwner(result);
+		}
+	}
+
+	private void RecordLatency(SearchRequest<path_planner> request) {
+		long latency = System.nanoTime() - request.m_lRegisteredTime;
+		++m_lNumFinishedSearches;
+		m_lTotalLatencyUpdates += m_lNumUpdates - request.m_lRegisteredUpdate;
+		m_lTotalLatencyTime += latency;
+		m_lMaxLatencyTime = Math.max(m_lMaxLatencyTime, latency);
 	}
 
 	/**
@@ -77,14 +310,31 @@ public class PathManager<path_planner extends Raven_PathPlanner> {
 	 */
 	public void Register(path_planner pPathPlanner) {
 		//make sure the bot does not already have a current search in the queue
-		if (!m_SearchRequests.contains(pPathPlanner)) {
-			//add to the list
-			m_SearchRequests.add(pPathPlanner);
+		if (!m_SearchRequests.containsKey(pPathPlanner)) {
+			//add to the requests
+			SearchRequest<path_planner> request =
+					new SearchRequest<path_planner>(pPathPlanner, m_lNumUpdates, System.nanoTime());
+			m_SearchRequests.put(pPathPlanner, request);
+
+			//and start the search on a worker thread
+			if (m_bAsync) {
+				request.m_Job = new SearchJob(pPathPlanner.GetCurrentSearch());
+				request.m_Result = ForkJoinPool.commonPool().submit(request.m_Job);
+			}
 		}
 	}
 
+	/**
+	 * removes the search of the planner. A search running on a worker thread
+	 * is stopped and waited for, so the planner can release it safely
+	 */
 	public void UnRegister(path_planner pPathPlanner) {
-		m_SearchRequests.remove(pPathPlanner);
+		SearchRequest<path_planner> request = m_SearchRequests.remove(pPathPlanner);
+
+		if (request != null && request.m_Job != null) {
+			request.m_Job.Cancel();
+			WaitFor(request);
+		}
 	}
 
 	/**
@@ -93,4 +343,39 @@ public class PathManager<path_planner extends Raven_PathPlanner> {
 	public int GetNumActiveSearches() {
 		return m_SearchRequests.size();
 	}
+
+	/**
+	 * returns the number of searches that have terminated (found the target
+	 * or failed to)
+	 */
+	public long GetNumFinishedSearches() {
+		return m_lNumFinishedSearches;
+	}
+
+	/**
+	 * returns the average number of update-steps it took a search to
+	 * terminate (1 if it terminated in the first update-step after it was
+	 * registered)
+	 */
+	public double GetAverageLatencyInUpdates() {
+		return m_lNumFinishedSearches == 0 ? 0.0
+				: (double) m_lTotalLatencyUpdates / m_lNumFinishedSearches;
+	}
+
+	/**
+	 * returns the average time (in seconds) a search waited from being
+	 * registered to terminating
+	 */
+	public double GetAverageLatency() {
+		return m_lNumFinishedSearches == 0 ? 0.0
+				: m_lTotalLatencyTime / 1e9 / m_lNumFinishedSearches;
+	}
+
+	/**
+	 * returns the longest time (in seconds) a search waited from being
+	 * registered to terminating
+	 */
+	public double GetMaxLatency() {
+		return m_lMaxLatencyTime / 1e9;
+	}
 }
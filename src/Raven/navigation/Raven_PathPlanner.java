@@ -6,10 +6,12 @@ import static Raven.Raven_Messages.message_type.Msg_NoPathAvailable;
 import static Raven.Raven_Messages.message_type.Msg_PathReady;
 import static Raven.Raven_UserOptions.UserOptions;
 import static Raven.DEFINE.*;
-import Raven.navigation.SearchTerminationPolicies.FindActiveTrigger;
 import Raven.navigation.TimeSlicedGraphAlgorithms.Graph_SearchTimeSliced;
+import Raven.navigation.TimeSlicedGraphAlgorithms.Graph_SearchTimeSliced.SearchType;
+import Raven.navigation.TimeSlicedGraphAlgorithms.Graph_SearchCached;
 import Raven.navigation.TimeSlicedGraphAlgorithms.Graph_SearchAStar_TS;
-import Raven.navigation.TimeSlicedGraphAlgorithms.Graph_SearchDijkstras_TS;
+import Raven.navigation.TimeSlicedGraphAlgorithms.Graph_SearchDStarLite_TS;
+import Raven.navigation.TimeSlicedGraphAlgorithms.Graph_SearchHPAStar_TS;
 import static Raven.navigation.TimeSlicedGraphAlgorithms.target_found;
 import static Raven.navigation.TimeSlicedGraphAlgorithms.target_not_found;
 import common.D2.Vector2D;
@@ -21,14 +23,16 @@ import static common.Messaging.MessageDispatcher.Dispatcher;
 import static common.Messaging.MessageDispatcher.SENDER_ID_IRRELEVANT;
 import static common.Messaging.MessageDispatcher.SEND_MSG_IMMEDIATELY;
 import static common.Messaging.MessageDispatcher.NO_ADDITIONAL_INFO;
+import common.Graph.ClusterGraph;
+import common.Graph.CompactGraph;
+import common.Graph.DistanceField;
+import common.Graph.DynamicEdgeCosts;
 import common.Graph.GraphEdgeTypes.NavGraphEdge;
 import common.Graph.GraphNodeTypes.NavGraphNode;
-import common.Graph.AStarHeuristicPolicies.Heuristic_Euclid;
+import common.Graph.AStarHeuristicPolicies.Heuristic_ALT;
 import common.Triggers.Trigger;
-import common.Triggers.TriggerSystem;
-import static common.misc.utils.isEqual;
 import static common.misc.utils.MaxDouble;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -58,14 +62,55 @@ public class Raven_PathPlanner {
      * a reference to the navgraph
      */
     private final Raven_Map.NavGraph m_NavGraph;
+    /**
+     * the compact copy of the navgraph the searches run against
+     */
+    private final CompactGraph m_CompactGraph;
+    /**
+     * the abstract graph of the clusters of the navgraph
+     */
+    private final ClusterGraph m_ClusterGraph;
+    /**
+     * the heuristic of the A* searches
+     */
+    private final Heuristic_ALT m_Heuristic;
     /**
      * a pointer to an instance of the current graph search algorithm.
      */
     private Graph_SearchTimeSliced<?> m_pCurrentSearch;
+    /**
+     * the incremental search of the paths to positions on maps with doors
+     * (created when first needed). It is kept between the requests, so a new
+     * path to the same position after a door has opened or closed only
+     * searches the nodes whose cost the door changed
+     */
+    private Graph_SearchDStarLite_TS<Heuristic_ALT> m_pDStarSearch;
+    /**
+     * the paths found by the planners of all the bots
+     */
+    private final PathCache m_PathCache;
+    /**
+     * the key the path found by the current search is cached under, or -1 if
+     * the current search was answered from the cache
+     */
+    private long m_lCacheKey = -1;
+    /**
+     * the versions of the navgraph and of the doors the current search was
+     * started with. The path it finds is only cached if they have not
+     * changed by the time the search is over
+     */
+    private int m_iSearchGraphVersion;
+    private int m_iSearchDoorVersion;
     /**
      * this is the position the bot wishes to plan a path to reach
      */
     private Vector2D m_vDestinationPos = new Vector2D();
+    /**
+     * the graph nodes found by the last cell space query. Each planner keeps
+     * its own list so bots can query the cell space at the same time
+     */
+    private final List<NavGraphNode<Trigger<Raven_Bot>>> m_Neighbors =
+            new ArrayList<NavGraphNode<Trigger<Raven_Bot>>>();
 
     /**
      * returns the index of the closest visible and unobstructed graph node to
@@ -81,12 +126,10 @@ public class Raven_PathPlanner {
         final double range = m_pOwner.GetWorld().GetMap().GetCellSpaceNeighborhoodRange();
 
         //calculate the graph nodes that are neighboring this position
-        m_pOwner.GetWorld().GetMap().GetCellSpace().CalculateNeighbors(pos, range);
+        m_pOwner.GetWorld().GetMap().GetCellSpace().CalculateNeighbors(pos, range, m_Neighbors);
 
         //iterate through the neighbors and sum up all the position vectors
-        for (NavGraphNode<Trigger<Raven_Bot>> pN = m_pOwner.GetWorld().GetMap().GetCellSpace().begin();
-                !m_pOwner.GetWorld().GetMap().GetCellSpace().end();
-                pN = m_pOwner.GetWorld().GetMap().GetCellSpace().next()) {
+        for (NavGraphNode<Trigger<Raven_Bot>> pN : m_Neighbors) {
             //if the path between this node and pos is unobstructed calculate the
             //distance
             if (m_pOwner.canWalkBetween(pos, pN.Pos())) {
@@ -103,6 +146,14 @@ public class Raven_PathPlanner {
         return ClosestNode;
     }
 
+    /**
+     * returns the index of the closest visible and unobstructed graph node to
+     * the bot (invalid_node_index if there is none)
+     */
+    public int GetClosestNodeToBot() {
+        return GetClosestNodeToPosition(m_pOwner.Pos());
+    }
+
     /**
      * smooths a path by removing extraneous edges. (may not remove all
      * extraneous edges)
@@ -191,7 +242,31 @@ public class Raven_PathPlanner {
         m_pOwner.GetWorld().GetPathManager().UnRegister(this);
 
         //clean up memory used by any existing search
+        if (m_pCurrentSearch != null) {
+            m_pCurrentSearch.Release();
+        }
         m_pCurrentSearch = null;
+        m_lCacheKey = -1;
+    }
+
+    /**
+     * @return the path cached under the given key, or null if there is none
+     * or the graph or the doors have changed since it was found
+     */
+    private PathCache.CachedPath LookupPath(long key) {
+        return m_PathCache.Lookup(key, m_NavGraph.Version(),
+                m_pOwner.GetWorld().GetMap().GetDoorVersion());
+    }
+
+    /**
+     * answers the current request with a path from the cache. The search
+     * finds the target in its first cycle, so the bot is sent the
+     * Msg_PathReady message by the path manager, as for any other path
+     */
+    private void UseCachedPath(PathCache.CachedPath path, SearchType type) {
+        m_pCurrentSearch = new Graph_SearchCached(m_CompactGraph, type,
+                path.Nodes(), path.Cost());
+        m_lCacheKey = -1;
     }
 
 //---------------------------- ctor -------------------------------------------
@@ -199,6 +274,10 @@ public class Raven_PathPlanner {
     public Raven_PathPlanner(Raven_Bot owner) {
         m_pOwner = owner;
         m_NavGraph = m_pOwner.GetWorld().GetMap().GetNavGraph();
+        m_CompactGraph = m_pOwner.GetWorld().GetMap().GetCompactNavGraph();
+        m_ClusterGraph = m_pOwner.GetWorld().GetMap().GetClusterGraph();
+        m_Heuristic = new Heuristic_ALT(m_pOwner.GetWorld().GetMap().GetLandmarks());
+        m_PathCache = m_pOwner.GetWorld().GetPathCache();
         m_pCurrentSearch = null;
     }
 
@@ -212,8 +291,9 @@ public class Raven_PathPlanner {
 
     /**
      * Given an item type, this method determines the closest reachable graph
-     * node to the bot's position and then creates a instance of the time-sliced
-     * Dijkstra's algorithm, which it registers with the search manager
+     * node to the bot's position and then registers the path from there to
+     * the closest active item of the type (see Raven_Map.GetItemField) with
+     * the search manager
      */
     public boolean RequestPathToItem(int ItemType) {
         //clear the waypoint list and delete any active search
@@ -234,22 +314,14 @@ public class Raven_PathPlanner {
             return false;
         }
 
-        //create an instance of the search algorithm
-        class t_con extends FindActiveTrigger<Trigger<Raven_Bot>> {
-        };
-        class DijSearch extends Graph_SearchDijkstras_TS<Raven_Map.NavGraph, t_con> {
-
-            public DijSearch(final Raven_Map.NavGraph G,
-                    int source,
-                    int target,
-                    t_con TC) {
-                super(G, source, target, TC);
-            }
-        };
-
-        m_pCurrentSearch = new DijSearch(m_NavGraph,
-                ClosestNodeToBot,
-                ItemType, new t_con());
+        //the way from every node to the closest active item of the type is
+        //known, so the path needs no search. A search without a path (if no
+        //item can be reached) makes the bot get the Msg_NoPathAvailable
+        //message as usual
+        DistanceField field = m_pOwner.GetWorld().GetMap().GetItemField(ItemType);
+        int[] path = field != null ? field.PathToClosestSource(ClosestNodeToBot) : null;
+        m_pCurrentSearch = new Graph_SearchCached(m_CompactGraph, SearchType.Dijkstra,
+                path, path != null ? field.Cost(ClosestNodeToBot) : MaxDouble);
 
         //register the search with the path manager
         m_pOwner.GetWorld().GetPathManager().Register(this);
@@ -320,12 +392,42 @@ public class Raven_PathPlanner {
             debug_con.print("Closest node to target is ").print(ClosestNodeToTarget).print("");
         }
 
+        //a path between the same nodes found before needs no search
+        long key = PathCache.PositionKey(ClosestNodeToBot, ClosestNodeToTarget);
+        PathCache.CachedPath cached = LookupPath(key);
+        if (cached != null) {
+            UseCachedPath(cached, SearchType.AStar);
+            m_pOwner.GetWorld().GetPathManager().Register(this);
+
+            return true;
+        }
+
         //create an instance of a the distributed A* search class
         //typedef Graph_SearchAStar_TS<Raven_Map::NavGraph, Heuristic_Euclid> AStar;
 
-        m_pCurrentSearch = new Graph_SearchAStar_TS<Raven_Map.NavGraph, Heuristic_Euclid>(m_NavGraph,
-                ClosestNodeToBot,
-                ClosestNodeToTarget, new Heuristic_Euclid());
+        //the doors change the costs of the edges going through them, which
+        //only the incremental search knows about. Otherwise a path leading to
+        //another cluster is planned through the abstract graph of the clusters
+        //first
+        final DynamicEdgeCosts EdgeCosts = m_pOwner.GetWorld().GetMap().GetEdgeCosts();
+        if (EdgeCosts.NumDynamicEdges() > 0) {
+            if (m_pDStarSearch == null) {
+                m_pDStarSearch = new Graph_SearchDStarLite_TS<Heuristic_ALT>(EdgeCosts, m_Heuristic);
+            }
+            m_pDStarSearch.SetEndPoints(ClosestNodeToBot, ClosestNodeToTarget);
+            m_pCurrentSearch = m_pDStarSearch;
+        } else if (m_ClusterGraph.Cluster(ClosestNodeToBot) != m_ClusterGraph.Cluster(ClosestNodeToTarget)) {
+            m_pCurrentSearch = new Graph_SearchHPAStar_TS<Heuristic_ALT>(m_ClusterGraph,
+                    ClosestNodeToBot,
+                    ClosestNodeToTarget, m_Heuristic);
+        } else {
+            m_pCurrentSearch = new Graph_SearchAStar_TS<Heuristic_ALT>(m_CompactGraph,
+                    ClosestNodeToBot,
+                    ClosestNodeToTarget, m_Heuristic);
+        }
+        m_lCacheKey = key;
+        m_iSearchGraphVersion = m_NavGraph.Version();
+        m_iSearchDoorVersion = m_pOwner.GetWorld().GetMap().GetDoorVersion();
 
         //and register the search with the path manager
         m_pOwner.GetWorld().GetPathManager().Register(this);
@@ -347,8 +449,19 @@ public class Raven_PathPlanner {
 
         int closest = GetClosestNodeToPosition(m_pOwner.Pos());
 
+        //the bot may have moved out of reach of every node since the search
+        //was started, in which case head for the start of the path instead
+        Vector2D start;
+        if (closest != invalid_node_index) {
+            start = GetNodePosition(closest);
+        } else if (!path.isEmpty()) {
+            start = path.get(0).Source();
+        } else {
+            start = m_pOwner.Pos();
+        }
+
         path.add(0, new PathEdge(m_pOwner.Pos(),
-                GetNodePosition(closest),
+                start,
                 NavGraphEdge.normal));
 
 
@@ -361,11 +474,11 @@ public class Raven_PathPlanner {
         }
 
         //smooth paths if required
-        if (UserOptions.m_bSmoothPathsQuick) {
+        if (UserOptions().m_bSmoothPathsQuick) {
             SmoothPathEdgesQuick(path);
         }
 
-        if (UserOptions.m_bSmoothPathsPrecise) {
+        if (UserOptions().m_bSmoothPathsPrecise) {
             SmoothPathEdgesPrecise(path);
         }
 
@@ -396,38 +509,29 @@ public class Raven_PathPlanner {
      */
     public double GetCostToClosestItem(int GiverType) {
         //find the closest visible node to the bots position
-        int nd = GetClosestNodeToPosition(m_pOwner.Pos());
+        return GetCostToClosestItem(GetClosestNodeToPosition(m_pOwner.Pos()), GiverType);
+    }
 
+    /**
+     * returns the cost from the given node (the closest node to the bot, see
+     * GetClosestNodeToBot) to the closest instance of the giver type, or -1 if
+     * no active trigger found
+     */
+    public double GetCostToClosestItem(int nd, int GiverType) {
         //if no closest node found return failure
         if (nd == invalid_node_index) {
             return -1;
         }
 
-        double ClosestSoFar = MaxDouble;
-        //iterate through all the triggers to find the closest *active* trigger of
-        //type GiverType
-        final TriggerSystem.TriggerList triggers = m_pOwner.GetWorld().GetMap().GetTriggers();
-        //  Raven_Map::TriggerSystem::TriggerList::const_iterator it;
-        Iterator<Trigger> it = triggers.iterator();
-        while (it.hasNext()) {
-            Trigger tr = it.next();
-            if ((tr.EntityType() == GiverType) && tr.isActive()) {
-                double cost =
-                        m_pOwner.GetWorld().GetMap().CalculateCostToTravelBetweenNodes(nd,
-                        tr.GraphNodeIndex());
-
-                if (cost < ClosestSoFar) {
-                    ClosestSoFar = cost;
-                }
-            }
-        }
+        //look up the cost to the closest *active* trigger of type GiverType
+        DistanceField field = m_pOwner.GetWorld().GetMap().GetItemField(GiverType);
 
         //return a negative value if no active trigger of the type found
-        if (isEqual(ClosestSoFar, MaxDouble)) {
+        if (field == null || field.ClosestSource(nd) < 0) {
             return -1;
         }
 
-        return ClosestSoFar;
+        return field.Cost(nd);
     }
 
     /**
@@ -441,9 +545,28 @@ public class Raven_PathPlanner {
 
         int result = m_pCurrentSearch.CycleOnce();
 
+        NotifyOwner(result);
+
+        return result;
+    }
+
+    /**
+     * the search the path manager runs on behalf of this planner
+     */
+    Graph_SearchTimeSliced<?> GetCurrentSearch() {
+        return m_pCurrentSearch;
+    }
+
+    /**
+     * messages the owner with either the msg_NoPathAvailable or msg_PathReady
+     * message if the current search has terminated with the given result.
+     * Called by CycleOnce, or by the path manager when it has run the search
+     * on another thread
+     */
+    void NotifyOwner(int result) {
         //let the bot know of the failure to find a path
         if (result == target_not_found) {
-            Dispatcher.DispatchMsg(SEND_MSG_IMMEDIATELY,
+            Dispatcher().DispatchMsg(SEND_MSG_IMMEDIATELY,
                     SENDER_ID_IRRELEVANT,
                     m_pOwner.ID(),
                     Msg_NoPathAvailable,
@@ -455,17 +578,37 @@ public class Raven_PathPlanner {
             //to the trigger in the extra info field of the message. (The pointer
             //will just be NULL if no trigger)
             List<Integer> p = m_pCurrentSearch.GetPathToTarget();
+
+            //remember the path for the next bot asking for it, unless the
+            //graph or a door changed while the search was running (the path
+            //was found with the old costs)
+            if (m_lCacheKey >= 0
+                    && m_iSearchGraphVersion == m_NavGraph.Version()
+                    && m_iSearchDoorVersion == m_pOwner.GetWorld().GetMap().GetDoorVersion()) {
+                int[] nodes = new int[p.size()];
+                int i = 0;
+                for (int nd : p) {
+                    nodes[i++] = nd;
+                }
+                m_PathCache.Store(m_lCacheKey,
+                        new PathCache.CachedPath(nodes, m_pCurrentSearch.GetCostToTarget()),
+                        m_iSearchGraphVersion,
+                        m_iSearchDoorVersion);
+            }
+
             Object pTrigger =
                     m_NavGraph.GetNode(p.get(p.size() - 1)).ExtraInfo();
 
-            Dispatcher.DispatchMsg(SEND_MSG_IMMEDIATELY,
+            Dispatcher().DispatchMsg(SEND_MSG_IMMEDIATELY,
                     SENDER_ID_IRRELEVANT,
                     m_pOwner.ID(),
                     Msg_PathReady,
                     pTrigger);
         }
+    }
 
-        return result;
+    public Raven_Bot GetOwner() {
+        return m_pOwner;
     }
 
     public Vector2D GetDestination() {
@@ -0,0 +1,123 @@
+/**
+ * Desc: the per node arrays (cost, shortest path tree, search frontier) and
+ * the priority queue used by one graph search.
+ *
+ * Workspaces are kept in a pool per thread (see Acquire and Release) so that
+ * a new search reuses the arrays of a finished one. Instead of refilling the
+ * arrays, every node carries the generation it was last written in. Reset
+ * only starts a new generation and any node not written since then reads as
+ * untouched (cost 0, no edge), so preparing a search costs the same however
+ * big the graph is.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package Raven.navigation;
+
+import common.misc.PriorityQueue.IndexedPriorityQLowDouble;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+public class SearchWorkspace {
+
+    private static final ThreadLocal<ArrayDeque<SearchWorkspace>> m_Pool =
+            new ThreadLocal<ArrayDeque<SearchWorkspace>>() {
+                @Override
+                protected ArrayDeque<SearchWorkspace> initialValue() {
+                    return new ArrayDeque<SearchWorkspace>();
+                }
+            };
+    private double[] m_Costs = new double[0];
+    /**
+     * indexed into by node. Hold the index of the edge leading to the node
+     * (-1 if none)
+     */
+    private int[] m_ShortestPathTree = new int[0];
+    private int[] m_SearchFrontier = new int[0];
+    /**
+     * the generation in which the values of a node were last written
+     */
+    private int[] m_Generation = new int[0];
+    private int m_iGeneration = 0;
+    private final IndexedPriorityQLowDouble m_PQ = new IndexedPriorityQLowDouble(0);
+
+    /**
+     * takes a workspace from the pool of the calling thread (or creates a new
+     * one if the pool is empty) and prepares it for a search of a graph with
+     * NumNodes nodes
+     */
+    public static SearchWorkspace Acquire(int NumNodes) {
+        SearchWorkspace ws = m_Pool.get().poll();
+        if (ws == null) {
+            ws = new SearchWorkspace();
+        }
+        ws.Reset(NumNodes);
+        return ws;
+    }
+
+    /**
+     * returns a workspace to the pool of the calling thread. The search that
+     * used it must not touch it afterwards
+     */
+    public static void Release(SearchWorkspace ws) {
+        m_Pool.get().push(ws);
+    }
+
+    /**
+     * makes every node untouched and empties the priority queue
+     */
+    public void Reset(int NumNodes) {
+        if (m_Generation.length < NumNodes) {
+            m_Costs = new double[NumNodes];
+            m_ShortestPathTree = new int[NumNodes];
+            m_SearchFrontier = new int[NumNodes];
+            m_Generation = new int[NumNodes];
+            m_iGeneration = 0;
+        }
+        if (m_iGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(m_Generation, 0);
+            m_iGeneration = 0;
+        }
+        ++m_iGeneration;
+        m_PQ.Reset(NumNodes);
+    }
+
+    private void Touch(int nd) {
+        if (m_Generation[nd] != m_iGeneration) {
+            m_Generation[nd] = m_iGeneration;
+            m_Costs[nd] = 0.0;
+            m_ShortestPathTree[nd] = -1;
+            m_SearchFrontier[nd] = -1;
+        }
+    }
+
+    public IndexedPriorityQLowDouble PQ() {
+        return m_PQ;
+    }
+
+    public double GetCost(int nd) {
+        return m_Generation[nd] == m_iGeneration ? m_Costs[nd] : 0.0;
+    }
+
+    public void SetCost(int nd, double cost) {
+        Touch(nd);
+        m_Costs[nd] = cost;
+    }
+
+    public int GetSPT(int nd) {
+        return m_Generation[nd] == m_iGeneration ? m_ShortestPathTree[nd] : -1;
+    }
+
+    public void SetSPT(int nd, int edge) {
+        Touch(nd);
+        m_ShortestPathTree[nd] = edge;
+    }
+
+    public int GetFrontier(int nd) {
+        return m_Generation[nd] == m_iGeneration ? m_SearchFrontier[nd] : -1;
+    }
+
+    public void SetFrontier(int nd, int edge) {
+        Touch(nd);
+        m_SearchFrontier[nd] = edge;
+    }
+}
@@ -2,21 +2,23 @@
  * Desc: classes to implement graph algorithms that can be distributed over
  * multiple update-steps
  *
- * Any graphs passed to these functions must conform to the same interface used
- * by the SparseGraph
+ * The searches run against the compressed sparse row copy of a graph (see
+ * CompactGraph), its abstract graph of clusters (see ClusterGraph) or its
+ * current edge costs (see DynamicEdgeCosts)
  *
  * @author Petr (http://www.sallyx.org/)
  */
 package Raven.navigation;
 
-import Raven.navigation.SearchTerminationPolicies.TerminationCondition;
 import common.Graph.AStarHeuristicPolicies;
+import common.Graph.ClusterGraph;
+import common.Graph.CompactGraph;
+import common.Graph.DynamicEdgeCosts;
 import common.Graph.GraphEdgeTypes.GraphEdge;
-import common.Graph.GraphEdgeTypes.NavGraphEdge;
-import common.Graph.SparseGraph;
-import common.misc.PriorityQueue.IndexedPriorityQLow;
+import common.misc.PriorityQueue.IndexedPriorityQLowDouble;
+import common.misc.PriorityQueue.IndexedPriorityQLowKeyPair;
 import java.util.ArrayList;
-import java.util.Collections;
+import static common.misc.utils.MaxDouble;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -79,44 +81,102 @@ final public class TimeSlicedGraphAlgorithms {
         public SearchType GetType() {
             return m_SearchType;
         }
+
+        /**
+         * returns the memory used by the search to the pool so another search
+         * can use it. The search must not be used after it has been released
+         */
+        public void Release() {
+        }
+    }
+
+    /**
+     * returns the edges of the shortest path tree stored in ws as a list of
+     * edge objects
+     */
+    private static List<GraphEdge> EdgeList(final CompactGraph G, SearchWorkspace ws) {
+        List<GraphEdge> edges = new ArrayList<GraphEdge>(G.NumNodes());
+        for (int nd = 0; nd < G.NumNodes(); ++nd) {
+            int e = ws.GetSPT(nd);
+            edges.add(e < 0 ? null : G.GetEdge(e));
+        }
+        return edges;
+    }
+
+    /**
+     * returns a list of node indexes that comprise the path from source to
+     * target stored in the shortest path tree of ws
+     */
+    private static List<Integer> PathToTarget(final CompactGraph G, SearchWorkspace ws,
+            int source, int target) {
+        List<Integer> path = new LinkedList<Integer>();
+
+        //just return an empty path if no target or no path found
+        if (target < 0) {
+            return path;
+        }
+
+        int nd = target;
+
+        path.add(nd);
+
+        while ((nd != source) && (ws.GetSPT(nd) >= 0)) {
+            nd = G.EdgeFrom(ws.GetSPT(nd));
+
+            path.add(0, nd);
+        }
+
+        return path;
+    }
+
+    /**
+     * returns the path from source to target stored in the shortest path tree
+     * of ws as a list of PathEdges
+     */
+    private static List<PathEdge> PathAsPathEdges(final CompactGraph G, SearchWorkspace ws,
+            int source, int target) {
+        List<PathEdge> path = new LinkedList<PathEdge>();
+
+        //just return an empty path if no target or no path found
+        if (target < 0) {
+            return path;
+        }
+
+        int nd = target;
+
+        while ((nd != source) && (ws.GetSPT(nd) >= 0)) {
+            int e = ws.GetSPT(nd);
+            path.add(0, new PathEdge(G.GetNode(G.EdgeFrom(e)).Pos(),
+                    G.GetNode(G.EdgeTo(e)).Pos(),
+                    G.EdgeFlags(e),
+                    G.EdgeIDofIntersectingEntity(e)));
+
+            nd = G.EdgeFrom(e);
+        }
+
+        return path;
     }
 
     /**
      * a A* class that enables a search to be completed over multiple
      * update-steps
      */
-    public static class Graph_SearchAStar_TS<graph_type extends SparseGraph, heuristic extends AStarHeuristicPolicies.Heuristic>
+    public static class Graph_SearchAStar_TS<heuristic extends AStarHeuristicPolicies.Heuristic>
             extends Graph_SearchTimeSliced<GraphEdge> {
-        //create typedefs for the node and edge types used by the graph
-        //typedef typename graph_type::EdgeType Edge;
-        //class Edge extends GraphEdge {}
-        //typedef typename graph_type::NodeType Node;
-        //class Node extends NavGraphNode {}
 
-        private graph_type m_Graph;
-        /**
-         * indexed into my node. Contains the 'real' accumulative cost to that
-         * node
-         */
-        private List<Double> m_GCosts = new ArrayList<Double>();
+        private final CompactGraph m_Graph;
         /**
-         * indexed into by node. Contains the cost from adding m_GCosts[n] to
-         * the heuristic cost from n to the target node. This is the vector the
-         * iPQ indexes into.
+         * holds the 'real' accumulative cost (G) of every node, the shortest
+         * path tree, the search frontier and the priority queue of nodes (the
+         * nodes with the lowest overall F cost (G+H) are positioned at the
+         * front)
          */
-        private ArrayList<Double> m_FCosts = new ArrayList<Double>();
-        private List<GraphEdge> m_ShortestPathTree;
-        private List<GraphEdge> m_SearchFrontier;
+        private SearchWorkspace m_Workspace;
         private int m_iSource;
         private int m_iTarget;
-        /**
-         * create an indexed priority queue of nodes. The nodes with the lowest
-         * overall F cost (G+H) are positioned at the front.
-         */
-        private IndexedPriorityQLow<Double> m_pPQ;
         heuristic Heuristic;
 
-        public Graph_SearchAStar_TS(final graph_type G,
+        public Graph_SearchAStar_TS(final CompactGraph G,
                 int source,
                 int target,
                 heuristic h) {
@@ -124,23 +184,18 @@ final public class TimeSlicedGraphAlgorithms {
             Heuristic = h;
 
             m_Graph = G;
-            m_ShortestPathTree = new ArrayList<GraphEdge>(Collections.nCopies(G.NumNodes(), (GraphEdge) null));
-            m_SearchFrontier = new ArrayList<GraphEdge>(Collections.nCopies(G.NumNodes(), (GraphEdge) null));
-            m_GCosts = new ArrayList<Double>(Collections.nCopies(G.NumNodes(), 0.0));
-            m_FCosts = new ArrayList<Double>(Collections.nCopies(G.NumNodes(), 0.0));
+            m_Workspace = SearchWorkspace.Acquire(G.NumNodes());
             m_iSource = source;
             m_iTarget = target;
-            //create the PQ   
-            m_pPQ = new IndexedPriorityQLow<>(m_FCosts, m_Graph.NumNodes());
 
             //put the source node on the queue
-            m_pPQ.insert(m_iSource);
+            m_Workspace.PQ().insert(m_iSource, 0.0);
         }
 
         @Override
-        protected void finalize() throws Throwable {
-            super.finalize();
-            m_pPQ = null;
+        public void Release() {
+            SearchWorkspace.Release(m_Workspace);
+            m_Workspace = null;
         }
 
         /**
@@ -151,16 +206,19 @@ final public class TimeSlicedGraphAlgorithms {
          */
         @Override
         public int CycleOnce() {
+            final SearchWorkspace ws = m_Workspace;
+            final IndexedPriorityQLowDouble pq = ws.PQ();
+
             //if the PQ is empty the target has not been found
-            if (m_pPQ.empty()) {
+            if (pq.empty()) {
                 return target_not_found;
             }
 
             //get lowest cost node from the queue
-            int NextClosestNode = m_pPQ.Pop();
+            int NextClosestNode = pq.Pop();
 
             //put the node on the SPT
-            m_ShortestPathTree.set(NextClosestNode, m_SearchFrontier.get(NextClosestNode));
+            ws.SetSPT(NextClosestNode, ws.GetFrontier(NextClosestNode));
 
             //if the target has been found exit
             if (NextClosestNode == m_iTarget) {
@@ -168,34 +226,33 @@ final public class TimeSlicedGraphAlgorithms {
             }
 
             //now to test all the edges attached to this node
-            SparseGraph.ConstEdgeIterator ConstEdgeItr = new SparseGraph.ConstEdgeIterator(m_Graph, NextClosestNode);
+            final int LastEdge = m_Graph.FirstEdge(NextClosestNode + 1);
+            for (int e = m_Graph.FirstEdge(NextClosestNode); e < LastEdge; ++e) {
+                final int To = m_Graph.EdgeTo(e);
 
-            for (GraphEdge pE = ConstEdgeItr.begin(); !ConstEdgeItr.end(); pE = ConstEdgeItr.next()) {
                 //calculate the heuristic cost from this node to the target (H)
-                double HCost = Heuristic.Calculate(m_Graph, m_iTarget, pE.To());
+                double HCost = Heuristic.Calculate(m_Graph, m_iTarget, To);
 
                 //calculate the 'real' cost to this node from the source (G)
-                double GCost = m_GCosts.get(NextClosestNode) + pE.Cost();
+                double GCost = ws.GetCost(NextClosestNode) + m_Graph.EdgeCost(e);
 
                 //if the node has not been added to the frontier, add it and update
                 //the G and F costs
-                if (m_SearchFrontier.get(pE.To()) == null) {
-                    m_FCosts.set(pE.To(), GCost + HCost);
-                    m_GCosts.set(pE.To(), GCost);
+                if (ws.GetFrontier(To) < 0) {
+                    ws.SetCost(To, GCost);
 
-                    m_pPQ.insert(pE.To());
+                    pq.insert(To, GCost + HCost);
 
-                    m_SearchFrontier.set(pE.To(), pE);
+                    ws.SetFrontier(To, e);
                 } //if this node is already on the frontier but the cost to get here
                 //is cheaper than has been found previously, update the node
                 //costs and frontier accordingly.
-                else if ((GCost < m_GCosts.get(pE.To())) && (m_ShortestPathTree.get(pE.To()) == null)) {
-                    m_FCosts.set(pE.To(), GCost + HCost);
-                    m_GCosts.set(pE.To(), GCost);
+                else if ((GCost < ws.GetCost(To)) && (ws.GetSPT(To) < 0)) {
+                    ws.SetCost(To, GCost);
 
-                    m_pPQ.ChangePriority(pE.To());
+                    pq.ChangePriority(To, GCost + HCost);
 
-                    m_SearchFrontier.set(pE.To(), pE);
+                    ws.SetFrontier(To, e);
                 }
             }
 
@@ -206,10 +263,9 @@ final public class TimeSlicedGraphAlgorithms {
         /**
          * returns the vector of edges that the algorithm has examined
          */
-        //public List<edge_type> GetSPT() { return m_ShortestPahtTree; }
         @Override
         public List<GraphEdge> GetSPT() {
-            return m_ShortestPathTree;
+            return EdgeList(m_Graph, m_Workspace);
         }
 
         /**
@@ -218,24 +274,7 @@ final public class TimeSlicedGraphAlgorithms {
          */
         @Override
         public List<Integer> GetPathToTarget() {
-            List<Integer> path = new LinkedList<Integer>();
-
-            //just return an empty path if no target or no path found
-            if (m_iTarget < 0) {
-                return path;
-            }
-
-            int nd = m_iTarget;
-
-            path.add(nd);
-
-            while ((nd != m_iSource) && (m_ShortestPathTree.get(nd) != null)) {
-                nd = m_ShortestPathTree.get(nd).From();
-
-                path.add(0, nd);
-            }
-
-            return path;
+            return PathToTarget(m_Graph, m_Workspace, m_iSource, m_iTarget);
         }
 
         /**
@@ -243,26 +282,7 @@ final public class TimeSlicedGraphAlgorithms {
          */
         @Override
         public List<PathEdge> GetPathAsPathEdges() {
-            List<PathEdge> path = new LinkedList<PathEdge>();
-
-            //just return an empty path if no target or no path found
-            if (m_iTarget < 0) {
-                return path;
-            }
-
-            int nd = m_iTarget;
-
-            while ((nd != m_iSource) && (m_ShortestPathTree.get(nd) != null)) {
-                path.add(0,
-                        new PathEdge(m_Graph.GetNode(m_ShortestPathTree.get(nd).From()).Pos(),
-                        m_Graph.GetNode(m_ShortestPathTree.get(nd).To()).Pos(),
-                        ((NavGraphEdge) m_ShortestPathTree.get(nd)).Flags(),
-                        ((NavGraphEdge) m_ShortestPathTree.get(nd)).IDofIntersectingEntity()));
-
-                nd = m_ShortestPathTree.get(nd).From();
-            }
-
-            return path;
+            return PathAsPathEdges(m_Graph, m_Workspace, m_iSource, m_iTarget);
         }
 
         /**
@@ -270,129 +290,237 @@ final public class TimeSlicedGraphAlgorithms {
          */
         @Override
         public double GetCostToTarget() {
-            return m_GCosts.get(m_iTarget);
+            return m_Workspace.GetCost(m_iTarget);
         }
     }
 
     /**
-     * Dijkstra's algorithm class modified to spread a search over multiple
-     * update-steps
+     * a hierarchical A* search (HPA*) that can be completed over multiple
+     * update-steps. The search first finds the shortest path through the
+     * abstract graph of the cluster entrances (see ClusterGraph), one abstract
+     * node per cycle. The source and the target are connected to the
+     * entrances of their clusters by searches of these clusters. Then it
+     * refines the abstract path, one abstract edge per cycle, by an A* search
+     * bounded to the cluster the edge belongs to.
      */
-    public static class Graph_SearchDijkstras_TS<graph_type extends SparseGraph,
-            termination_condition extends TerminationCondition>
+    public static class Graph_SearchHPAStar_TS<heuristic extends AStarHeuristicPolicies.Heuristic>
             extends Graph_SearchTimeSliced<GraphEdge> {
-        //create typedefs for the node and edge types used by the graph
-        //typedef typename graph_type::EdgeType Edge;
-        //typedef typename graph_type::NodeType Node;
 
-        private final graph_type m_Graph;
+        private final ClusterGraph m_Clusters;
+        private final CompactGraph m_Graph;
+        /**
+         * the search of the abstract graph. The abstract nodes are the
+         * entrances plus the source and the target of the search. The
+         * shortest path tree and the frontier hold the abstract node the node
+         * was reached from (instead of an edge)
+         */
+        private SearchWorkspace m_Workspace;
+        /**
+         * the workspace of the searches inside a single cluster (indexed by
+         * graph node)
+         */
+        private SearchWorkspace m_ClusterWorkspace;
+        /**
+         * the cost from every entrance of the target's cluster to the target
+         * (without leaving the cluster), indexed by the abstract node minus
+         * the first entrance of the cluster. Null until the first cycle
+         */
+        private double[] m_CostToTarget;
+        private final int m_iSource;
+        private final int m_iTarget;
+        private final int m_iAbstractSource;
+        private final int m_iAbstractTarget;
+        heuristic Heuristic;
         /**
-         * indexed into my node. Contains the accumulative cost to that node
+         * the graph nodes the abstract path goes through. Null until the
+         * abstract search has found the target
          */
-        private ArrayList<Double> m_CostToThisNode;
-        private List<GraphEdge> m_ShortestPathTree;
-        private List<GraphEdge> m_SearchFrontier;
-        int m_iSource;
-        int m_iTarget;
+        private int[] m_AbstractPath;
         /**
-         * create an indexed priority queue of nodes. The nodes with the lowest
-         * overall F cost (G+H) are positioned at the front.
+         * the abstract path is refined up to this node
          */
-        private IndexedPriorityQLow<Double> m_pPQ;
-        termination_condition TerminationCondition;
+        private int m_iRefinedUpTo;
+        /**
+         * the edges of the refined path
+         */
+        private final List<Integer> m_PathEdges = new ArrayList<Integer>();
 
-        public Graph_SearchDijkstras_TS(final graph_type G,
+        public Graph_SearchHPAStar_TS(final ClusterGraph G,
                 int source,
                 int target,
-                termination_condition TerminationCondition) {
-            super(SearchType.Dijkstra);
-            this.TerminationCondition = TerminationCondition;
-            m_Graph = G;
-            m_ShortestPathTree = new ArrayList<>(Collections.nCopies(G.NumNodes(), (GraphEdge) null));
-            m_SearchFrontier = new ArrayList<>(Collections.nCopies(G.NumNodes(), (GraphEdge) null));
-            m_CostToThisNode = new ArrayList<Double>(Collections.nCopies(G.NumNodes(), 0.0));
+                heuristic h) {
+            super(SearchType.AStar);
+            Heuristic = h;
 
+            m_Clusters = G;
+            m_Graph = G.Graph();
             m_iSource = source;
             m_iTarget = target;
-            //create the PQ         ,
-            m_pPQ = new IndexedPriorityQLow<Double>(m_CostToThisNode, m_Graph.NumNodes());
+            m_iAbstractSource = G.NumEntrances();
+            m_iAbstractTarget = G.NumEntrances() + 1;
+            m_Workspace = SearchWorkspace.Acquire(G.NumEntrances() + 2);
+            m_ClusterWorkspace = SearchWorkspace.Acquire(m_Graph.NumNodes());
 
             //put the source node on the queue
-            m_pPQ.insert(m_iSource);
+            m_Workspace.PQ().insert(m_iAbstractSource, 0.0);
+        }
+
+        @Override
+        public void Release() {
+            SearchWorkspace.Release(m_Workspace);
+            SearchWorkspace.Release(m_ClusterWorkspace);
+            m_Workspace = null;
+            m_ClusterWorkspace = null;
         }
 
         /**
-         * <del>let the search class take care of tidying up memory (the wary
-         * amongst you may prefer to use std::auto_ptr or similar to replace the
-         * pointer to the termination condition)</del>
+         * @return the graph node of abstract node a
          */
-        @Override
-        protected void finalize() throws Throwable {
-            super.finalize();
-            m_pPQ = null;
+        private int Node(int a) {
+            if (a == m_iAbstractSource) {
+                return m_iSource;
+            }
+            if (a == m_iAbstractTarget) {
+                return m_iTarget;
+            }
+            return m_Clusters.EntranceNode(a);
         }
 
         /**
-         * When called, this method pops the next node off the PQ and examines
-         * all its edges. The method returns an enumerated value (target_found,
+         * When called, this method connects the target to its cluster, runs
+         * one cycle of the abstract search or refines one edge of the
+         * abstract path. The method returns an enumerated value (target_found,
          * target_not_found, search_incomplete) indicating the status of the
          * search
          */
         @Override
         public int CycleOnce() {
+            if (m_CostToTarget == null) {
+                ConnectTarget();
+                return search_incomplete;
+            }
+            if (m_AbstractPath == null) {
+                return SearchAbstractGraph();
+            }
+            return RefineNextEdge();
+        }
+
+        /**
+         * finds the cost from every entrance of the target's cluster to the
+         * target
+         */
+        private void ConnectTarget() {
+            final int c = m_Clusters.Cluster(m_iTarget);
+            final int first = m_Clusters.FirstEntrance(c);
+            SearchCluster(m_iTarget, true);
+
+            m_CostToTarget = new double[m_Clusters.FirstEntrance(c + 1) - first];
+            for (int a = first; a < m_Clusters.FirstEntrance(c + 1); ++a) {
+                m_CostToTarget[a - first] = ClusterCost(m_iTarget, m_Clusters.EntranceNode(a));
+            }
+        }
+
+        /**
+         * Dijkstra's algorithm restricted to the cluster of node nd. Finds the
+         * cost of the shortest path inside the cluster from nd to every node
+         * of the cluster (or from every node to nd if reverse is true). The
+         * costs are read by ClusterCost until the next search of a cluster
+         */
+        private void SearchCluster(int nd, boolean reverse) {
+            final SearchWorkspace ws = m_ClusterWorkspace;
+            final IndexedPriorityQLowDouble pq = ws.PQ();
+            final int c = m_Clusters.Cluster(nd);
+
+            ws.Reset(m_Graph.NumNodes());
+            pq.insert(nd, 0.0);
+            while (!pq.empty()) {
+                final int u = pq.Pop();
+                ws.SetSPT(u, ws.GetFrontier(u));
+
+                final int last = reverse ? m_Clusters.FirstInEdge(u + 1) : m_Graph.FirstEdge(u + 1);
+                for (int i = reverse ? m_Clusters.FirstInEdge(u) : m_Graph.FirstEdge(u); i < last; ++i) {
+                    final int e = reverse ? m_Clusters.InEdge(i) : i;
+                    final int v = reverse ? m_Graph.EdgeFrom(e) : m_Graph.EdgeTo(e);
+                    if (v == nd || m_Clusters.Cluster(v) != c) {
+                        continue;
+                    }
+                    double cost = ws.GetCost(u) + m_Graph.EdgeCost(e);
+                    if (ws.GetFrontier(v) < 0) {
+                        ws.SetCost(v, cost);
+                        pq.insert(v, cost);
+                        ws.SetFrontier(v, e);
+                    } else if (cost < ws.GetCost(v) && ws.GetSPT(v) < 0) {
+                        ws.SetCost(v, cost);
+                        pq.ChangePriority(v, cost);
+                        ws.SetFrontier(v, e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return the cost to (or from) node nd found by the last search of a
+         * cluster started at node from, MaxDouble if nd was not reached
+         */
+        private double ClusterCost(int from, int nd) {
+            if (nd == from) {
+                return 0.0;
+            }
+            return m_ClusterWorkspace.GetFrontier(nd) >= 0 ? m_ClusterWorkspace.GetCost(nd) : MaxDouble;
+        }
+
+        private int SearchAbstractGraph() {
+            final SearchWorkspace ws = m_Workspace;
+            final IndexedPriorityQLowDouble pq = ws.PQ();
+
             //if the PQ is empty the target has not been found
-            if (m_pPQ.empty()) {
+            if (pq.empty()) {
                 return target_not_found;
             }
 
             //get lowest cost node from the queue
-            int NextClosestNode = m_pPQ.Pop();
-
-            //move this node from the frontier to the spanning tree
-            m_ShortestPathTree.set(NextClosestNode, m_SearchFrontier.get(NextClosestNode));
-
-            //if the target has been found exit
-            if (TerminationCondition.isSatisfied(m_Graph, m_iTarget, NextClosestNode)) {
-                //make a note of the node index that has satisfied the condition. This
-                //is so we can work backwards from the index to extract the path from
-                //the shortest path tree.
-                m_iTarget = NextClosestNode;
+            int NextClosestNode = pq.Pop();
 
-                return target_found;
+            //put the node on the SPT
+            ws.SetSPT(NextClosestNode, ws.GetFrontier(NextClosestNode));
+
+            //if the target has been found make a note of the abstract path.
+            //It is refined by the following cycles
+            if (NextClosestNode == m_iAbstractTarget) {
+                List<Integer> nodes = new LinkedList<Integer>();
+                for (int a = m_iAbstractTarget; a >= 0; a = ws.GetSPT(a)) {
+                    nodes.add(0, Node(a));
+                }
+                m_AbstractPath = new int[nodes.size()];
+                int i = 0;
+                for (int nd : nodes) {
+                    m_AbstractPath[i++] = nd;
+                }
+                return search_incomplete;
             }
 
-            //now to test all the edges attached to this node
-            SparseGraph.ConstEdgeIterator ConstEdgeItr = new SparseGraph.ConstEdgeIterator(m_Graph, NextClosestNode);
-            for (GraphEdge pE = ConstEdgeItr.begin();
-                    !ConstEdgeItr.end();
-                    pE = ConstEdgeItr.next()) {
-                //the total cost to the node this edge points to is the cost to the
-                //current node plus the cost of the edge connecting them.
-                double NewCost = m_CostToThisNode.get(NextClosestNode) + pE.Cost();
-
-                //if this edge has never been on the frontier make a note of the cost
-                //to get to the node it points to, then add the edge to the frontier
-                //and the destination node to the PQ.
-                if (m_SearchFrontier.get(pE.To()) == null) {
-                    m_CostToThisNode.set(pE.To(), NewCost);
-
-                    m_pPQ.insert(pE.To());
-
-                    m_SearchFrontier.set(pE.To(), pE);
-                } //else test to see if the cost to reach the destination node via the
-                //current node is cheaper than the cheapest cost found so far. If
-                //this path is cheaper, we assign the new cost to the destination
-                //node, update its entry in the PQ to reflect the change and add the
-                //edge to the frontier
-                else if ((NewCost < m_CostToThisNode.get(pE.To()))
-                        && (m_ShortestPathTree.get(pE.To()) == null)) {
-                    m_CostToThisNode.set(pE.To(), NewCost);
-
-                    //because the cost is less than it was previously, the PQ must be
-                    //re-sorted to account for this.
-                    m_pPQ.ChangePriority(pE.To());
-
-                    m_SearchFrontier.set(pE.To(), pE);
+            //the source is connected to every entrance of its cluster (and to
+            //the target if it is in the same cluster), the entrances to each
+            //other by the abstract edges and the entrances of the target's
+            //cluster to the target
+            final int TargetCluster = m_Clusters.Cluster(m_iTarget);
+            if (NextClosestNode == m_iAbstractSource) {
+                final int c = m_Clusters.Cluster(m_iSource);
+                SearchCluster(m_iSource, false);
+                for (int a = m_Clusters.FirstEntrance(c); a < m_Clusters.FirstEntrance(c + 1); ++a) {
+                    Relax(NextClosestNode, a, ClusterCost(m_iSource, m_Clusters.EntranceNode(a)));
+                }
+                if (c == TargetCluster) {
+                    Relax(NextClosestNode, m_iAbstractTarget, ClusterCost(m_iSource, m_iTarget));
+                }
+            } else {
+                final int LastEdge = m_Clusters.FirstEdge(NextClosestNode + 1);
+                for (int e = m_Clusters.FirstEdge(NextClosestNode); e < LastEdge; ++e) {
+                    Relax(NextClosestNode, m_Clusters.EdgeTo(e), m_Clusters.EdgeCost(e));
+                }
+                if (m_Clusters.Cluster(Node(NextClosestNode)) == TargetCluster) {
+                    Relax(NextClosestNode, m_iAbstractTarget,
+                            m_CostToTarget[NextClosestNode - m_Clusters.FirstEntrance(TargetCluster)]);
                 }
             }
 
@@ -401,11 +529,121 @@ final public class TimeSlicedGraphAlgorithms {
         }
 
         /**
-         * returns the vector of edges that the algorithm has examined
+         * tests the abstract edge from-to of the given cost
+         */
+        private void Relax(int from, int to, double EdgeCost) {
+            if (EdgeCost == MaxDouble) {
+                return;
+            }
+            final SearchWorkspace ws = m_Workspace;
+
+            //calculate the heuristic cost from this node to the target (H)
+            double HCost = Heuristic.Calculate(m_Graph, m_iTarget, Node(to));
+
+            //calculate the 'real' cost to this node from the source (G)
+            double GCost = ws.GetCost(from) + EdgeCost;
+
+            //if the node has not been added to the frontier, add it and update
+            //the G and F costs
+            if (ws.GetFrontier(to) < 0) {
+                ws.SetCost(to, GCost);
+
+                ws.PQ().insert(to, GCost + HCost);
+
+                ws.SetFrontier(to, from);
+            } //if this node is already on the frontier but the cost to get here
+            //is cheaper than has been found previously, update the node
+            //costs and frontier accordingly.
+            else if ((GCost < ws.GetCost(to)) && (ws.GetSPT(to) < 0)) {
+                ws.SetCost(to, GCost);
+
+                ws.PQ().ChangePriority(to, GCost + HCost);
+
+                ws.SetFrontier(to, from);
+            }
+        }
+
+        /**
+         * replaces the next edge of the abstract path with the edges of the
+         * graph it stands for
+         */
+        private int RefineNextEdge() {
+            if (m_iRefinedUpTo < m_AbstractPath.length - 1) {
+                int from = m_AbstractPath[m_iRefinedUpTo];
+                int to = m_AbstractPath[++m_iRefinedUpTo];
+
+                if (m_Clusters.Cluster(from) != m_Clusters.Cluster(to)) {
+                    //an edge between two clusters is an edge of the graph
+                    m_PathEdges.add(m_Graph.FindEdge(from, to));
+                } else if (from != to) {
+                    RefineInCluster(from, to);
+                }
+            }
+
+            return m_iRefinedUpTo < m_AbstractPath.length - 1 ? search_incomplete : target_found;
+        }
+
+        /**
+         * finds the shortest path from node from to node to of the same
+         * cluster by an A* search that does not leave the cluster and appends
+         * its edges to the refined path
+         */
+        private void RefineInCluster(int from, int to) {
+            final SearchWorkspace ws = m_ClusterWorkspace;
+            final IndexedPriorityQLowDouble pq = ws.PQ();
+            final int c = m_Clusters.Cluster(from);
+
+            ws.Reset(m_Graph.NumNodes());
+            pq.insert(from, 0.0);
+            while (!pq.empty()) {
+                final int u = pq.Pop();
+                ws.SetSPT(u, ws.GetFrontier(u));
+                if (u == to) {
+                    break;
+                }
+
+                final int LastEdge = m_Graph.FirstEdge(u + 1);
+                for (int e = m_Graph.FirstEdge(u); e < LastEdge; ++e) {
+                    final int v = m_Graph.EdgeTo(e);
+                    if (v == from || m_Clusters.Cluster(v) != c) {
+                        continue;
+                    }
+                    double HCost = Heuristic.Calculate(m_Graph, to, v);
+                    double GCost = ws.GetCost(u) + m_Graph.EdgeCost(e);
+                    if (ws.GetFrontier(v) < 0) {
+                        ws.SetCost(v, GCost);
+                        pq.insert(v, GCost + HCost);
+                        ws.SetFrontier(v, e);
+                    } else if ((GCost < ws.GetCost(v)) && (ws.GetSPT(v) < 0)) {
+                        ws.SetCost(v, GCost);
+                        pq.ChangePriority(v, GCost + HCost);
+                        ws.SetFrontier(v, e);
+                    }
+                }
+            }
+
+            //the abstract edge exists only if the cluster connects its ends
+            assert ws.GetSPT(to) >= 0 : "<Graph_SearchHPAStar_TS>: no path inside the cluster";
+            final int at = m_PathEdges.size();
+            for (int nd = to; nd != from; nd = m_Graph.EdgeFrom(ws.GetSPT(nd))) {
+                m_PathEdges.add(at, ws.GetSPT(nd));
+            }
+        }
+
+        /**
+         * returns the edges of the refined path (indexed by the node they lead
+         * to)
          */
         @Override
         public List<GraphEdge> GetSPT() {
-            return m_ShortestPathTree;
+            List<GraphEdge> edges = new ArrayList<GraphEdge>(m_Graph.NumNodes());
+            for (int nd = 0; nd < m_Graph.NumNodes(); ++nd) {
+                edges.add(null);
+            }
+            for (int e : m_PathEdges) {
+                edges.set(m_Graph.EdgeTo(e), m_Graph.GetEdge(e));
+            }
+            return edges;
         }
 
         /**
@@ -415,57 +653,435 @@ final public class TimeSlicedGraphAlgorithms {
         @Override
         public List<Integer> GetPathToTarget() {
             List<Integer> path = new LinkedList<Integer>();
-
-            //just return an empty path if no target or no path found
-            if (m_iTarget < 0) {
+            if (m_AbstractPath == null) {
                 return path;
             }
 
-            int nd = m_iTarget;
+            path.add(m_iSource);
+            for (int e : m_PathEdges) {
+                path.add(m_Graph.EdgeTo(e));
+            }
+            return path;
+        }
 
-            path.add(nd);
+        /**
+         * returns the path as a list of PathEdges
+         */
+        @Override
+        public List<PathEdge> GetPathAsPathEdges() {
+            List<PathEdge> path = new LinkedList<PathEdge>();
+            for (int e : m_PathEdges) {
+                path.add(new PathEdge(m_Graph.GetNode(m_Graph.EdgeFrom(e)).Pos(),
+                        m_Graph.GetNode(m_Graph.EdgeTo(e)).Pos(),
+                        m_Graph.EdgeFlags(e),
+                        m_Graph.EdgeIDofIntersectingEntity(e)));
+            }
+            return path;
+        }
+
+        /**
+         * returns the total cost to the target
+         */
+        @Override
+        public double GetCostToTarget() {
+            return m_Workspace.GetCost(m_iAbstractTarget);
+        }
+    }
+
+    /**
+     * a search whose path is already known (see PathCache and
+     * Raven_Map.GetItemField). It finds the target (or finds there is no
+     * path, if the nodes are null) in its first cycle, so the result is
+     * handed over the same way as the result of any other search
+     */
+    public static class Graph_SearchCached extends Graph_SearchTimeSliced<GraphEdge> {
+
+        private final CompactGraph m_Graph;
+        /**
+         * the nodes the path goes through, from the source to the target
+         */
+        private final int[] m_Nodes;
+        private final double m_dCost;
+
+        public Graph_SearchCached(final CompactGraph G,
+                SearchType type,
+                int[] nodes,
+                double cost) {
+            super(type);
+            m_Graph = G;
+            m_Nodes = nodes;
+            m_dCost = cost;
+        }
 
-            while ((nd != m_iSource) && (m_ShortestPathTree.get(nd) != null)) {
-                nd = m_ShortestPathTree.get(nd).From();
+        @Override
+        public int CycleOnce() {
+            return m_Nodes != null ? target_found : target_not_found;
+        }
 
-                path.add(0, nd);
+        /**
+         * returns the edges of the path (indexed by the node they lead to)
+         */
+        @Override
+        public List<GraphEdge> GetSPT() {
+            List<GraphEdge> edges = new ArrayList<GraphEdge>(m_Graph.NumNodes());
+            for (int nd = 0; nd < m_Graph.NumNodes(); ++nd) {
+                edges.add(null);
             }
+            for (int i = 1; i < m_Nodes.length; ++i) {
+                edges.set(m_Nodes[i], m_Graph.GetEdge(m_Graph.FindEdge(m_Nodes[i - 1], m_Nodes[i])));
+            }
+            return edges;
+        }
 
+        @Override
+        public List<Integer> GetPathToTarget() {
+            List<Integer> path = new LinkedList<Integer>();
+            for (int nd : m_Nodes) {
+                path.add(nd);
+            }
             return path;
         }
 
         /**
-         * returns the path as a list of PathEdges
+         * returns the path as a list of new PathEdges (the path smoothing
+         * changes the edges it is given)
          */
         @Override
         public List<PathEdge> GetPathAsPathEdges() {
             List<PathEdge> path = new LinkedList<PathEdge>();
+            for (int i = 1; i < m_Nodes.length; ++i) {
+                int e = m_Graph.FindEdge(m_Nodes[i - 1], m_Nodes[i]);
+                path.add(new PathEdge(m_Graph.GetNode(m_Graph.EdgeFrom(e)).Pos(),
+                        m_Graph.GetNode(m_Graph.EdgeTo(e)).Pos(),
+                        m_Graph.EdgeFlags(e),
+                        m_Graph.EdgeIDofIntersectingEntity(e)));
+            }
+            return path;
+        }
 
-            //just return an empty path if no target or no path found
-            if (m_iTarget < 0) {
-                return path;
+        @Override
+        public double GetCostToTarget() {
+            return m_dCost;
+        }
+    }
+
+    /**
+     * an incremental A* search (D* Lite) over a graph whose edge costs change
+     * (see DynamicEdgeCosts). The search runs backwards from the target, so
+     * it can be asked again for a path to the same target from another
+     * source, and when edge costs have changed since the last path only the
+     * nodes whose cost to the target changed are searched again. Asking for
+     * a path to another target starts a new search.
+     *
+     * The search copies the dynamic edge costs in SetEndPoints and only
+     * reads its copy while it runs, so it can run on another thread while the
+     * game changes the costs. The graph must be undirected and the costs may
+     * only rise above the costs of the graph (so the heuristic stays
+     * consistent).
+     */
+    public static class Graph_SearchDStarLite_TS<heuristic extends AStarHeuristicPolicies.Heuristic>
+            extends Graph_SearchTimeSliced<GraphEdge> {
+
+        private final CompactGraph m_Graph;
+        private final DynamicEdgeCosts m_Costs;
+        /**
+         * the costs of the dynamic edges as the search knows them
+         */
+        private final double[] m_KnownCosts;
+        heuristic Heuristic;
+        /**
+         * the cost to the target of every node (G) and the cost according to
+         * its neighbours (rhs). A node is consistent when the two are equal.
+         * Only the values written in the current generation are valid, the
+         * others read as infinity
+         */
+        private final double[] m_G;
+        private final double[] m_Rhs;
+        private final int[] m_Generation;
+        private int m_iGeneration = 0;
+        /**
+         * the inconsistent nodes
+         */
+        private final IndexedPriorityQLowKeyPair m_PQ;
+        private int m_iSource = -1;
+        private int m_iTarget = -1;
+        /**
+         * the source the keys of the queue were calculated from and the amount
+         * they have to be raised by since then
+         */
+        private int m_iLastSource = -1;
+        private double m_dKeyModifier = 0.0;
+        private static final double KeyTolerance = 1e-3;
+
+        public Graph_SearchDStarLite_TS(final DynamicEdgeCosts costs, heuristic h) {
+            super(SearchType.AStar);
+            Heuristic = h;
+
+            m_Graph = costs.Graph();
+            m_Costs = costs;
+            m_KnownCosts = new double[costs.NumDynamicEdges()];
+            m_G = new double[m_Graph.NumNodes()];
+            m_Rhs = new double[m_Graph.NumNodes()];
+            m_Generation = new int[m_Graph.NumNodes()];
+            m_PQ = new IndexedPriorityQLowKeyPair(m_Graph.NumNodes());
+        }
+
+        /**
+         * the memory of the search is kept for the next request, so there is
+         * nothing to release
+         */
+        @Override
+        public void Release() {
+        }
+
+        /**
+         * prepares the search for a path from source to target. If the
+         * target is the same as the last time the previous search is reused
+         * and repaired where the edge costs have changed since
+         */
+        public void SetEndPoints(int source, int target) {
+            if (target != m_iTarget) {
+                //start a new search
+                ++m_iGeneration;
+                m_PQ.Clear();
+                m_iTarget = target;
+                m_iSource = m_iLastSource = source;
+                m_dKeyModifier = 0.0;
+                for (int i = 0; i < m_KnownCosts.length; ++i) {
+                    m_KnownCosts[i] = m_Costs.DynamicCost(i);
+                }
+
+                SetRhs(m_iTarget, 0.0);
+                m_PQ.insert(m_iTarget, Heuristic.Calculate(m_Graph, m_iSource, m_iTarget), 0.0);
+                return;
+            }
+
+            //the keys in the queue were calculated from the last source. They
+            //are raised by at most the heuristic cost between the sources
+            if (source != m_iSource) {
+                m_dKeyModifier += Heuristic.Calculate(m_Graph, m_iLastSource, source);
+                m_iSource = m_iLastSource = source;
+            }
+
+            //the nodes an edge of changed cost leads from may have a new cost
+            for (int i = 0; i < m_KnownCosts.length; ++i) {
+                if (m_KnownCosts[i] != m_Costs.DynamicCost(i)) {
+                    m_KnownCosts[i] = m_Costs.DynamicCost(i);
+                    UpdateNode(m_Graph.EdgeFrom(m_Costs.DynamicEdge(i)));
+                }
+            }
+        }
+
+        private double G(int nd) {
+            return m_Generation[nd] == m_iGeneration ? m_G[nd] : Double.POSITIVE_INFINITY;
+        }
+
+        private double Rhs(int nd) {
+            return m_Generation[nd] == m_iGeneration ? m_Rhs[nd] : Double.POSITIVE_INFINITY;
+        }
+
+        private void Touch(int nd) {
+            if (m_Generation[nd] != m_iGeneration) {
+                m_Generation[nd] = m_iGeneration;
+                m_G[nd] = Double.POSITIVE_INFINITY;
+                m_Rhs[nd] = Double.POSITIVE_INFINITY;
             }
+        }
+
+        private void SetG(int nd, double cost) {
+            Touch(nd);
+            m_G[nd] = cost;
+        }
+
+        private void SetRhs(int nd, double cost) {
+            Touch(nd);
+            m_Rhs[nd] = cost;
+        }
 
-            int nd = m_iTarget;
+        private double EdgeCost(int e) {
+            final int i = m_Costs.DynamicIndexOf(e);
+            return i < 0 ? m_Graph.EdgeCost(e) : m_KnownCosts[i];
+        }
 
-            while ((nd != m_iSource) && (m_ShortestPathTree.get(nd) != null)) {
-                path.add(0, new PathEdge(m_Graph.GetNode(m_ShortestPathTree.get(nd).From()).Pos(),
-                        m_Graph.GetNode(m_ShortestPathTree.get(nd).To()).Pos(),
-                        ((NavGraphEdge) m_ShortestPathTree.get(nd)).Flags(),
-                        ((NavGraphEdge) m_ShortestPathTree.get(nd)).IDofIntersectingEntity()));
+        private double Key1(int nd) {
+            return Math.min(G(nd), Rhs(nd)) + Heuristic.Calculate(m_Graph, m_iSource, nd) + m_dKeyModifier;
+        }
 
-                nd = m_ShortestPathTree.get(nd).From();
+        private double Key2(int nd) {
+            return Math.min(G(nd), Rhs(nd));
+        }
+
+        /**
+         * recalculates the rhs cost of a node from its neighbours and puts
+         * it on the queue if it is inconsistent
+         */
+        private void UpdateNode(int nd) {
+            if (nd != m_iTarget) {
+                double rhs = Double.POSITIVE_INFINITY;
+                final int LastEdge = m_Graph.FirstEdge(nd + 1);
+                for (int e = m_Graph.FirstEdge(nd); e < LastEdge; ++e) {
+                    rhs = Math.min(rhs, EdgeCost(e) + G(m_Graph.EdgeTo(e)));
+                }
+                SetRhs(nd, rhs);
             }
 
-            return path;
+            if (G(nd) != Rhs(nd)) {
+                if (m_PQ.contains(nd)) {
+                    m_PQ.ChangePriority(nd, Key1(nd), Key2(nd));
+                } else {
+                    m_PQ.insert(nd, Key1(nd), Key2(nd));
+                }
+            } else if (m_PQ.contains(nd)) {
+                m_PQ.remove(nd);
+            }
         }
 
         /**
-         * returns the total cost to the target
+         * updates the neighbours of a node whose cost has changed
+         */
+        private void UpdateNeighbours(int nd) {
+            final int LastEdge = m_Graph.FirstEdge(nd + 1);
+            for (int e = m_Graph.FirstEdge(nd); e < LastEdge; ++e) {
+                UpdateNode(m_Graph.EdgeTo(e));
+            }
+        }
+
+        /**
+         * @return true if the key pair (k1, k2) comes before the key pair of
+         * the source (s1, s2). The costs of the edges in the map files are
+         * rounded, so the heuristic may overestimate the cost of an edge by
+         * a tiny amount and the first keys closer than KeyTolerance count as
+         * equal (searching a little longer never gives a wrong path)
+         */
+        private static boolean isBefore(double k1, double k2, double s1, double s2) {
+            if (k1 == s1 || Math.abs(k1 - s1) <= KeyTolerance) {
+                return k2 < s2;
+            }
+            return k1 < s1;
+        }
+
+        /**
+         * When called, this method makes the inconsistent node with the
+         * lowest key consistent. The method returns an enumerated value
+         * (target_found, target_not_found, search_incomplete) indicating the
+         * status of the search. (The target is found when the cost of the
+         * source is known)
          */
+        @Override
+        public int CycleOnce() {
+            //the search is over when no node in the queue can change the cost
+            //of the source
+            if (m_PQ.empty()
+                    || (Rhs(m_iSource) == G(m_iSource) && !isBefore(m_PQ.PeekKey1(),
+                    m_PQ.PeekKey2(), Key1(m_iSource), Key2(m_iSource)))) {
+                return G(m_iSource) < Double.POSITIVE_INFINITY ? target_found : target_not_found;
+            }
+
+            final int nd = m_PQ.Peek();
+            final double OldKey1 = m_PQ.PeekKey1();
+            final double OldKey2 = m_PQ.PeekKey2();
+
+            if (OldKey1 < Key1(nd) || (OldKey1 == Key1(nd) && OldKey2 < Key2(nd))) {
+                //the key was calculated from an older source
+                m_PQ.ChangePriority(nd, Key1(nd), Key2(nd));
+            } else if (G(nd) > Rhs(nd)) {
+                //the node got cheaper
+                SetG(nd, Rhs(nd));
+                m_PQ.remove(nd);
+                UpdateNeighbours(nd);
+            } else {
+                //the node got more expensive
+                SetG(nd, Double.POSITIVE_INFINITY);
+                UpdateNode(nd);
+                UpdateNeighbours(nd);
+            }
+
+            return search_incomplete;
+        }
+
+        /**
+         * @return the edge leaving nd that starts the cheapest path to the
+         * target, or -1 if there is none
+         */
+        private int NextEdge(int nd) {
+            int BestEdge = -1;
+            double BestCost = Double.POSITIVE_INFINITY;
+            final int LastEdge = m_Graph.FirstEdge(nd + 1);
+            for (int e = m_Graph.FirstEdge(nd); e < LastEdge; ++e) {
+                double cost = EdgeCost(e) + G(m_Graph.EdgeTo(e));
+                if (cost < BestCost) {
+                    BestCost = cost;
+                    BestEdge = e;
+                }
+            }
+            return BestEdge;
+        }
+
+        /**
+         * @return the edges of the path from the source to the target
+         */
+        private List<Integer> PathEdges() {
+            List<Integer> edges = new ArrayList<Integer>();
+            if (G(m_iSource) == Double.POSITIVE_INFINITY) {
+                return edges;
+            }
+
+            int nd = m_iSource;
+            while (nd != m_iTarget && edges.size() < m_Graph.NumNodes()) {
+                int e = NextEdge(nd);
+                if (e < 0) {
+                    break;
+                }
+                edges.add(e);
+                nd = m_Graph.EdgeTo(e);
+            }
+            return edges;
+        }
+
+        /**
+         * returns the edges of the path (indexed by the node they lead to)
+         */
+        @Override
+        public List<GraphEdge> GetSPT() {
+            List<GraphEdge> edges = new ArrayList<GraphEdge>(m_Graph.NumNodes());
+            for (int nd = 0; nd < m_Graph.NumNodes(); ++nd) {
+                edges.add(null);
+            }
+            for (int e : PathEdges()) {
+                edges.set(m_Graph.EdgeTo(e), m_Graph.GetEdge(e));
+            }
+            return edges;
+        }
+
+        @Override
+        public List<Integer> GetPathToTarget() {
+            List<Integer> path = new LinkedList<Integer>();
+            if (G(m_iSource) == Double.POSITIVE_INFINITY) {
+                return path;
+            }
+
+            path.add(m_iSource);
+            for (int e : PathEdges()) {
+                path.add(m_Graph.EdgeTo(e));
+            }
+            return path;
+        }
+
+        @Override
+        public List<PathEdge> GetPathAsPathEdges() {
+            List<PathEdge> path = new LinkedList<PathEdge>();
+            for (int e : PathEdges()) {
+                path.add(new PathEdge(m_Graph.GetNode(m_Graph.EdgeFrom(e)).Pos(),
+                        m_Graph.GetNode(m_Graph.EdgeTo(e)).Pos(),
+                        m_Graph.EdgeFlags(e),
+                        m_Graph.EdgeIDofIntersectingEntity(e)));
+            }
+            return path;
+        }
+
         @Override
         public double GetCostToTarget() {
-            return m_CostToThisNode.get(m_iTarget);
+            return G(m_iSource);
         }
     }
-}
\ No newline at end of file
+}
@@ -11,6 +11,8 @@ import static Raven.Raven_ObjectEnumerations.type_health;
 import static Raven.lua.Raven_Scriptor.script;
 import common.D2.Vector2D;
 import static common.misc.Cgdi.gdi;
+import common.misc.ScannerTokenReader;
+import common.misc.TokenReader;
 import static common.misc.Stream_Utility_function.GetValueFromStream_Int;
 import common.Triggers.Trigger_Respawning;
 import java.io.InputStream;
@@ -24,6 +26,10 @@ public class Trigger_HealthGiver extends Trigger_Respawning<Raven_Bot> {
     private int m_iHealthGiven;
 
     public Trigger_HealthGiver(Scanner datafile) {
+        this(new ScannerTokenReader(datafile));
+    }
+
+    public Trigger_HealthGiver(TokenReader datafile) {
 
         super(GetValueFromStream_Int(datafile));
         Read(datafile);
@@ -43,13 +49,13 @@ public class Trigger_HealthGiver extends Trigger_Respawning<Raven_Bot> {
     @Override
     public void Render() {
         if (isActive()) {
-            gdi.BlackPen();
-            gdi.WhiteBrush();
+            gdi().BlackPen();
+            gdi().WhiteBrush();
             final int sz = 5;
-            gdi.Rect(Pos().x - sz, Pos().y - sz, Pos().x + sz + 1, Pos().y + sz + 1);
-            gdi.RedPen();
-            gdi.Line(Pos().x, Pos().y - sz, Pos().x, Pos().y + sz + 1);
-            gdi.Line(Pos().x - sz, Pos().y, Pos().x + sz + 1, Pos().y);
+            gdi().Rect(Pos().x - sz, Pos().y - sz, Pos().x + sz + 1, Pos().y + sz + 1);
+            gdi().RedPen();
+            gdi().Line(Pos().x, Pos().y - sz, Pos().x, Pos().y + sz + 1);
+            gdi().Line(Pos().x - sz, Pos().y, Pos().x + sz + 1, Pos().y);
         }
     }
 
@@ -60,6 +66,11 @@ public class Trigger_HealthGiver extends Trigger_Respawning<Raven_Bot> {
     
     @Override
     public void Read(Scanner sc) {
+        Read(new ScannerTokenReader(sc));
+    }
+
+    @Override
+    public void Read(TokenReader sc) {
         try {
             double x, y, r;
             int GraphNodeIndex;
@@ -75,9 +86,9 @@ public class Trigger_HealthGiver extends Trigger_Respawning<Raven_Bot> {
             SetGraphNodeIndex(GraphNodeIndex);
 
             //create this trigger's region of fluence
-            AddCircularTriggerRegion(Pos(), script.GetDouble("DefaultGiverTriggerRange"));
+            AddCircularTriggerRegion(Pos(), script().GetDouble("DefaultGiverTriggerRange"));
 
-            SetRespawnDelay((int) (script.GetDouble("Health_RespawnDelay") * FrameRate));
+            SetRespawnDelay((int) (script().GetDouble("Health_RespawnDelay") * FrameRate));
             SetEntityType(type_health);
         } catch (Exception ex) {
             throw new RuntimeException(ex);
@@ -17,6 +17,8 @@ import static common.Messaging.MessageDispatcher.SEND_MSG_IMMEDIATELY;
 import common.Messaging.Telegram;
 import common.Triggers.Trigger;
 import static common.misc.Cgdi.gdi;
+import common.misc.ScannerTokenReader;
+import common.misc.TokenReader;
 import static common.misc.Stream_Utility_function.GetValueFromStream_Int;
 import java.io.DataInputStream;
 import java.io.IOException;
@@ -36,6 +38,10 @@ public class Trigger_OnButtonSendMsg<entity_type extends BaseGameEntity> extends
     private int m_iMessageToSend;
 
     public Trigger_OnButtonSendMsg(Scanner datafile) {
+        this(new ScannerTokenReader(datafile));
+    }
+
+    public Trigger_OnButtonSendMsg(TokenReader datafile) {
         super(GetValueFromStream_Int(datafile));
         Read(datafile);
     }
@@ -44,7 +50,7 @@ public class Trigger_OnButtonSendMsg<entity_type extends BaseGameEntity> extends
     public void Try(entity_type pEnt) {
 
         if (isTouchingTrigger(pEnt.Pos(), pEnt.BRadius())) {
-            Dispatcher.DispatchMsg(SEND_MSG_IMMEDIATELY,
+            Dispatcher().DispatchMsg(SEND_MSG_IMMEDIATELY,
                     this.ID(),
                     m_iReceiver,
                     message_type.valueOf(m_iMessageToSend),
@@ -59,14 +65,14 @@ public class Trigger_OnButtonSendMsg<entity_type extends BaseGameEntity> extends
 
     @Override
     public void Render() {
-        gdi.OrangePen();
+        gdi().OrangePen();
 
         double sz = BRadius();
 
-        gdi.Line(Pos().x - sz, Pos().y - sz, Pos().x + sz, Pos().y - sz);
-        gdi.Line(Pos().x + sz, Pos().y - sz, Pos().x + sz, Pos().y + sz);
-        gdi.Line(Pos().x + sz, Pos().y + sz, Pos().x - sz, Pos().y + sz);
-        gdi.Line(Pos().x - sz, Pos().y + sz, Pos().x - sz, Pos().y - sz);
+        gdi().Line(Pos().x - sz, Pos().y - sz, Pos().x + sz, Pos().y - sz);
+        gdi().Line(Pos().x + sz, Pos().y - sz, Pos().x + sz, Pos().y + sz);
+        gdi().Line(Pos().x + sz, Pos().y + sz, Pos().x - sz, Pos().y + sz);
+        gdi().Line(Pos().x - sz, Pos().y + sz, Pos().x - sz, Pos().y - sz);
     }
 
     @Override
@@ -80,6 +86,11 @@ public class Trigger_OnButtonSendMsg<entity_type extends BaseGameEntity> extends
     
     @Override
     public void Read(Scanner is) {
+        Read(new ScannerTokenReader(is));
+    }
+
+    @Override
+    public void Read(TokenReader is) {
         try {
             //grab the id of the entity it messages
             m_iReceiver = is.nextInt();
@@ -28,7 +28,7 @@ public class Trigger_SoundNotify extends Trigger_LimitedLifetime<Raven_Bot> {
     //------------------------------ ctor -----------------------------------------
     //-----------------------------------------------------------------------------
     public Trigger_SoundNotify(Raven_Bot source, double range) {
-        super(FrameRate / script.GetInt("Bot_TriggerUpdateFreq"));
+        super(FrameRate / script().GetInt("Bot_TriggerUpdateFreq"));
         m_pSoundSource = source;
 
         //set position and range
@@ -48,7 +48,7 @@ public class Trigger_SoundNotify extends Trigger_LimitedLifetime<Raven_Bot> {
     public void Try(Raven_Bot pBot) {
         //is this bot within range of this sound
         if (isTouchingTrigger(pBot.Pos(), pBot.BRadius())) {
-            Dispatcher.DispatchMsg(SEND_MSG_IMMEDIATELY,
+            Dispatcher().DispatchMsg(SEND_MSG_IMMEDIATELY,
                     SENDER_ID_IRRELEVANT,
                     pBot.ID(),
                     Msg_GunshotSound,
@@ -13,6 +13,8 @@ import static common.D2.Transformation.WorldTransform;
 import common.D2.Vector2D;
 import common.Triggers.Trigger_Respawning;
 import static common.misc.Cgdi.gdi;
+import common.misc.ScannerTokenReader;
+import common.misc.TokenReader;
 import static common.misc.Stream_Utility_function.GetValueFromStream_Int;
 import java.io.DataInputStream;
 import java.io.IOException;
@@ -31,6 +33,10 @@ public class Trigger_WeaponGiver extends Trigger_Respawning<Raven_Bot> {
      * this type of trigger is created when reading a map file
      */
     public Trigger_WeaponGiver(Scanner datafile) {
+        this(new ScannerTokenReader(datafile));
+    }
+
+    public Trigger_WeaponGiver(TokenReader datafile) {
 
         super(GetValueFromStream_Int(datafile));
         Read(datafile);
@@ -72,22 +78,22 @@ public class Trigger_WeaponGiver extends Trigger_Respawning<Raven_Bot> {
         if (isActive()) {
             switch (EntityType()) {
                 case type_rail_gun: {
-                    gdi.BluePen();
-                    gdi.BlueBrush();
-                    gdi.Circle(Pos(), 3);
-                    gdi.ThickBluePen();
-                    gdi.Line(Pos(), new Vector2D(Pos().x, Pos().y - 9));
+                    gdi().BluePen();
+                    gdi().BlueBrush();
+                    gdi().Circle(Pos(), 3);
+                    gdi().ThickBluePen();
+                    gdi().Line(Pos(), new Vector2D(Pos().x, Pos().y - 9));
                 }
 
                 break;
 
                 case type_shotgun: {
 
-                    gdi.BlackBrush();
-                    gdi.BrownPen();
+                    gdi().BlackBrush();
+                    gdi().BrownPen();
                     final double sz = 3.0;
-                    gdi.Circle(Pos().x - sz, Pos().y, sz);
-                    gdi.Circle(Pos().x + sz, Pos().y, sz);
+                    gdi().Circle(Pos().x - sz, Pos().y, sz);
+                    gdi().Circle(Pos().x + sz, Pos().y, sz);
                 }
 
                 break;
@@ -102,8 +108,8 @@ public class Trigger_WeaponGiver extends Trigger_Respawning<Raven_Bot> {
                             facing.Perp(),
                             new Vector2D(2.5, 2.5));
 
-                    gdi.RedPen();
-                    gdi.ClosedShape(m_vecRLVBTrans);
+                    gdi().RedPen();
+                    gdi().ClosedShape(m_vecRLVBTrans);
                 }
 
                 break;
@@ -119,6 +125,11 @@ public class Trigger_WeaponGiver extends Trigger_Respawning<Raven_Bot> {
     
     @Override
     public void Read(Scanner in) {
+        Read(new ScannerTokenReader(in));
+    }
+
+    @Override
+    public void Read(TokenReader in) {
         try {
             double x, y, r;
             int GraphNodeIndex;
@@ -133,10 +144,10 @@ public class Trigger_WeaponGiver extends Trigger_Respawning<Raven_Bot> {
             SetGraphNodeIndex(GraphNodeIndex);
 
             //create this trigger's region of fluence
-            AddCircularTriggerRegion(Pos(), script.GetDouble("DefaultGiverTriggerRange"));
+            AddCircularTriggerRegion(Pos(), script().GetDouble("DefaultGiverTriggerRange"));
 
 
-            SetRespawnDelay((int) (script.GetDouble("Weapon_RespawnDelay") * FrameRate));
+            SetRespawnDelay((int) (script().GetDouble("Weapon_RespawnDelay") * FrameRate));
         } catch (Exception ex) {
             throw new RuntimeException(ex);
         }
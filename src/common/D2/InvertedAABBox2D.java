@@ -59,13 +59,13 @@ public class InvertedAABBox2D {
     }
 
     public void Render(boolean RenderCenter) {
-        gdi.Line((int) Left(), (int) Top(), (int) Right(), (int) Top());
-        gdi.Line((int) Left(), (int) Bottom(), (int) Right(), (int) Bottom());
-        gdi.Line((int) Left(), (int) Top(), (int) Left(), (int) Bottom());
-        gdi.Line((int) Right(), (int) Top(), (int) Right(), (int) Bottom());
+        gdi().Line((int) Left(), (int) Top(), (int) Right(), (int) Top());
+        gdi().Line((int) Left(), (int) Bottom(), (int) Right(), (int) Bottom());
+        gdi().Line((int) Left(), (int) Top(), (int) Left(), (int) Bottom());
+        gdi().Line((int) Right(), (int) Top(), (int) Right(), (int) Bottom());
 
         if (RenderCenter) {
-            gdi.Circle(m_vCenter, 5);
+            gdi().Circle(m_vCenter, 5);
         }
     }
 }
\ No newline at end of file
@@ -12,6 +12,8 @@ import java.io.PrintStream;
 import java.io.InputStream;
 import static common.D2.Vector2D.*;
 import static common.misc.Cgdi.gdi;
+import common.misc.ScannerTokenReader;
+import common.misc.TokenReader;
 
 public class Wall2D {
 
@@ -49,19 +51,23 @@ public class Wall2D {
         Read(in);
     }
 
+    public Wall2D(TokenReader in) {
+        Read(in);
+    }
+
     public void Render() {
         Render(false);
     }
 
     public void Render(boolean RenderNormals) {
-        gdi.Line(m_vA, m_vB);
+        gdi().Line(m_vA, m_vB);
 
         //render the normals if rqd
         if (RenderNormals) {
             int MidX = (int) ((m_vA.x + m_vB.x) / 2);
             int MidY = (int) ((m_vA.y + m_vB.y) / 2);
 
-            gdi.Line(MidX, MidY, (int) (MidX + (m_vN.x * 5)), (int) (MidY + (m_vN.y * 5)));
+            gdi().Line(MidX, MidY, (int) (MidX + (m_vN.x * 5)), (int) (MidY + (m_vN.y * 5)));
         }
     }
 
@@ -108,6 +114,10 @@ public class Wall2D {
     }
     
     public void Read(Scanner br) {
+        Read(new ScannerTokenReader(br));
+    }
+
+    public void Read(TokenReader br) {
         double x, y;
 
         x = br.nextDouble();
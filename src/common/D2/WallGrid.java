@@ -0,0 +1,246 @@
+/**
+ * Desc: a uniform grid of cells used to speed up the wall intersection tests
+ * (see WallIntersectionTests). The static walls of a map are put into every
+ * cell they pass through when the grid is created and stored in one flat
+ * array, so a query only tests the walls of the cells the query shape covers
+ * instead of every wall of the map.
+ *
+ * Walls that move (the walls of the sliding doors) must not be put into the
+ * cells. They are kept in a small list of dynamic walls that every query
+ * tests.
+ *
+ * A wall may be stored in several cells so the queries can test it more than
+ * once. The grid is never modified by the queries, so any number of them can
+ * run at the same time.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.D2;
+
+import static common.D2.geometry.LineIntersection2D;
+import static common.D2.geometry.LineSegmentCircleIntersection;
+import common.misc.CppToJava.DoubleRef;
+import static common.misc.utils.MaxDouble;
+import java.util.ArrayList;
+import java.util.List;
+
+public class WallGrid {
+
+    //the number of cells the space is divided up into
+    private final int m_iNumCellsX;
+    private final int m_iNumCellsY;
+    private final double m_dCellSizeX;
+    private final double m_dCellSizeY;
+    //how far a shape is grown before the cells it covers are found. Makes sure
+    //a wall and a segment crossing it at a cell border share a cell
+    private final double m_dEpsilon;
+    /**
+     * the walls of cell i are m_CellWalls[m_CellStart[i]] up to (but not
+     * including) m_CellWalls[m_CellStart[i + 1]]
+     */
+    private final int[] m_CellStart;
+    private final Wall2D[] m_CellWalls;
+    private final List<Wall2D> m_DynamicWalls = new ArrayList<Wall2D>();
+
+    /**
+     * partitions the static walls of a space of the given size into a grid of
+     * cellsX * cellsY cells
+     */
+    public WallGrid(double width, double height, int cellsX, int cellsY,
+            List<? extends Wall2D> StaticWalls) {
+        assert cellsX > 0 && cellsY > 0 : "<WallGrid>: invalid number of cells";
+        m_iNumCellsX = cellsX;
+        m_iNumCellsY = cellsY;
+        m_dCellSizeX = width / cellsX;
+        m_dCellSizeY = height / cellsY;
+        m_dEpsilon = 1e-6 * Math.max(m_dCellSizeX, m_dCellSizeY);
+
+        //first count the walls of every cell, then fill the cells
+        int[] span = new int[2];
+        m_CellStart = new int[cellsX * cellsY + 1];
+        for (Wall2D w : StaticWalls) {
+            for (int y = MinRow(w.From(), w.To()); y <= MaxRow(w.From(), w.To()); ++y) {
+                if (RowSpan(w.From(), w.To(), y, span)) {
+                    for (int x = span[0]; x <= span[1]; ++x) {
+                        ++m_CellStart[x + y * cellsX + 1];
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < cellsX * cellsY; ++i) {
+            m_CellStart[i + 1] += m_CellStart[i];
+        }
+
+        m_CellWalls = new Wall2D[m_CellStart[cellsX * cellsY]];
+        int[] fill = new int[cellsX * cellsY];
+        System.arraycopy(m_CellStart, 0, fill, 0, fill.length);
+        for (Wall2D w : StaticWalls) {
+            for (int y = MinRow(w.From(), w.To()); y <= MaxRow(w.From(), w.To()); ++y) {
+                if (RowSpan(w.From(), w.To(), y, span)) {
+                    for (int x = span[0]; x <= span[1]; ++x) {
+                        m_CellWalls[fill[x + y * cellsX]++] = w;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * adds a wall that may move after it has been added. Dynamic walls are
+     * tested by every query
+     */
+    public void AddDynamicWall(Wall2D w) {
+        m_DynamicWalls.add(w);
+    }
+
+    private int CellX(double x) {
+        int cx = (int) Math.floor(x / m_dCellSizeX);
+        return cx < 0 ? 0 : (cx >= m_iNumCellsX ? m_iNumCellsX - 1 : cx);
+    }
+
+    private int CellY(double y) {
+        int cy = (int) Math.floor(y / m_dCellSizeY);
+        return cy < 0 ? 0 : (cy >= m_iNumCellsY ? m_iNumCellsY - 1 : cy);
+    }
+
+    private int MinRow(Vector2D A, Vector2D B) {
+        return CellY(Math.min(A.y, B.y) - m_dEpsilon);
+    }
+
+    private int MaxRow(Vector2D A, Vector2D B) {
+        return CellY(Math.max(A.y, B.y) + m_dEpsilon);
+    }
+
+    /**
+     * finds the columns of the cells of row y the segment AB passes through
+     * and stores the first and the last one in span. The border rows also
+     * cover the space above and below the grid.
+     *
+     * @return false if the segment does not enter the row
+     */
+    private boolean RowSpan(Vector2D A, Vector2D B, int y, int[] span) {
+        double top = y == 0 ? -MaxDouble : y * m_dCellSizeY - m_dEpsilon;
+        double bottom = y == m_iNumCellsY - 1 ? MaxDouble : (y + 1) * m_dCellSizeY + m_dEpsilon;
+
+        //clip the segment to the row
+        double t0 = 0.0, t1 = 1.0;
+        double dy = B.y - A.y;
+        if (dy == 0) {
+            if (A.y < top || A.y > bottom) {
+                return false;
+            }
+        } else {
+            double ta = (top - A.y) / dy;
+            double tb = (bottom - A.y) / dy;
+            t0 = Math.max(t0, Math.min(ta, tb));
+            t1 = Math.min(t1, Math.max(ta, tb));
+            if (t0 > t1) {
+                return false;
+            }
+        }
+
+        double x0 = A.x + t0 * (B.x - A.x);
+        double x1 = A.x + t1 * (B.x - A.x);
+        span[0] = CellX(Math.min(x0, x1) - m_dEpsilon);
+        span[1] = CellX(Math.max(x0, x1) + m_dEpsilon);
+        return true;
+    }
+
+    /**
+     * @return true if the line segment from-to intersects any wall
+     */
+    public boolean ObstructsLineSegment(Vector2D from, Vector2D to) {
+        for (int i = 0; i < m_DynamicWalls.size(); ++i) {
+            Wall2D w = m_DynamicWalls.get(i);
+            if (LineIntersection2D(from, to, w.From(), w.To())) {
+                return true;
+            }
+        }
+
+        int[] span = new int[2];
+        for (int y = MinRow(from, to); y <= MaxRow(from, to); ++y) {
+            if (!RowSpan(from, to, y, span)) {
+                continue;
+            }
+            for (int cell = span[0] + y * m_iNumCellsX; cell <= span[1] + y * m_iNumCellsX; ++cell) {
+                for (int i = m_CellStart[cell]; i < m_CellStart[cell + 1]; ++i) {
+                    Wall2D w = m_CellWalls[i];
+                    if (LineIntersection2D(from, to, w.From(), w.To())) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * finds the closest point where the segment AB intersects a wall. The
+     * point is stored in ip and its distance from A in distance.
+     *
+     * @return false if no intersection point found
+     */
+    public boolean ClosestIntersection(Vector2D A, Vector2D B, DoubleRef distance, Vector2D ip) {
+        distance.set(MaxDouble);
+        DoubleRef dist = new DoubleRef(0.0);
+        Vector2D point = new Vector2D();
+
+        for (int i = 0; i < m_DynamicWalls.size(); ++i) {
+            Wall2D w = m_DynamicWalls.get(i);
+            if (LineIntersection2D(A, B, w.From(), w.To(), dist, point)) {
+                if (dist.get() < distance.toDouble()) {
+                    distance.set(dist.toDouble());
+                    ip.set(point);
+                }
+            }
+        }
+
+        int[] span = new int[2];
+        for (int y = MinRow(A, B); y <= MaxRow(A, B); ++y) {
+            if (!RowSpan(A, B, y, span)) {
+                continue;
+            }
+            for (int cell = span[0] + y * m_iNumCellsX; cell <= span[1] + y * m_iNumCellsX; ++cell) {
+                for (int i = m_CellStart[cell]; i < m_CellStart[cell + 1]; ++i) {
+                    Wall2D w = m_CellWalls[i];
+                    if (LineIntersection2D(A, B, w.From(), w.To(), dist, point)) {
+                        if (dist.get() < distance.toDouble()) {
+                            distance.set(dist.toDouble());
+                            ip.set(point);
+                        }
+                    }
+                }
+            }
+        }
+
+        return distance.toDouble() < MaxDouble;
+    }
+
+    /**
+     * @return true if any walls intersect the circle of radius r at point p
+     */
+    public boolean IntersectsCircle(Vector2D p, double r) {
+        for (int i = 0; i < m_DynamicWalls.size(); ++i) {
+            Wall2D w = m_DynamicWalls.get(i);
+            if (LineSegmentCircleIntersection(w.From(), w.To(), p, r)) {
+                return true;
+            }
+        }
+
+        int minX = CellX(p.x - r - m_dEpsilon), maxX = CellX(p.x + r + m_dEpsilon);
+        int minY = CellY(p.y - r - m_dEpsilon), maxY = CellY(p.y + r + m_dEpsilon);
+        for (int y = minY; y <= maxY; ++y) {
+            for (int cell = minX + y * m_iNumCellsX; cell <= maxX + y * m_iNumCellsX; ++cell) {
+                for (int i = m_CellStart[cell]; i < m_CellStart[cell + 1]; ++i) {
+                    Wall2D w = m_CellWalls[i];
+                    if (LineSegmentCircleIntersection(w.From(), w.To(), p, r)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+}
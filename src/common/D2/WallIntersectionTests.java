@@ -123,4 +123,52 @@ public class WallIntersectionTests {
 
         return false;
     }
+
+    /**
+     * the same as above but only the walls of the cells of the wall grid the
+     * segment passes through are tested
+     */
+    public static boolean doWallsObstructLineSegment(Vector2D from,
+            Vector2D to,
+            final WallGrid walls) {
+        return walls.ObstructsLineSegment(from, to);
+    }
+
+    /**
+     * the same as above but the sides of the cylinder are tested against a
+     * wall grid
+     */
+    public static boolean doWallsObstructCylinderSides(Vector2D A,
+            Vector2D B,
+            double BoundingRadius,
+            final WallGrid walls) {
+        Vector2D toB = Vec2DNormalize(sub(B, A));
+        Vector2D radialEdge = mul(toB.Perp(), BoundingRadius);
+
+        if (!walls.ObstructsLineSegment(add(A, radialEdge), add(B, radialEdge))) {
+            return walls.ObstructsLineSegment(sub(A, radialEdge), sub(B, radialEdge));
+        }
+
+        return true;
+    }
+
+    /**
+     * the same as above but only the walls of the cells of the wall grid the
+     * segment passes through are tested
+     */
+    public static boolean FindClosestPointOfIntersectionWithWalls(Vector2D A,
+            Vector2D B,
+            DoubleRef distance,
+            Vector2D ip,
+            final WallGrid walls) {
+        return walls.ClosestIntersection(A, B, distance, ip);
+    }
+
+    /**
+     * the same as above but only the walls of the cells of the wall grid the
+     * circle overlaps are tested
+     */
+    public static boolean doWallsIntersectCircle(final WallGrid walls, Vector2D p, double r) {
+        return walls.IntersectsCircle(p, r);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+/**
+ * Desc: a uniform grid of cells used to answer proximity queries about moving
+ * entities (the bots) without testing every entity in the world. Unlike
+ * CellSpacePartition it stores game entities, the queries write their result
+ * into a list supplied by the caller (so several queries can run at the same
+ * time) and the results are exact: only entities whose position satisfies the
+ * query are returned.
+ *
+ * Entities that move must be kept up to date by calling UpdateEntity with
+ * their position before the move.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.Game;
+
+import Raven.BaseGameEntity;
+import common.D2.Vector2D;
+import static common.D2.geometry.DistToLineSegmentSq;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EntityGrid<entity extends BaseGameEntity> {
+
+    private final List<List<entity>> m_Cells;
+    //the number of cells the space is divided up into
+    private final int m_iNumCellsX;
+    private final int m_iNumCellsY;
+    private final double m_dCellSizeX;
+    private final double m_dCellSizeY;
+
+    public EntityGrid(double width, double height, int cellsX, int cellsY) {
+        assert cellsX > 0 && cellsY > 0 : "<EntityGrid>: invalid number of cells";
+        m_iNumCellsX = cellsX;
+        m_iNumCellsY = cellsY;
+        m_dCellSizeX = width / cellsX;
+        m_dCellSizeY = height / cellsY;
+
+        m_Cells = new ArrayList<List<entity>>(cellsX * cellsY);
+        for (int i = 0; i < cellsX * cellsY; ++i) {
+            m_Cells.add(new ArrayList<entity>());
+        }
+    }
+
+    private int CellX(double x) {
+        int cx = (int) (x / m_dCellSizeX);
+        return cx < 0 ? 0 : (cx >= m_iNumCellsX ? m_iNumCellsX - 1 : cx);
+    }
+
+    private int CellY(double y) {
+        int cy = (int) (y / m_dCellSizeY);
+        return cy < 0 ? 0 : (cy >= m_iNumCellsY ? m_iNumCellsY - 1 : cy);
+    }
+
+    /**
+     * the index of the cell containing the given position. Positions outside
+     * the space are put into the nearest border cell
+     */
+    private int PositionToIndex(Vector2D pos) {
+        return CellX(pos.x) + CellY(pos.y) * m_iNumCellsX;
+    }
+
+    public void AddEntity(entity ent) {
+        m_Cells.get(PositionToIndex(ent.Pos())).add(ent);
+    }
+
+    public void RemoveEntity(entity ent) {
+        m_Cells.get(PositionToIndex(ent.Pos())).remove(ent);
+    }
+
+    /**
+     * moves the entity into its new cell if it has left the cell that
+     * contains OldPos
+     */
+    public void UpdateEntity(entity ent, Vector2D OldPos) {
+        int OldIdx = PositionToIndex(OldPos);
+        int NewIdx = PositionToIndex(ent.Pos());
+
+        if (NewIdx == OldIdx) {
+            return;
+        }
+
+        m_Cells.get(OldIdx).remove(ent);
+        m_Cells.get(NewIdx).add(ent);
+    }
+
+    /**
+     * removes every entity from the grid
+     */
+    public void Clear() {
+        for (List<entity> cell : m_Cells) {
+            cell.clear();
+        }
+    }
+
+    /**
+     * stores in Result every entity whose position is closer than Radius to
+     * Center
+     */
+    public void QueryRadius(Vector2D Center, double Radius, List<entity> Result) {
+        Result.clear();
+        final double RadiusSq = Radius * Radius;
+
+        int minX = CellX(Center.x - Radius), maxX = CellX(Center.x + Radius);
+        int minY = CellY(Center.y - Radius), maxY = CellY(Center.y + Radius);
+        for (int y = minY; y <= maxY; ++y) {
+            for (int x = minX; x <= maxX; ++x) {
+                List<entity> cell = m_Cells.get(x + y * m_iNumCellsX);
+                for (int i = 0; i < cell.size(); ++i) {
+                    entity e = cell.get(i);
+                    Vector2D p = e.Pos();
+                    double dx = p.x - Center.x;
+                    double dy = p.y - Center.y;
+                    if (dx * dx + dy * dy < RadiusSq) {
+                        Result.add(e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * stores in Result every entity whose position lies inside the axis
+     * aligned box given by its top left and bottom right corners
+     */
+    public void QueryAABB(Vector2D TopLeft, Vector2D BottomRight, List<entity> Result) {
+        Result.clear();
+
+        int minX = CellX(TopLeft.x), maxX = CellX(BottomRight.x);
+        int minY = CellY(TopLeft.y), maxY = CellY(BottomRight.y);
+        for (int y = minY; y <= maxY; ++y) {
+            for (int x = minX; x <= maxX; ++x) {
+                List<entity> cell = m_Cells.get(x + y * m_iNumCellsX);
+                for (int i = 0; i < cell.size(); ++i) {
+                    entity e = cell.get(i);
+                    Vector2D p = e.Pos();
+                    if (p.x >= TopLeft.x && p.x <= BottomRight.x
+                            && p.y >= TopLeft.y && p.y <= BottomRight.y) {
+                        Result.add(e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * stores in Result every entity whose position is closer than Radius to
+     * the line segment From-To (a circle of the given radius swept along the
+     * segment). Only the cells the swept circle can touch are examined.
+     */
+    public void QuerySegment(Vector2D From, Vector2D To, double Radius, List<entity> Result) {
+        Result.clear();
+        final double RadiusSq = Radius * Radius;
+
+        //a cell is examined only if its center is close enough to the segment
+        //for any part of the cell to be within Radius of it
+        final double HalfDiagonal = 0.5 * Math.sqrt(m_dCellSizeX * m_dCellSizeX
+                + m_dCellSizeY * m_dCellSizeY);
+        final double CellRangeSq = (Radius + HalfDiagonal) * (Radius + HalfDiagonal);
+
+        int minX = CellX(Math.min(From.x, To.x) - Radius), maxX = CellX(Math.max(From.x, To.x) + Radius);
+        int minY = CellY(Math.min(From.y, To.y) - Radius), maxY = CellY(Math.max(From.y, To.y) + Radius);
+        Vector2D CellCenter = new Vector2D();
+        for (int y = minY; y <= maxY; ++y) {
+            for (int x = minX; x <= maxX; ++x) {
+                List<entity> cell = m_Cells.get(x + y * m_iNumCellsX);
+                if (cell.isEmpty()) {
+                    continue;
+                }
+                CellCenter.x = (x + 0.5) * m_dCellSizeX;
+                CellCenter.y = (y + 0.5) * m_dCellSizeY;
+                //border cells also hold the entities outside the space so they
+                //are always examined
+                boolean border = x == 0 || y == 0 || x == m_iNumCellsX - 1 || y == m_iNumCellsY - 1;
+                if (!border && DistToLineSegmentSq(From, To, CellCenter) > CellRangeSq) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size(); ++i) {
+                    entity e = cell.get(i);
+                    if (DistToLineSegmentSq(From, To, e.Pos()) < RadiusSq) {
+                        Result.add(e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -11,7 +11,12 @@ import java.util.HashMap;
 public class EntityManager {
     //provide easy access
 
-    public static final EntityManager EntityMgr = new EntityManager();
+    /**
+     * @return the entity manager of the match driven by the calling thread
+     */
+    public static EntityManager EntityMgr() {
+        return GameContext.Current().GetEntityMgr();
+    }
 
     private class EntityMap extends HashMap<Integer, BaseGameEntity> {
     }
@@ -19,7 +24,8 @@ public class EntityManager {
     //pointers to entities are cross referenced by their identifying number
     private EntityMap m_EntityMap = new EntityMap();
 
-    private EntityManager() {
+    //one instance per GameContext
+    EntityManager() {
     }
 
 //copy ctor and assignment should be private
@@ -30,7 +36,7 @@ public class EntityManager {
 //   this class is a singleton
 //-----------------------------------------------------------------------------
     public static EntityManager Instance() {
-        return EntityMgr;
+        return EntityMgr();
     }
 
     /**
@@ -0,0 +1,164 @@
+/**
+ * Desc:   holds the services that used to be process wide singletons (entity
+ *         manager, message dispatcher, clock, frame counter, script, user
+ *         options, random number generator and gdi) so that every match can
+ *         own a private set of them.
+ *
+ *         A context is bound to the thread that drives its match. The static
+ *         accessors of the services (EntityMgr(), Dispatcher(), Clock(), ...)
+ *         return the instance of the context bound to the calling thread or,
+ *         if there is none, the instance of the default context. The windowed
+ *         game never binds a context so it runs on the default one.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.Game;
+
+import Raven.Raven_UserOptions;
+import Raven.lua.Raven_Scriptor;
+import common.Messaging.MessageDispatcher;
+import common.Time.CrudeTimer;
+import common.fuzzy.FuzzySurface;
+import common.misc.Cgdi;
+import common.misc.FrameCounter;
+import common.misc.utils.GameRandom;
+import java.util.HashMap;
+import java.util.Map;
+
+public class GameContext {
+
+    private static final ThreadLocal<GameContext> m_Current = new ThreadLocal<GameContext>();
+    private static volatile GameContext m_Default;
+    private final EntityManager m_EntityMgr = new EntityManager();
+    private final MessageDispatcher m_Dispatcher = new MessageDispatcher();
+    private final CrudeTimer m_Clock = new CrudeTimer();
+    private final FrameCounter m_TickCounter = new FrameCounter();
+    private final GameRandom m_Random = new GameRandom();
+    private final Raven_UserOptions m_UserOptions = new Raven_UserOptions();
+    private final Cgdi m_gdi = new Cgdi();
+    //the script is only ever read so contexts may share one
+    private final Raven_Scriptor m_Script;
+    /**
+     * the next valid entity ID (see BaseGameEntity)
+     */
+    private int m_iNextValidID = 0;
+    /**
+     * the desirability surfaces of the weapon types, by weapon type (see
+     * Raven_Weapon). They are compiled from the parameters of the script of
+     * this context
+     */
+    private final Map<Integer, FuzzySurface> m_DesirabilitySurfaces = new HashMap<Integer, FuzzySurface>();
+
+    /**
+     * creates a context with its own copy of the script
+     */
+    public GameContext() {
+        m_Script = new Raven_Scriptor();
+    }
+
+    /**
+     * creates a context that reads its parameters from an already loaded
+     * script (saves running the lua file again for every match)
+     */
+    public GameContext(Raven_Scriptor script) {
+        m_Script = script;
+    }
+
+    /**
+     * @return the context bound to the calling thread or the default context
+     * if no context is bound
+     */
+    public static GameContext Current() {
+        GameContext ctx = m_Current.get();
+        if (ctx != null) {
+            return ctx;
+        }
+        return Default();
+    }
+
+    public static GameContext Default() {
+        GameContext ctx = m_Default;
+        if (ctx == null) {
+            synchronized (GameContext.class) {
+                if (m_Default == null) {
+                    m_Default = new GameContext();
+                }
+                ctx = m_Default;
+            }
+        }
+        return ctx;
+    }
+
+    /**
+     * binds this context to the calling thread and returns the context that
+     * was bound before (null if none) so it can be restored with Bind(prev)
+     * or Unbind()
+     */
+    public GameContext Bind() {
+        GameContext prev = m_Current.get();
+        m_Current.set(this);
+        return prev;
+    }
+
+    /**
+     * restores a previously bound context (or none if prev is null)
+     */
+    public static void Bind(GameContext prev) {
+        if (prev == null) {
+            m_Current.remove();
+        } else {
+            m_Current.set(prev);
+        }
+    }
+
+    /**
+     * removes any context bound to the calling thread
+     */
+    public static void Unbind() {
+        m_Current.remove();
+    }
+
+    public EntityManager GetEntityMgr() {
+        return m_EntityMgr;
+    }
+
+    public MessageDispatcher GetDispatcher() {
+        return m_Dispatcher;
+    }
+
+    public CrudeTimer GetClock() {
+        return m_Clock;
+    }
+
+    public FrameCounter GetTickCounter() {
+        return m_TickCounter;
+    }
+
+    public GameRandom GetRandom() {
+        return m_Random;
+    }
+
+    public Raven_Scriptor GetScript() {
+        return m_Script;
+    }
+
+    public Raven_UserOptions GetUserOptions() {
+        return m_UserOptions;
+    }
+
+    public Cgdi GetGdi() {
+        return m_gdi;
+    }
+
+    public int GetNextValidID() {
+        return m_iNextValidID;
+    }
+
+    public void SetNextValidID(int id) {
+        m_iNextValidID = id;
+    }
+
+    public Map<Integer, FuzzySurface> GetDesirabilitySurfaces() {
+        return m_DesirabilitySurfaces;
+    }
+}
@@ -64,13 +64,13 @@ public class Region {
     }
 
     public void Render(boolean ShowID) {
-        gdi.HollowBrush();
-        gdi.GreenPen();
-        gdi.Rect(m_dLeft, m_dTop, m_dRight, m_dBottom);
+        gdi().HollowBrush();
+        gdi().GreenPen();
+        gdi().Rect(m_dLeft, m_dTop, m_dRight, m_dBottom);
 
         if (ShowID) {
-            gdi.TextColor(Cgdi.green);
-            gdi.TextAtPos(Center(), ttos(ID()));
+            gdi().TextColor(Cgdi.green);
+            gdi().TextAtPos(Center(), ttos(ID()));
         }
     }
 
@@ -14,8 +14,10 @@ import static common.misc.utils.RandInRange;
 public class AStarHeuristicPolicies {
 
     public static interface Heuristic {
-        public <graph_type extends SparseGraph<? extends NavGraphNode, ? extends NavGraphEdge>>
+        public <graph_type extends SparseGraph<? extends NavGraphNode<?>, ? extends NavGraphEdge>>
                 double Calculate(final graph_type G, int nd1, int nd2);
+
+        public double Calculate(final CompactGraph G, int nd1, int nd2);
         }
     /**
      * the euclidian heuristic (straight-line distance)
@@ -26,10 +28,44 @@ public class AStarHeuristicPolicies {
         }
 
         //calculate the straight line distance from node nd1 to node nd2
-        public <graph_type extends SparseGraph<? extends NavGraphNode, ? extends NavGraphEdge>>
+        public <graph_type extends SparseGraph<? extends NavGraphNode<?>, ? extends NavGraphEdge>>
                 double Calculate(final graph_type G, int nd1, int nd2) {
             return Vec2DDistance(G.GetNode(nd1).Pos(), G.GetNode(nd2).Pos());
         }
+
+        public double Calculate(final CompactGraph G, int nd1, int nd2) {
+            double dx = G.NodeX(nd2) - G.NodeX(nd1);
+            double dy = G.NodeY(nd2) - G.NodeY(nd1);
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    /**
+     * the ALT heuristic (A*, landmarks and the triangle inequality). Uses the
+     * bound given by a table of the costs from a few landmark nodes (see
+     * LandmarkTable) or the straight-line distance, whichever is higher. Both
+     * never overestimate the cost, so neither does the heuristic, but the
+     * landmark bound follows the walls and A* expands far fewer nodes.
+     */
+    public static class Heuristic_ALT implements Heuristic {
+
+        private final LandmarkTable m_Landmarks;
+
+        public Heuristic_ALT(LandmarkTable landmarks) {
+            m_Landmarks = landmarks;
+        }
+
+        public <graph_type extends SparseGraph<? extends NavGraphNode<?>, ? extends NavGraphEdge>>
+                double Calculate(final graph_type G, int nd1, int nd2) {
+            return Math.max(Vec2DDistance(G.GetNode(nd1).Pos(), G.GetNode(nd2).Pos()),
+                    m_Landmarks.LowerBound(nd1, nd2));
+        }
+
+        public double Calculate(final CompactGraph G, int nd1, int nd2) {
+            double dx = G.NodeX(nd2) - G.NodeX(nd1);
+            double dy = G.NodeY(nd2) - G.NodeY(nd1);
+            return Math.max(Math.sqrt(dx * dx + dy * dy), m_Landmarks.LowerBound(nd1, nd2));
+        }
     }
 
     /**
@@ -44,10 +80,16 @@ public class AStarHeuristicPolicies {
         }
 
         //calculate the straight line distance from node nd1 to node nd2
-        public <graph_type extends SparseGraph<? extends NavGraphNode, ? extends NavGraphEdge>>
+        public <graph_type extends SparseGraph<? extends NavGraphNode<?>, ? extends NavGraphEdge>>
                 double Calculate(final graph_type G, int nd1, int nd2) {
             return Vec2DDistance(G.GetNode(nd1).Pos(), G.GetNode(nd2).Pos()) * RandInRange(0.9f, 1.1f);
         }
+
+        public double Calculate(final CompactGraph G, int nd1, int nd2) {
+            double dx = G.NodeX(nd2) - G.NodeX(nd1);
+            double dy = G.NodeY(nd2) - G.NodeY(nd1);
+            return Math.sqrt(dx * dx + dy * dy) * RandInRange(0.9f, 1.1f);
+        }
     }
 
     /**
@@ -58,9 +100,13 @@ public class AStarHeuristicPolicies {
     public static class Heuristic_Dijkstra implements Heuristic {
         public Heuristic_Dijkstra() {
         }
-        public <graph_type extends SparseGraph<? extends NavGraphNode, ? extends NavGraphEdge>>
+        public <graph_type extends SparseGraph<? extends NavGraphNode<?>, ? extends NavGraphEdge>>
                 double Calculate(final graph_type G, int nd1, int nd2) {
             return 0;
         }
+
+        public double Calculate(final CompactGraph G, int nd1, int nd2) {
+            return 0;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,342 @@
+/**
+ * Desc: the abstract graph used by the hierarchical path searches (HPA*).
+ *
+ * The nodes of a CompactGraph are divided into clusters. A node with an edge
+ * leading into another cluster is an entrance of its cluster. The abstract
+ * graph has a node for every entrance and two kinds of edges: the edges of
+ * the graph that connect entrances of different clusters, and an edge between
+ * every two entrances of the same cluster that costs as much as the shortest
+ * path between them which does not leave the cluster.
+ *
+ * Only the costs between the entrances are kept (as the abstract edges), so
+ * the abstract graph takes memory in proportion to the number of entrances
+ * and not to the square of the cluster sizes. A search connects its source
+ * and target to the entrances of their clusters and refines the abstract
+ * path by searching inside single clusters (see Graph_SearchHPAStar_TS).
+ *
+ * A path can only get from one cluster to another through entrances, so the
+ * shortest path through the abstract graph costs the same as the shortest
+ * path through the graph.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.Graph;
+
+import common.misc.PriorityQueue.IndexedPriorityQLowDouble;
+import static common.misc.utils.MaxDouble;
+import java.util.Arrays;
+
+public class ClusterGraph {
+
+    private final CompactGraph m_Graph;
+    private final int m_iNumClusters;
+    /**
+     * the cluster of every node (-1 for the invalid nodes)
+     */
+    private final int[] m_Cluster;
+    /**
+     * the position of every node among the nodes of its cluster
+     */
+    private final int[] m_LocalIndex;
+    /**
+     * the nodes of cluster c are m_ClusterNodes[m_ClusterStart[c]] up to (but
+     * not including) m_ClusterNodes[m_ClusterStart[c + 1]]
+     */
+    private final int[] m_ClusterStart;
+    private final int[] m_ClusterNodes;
+    /**
+     * the edges leading into node nd are m_InEdges[m_InOffsets[nd]] up to
+     * (but not including) m_InEdges[m_InOffsets[nd + 1]], for the searches
+     * towards a node
+     */
+    private final int[] m_InOffsets;
+    private final int[] m_InEdges;
+    /**
+     * the abstract node of every node (-1 if the node is not an entrance)
+     */
+    private final int[] m_EntranceOf;
+    /**
+     * the node of every abstract node. The entrances of cluster c are the
+     * abstract nodes m_ClusterEntranceStart[c] up to (but not including)
+     * m_ClusterEntranceStart[c + 1]
+     */
+    private final int[] m_Entrances;
+    private final int[] m_ClusterEntranceStart;
+    /**
+     * the abstract edges in compressed sparse row form (see CompactGraph)
+     */
+    private final int[] m_Offsets;
+    private final int[] m_Targets;
+    private final double[] m_EdgeCosts;
+
+    /**
+     * builds the abstract graph of G. ClusterOfNode holds the cluster (0 up
+     * to NumClusters - 1) of every valid node of G
+     */
+    public ClusterGraph(CompactGraph G, int NumClusters, int[] ClusterOfNode) {
+        final int NumNodes = G.NumNodes();
+        m_Graph = G;
+        m_iNumClusters = NumClusters;
+        m_Cluster = new int[NumNodes];
+        m_LocalIndex = new int[NumNodes];
+
+        //sort the nodes into the clusters
+        m_ClusterStart = new int[NumClusters + 1];
+        for (int n = 0; n < NumNodes; ++n) {
+            m_Cluster[n] = G.isNodePresent(n) ? ClusterOfNode[n] : -1;
+            if (m_Cluster[n] >= 0) {
+                ++m_ClusterStart[m_Cluster[n] + 1];
+            }
+        }
+        for (int c = 0; c < NumClusters; ++c) {
+            m_ClusterStart[c + 1] += m_ClusterStart[c];
+        }
+        m_ClusterNodes = new int[m_ClusterStart[NumClusters]];
+        int[] fill = Arrays.copyOf(m_ClusterStart, NumClusters);
+        for (int n = 0; n < NumNodes; ++n) {
+            if (m_Cluster[n] >= 0) {
+                m_LocalIndex[n] = fill[m_Cluster[n]] - m_ClusterStart[m_Cluster[n]];
+                m_ClusterNodes[fill[m_Cluster[n]]++] = n;
+            }
+        }
+
+        //the edges leading into every node
+        m_InOffsets = new int[NumNodes + 1];
+        for (int e = 0; e < G.NumEdges(); ++e) {
+            ++m_InOffsets[G.EdgeTo(e) + 1];
+        }
+        for (int n = 0; n < NumNodes; ++n) {
+            m_InOffsets[n + 1] += m_InOffsets[n];
+        }
+        m_InEdges = new int[G.NumEdges()];
+        fill = Arrays.copyOf(m_InOffsets, NumNodes);
+        for (int e = 0; e < G.NumEdges(); ++e) {
+            m_InEdges[fill[G.EdgeTo(e)]++] = e;
+        }
+
+        //find the entrances. Both ends of an edge between two clusters are
+        //entrances
+        boolean[] isEntrance = new boolean[NumNodes];
+        for (int e = 0; e < G.NumEdges(); ++e) {
+            if (m_Cluster[G.EdgeFrom(e)] != m_Cluster[G.EdgeTo(e)]) {
+                isEntrance[G.EdgeFrom(e)] = true;
+                isEntrance[G.EdgeTo(e)] = true;
+            }
+        }
+        m_EntranceOf = new int[NumNodes];
+        Arrays.fill(m_EntranceOf, -1);
+        m_ClusterEntranceStart = new int[NumClusters + 1];
+        int NumEntrances = 0;
+        for (int c = 0; c < NumClusters; ++c) {
+            for (int i = m_ClusterStart[c]; i < m_ClusterStart[c + 1]; ++i) {
+                if (isEntrance[m_ClusterNodes[i]]) {
+                    m_EntranceOf[m_ClusterNodes[i]] = NumEntrances++;
+                }
+            }
+            m_ClusterEntranceStart[c + 1] = NumEntrances;
+        }
+        m_Entrances = new int[NumEntrances];
+        for (int n = 0; n < NumNodes; ++n) {
+            if (m_EntranceOf[n] >= 0) {
+                m_Entrances[m_EntranceOf[n]] = n;
+            }
+        }
+
+        //the costs between the entrances of every cluster, one search of the
+        //cluster per entrance. The cost from abstract node a to abstract node
+        //b of cluster c (with k entrances) is at
+        //EntranceTableStart[c] + (a - FirstEntrance(c)) * k + b - FirstEntrance(c)
+        int[] EntranceTableStart = new int[NumClusters + 1];
+        int MaxClusterSize = 0;
+        for (int c = 0; c < NumClusters; ++c) {
+            final int k = NumEntrances(c);
+            EntranceTableStart[c + 1] = EntranceTableStart[c] + k * k;
+            MaxClusterSize = Math.max(MaxClusterSize, ClusterSize(c));
+        }
+        double[] EntranceCosts = new double[EntranceTableStart[NumClusters]];
+        double[] costs = new double[MaxClusterSize];
+        IndexedPriorityQLowDouble pq = new IndexedPriorityQLowDouble(MaxClusterSize);
+        for (int c = 0; c < NumClusters; ++c) {
+            final int first = m_ClusterEntranceStart[c];
+            final int k = NumEntrances(c);
+            for (int a = first; a < first + k; ++a) {
+                SearchCluster(c, m_LocalIndex[m_Entrances[a]], costs, pq);
+                for (int b = first; b < first + k; ++b) {
+                    EntranceCosts[EntranceTableStart[c] + (a - first) * k + b - first] =
+                            costs[m_LocalIndex[m_Entrances[b]]];
+                }
+            }
+        }
+
+        //count and then create the abstract edges
+        m_Offsets = new int[NumEntrances + 1];
+        for (int a = 0; a < NumEntrances; ++a) {
+            m_Offsets[a + 1] = m_Offsets[a] + AbstractEdges(a, EntranceCosts, EntranceTableStart, null, null);
+        }
+        m_Targets = new int[m_Offsets[NumEntrances]];
+        m_EdgeCosts = new double[m_Offsets[NumEntrances]];
+        for (int a = 0; a < NumEntrances; ++a) {
+            AbstractEdges(a, EntranceCosts, EntranceTableStart, m_Targets, m_EdgeCosts);
+        }
+    }
+
+    /**
+     * finds the abstract edges leaving abstract node a: one to every other
+     * entrance of its cluster that can be reached inside the cluster (the
+     * costs are taken from the table of the entrance costs), and one for
+     * every edge of the graph leading into another cluster. The edges are
+     * written from m_Offsets[a] on unless targets is null.
+     *
+     * @return the number of the edges
+     */
+    private int AbstractEdges(int a, double[] EntranceCosts, int[] EntranceTableStart,
+            int[] targets, double[] costs) {
+        final int nd = m_Entrances[a];
+        final int c = m_Cluster[nd];
+        final int first = m_ClusterEntranceStart[c];
+        final int k = NumEntrances(c);
+        int count = 0;
+        for (int b = first; b < first + k; ++b) {
+            double cost = EntranceCosts[EntranceTableStart[c] + (a - first) * k + b - first];
+            if (b != a && cost < MaxDouble) {
+                if (targets != null) {
+                    targets[m_Offsets[a] + count] = b;
+                    costs[m_Offsets[a] + count] = cost;
+                }
+                ++count;
+            }
+        }
+        for (int e = m_Graph.FirstEdge(nd); e < m_Graph.FirstEdge(nd + 1); ++e) {
+            if (m_Cluster[m_Graph.EdgeTo(e)] != c) {
+                if (targets != null) {
+                    targets[m_Offsets[a] + count] = m_EntranceOf[m_Graph.EdgeTo(e)];
+                    costs[m_Offsets[a] + count] = m_Graph.EdgeCost(e);
+                }
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * calculates the cost from the src-th node of cluster c to every node of
+     * the cluster (indexed by their position in the cluster, MaxDouble if
+     * there is no path) using Dijkstra's algorithm restricted to the nodes of
+     * the cluster
+     */
+    private void SearchCluster(int c, int src, double[] costs, IndexedPriorityQLowDouble pq) {
+        final int size = ClusterSize(c);
+        Arrays.fill(costs, 0, size, MaxDouble);
+
+        pq.Reset(size);
+        costs[src] = 0.0;
+        pq.insert(src, 0.0);
+        while (!pq.empty()) {
+            final int u = pq.Pop();
+            final int nd = m_ClusterNodes[m_ClusterStart[c] + u];
+            for (int e = m_Graph.FirstEdge(nd); e < m_Graph.FirstEdge(nd + 1); ++e) {
+                final int to = m_Graph.EdgeTo(e);
+                if (m_Cluster[to] != c) {
+                    continue;
+                }
+                final int v = m_LocalIndex[to];
+                final double NewCost = costs[u] + m_Graph.EdgeCost(e);
+                if (NewCost < costs[v]) {
+                    if (costs[v] == MaxDouble) {
+                        pq.insert(v, NewCost);
+                    } else {
+                        pq.ChangePriority(v, NewCost);
+                    }
+                    costs[v] = NewCost;
+                }
+            }
+        }
+    }
+
+    private int ClusterSize(int c) {
+        return m_ClusterStart[c + 1] - m_ClusterStart[c];
+    }
+
+    private int NumEntrances(int c) {
+        return m_ClusterEntranceStart[c + 1] - m_ClusterEntranceStart[c];
+    }
+
+    public CompactGraph Graph() {
+        return m_Graph;
+    }
+
+    public int NumClusters() {
+        return m_iNumClusters;
+    }
+
+    /**
+     * @return the cluster of node nd (-1 if the node is invalid)
+     */
+    public int Cluster(int nd) {
+        return m_Cluster[nd];
+    }
+
+    /**
+     * @return the index of the first edge leading into node nd (see InEdge).
+     * The edges leading into nd end at FirstInEdge(nd + 1)
+     */
+    public int FirstInEdge(int nd) {
+        return m_InOffsets[nd];
+    }
+
+    /**
+     * @return the i-th edge of the list of the edges leading into the nodes
+     */
+    public int InEdge(int i) {
+        return m_InEdges[i];
+    }
+
+    /**
+     * @return the number of abstract nodes (entrances)
+     */
+    public int NumEntrances() {
+        return m_Entrances.length;
+    }
+
+    /**
+     * @return the graph node of the abstract node a
+     */
+    public int EntranceNode(int a) {
+        return m_Entrances[a];
+    }
+
+    /**
+     * @return the abstract node of graph node nd or -1 if nd is not an
+     * entrance
+     */
+    public int EntranceOf(int nd) {
+        return m_EntranceOf[nd];
+    }
+
+    /**
+     * @return the first abstract node of the entrances of cluster c. The
+     * entrances of c end at FirstEntrance(c + 1)
+     */
+    public int FirstEntrance(int c) {
+        return m_ClusterEntranceStart[c];
+    }
+
+    /**
+     * @return the index of the first abstract edge leaving abstract node a.
+     * The edges of a end at FirstEdge(a + 1)
+     */
+    public int FirstEdge(int a) {
+        return m_Offsets[a];
+    }
+
+    /**
+     * @return the abstract node abstract edge e leads to
+     */
+    public int EdgeTo(int e) {
+        return m_Targets[e];
+    }
+
+    public double EdgeCost(int e) {
+        return m_EdgeCosts[e];
+    }
+}
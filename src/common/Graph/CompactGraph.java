@@ -0,0 +1,172 @@
+/**
+ * Desc: an immutable copy of a SparseGraph in compressed sparse row form.
+ *
+ * The edges leaving node n are the edge indexes FirstEdge(n) up to (but not
+ * including) FirstEdge(n + 1), in the same order as they are stored in the
+ * adjacency list of the SparseGraph. Every edge property and the node
+ * positions live in primitive arrays so a search walks a few flat arrays
+ * instead of a linked list of edge objects per node. The node objects are
+ * kept only so that searches can look at their extra info.
+ *
+ * The copy does not follow changes made to the SparseGraph after it has been
+ * built.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.Graph;
+
+import common.Graph.GraphEdgeTypes.GraphEdge;
+import common.Graph.GraphEdgeTypes.NavGraphEdge;
+import common.Graph.GraphNodeTypes.NavGraphNode;
+import static common.Graph.NodeTypeEnumerations.invalid_node_index;
+
+public class CompactGraph implements Graph<NavGraphNode<?>, NavGraphEdge> {
+
+    private final NavGraphNode<?>[] m_Nodes;
+    private final double[] m_NodeX;
+    private final double[] m_NodeY;
+    /**
+     * the edges of node n are m_Offsets[n] up to m_Offsets[n + 1]
+     */
+    private final int[] m_Offsets;
+    private final int[] m_Sources;
+    private final int[] m_Targets;
+    private final double[] m_Costs;
+    private final int[] m_Flags;
+    private final int[] m_IDofIntersectingEntity;
+
+    public <node_type extends NavGraphNode<?>, edge_type extends GraphEdge> CompactGraph(SparseGraph<node_type, edge_type> G) {
+        final int NumNodes = G.NumNodes();
+        m_Nodes = new NavGraphNode<?>[NumNodes];
+        m_NodeX = new double[NumNodes];
+        m_NodeY = new double[NumNodes];
+        m_Offsets = new int[NumNodes + 1];
+
+        //count the edges of every node
+        for (int n = 0; n < NumNodes; ++n) {
+            NavGraphNode<?> node = G.GetNode(n);
+            m_Nodes[n] = node;
+            m_NodeX[n] = node.Pos().x;
+            m_NodeY[n] = node.Pos().y;
+
+            int count = 0;
+            if (node.Index() != invalid_node_index) {
+                SparseGraph.EdgeIterator<node_type, edge_type> EdgeItr =
+                        new SparseGraph.EdgeIterator<node_type, edge_type>(G, n);
+                for (edge_type pE = EdgeItr.begin(); !EdgeItr.end(); pE = EdgeItr.next()) {
+                    ++count;
+                }
+            }
+            m_Offsets[n + 1] = m_Offsets[n] + count;
+        }
+
+        final int NumEdges = m_Offsets[NumNodes];
+        m_Sources = new int[NumEdges];
+        m_Targets = new int[NumEdges];
+        m_Costs = new double[NumEdges];
+        m_Flags = new int[NumEdges];
+        m_IDofIntersectingEntity = new int[NumEdges];
+
+        for (int n = 0; n < NumNodes; ++n) {
+            if (m_Offsets[n] == m_Offsets[n + 1]) {
+                continue;
+            }
+            int e = m_Offsets[n];
+            SparseGraph.EdgeIterator<node_type, edge_type> EdgeItr =
+                    new SparseGraph.EdgeIterator<node_type, edge_type>(G, n);
+            for (edge_type pE = EdgeItr.begin(); !EdgeItr.end(); pE = EdgeItr.next()) {
+                m_Sources[e] = pE.From();
+                m_Targets[e] = pE.To();
+                m_Costs[e] = pE.Cost();
+                if (pE instanceof NavGraphEdge) {
+                    m_Flags[e] = ((NavGraphEdge) pE).Flags();
+                    m_IDofIntersectingEntity[e] = ((NavGraphEdge) pE).IDofIntersectingEntity();
+                } else {
+                    m_Flags[e] = NavGraphEdge.normal;
+                    m_IDofIntersectingEntity[e] = -1;
+                }
+                ++e;
+            }
+        }
+    }
+
+    /**
+     * returns the number of active + inactive nodes present in the graph
+     */
+    @Override
+    public int NumNodes() {
+        return m_Nodes.length;
+    }
+
+    public int NumEdges() {
+        return m_Targets.length;
+    }
+
+    /**
+     * @return the node at the given index (for access to its extra info)
+     */
+    @Override
+    public NavGraphNode<?> GetNode(int idx) {
+        return m_Nodes[idx];
+    }
+
+    public boolean isNodePresent(int nd) {
+        return nd >= 0 && nd < m_Nodes.length && m_Nodes[nd].Index() != invalid_node_index;
+    }
+
+    public double NodeX(int nd) {
+        return m_NodeX[nd];
+    }
+
+    public double NodeY(int nd) {
+        return m_NodeY[nd];
+    }
+
+    /**
+     * @return the index of the first edge leaving node nd. The edges of nd end
+     * at FirstEdge(nd + 1)
+     */
+    public int FirstEdge(int nd) {
+        return m_Offsets[nd];
+    }
+
+    public int EdgeFrom(int e) {
+        return m_Sources[e];
+    }
+
+    public int EdgeTo(int e) {
+        return m_Targets[e];
+    }
+
+    public double EdgeCost(int e) {
+        return m_Costs[e];
+    }
+
+    public int EdgeFlags(int e) {
+        return m_Flags[e];
+    }
+
+    public int EdgeIDofIntersectingEntity(int e) {
+        return m_IDofIntersectingEntity[e];
+    }
+
+    /**
+     * @return the edge from-to or -1 if there is no such edge
+     */
+    public int FindEdge(int from, int to) {
+        for (int e = m_Offsets[from]; e < m_Offsets[from + 1]; ++e) {
+            if (m_Targets[e] == to) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return a new edge object holding a copy of edge e
+     */
+    public NavGraphEdge GetEdge(int e) {
+        return new NavGraphEdge(m_Sources[e], m_Targets[e], m_Costs[e],
+                m_Flags[e], m_IDofIntersectingEntity[e]);
+    }
+}
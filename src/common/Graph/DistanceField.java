@@ -0,0 +1,259 @@
+/**
+ * Desc: the cost of the shortest path from every node of a graph to the
+ * closest of a set of source nodes (the nodes of the active items of one
+ * type, say), together with the first edge of that path. The path from a
+ * node to its closest source is read by following the edges from node to
+ * node, so it needs no search.
+ *
+ * The sources are added and removed one by one and only the nodes whose
+ * closest source changes are searched again: a new source only searches
+ * the nodes that get closer to it, and a removed source only the nodes
+ * that were closest to it. The same goes for the edges whose cost changes
+ * (the edges through the doors, see DynamicEdgeCosts): a cheaper edge only
+ * searches the nodes that get closer through it, and a dearer one only the
+ * nodes whose paths went along it.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.Graph;
+
+import common.misc.PriorityQueue.IndexedPriorityQLowDouble;
+import java.util.Arrays;
+
+public class DistanceField {
+
+    private final CompactGraph m_Graph;
+    /**
+     * the current costs of the edges, or null if they are those of the graph
+     */
+    private final DynamicEdgeCosts m_EdgeCosts;
+    /**
+     * the edge going the opposite way of every edge (-1 if there is none)
+     */
+    private final int[] m_ReverseEdge;
+    /**
+     * the cost of the path from every node to its closest source, the first
+     * edge of the path (-1 at a source) and the source it leads to (-1 and
+     * infinity if no source can be reached)
+     */
+    private final double[] m_Costs;
+    private final int[] m_NextEdge;
+    private final int[] m_Source;
+    /**
+     * how many times every node has been added as a source
+     */
+    private final int[] m_SourceCount;
+    private int m_iNumSources = 0;
+    private final IndexedPriorityQLowDouble m_PQ;
+    private final boolean[] m_bQueued;
+    /**
+     * the nodes affected by a removed source
+     */
+    private final int[] m_Affected;
+
+    public DistanceField(CompactGraph G) {
+        this(G, null);
+    }
+
+    /**
+     * a field following the current costs of the edges. EdgeCostChanged must
+     * be called whenever one of them changes
+     */
+    public DistanceField(DynamicEdgeCosts costs) {
+        this(costs.Graph(), costs);
+    }
+
+    private DistanceField(CompactGraph G, DynamicEdgeCosts costs) {
+        final int NumNodes = G.NumNodes();
+        m_Graph = G;
+        m_EdgeCosts = costs;
+        m_ReverseEdge = new int[G.NumEdges()];
+        for (int e = 0; e < G.NumEdges(); ++e) {
+            m_ReverseEdge[e] = G.FindEdge(G.EdgeTo(e), G.EdgeFrom(e));
+        }
+        m_Costs = new double[NumNodes];
+        Arrays.fill(m_Costs, Double.POSITIVE_INFINITY);
+        m_NextEdge = new int[NumNodes];
+        Arrays.fill(m_NextEdge, -1);
+        m_Source = new int[NumNodes];
+        Arrays.fill(m_Source, -1);
+        m_SourceCount = new int[NumNodes];
+        m_PQ = new IndexedPriorityQLowDouble(NumNodes);
+        m_bQueued = new boolean[NumNodes];
+        m_Affected = new int[NumNodes];
+    }
+
+    private double EdgeCost(int e) {
+        return m_EdgeCosts != null ? m_EdgeCosts.Cost(e) : m_Graph.EdgeCost(e);
+    }
+
+    /**
+     * sets the cost of a node (if it is lower than its current cost) and puts
+     * it on the queue
+     */
+    private void Relax(int nd, double cost, int NextEdge, int source) {
+        if (cost >= m_Costs[nd]) {
+            return;
+        }
+        m_Costs[nd] = cost;
+        m_NextEdge[nd] = NextEdge;
+        m_Source[nd] = source;
+
+        if (m_bQueued[nd]) {
+            m_PQ.ChangePriority(nd, cost);
+        } else {
+            m_bQueued[nd] = true;
+            m_PQ.insert(nd, cost);
+        }
+    }
+
+    /**
+     * lowers the costs of the nodes reached from the nodes on the queue
+     * (Dijkstra's algorithm over the edges turned around)
+     */
+    private void Search() {
+        while (!m_PQ.empty()) {
+            final int nd = m_PQ.Pop();
+            m_bQueued[nd] = false;
+
+            final int LastEdge = m_Graph.FirstEdge(nd + 1);
+            for (int e = m_Graph.FirstEdge(nd); e < LastEdge; ++e) {
+                //the path from the neighbour goes along the opposite edge
+                final int reverse = m_ReverseEdge[e];
+                if (reverse >= 0) {
+                    Relax(m_Graph.EdgeTo(e), m_Costs[nd] + EdgeCost(reverse),
+                            reverse, m_Source[nd]);
+                }
+            }
+        }
+    }
+
+    public void AddSource(int nd) {
+        ++m_iNumSources;
+        if (m_SourceCount[nd]++ > 0) {
+            return;
+        }
+
+        Relax(nd, 0.0, -1, nd);
+        Search();
+    }
+
+    public void RemoveSource(int nd) {
+        assert m_SourceCount[nd] > 0 : "<DistanceField::RemoveSource>: not a source";
+
+        --m_iNumSources;
+        if (--m_SourceCount[nd] > 0) {
+            return;
+        }
+
+        Rebuild(nd);
+    }
+
+    /**
+     * updates the field after the cost of edge e has changed
+     */
+    public void EdgeCostChanged(int e) {
+        final int from = m_Graph.EdgeFrom(e);
+        final int to = m_Graph.EdgeTo(e);
+
+        if (m_NextEdge[from] == e) {
+            //the paths going along the edge may now lead elsewhere
+            Rebuild(from);
+        } else if (m_Source[to] >= 0) {
+            //the edge may now be the better way from its start
+            Relax(from, m_Costs[to] + EdgeCost(e), e, m_Source[to]);
+            Search();
+        }
+    }
+
+    /**
+     * searches again the node and all the nodes whose paths lead through it
+     */
+    private void Rebuild(int nd) {
+        //find the nodes whose paths lead through the node, from the node
+        //outwards
+        int NumAffected = 0;
+        m_Affected[NumAffected++] = nd;
+        for (int i = 0; i < NumAffected; ++i) {
+            final int node = m_Affected[i];
+            final int LastEdge = m_Graph.FirstEdge(node + 1);
+            for (int e = m_Graph.FirstEdge(node); e < LastEdge; ++e) {
+                final int reverse = m_ReverseEdge[e];
+                if (reverse >= 0 && m_NextEdge[m_Graph.EdgeTo(e)] == reverse) {
+                    m_Affected[NumAffected++] = m_Graph.EdgeTo(e);
+                }
+            }
+        }
+        for (int i = 0; i < NumAffected; ++i) {
+            final int node = m_Affected[i];
+            m_Costs[node] = Double.POSITIVE_INFINITY;
+            m_NextEdge[node] = -1;
+            m_Source[node] = -1;
+        }
+
+        //and search them again starting from their neighbours that still
+        //know their way to a source
+        for (int i = 0; i < NumAffected; ++i) {
+            final int node = m_Affected[i];
+            final int LastEdge = m_Graph.FirstEdge(node + 1);
+            for (int e = m_Graph.FirstEdge(node); e < LastEdge; ++e) {
+                final int to = m_Graph.EdgeTo(e);
+                if (m_Source[to] >= 0 && !m_bQueued[to]) {
+                    Relax(node, m_Costs[to] + EdgeCost(e), e, m_Source[to]);
+                }
+            }
+        }
+        Search();
+    }
+
+    public int NumSources() {
+        return m_iNumSources;
+    }
+
+    /**
+     * @return the cost of the path from nd to its closest source (infinity
+     * if no source can be reached)
+     */
+    public double Cost(int nd) {
+        return m_Costs[nd];
+    }
+
+    /**
+     * @return the closest source to nd or -1 if no source can be reached
+     */
+    public int ClosestSource(int nd) {
+        return m_Source[nd];
+    }
+
+    /**
+     * @return the first edge of the path from nd to its closest source (-1
+     * if nd is a source or no source can be reached)
+     */
+    public int NextEdge(int nd) {
+        return m_NextEdge[nd];
+    }
+
+    /**
+     * @return the nodes of the path from nd to its closest source, or null if
+     * no source can be reached
+     */
+    public int[] PathToClosestSource(int nd) {
+        if (m_Source[nd] < 0) {
+            return null;
+        }
+
+        int length = 1;
+        for (int node = nd; m_NextEdge[node] >= 0; node = m_Graph.EdgeTo(m_NextEdge[node])) {
+            ++length;
+        }
+        int[] path = new int[length];
+        int node = nd;
+        for (int i = 0; i < length; ++i) {
+            path[i] = node;
+            if (m_NextEdge[node] >= 0) {
+                node = m_Graph.EdgeTo(m_NextEdge[node]);
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Desc: the current costs of the edges of a CompactGraph whose cost changes
+ * while the game runs (the edges going through doors, say). The other edges
+ * always cost what the graph says.
+ *
+ * The CompactGraph itself never changes, so the searches that only need the
+ * costs the map was built with can keep using it from any thread. The
+ * searches that follow the changes (see Graph_SearchDStarLite_TS) copy the
+ * dynamic costs when they are started.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.Graph;
+
+import java.util.Arrays;
+
+public class DynamicEdgeCosts {
+
+    private final CompactGraph m_Graph;
+    /**
+     * the edges whose cost may change and their current costs
+     */
+    private final int[] m_DynamicEdges;
+    private final double[] m_Costs;
+    /**
+     * the position of every edge in m_DynamicEdges (-1 if its cost never
+     * changes)
+     */
+    private final int[] m_DynamicIndex;
+    private int m_iVersion = 0;
+
+    /**
+     * the edges of G with any of the given flags set can change their cost
+     */
+    public DynamicEdgeCosts(CompactGraph G, int DynamicFlags) {
+        m_Graph = G;
+        m_DynamicIndex = new int[G.NumEdges()];
+        Arrays.fill(m_DynamicIndex, -1);
+
+        int count = 0;
+        for (int e = 0; e < G.NumEdges(); ++e) {
+            if ((G.EdgeFlags(e) & DynamicFlags) != 0) {
+                m_DynamicIndex[e] = count++;
+            }
+        }
+        m_DynamicEdges = new int[count];
+        m_Costs = new double[count];
+        for (int e = 0; e < G.NumEdges(); ++e) {
+            if (m_DynamicIndex[e] >= 0) {
+                m_DynamicEdges[m_DynamicIndex[e]] = e;
+                m_Costs[m_DynamicIndex[e]] = G.EdgeCost(e);
+            }
+        }
+    }
+
+    public CompactGraph Graph() {
+        return m_Graph;
+    }
+
+    public int NumDynamicEdges() {
+        return m_DynamicEdges.length;
+    }
+
+    /**
+     * @return the edge of the i-th dynamic edge
+     */
+    public int DynamicEdge(int i) {
+        return m_DynamicEdges[i];
+    }
+
+    /**
+     * @return the position of edge e among the dynamic edges or -1 if the
+     * cost of e never changes
+     */
+    public int DynamicIndexOf(int e) {
+        return m_DynamicIndex[e];
+    }
+
+    /**
+     * @return the current cost of the i-th dynamic edge
+     */
+    public double DynamicCost(int i) {
+        return m_Costs[i];
+    }
+
+    /**
+     * @return the current cost of edge e
+     */
+    public double Cost(int e) {
+        final int i = m_DynamicIndex[e];
+        return i < 0 ? m_Graph.EdgeCost(e) : m_Costs[i];
+    }
+
+    /**
+     * sets the current cost of the i-th dynamic edge
+     */
+    public void SetDynamicCost(int i, double cost) {
+        if (m_Costs[i] != cost) {
+            m_Costs[i] = cost;
+            ++m_iVersion;
+        }
+    }
+
+    /**
+     * @return a number that changes whenever the cost of an edge changes
+     */
+    public int Version() {
+        return m_iVersion;
+    }
+}
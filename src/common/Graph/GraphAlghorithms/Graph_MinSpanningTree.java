@@ -11,8 +11,9 @@ package common.Graph.GraphAlghorithms;
 
 import common.Graph.GraphEdgeTypes.GraphEdge;
 import common.Graph.SparseGraph;
-import common.misc.PriorityQueue.IndexedPriorityQLow;
+import common.misc.PriorityQueue.IndexedPriorityQLowDouble;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 
 class Graph_MinSpanningTree<graph_type extends SparseGraph> {
@@ -20,16 +21,16 @@ class Graph_MinSpanningTree<graph_type extends SparseGraph> {
     //typedef typename graph_type::EdgeType Edge;
 
     private final graph_type m_Graph;
-    private ArrayList<Double> m_CostToThisNode;
+    private double[] m_CostToThisNode;
     private ArrayList<GraphEdge> m_SpanningTree;
     private ArrayList<GraphEdge> m_Fringe;
 
     private void Search(final int source) {
         //create a priority queue
-        IndexedPriorityQLow<Double> pq = new IndexedPriorityQLow<Double>(m_CostToThisNode, m_Graph.NumNodes());
+        IndexedPriorityQLowDouble pq = new IndexedPriorityQLowDouble(m_Graph.NumNodes());
 
         //put the source node on the queue
-        pq.insert(source);
+        pq.insert(source, m_CostToThisNode[source]);
 
         //while the queue is not empty
         while (!pq.empty()) {
@@ -46,15 +47,15 @@ class Graph_MinSpanningTree<graph_type extends SparseGraph> {
                 double Priority = pE.Cost();
 
                 if (m_Fringe.get(pE.To()) == null) {
-                    m_CostToThisNode.set(pE.To(), Priority);
+                    m_CostToThisNode[pE.To()] = Priority;
 
-                    pq.insert(pE.To());
+                    pq.insert(pE.To(), Priority);
 
                     m_Fringe.add(pE.To(), pE);
-                } else if ((Priority < m_CostToThisNode.get(pE.To())) && (m_SpanningTree.get(pE.To()) == null)) {
-                    m_CostToThisNode.set(pE.To(), Priority);
+                } else if ((Priority < m_CostToThisNode[pE.To()]) && (m_SpanningTree.get(pE.To()) == null)) {
+                    m_CostToThisNode[pE.To()] = Priority;
 
-                    pq.ChangePriority(pE.To());
+                    pq.ChangePriority(pE.To(), Priority);
 
                     m_Fringe.set(pE.To(), pE);
                 }
@@ -70,7 +71,8 @@ class Graph_MinSpanningTree<graph_type extends SparseGraph> {
         m_Graph = G;
         m_SpanningTree = new ArrayList<GraphEdge>(Collections.nCopies(G.NumNodes(), (GraphEdge) null));
         m_Fringe = new ArrayList<GraphEdge>(Collections.nCopies(G.NumNodes(), (GraphEdge) null));
-        m_CostToThisNode = new ArrayList<Double>(Collections.nCopies(G.NumNodes(), -1.0));
+        m_CostToThisNode = new double[G.NumNodes()];
+        Arrays.fill(m_CostToThisNode, -1.0);
 
         if (source < 0) {
             for (int nd = 0; nd < G.NumNodes(); ++nd) {
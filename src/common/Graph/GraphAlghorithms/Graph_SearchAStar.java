@@ -8,7 +8,7 @@
  */
 package common.Graph.GraphAlghorithms;
 
-import common.misc.PriorityQueue.IndexedPriorityQLow;
+import common.misc.PriorityQueue.IndexedPriorityQLowDouble;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Collections;
@@ -25,11 +25,7 @@ public class Graph_SearchAStar<graph_type extends SparseGraph, ASHeuristic exten
     private final graph_type m_Graph;
     private final ASHeuristic m_Heuristic;
     //indexed into my node. Contains the 'real' accumulative cost to that node
-    private ArrayList<Double> m_GCosts;
-    //indexed into by node. Contains the cost from adding m_GCosts[n] to
-    //the heuristic cost from n to the target node. This is the vector the
-    //iPQ indexes into.
-    private ArrayList<Double> m_FCosts;
+    private double[] m_GCosts;
     private ArrayList<GraphEdge> m_ShortestPathTree;
     private ArrayList<GraphEdge> m_SearchFrontier;
     private int m_iSource;
@@ -42,8 +38,7 @@ public class Graph_SearchAStar<graph_type extends SparseGraph, ASHeuristic exten
         m_Heuristic = heuristic;
         m_ShortestPathTree = new ArrayList<GraphEdge>(Collections.nCopies(graph.NumNodes(), (GraphEdge) null));
         m_SearchFrontier = new ArrayList<GraphEdge>(Collections.nCopies(graph.NumNodes(), (GraphEdge) null));
-        m_GCosts = new ArrayList<Double>(Collections.nCopies(graph.NumNodes(), 0.0));
-        m_FCosts = new ArrayList<Double>(Collections.nCopies(graph.NumNodes(), 0.0));
+        m_GCosts = new double[graph.NumNodes()];
         m_iSource = source;
         m_iTarget = target;
         Search();
@@ -83,7 +78,7 @@ public class Graph_SearchAStar<graph_type extends SparseGraph, ASHeuristic exten
 
     //returns the total cost to the target
     public double GetCostToTarget() {
-        return m_GCosts.get(m_iTarget);
+        return m_GCosts[m_iTarget];
     }
 
     /**
@@ -92,10 +87,10 @@ public class Graph_SearchAStar<graph_type extends SparseGraph, ASHeuristic exten
     private void Search() {
         //create an indexed priority queue of nodes. The nodes with the
         //lowest overall F cost (G+H) are positioned at the front.
-        IndexedPriorityQLow<Double> pq = new IndexedPriorityQLow(m_FCosts, m_Graph.NumNodes());
+        IndexedPriorityQLowDouble pq = new IndexedPriorityQLowDouble(m_Graph.NumNodes());
 
         //put the source node on the queue
-        pq.insert(m_iSource);
+        pq.insert(m_iSource, 0.0);
 
         //while the queue is not empty
         while (!pq.empty()) {
@@ -120,25 +115,23 @@ public class Graph_SearchAStar<graph_type extends SparseGraph, ASHeuristic exten
                 double HCost = m_Heuristic.Calculate(m_Graph, m_iTarget, pE.To());
 
                 //calculate the 'real' cost to this node from the source (G)
-                double GCost = m_GCosts.get(NextClosestNode) + pE.Cost();
+                double GCost = m_GCosts[NextClosestNode] + pE.Cost();
 
                 //if the node has not been added to the frontier, add it and update
                 //the G and F costs
                 if (m_SearchFrontier.get(pE.To()) == null) {
-                    m_FCosts.set(pE.To(), GCost + HCost);
-                    m_GCosts.set(pE.To(), GCost);
+                    m_GCosts[pE.To()] = GCost;
 
-                    pq.insert(pE.To());
+                    pq.insert(pE.To(), GCost + HCost);
 
                     m_SearchFrontier.set(pE.To(), pE);
                 } //if this node is already on the frontier but the cost to get here
                 //is cheaper than has been found previously, update the node
                 //costs and frontier accordingly.
-                else if ((GCost < m_GCosts.get(pE.To())) && (m_ShortestPathTree.get(pE.To()) == null)) {
-                    m_FCosts.set(pE.To(), GCost + HCost);
-                    m_GCosts.set(pE.To(), GCost);
+                else if ((GCost < m_GCosts[pE.To()]) && (m_ShortestPathTree.get(pE.To()) == null)) {
+                    m_GCosts[pE.To()] = GCost;
 
-                    pq.ChangePriority(pE.To());
+                    pq.ChangePriority(pE.To(), GCost + HCost);
 
                     m_SearchFrontier.set(pE.To(), pE);
                 }
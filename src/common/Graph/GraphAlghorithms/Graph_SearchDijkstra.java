@@ -15,7 +15,7 @@ package common.Graph.GraphAlghorithms;
 
 import common.Graph.GraphEdgeTypes.GraphEdge;
 import common.Graph.SparseGraph;
-import common.misc.PriorityQueue.IndexedPriorityQLow;
+import common.misc.PriorityQueue.IndexedPriorityQLowDouble;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -34,7 +34,7 @@ public class Graph_SearchDijkstra<graph_type extends SparseGraph> {
     //will hold the total cost of all the edges that comprise the best path
     //to node 5, found so far in the search (if node 5 is present and has 
     //been visited)
-    private ArrayList<Double> m_CostToThisNode;
+    private double[] m_CostToThisNode;
     //this is an indexed (by node) vector of 'parent' edges leading to nodes 
     //connected to the SPT but that have not been added to the SPT yet. This is
     //a little like the stack or queue used in BST and DST searches.
@@ -53,7 +53,7 @@ public class Graph_SearchDijkstra<graph_type extends SparseGraph> {
         m_Graph = graph;
         m_ShortestPathTree = new ArrayList<GraphEdge>(Collections.nCopies(graph.NumNodes(), (GraphEdge) null));
         m_SearchFrontier = new ArrayList<GraphEdge>(Collections.nCopies(graph.NumNodes(), (GraphEdge) null));
-        m_CostToThisNode = new ArrayList<Double>(Collections.nCopies(graph.NumNodes(), 0.0));
+        m_CostToThisNode = new double[graph.NumNodes()];
 
         m_iSource = source;
         m_iTarget = target;
@@ -101,12 +101,12 @@ public class Graph_SearchDijkstra<graph_type extends SparseGraph> {
      * returns the total cost to the target
      */
     public double GetCostToTarget() {
-        return m_CostToThisNode.get(m_iTarget);
+        return m_CostToThisNode[m_iTarget];
     }
 
     //returns the total cost to the given node
     public double GetCostToNode(int nd) {
-        return m_CostToThisNode.get(nd);
+        return m_CostToThisNode[nd];
     }
 
     private void Search() {
@@ -114,10 +114,10 @@ public class Graph_SearchDijkstra<graph_type extends SparseGraph> {
         //(front to back).Note that the maximum number of elements the iPQ
         //may contain is N. This is because no node can be represented on the 
         //queue more than once.
-        IndexedPriorityQLow<Double> pq = new IndexedPriorityQLow<Double>(m_CostToThisNode, m_Graph.NumNodes());
+        IndexedPriorityQLowDouble pq = new IndexedPriorityQLowDouble(m_Graph.NumNodes());
 
         //put the source node on the queue
-        pq.insert(m_iSource);
+        pq.insert(m_iSource, 0.0);
 
         //while the queue is not empty
         while (!pq.empty()) {
@@ -143,15 +143,15 @@ public class Graph_SearchDijkstra<graph_type extends SparseGraph> {
                     pE = ConstEdgeItr.next()) {
                 //the total cost to the node this edge points to is the cost to the
                 //current node plus the cost of the edge connecting them.
-                double NewCost = m_CostToThisNode.get(NextClosestNode) + pE.Cost();
+                double NewCost = m_CostToThisNode[NextClosestNode] + pE.Cost();
 
                 //if this edge has never been on the frontier make a note of the cost
                 //to get to the node it points to, then add the edge to the frontier
                 //and the destination node to the PQ.
                 if (m_SearchFrontier.get(pE.To()) == null) {
-                    m_CostToThisNode.set(pE.To(), NewCost);
+                    m_CostToThisNode[pE.To()] = NewCost;
 
-                    pq.insert(pE.To());
+                    pq.insert(pE.To(), NewCost);
 
                     m_SearchFrontier.set(pE.To(), pE);
                 } //else test to see if the cost to reach the destination node via the
@@ -159,13 +159,13 @@ public class Graph_SearchDijkstra<graph_type extends SparseGraph> {
                 //this path is cheaper, we assign the new cost to the destination
                 //node, update its entry in the PQ to reflect the change and add the
                 //edge to the frontier
-                else if ((NewCost < m_CostToThisNode.get(pE.To()))
+                else if ((NewCost < m_CostToThisNode[pE.To()])
                         && (m_ShortestPathTree.get(pE.To()) == null)) {
-                    m_CostToThisNode.set(pE.To(), NewCost);
+                    m_CostToThisNode[pE.To()] = NewCost;
 
                     //because the cost is less than it was previously, the PQ must be
                     //re-sorted to account for this.
-                    pq.ChangePriority(pE.To());
+                    pq.ChangePriority(pE.To(), NewCost);
 
                     m_SearchFrontier.set(pE.To(), pE);
                 }
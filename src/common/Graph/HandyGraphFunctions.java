@@ -20,6 +20,10 @@ import common.Graph.GraphNodeTypes.NavGraphNode;
 import static common.misc.Cgdi.gdi;
 import static common.misc.Stream_Utility_function.ttos;
 import static common.misc.utils.MinDouble;
+import common.misc.PriorityQueue.IndexedPriorityQLowDouble;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class HandyGraphFunctions {
 
@@ -130,25 +134,25 @@ public class HandyGraphFunctions {
             return;
         }
 
-        gdi.SetPenColor(color);
+        gdi().SetPenColor(color);
 
         //draw the nodes 
         graph_type.NodeIterator NodeItr = new graph_type.NodeIterator(graph);
         for (NavGraphNode pN = NodeItr.begin();
                 !NodeItr.end();
                 pN = NodeItr.next()) {
-            gdi.Circle(pN.Pos(), 2);
+            gdi().Circle(pN.Pos(), 2);
 
             if (DrawNodeIDs) {
-                gdi.TextColor(200, 200, 200);
-                gdi.TextAtPos((int) pN.Pos().x + 5, (int) pN.Pos().y - 5, ttos(pN.Index()));
+                gdi().TextColor(200, 200, 200);
+                gdi().TextAtPos((int) pN.Pos().x + 5, (int) pN.Pos().y - 5, ttos(pN.Index()));
             }
 
             graph_type.EdgeIterator EdgeItr = new graph_type.EdgeIterator(graph, pN.Index());
             for (GraphEdge pE = EdgeItr.begin();
                     !EdgeItr.end();
                     pE = EdgeItr.next()) {
-                gdi.Line(pN.Pos(), graph.GetNode(pE.To()).Pos());
+                gdi().Line(pN.Pos(), graph.GetNode(pE.To()).Pos());
             }
         }
     }
@@ -249,6 +253,99 @@ public class HandyGraphFunctions {
         return PathCosts;
     }
 
+    /**
+     * the same as above for the compact form of a graph. One Dijkstra search
+     * is run from every node, the searches are spread over the threads of the
+     * common fork/join pool and the costs are stored in a flat table (split
+     * into chunks, see PathCostTable). The cost to a node that cannot be
+     * reached is 0.
+     */
+    public static PathCostTable CreateAllPairsCostsTable(final CompactGraph G) {
+        float[][] costs = new float[PathCostTable.NumChunks(G.NumNodes())][];
+        for (int i = 0; i < costs.length; ++i) {
+            costs[i] = new float[PathCostTable.ChunkSize(G.NumNodes(), i)];
+        }
+
+        ForkJoinPool.commonPool().invoke(new AllPairsCostsTask(G, costs, 0, G.NumNodes()));
+
+        return new PathCostTable(G.NumNodes(), costs);
+    }
+
+    /**
+     * fills the rows from .. to-1 of an all pairs costs table
+     */
+    private static class AllPairsCostsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int NumSourcesPerTask = 16;
+        private final CompactGraph m_Graph;
+        private final float[][] m_Costs;
+        private final int m_iFrom;
+        private final int m_iTo;
+
+        AllPairsCostsTask(CompactGraph G, float[][] costs, int from, int to) {
+            m_Graph = G;
+            m_Costs = costs;
+            m_iFrom = from;
+            m_iTo = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (m_iTo - m_iFrom > NumSourcesPerTask) {
+                int mid = (m_iFrom + m_iTo) >>> 1;
+                invokeAll(new AllPairsCostsTask(m_Graph, m_Costs, m_iFrom, mid),
+                        new AllPairsCostsTask(m_Graph, m_Costs, mid, m_iTo));
+                return;
+            }
+
+            final int NumNodes = m_Graph.NumNodes();
+            final int RowsPerChunk = PathCostTable.RowsPerChunk(NumNodes);
+            IndexedPriorityQLowDouble pq = new IndexedPriorityQLowDouble(NumNodes);
+            double[] CostToThisNode = new double[NumNodes];
+            //0 = not reached yet, 1 = on the queue, 2 = done
+            byte[] state = new byte[NumNodes];
+
+            for (int source = m_iFrom; source < m_iTo; ++source) {
+                Arrays.fill(CostToThisNode, 0.0);
+                Arrays.fill(state, (byte) 0);
+                pq.Clear();
+
+                pq.insert(source, 0.0);
+                state[source] = 1;
+
+                while (!pq.empty()) {
+                    int NextClosestNode = pq.Pop();
+                    state[NextClosestNode] = 2;
+
+                    final int LastEdge = m_Graph.FirstEdge(NextClosestNode + 1);
+                    for (int e = m_Graph.FirstEdge(NextClosestNode); e < LastEdge; ++e) {
+                        final int To = m_Graph.EdgeTo(e);
+                        double NewCost = CostToThisNode[NextClosestNode] + m_Graph.EdgeCost(e);
+
+                        if (state[To] == 0) {
+                            CostToThisNode[To] = NewCost;
+                            pq.insert(To, NewCost);
+                            state[To] = 1;
+                        } else if (state[To] == 1 && NewCost < CostToThisNode[To]) {
+                            CostToThisNode[To] = NewCost;
+                            pq.ChangePriority(To, NewCost);
+                        }
+                    }
+                }
+
+                //the cost from a node to itself is 0
+                CostToThisNode[source] = 0.0;
+                final float[] chunk = m_Costs[source / RowsPerChunk];
+                final int row = (source % RowsPerChunk) * NumNodes;
+                for (int target = 0; target < NumNodes; ++target) {
+                    chunk[row + target] = (float) CostToThisNode[target];
+                }
+            }
+        }
+    }
+
     /**
      * determines the average length of the edges in a navgraph (using the 
      * distance between the source & target node positions (not the cost of the 
@@ -0,0 +1,153 @@
+/**
+ * Desc: the cost of the shortest path from a few landmark nodes to every node
+ * of a graph, used by the ALT heuristic (see
+ * AStarHeuristicPolicies.Heuristic_ALT).
+ *
+ * By the triangle inequality the cost of the shortest path from n to t is at
+ * least |cost(L, t) - cost(L, n)| for any landmark L, so the table gives a
+ * lower bound on the cost between any two nodes. Unlike the straight line
+ * distance the bound accounts for walls and doors, which makes it much closer
+ * to the real cost on maze-like maps.
+ *
+ * The landmarks are chosen one by one, every new one as far as possible from
+ * the ones chosen before it, so they end up around the edges of the map
+ * where they give the best bounds. The graph must be undirected (the costs
+ * are only calculated from the landmarks).
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.Graph;
+
+import common.misc.PriorityQueue.IndexedPriorityQLowDouble;
+import java.util.Arrays;
+
+public class LandmarkTable {
+
+    private final int m_iNumLandmarks;
+    private final int[] m_Landmarks;
+    /**
+     * the costs from the landmarks to node n are m_Costs[n * NumLandmarks]
+     * up to (but not including) m_Costs[(n + 1) * NumLandmarks], so a lookup
+     * reads one short run of the array. Infinity if the node cannot be
+     * reached from the landmark
+     */
+    private final double[] m_Costs;
+
+    public LandmarkTable(CompactGraph G, int MaxLandmarks) {
+        final int NumNodes = G.NumNodes();
+        double[] row = new double[NumNodes];
+        //the cost from the closest landmark chosen so far to every node
+        double[] closest = new double[NumNodes];
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+        IndexedPriorityQLowDouble pq = new IndexedPriorityQLowDouble(NumNodes);
+
+        //start by the node farthest from the first valid node
+        int landmark = -1;
+        for (int n = 0; n < NumNodes && landmark < 0; ++n) {
+            if (G.isNodePresent(n)) {
+                landmark = n;
+            }
+        }
+        if (landmark >= 0) {
+            Search(G, landmark, row, pq);
+            landmark = Farthest(G, row);
+        }
+
+        int[] landmarks = new int[Math.max(0, MaxLandmarks)];
+        double[][] rows = new double[landmarks.length][];
+        int count = 0;
+        while (landmark >= 0 && count < landmarks.length) {
+            landmarks[count] = landmark;
+            rows[count] = new double[NumNodes];
+            Search(G, landmark, rows[count], pq);
+            for (int n = 0; n < NumNodes; ++n) {
+                closest[n] = Math.min(closest[n], rows[count][n]);
+            }
+            ++count;
+
+            landmark = Farthest(G, closest);
+        }
+
+        m_iNumLandmarks = count;
+        m_Landmarks = Arrays.copyOf(landmarks, count);
+        m_Costs = new double[NumNodes * count];
+        for (int l = 0; l < count; ++l) {
+            for (int n = 0; n < NumNodes; ++n) {
+                m_Costs[n * count + l] = rows[l][n];
+            }
+        }
+    }
+
+    /**
+     * @return the valid node with the highest finite cost in costs, or -1 if
+     * every node has a cost of 0 (it is a landmark already) or infinity
+     */
+    private static int Farthest(CompactGraph G, double[] costs) {
+        int farthest = -1;
+        double max = 0.0;
+        for (int n = 0; n < costs.length; ++n) {
+            if (G.isNodePresent(n) && costs[n] > max && costs[n] < Double.POSITIVE_INFINITY) {
+                max = costs[n];
+                farthest = n;
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * fills costs with the cost of the shortest path from source to every
+     * node using Dijkstra's algorithm
+     */
+    private static void Search(CompactGraph G, int source, double[] costs, IndexedPriorityQLowDouble pq) {
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        pq.Clear();
+
+        costs[source] = 0.0;
+        pq.insert(source, 0.0);
+        while (!pq.empty()) {
+            final int NextClosestNode = pq.Pop();
+            final int LastEdge = G.FirstEdge(NextClosestNode + 1);
+            for (int e = G.FirstEdge(NextClosestNode); e < LastEdge; ++e) {
+                final int To = G.EdgeTo(e);
+                final double NewCost = costs[NextClosestNode] + G.EdgeCost(e);
+                if (NewCost < costs[To]) {
+                    if (costs[To] == Double.POSITIVE_INFINITY) {
+                        pq.insert(To, NewCost);
+                    } else {
+                        pq.ChangePriority(To, NewCost);
+                    }
+                    costs[To] = NewCost;
+                }
+            }
+        }
+    }
+
+    public int NumLandmarks() {
+        return m_iNumLandmarks;
+    }
+
+    /**
+     * @return the node of the i-th landmark
+     */
+    public int Landmark(int i) {
+        return m_Landmarks[i];
+    }
+
+    /**
+     * @return a lower bound on the cost of the shortest path between nd1 and
+     * nd2 (0 if no landmark reaches both nodes)
+     */
+    public double LowerBound(int nd1, int nd2) {
+        final int row1 = nd1 * m_iNumLandmarks;
+        final int row2 = nd2 * m_iNumLandmarks;
+        double bound = 0.0;
+        for (int l = 0; l < m_iNumLandmarks; ++l) {
+            final double c1 = m_Costs[row1 + l];
+            final double c2 = m_Costs[row2 + l];
+            if (c1 < Double.POSITIVE_INFINITY && c2 < Double.POSITIVE_INFINITY) {
+                bound = Math.max(bound, Math.abs(c1 - c2));
+            }
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Desc: a lookup table of the cost of the shortest path between every pair of
+ * nodes of a graph. The costs are kept row by row in flat buffers of floats,
+ * so the table takes 4 bytes per pair and no objects. A single buffer (or
+ * array) cannot hold more than Integer.MAX_VALUE elements and a graph of
+ * more than 46340 nodes has more pairs than that, so the rows are split into
+ * chunks of at most MaxCostsPerChunk costs and every index stays an int. The
+ * chunks are either arrays on the heap or memory mapped parts of a file (see
+ * Raven_MapCache).
+ *
+ * see HandyGraphFunctions.CreateAllPairsCostsTable
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.Graph;
+
+import java.nio.FloatBuffer;
+
+public class PathCostTable {
+
+    /**
+     * the maximal number of costs in one chunk (1 GB of floats, so a chunk
+     * can also be memory mapped in one piece)
+     */
+    public static final int MaxCostsPerChunk = 1 << 28;
+    private final int m_iNumNodes;
+    private final int m_iRowsPerChunk;
+    private final FloatBuffer[] m_Chunks;
+
+    /**
+     * @return the number of rows stored in one chunk of the table of a graph
+     * with NumNodes nodes
+     */
+    public static int RowsPerChunk(int NumNodes) {
+        return Math.max(1, MaxCostsPerChunk / Math.max(1, NumNodes));
+    }
+
+    /**
+     * @return the number of chunks of the table of a graph with NumNodes nodes
+     */
+    public static int NumChunks(int NumNodes) {
+        final int rows = RowsPerChunk(NumNodes);
+        return (NumNodes + rows - 1) / rows;
+    }
+
+    /**
+     * @return the number of costs in the chunk-th chunk of the table of a
+     * graph with NumNodes nodes
+     */
+    public static int ChunkSize(int NumNodes, int chunk) {
+        final int rows = RowsPerChunk(NumNodes);
+        return Math.min(rows, NumNodes - chunk * rows) * NumNodes;
+    }
+
+    /**
+     * wraps already filled arrays of costs, one per chunk
+     */
+    public PathCostTable(int NumNodes, float[][] Chunks) {
+        this(NumNodes, Wrap(Chunks));
+    }
+
+    /**
+     * wraps already filled buffers of costs, one per chunk
+     */
+    public PathCostTable(int NumNodes, FloatBuffer[] Chunks) {
+        assert Chunks.length == NumChunks(NumNodes) : "<PathCostTable>: wrong number of chunks";
+        m_iNumNodes = NumNodes;
+        m_iRowsPerChunk = RowsPerChunk(NumNodes);
+        m_Chunks = Chunks;
+        for (int i = 0; i < Chunks.length; ++i) {
+            assert Chunks[i].capacity() == ChunkSize(NumNodes, i) : "<PathCostTable>: wrong number of costs";
+        }
+    }
+
+    private static FloatBuffer[] Wrap(float[][] Chunks) {
+        FloatBuffer[] buffers = new FloatBuffer[Chunks.length];
+        for (int i = 0; i < Chunks.length; ++i) {
+            buffers[i] = FloatBuffer.wrap(Chunks[i]);
+        }
+        return buffers;
+    }
+
+    public int NumNodes() {
+        return m_iNumNodes;
+    }
+
+    /**
+     * @return the cost of the shortest path from node nd1 to node nd2
+     */
+    public double GetCost(int nd1, int nd2) {
+        final int chunk = nd1 / m_iRowsPerChunk;
+        final int row = nd1 - chunk * m_iRowsPerChunk;
+        return m_Chunks[chunk].get(row * m_iNumNodes + nd2);
+    }
+
+    public int NumChunks() {
+        return m_Chunks.length;
+    }
+
+    /**
+     * @return a read only view of the costs of the chunk-th chunk, row by row
+     */
+    public FloatBuffer GetChunk(int chunk) {
+        return m_Chunks[chunk].asReadOnlyBuffer();
+    }
+}
@@ -57,6 +57,8 @@ public class SparseGraph<node_type extends NavGraphNode, edge_type extends Graph
     private boolean m_bDigraph;
     //the index of the next node to be added
     private int m_iNextNodeIndex;
+    //incremented whenever a node, an edge or an edge cost changes
+    private int m_iVersion = 0;
 
     /**
      * @return true if the edge is not present in the graph. Used when adding
@@ -151,6 +153,8 @@ public class SparseGraph<node_type extends NavGraphNode, edge_type extends Graph
      * index matches the next node index before being added to the graph
      */
     public int AddNode(node_type node) {
+        ++m_iVersion;
+
         if (node.Index() < (int) m_Nodes.size()) {
             //make sure the client is not trying to add a node with the same ID as
             //a currently active node
@@ -177,6 +181,8 @@ public class SparseGraph<node_type extends NavGraphNode, edge_type extends Graph
     public void RemoveNode(int node) {
         assert node < (int) m_Nodes.size() : "<SparseGraph::RemoveNode>: invalid node index";
 
+        ++m_iVersion;
+
         //set this node's index to invalid_node_index
         m_Nodes.get(node).SetIndex(invalid_node_index);
 
@@ -216,6 +222,8 @@ public class SparseGraph<node_type extends NavGraphNode, edge_type extends Graph
         assert (edge.From() < m_iNextNodeIndex) && (edge.To() < m_iNextNodeIndex) :
                 "<SparseGraph::AddEdge>: invalid node index";
 
+        ++m_iVersion;
+
         //make sure both nodes are active before adding the edge
         if ((m_Nodes.get(edge.To()).Index() != invalid_node_index)
                 && (m_Nodes.get(edge.From()).Index() != invalid_node_index)) {
@@ -254,6 +262,8 @@ public class SparseGraph<node_type extends NavGraphNode, edge_type extends Graph
         assert (from < (int) m_Nodes.size()) && (to < (int) m_Nodes.size()) :
                 "<SparseGraph::RemoveEdge>:invalid node index";
 
+        ++m_iVersion;
+
         ListIterator<edge_type> it;
 
         if (!m_bDigraph) {
@@ -285,6 +295,8 @@ public class SparseGraph<node_type extends NavGraphNode, edge_type extends Graph
         assert (from < m_Nodes.size()) && (to < m_Nodes.size()) :
                 "<SparseGraph::SetEdgeCost>: invalid index";
 
+        ++m_iVersion;
+
         //visit each neighbour and erase any edges leading to this node
         ListIterator<edge_type> it = m_Edges.get(from).listIterator();
         while (it.hasNext()) {
@@ -452,19 +464,7 @@ public class SparseGraph<node_type extends NavGraphNode, edge_type extends Graph
                 throw new RuntimeException(ex);
             }
 
-            //when editing graphs it's possible to end up with a situation where some
-            //of the nodes have been invalidated (their id's set to invalid_node_index). Therefore
-            //when a node of index invalid_node_index is encountered, it must still be added.
-            if (NewNode.Index() != invalid_node_index) {
-                AddNode(NewNode);
-            } else {
-                m_Nodes.add(NewNode);
-
-                //make sure an edgelist is added for each node
-                m_Edges.add(new EdgeList());
-
-                ++m_iNextNodeIndex;
-            }
+            AddLoadedNode(NewNode);
         }
 
         //now add the edges
@@ -481,16 +481,65 @@ public class SparseGraph<node_type extends NavGraphNode, edge_type extends Graph
         return true;
     }
 
+    /**
+     * adds the next node of a graph being loaded. Unlike AddNode this also
+     * adds invalidated nodes, so the loaded nodes keep their indexes
+     */
+    public void AddLoadedNode(node_type node) {
+        //when editing graphs it's possible to end up with a situation where some
+        //of the nodes have been invalidated (their id's set to invalid_node_index). Therefore
+        //when a node of index invalid_node_index is encountered, it must still be added.
+        if (node.Index() != invalid_node_index) {
+            AddNode(node);
+        } else {
+            m_Nodes.add(node);
+
+            //make sure an edgelist is added for each node
+            m_Edges.add(new EdgeList());
+
+            ++m_iNextNodeIndex;
+        }
+    }
+
+    /**
+     * appends an edge to the edge list of its from node as it is: no check
+     * for a duplicate and no edge added in the opposite direction. Used to
+     * load the edge lists of a graph that were saved complete and in order
+     * (see Raven_MapCompiler)
+     */
+    @SuppressWarnings("unchecked")
+    public void AppendEdge(edge_type edge) {
+        assert (edge.From() < m_iNextNodeIndex) && (edge.To() < m_iNextNodeIndex) :
+                "<SparseGraph::AppendEdge>: invalid node index";
+
+        ++m_iVersion;
+
+        m_Edges.get(edge.From()).add(edge);
+    }
+
+    /**
+     * @return a number that changes whenever the graph is modified (a node or
+     * an edge added or removed or an edge cost changed), so the users of the
+     * graph can tell their derived data is out of date
+     */
+    public int Version() {
+        return m_iVersion;
+    }
+
     /**
      * clears the graph ready for new node insertions
      */
     public void Clear() {
+        ++m_iVersion;
+
         m_iNextNodeIndex = 0;
         m_Nodes.clear();
         m_Edges.clear();
     }
 
     public void RemoveEdges() {
+        ++m_iVersion;
+
         ListIterator<EdgeList> it = m_Edges.listIterator();
         while (it.hasNext()) {
             it.next().clear();
@@ -10,6 +10,7 @@ import Raven.Raven_Messages.message_type;
 import Raven.BaseGameEntity;
 import static Raven.DEFINE.*;
 import java.util.TreeSet;
+import common.Game.GameContext;
 import static common.Game.EntityManager.EntityMgr;
 import static common.misc.FrameCounter.TickCounter;
 import static common.Debug.DbgConsole.debug_con;
@@ -21,7 +22,9 @@ public class MessageDispatcher {
         //define(SHOW_MESSAGING_INFO);
     }
     //to make life easier...
-    final public static MessageDispatcher Dispatcher = new MessageDispatcher();
+    public static MessageDispatcher Dispatcher() {
+        return GameContext.Current().GetDispatcher();
+    }
     //to make code easier to read
     public static final double SEND_MSG_IMMEDIATELY = 0.0;
     public static final int NO_ADDITIONAL_INFO = 0;
@@ -45,7 +48,8 @@ public class MessageDispatcher {
         }
     }
 
-    private MessageDispatcher() {
+    //one instance per GameContext
+    public MessageDispatcher() {
     }
 
     //copy ctor and assignment should be private
@@ -59,7 +63,7 @@ public class MessageDispatcher {
 
     //this class is a singleton
     public static MessageDispatcher Instance() {
-        return Dispatcher;
+        return Dispatcher();
     }
 
     /**
@@ -81,7 +85,7 @@ public class MessageDispatcher {
             Object AdditionalInfo) {
 
         //get a pointer to the receiver
-        BaseGameEntity pReceiver = EntityMgr.GetEntityFromID(receiver);
+        BaseGameEntity pReceiver = EntityMgr().GetEntityFromID(receiver);
 
         //make sure the receiver is valid
         if (pReceiver == null) {
@@ -98,13 +102,13 @@ public class MessageDispatcher {
         //if there is no delay, route telegram immediately                       
         if (delay <= 0.0) {
             if (def(SHOW_MESSAGING_INFO)) {
-                debug_con.print("\nTelegram dispatched at time: ").print(TickCounter.GetCurrentFrame()).print(" by ").print(sender).print(" for ").print(receiver).print(". Msg is ").print(msg).print("");
+                debug_con.print("\nTelegram dispatched at time: ").print(TickCounter().GetCurrentFrame()).print(" by ").print(sender).print(" for ").print(receiver).print(". Msg is ").print(msg).print("");
             }
             //send the telegram to the recipient
             Discharge(pReceiver, telegram);
         } //else calculate the time when the telegram should be dispatched
         else {
-            double CurrentTime = TickCounter.GetCurrentFrame();
+            double CurrentTime = TickCounter().GetCurrentFrame();
 
             telegram.DispatchTime = CurrentTime + delay;
 
@@ -112,7 +116,7 @@ public class MessageDispatcher {
             PriorityQ.add(telegram);
 
             if (def(SHOW_MESSAGING_INFO)) {
-                debug_con.print("\nDelayed telegram from ").print(sender).print(" recorded at time ").print(TickCounter.GetCurrentFrame()).print(" for ").print(receiver).print(". Msg is ").print(msg).print("");
+                debug_con.print("\nDelayed telegram from ").print(sender).print(" recorded at time ").print(TickCounter().GetCurrentFrame()).print(" for ").print(receiver).print(". Msg is ").print(msg).print("");
             }
         }
     }
@@ -123,7 +127,7 @@ public class MessageDispatcher {
      */
     public void DispatchDelayedMessages() {
         //first get current time
-        double CurrentTime = TickCounter.GetCurrentFrame();
+        double CurrentTime = TickCounter().GetCurrentFrame();
 
         //now peek at the queue to see if any telegrams need dispatching.
         //remove all telegrams from the front of the queue that have gone
@@ -135,7 +139,7 @@ public class MessageDispatcher {
             final Telegram telegram = PriorityQ.first();
 
             //find the recipient
-            BaseGameEntity pReceiver = EntityMgr.GetEntityFromID(telegram.Receiver);
+            BaseGameEntity pReceiver = EntityMgr().GetEntityFromID(telegram.Receiver);
 
             if (def(SHOW_MESSAGING_INFO)) {
                 debug_con.print("\nQueued telegram ready for dispatch: Sent to ").print(pReceiver.ID()).print(". Msg is ").print(telegram.Msg).print("");
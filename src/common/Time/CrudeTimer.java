@@ -3,14 +3,26 @@
  */
 package common.Time;
 
+import common.Game.GameContext;
+
 public class CrudeTimer {
 
-    final public static CrudeTimer Clock = new CrudeTimer();
+    /**
+     * @return the clock of the match driven by the calling thread
+     */
+    public static CrudeTimer Clock() {
+        return GameContext.Current().GetClock();
+    }
     //set to the time (in seconds) when class is instantiated
     private double m_dStartTime;
+    //the length (in seconds) of one simulation tick. If this is zero the timer
+    //follows the system clock, otherwise time only moves on when Tick() is called
+    private double m_dTimeStep = 0.0;
+    //the number of ticks since the timer was started (virtual time only)
+    private long m_lNumTicks = 0;
 
-    //set the start time
-    private CrudeTimer() {
+    //set the start time (one instance per GameContext)
+    public CrudeTimer() {
         m_dStartTime = System.currentTimeMillis() * 0.001;
     }
 
@@ -24,11 +36,54 @@ public class CrudeTimer {
     }
 
     public CrudeTimer Instance() {
-        return Clock;
+        return Clock();
+    }
+
+    /**
+     * switches the timer to virtual time. From now on the current time only
+     * advances by TimeStep seconds each time Tick() is called, so the game
+     * can be stepped at any speed and still behave exactly as if it was
+     * played in real time. A TimeStep of zero switches back to the system
+     * clock.
+     */
+    public void SetTimeStep(double TimeStep) {
+        assert TimeStep >= 0 : "<CrudeTimer::SetTimeStep>: negative time step";
+        m_dTimeStep = TimeStep;
+        Reset();
+    }
+
+    public double GetTimeStep() {
+        return m_dTimeStep;
+    }
+
+    public boolean isVirtual() {
+        return m_dTimeStep > 0.0;
+    }
+
+    /**
+     * counts one update-step (see GetNumTicks). When the timer is virtual
+     * this also advances the time by one time step; when it follows the
+     * system clock the time does not depend on the count.
+     */
+    public void Tick() {
+        ++m_lNumTicks;
+    }
+
+    public long GetNumTicks() {
+        return m_lNumTicks;
+    }
+
+    //restarts the timer from zero
+    public void Reset() {
+        m_dStartTime = System.currentTimeMillis() * 0.001;
+        m_lNumTicks = 0;
     }
 
     //returns how much time has elapsed since the timer was started
     public double GetCurrentTime() {
+        if (isVirtual()) {
+            return ((double) (Math.round(m_lNumTicks * m_dTimeStep * 1000))) / 1000;
+        }
         //return System.currentTimeMillis() * 0.001 - m_dStartTime;
         // The truncation of the results was added to produce results similar to what is produced by the C++ code
         // Improved by A.Rick Anderson
@@ -8,6 +8,7 @@
  */
 package common.Time;
 
+import static common.Time.CrudeTimer.Clock;
 import static common.misc.utils.*;
 
 public class Regulator {
@@ -18,7 +19,7 @@ public class Regulator {
     private long m_dwNextUpdateTime;
 
     public Regulator(double NumUpdatesPerSecondRqd) {
-        m_dwNextUpdateTime = (long) (System.currentTimeMillis() + RandFloat() * 1000);
+        m_dwNextUpdateTime = (long) (CurrentTimeMillis() + RandFloat() * 1000);
 
         if (NumUpdatesPerSecondRqd > 0) {
             m_dUpdatePeriod = 1000.0 / NumUpdatesPerSecondRqd;
@@ -33,6 +34,14 @@ public class Regulator {
     //have their updates spread evenly
     private static final double UpdatePeriodVariator = 10.0;
 
+    /**
+     * the regulator runs on the game clock rather than the system clock so it
+     * keeps the same cadence when the game is stepped in virtual time
+     */
+    private static long CurrentTimeMillis() {
+        return Math.round(Clock().GetCurrentTime() * 1000);
+    }
+
     /**
      * @return true if the current time exceeds m_dwNextUpdateTime
      */
@@ -49,7 +58,7 @@ public class Regulator {
             return false;
         }
 
-        long CurrentTime = System.currentTimeMillis();
+        long CurrentTime = CurrentTimeMillis();
 
         if (CurrentTime >= m_dwNextUpdateTime) {
             m_dwNextUpdateTime = (long) (CurrentTime + m_dUpdatePeriod + RandInRange(-UpdatePeriodVariator, UpdatePeriodVariator));
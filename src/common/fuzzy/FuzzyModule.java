@@ -1,6 +1,11 @@
 /**
  * Desc:   this class describes a fuzzy module: a collection of fuzzy variables
  *         and the rules that operate on them.
+ *
+ *         The variables and rules are compiled into a FuzzyProgram the first
+ *         time the module is used and evaluated from it. A variable can be
+ *         named by a handle (see GetHandle) instead of its name, which saves
+ *         looking the name up on every use.
  * 
  * @author Petr (http://www.sallyx.org/)
  */
@@ -41,15 +46,33 @@ public class FuzzyModule {
      * a vector containing all the fuzzy rules
      */
     private List<FuzzyRule> m_Rules = new ArrayList<FuzzyRule>();
+    /**
+     * the variables in the order they were created (a handle is an index to
+     * this list) and the handle of every name
+     */
+    private List<FuzzyVariable> m_VariableList = new ArrayList<FuzzyVariable>();
+    private HashMap<String, Integer> m_Handles = new HashMap<String, Integer>();
+    /**
+     * the variables and rules compiled, or null if they have changed since
+     * they were last compiled
+     */
+    private FuzzyProgram m_Program = null;
 
     /**
-     * zeros the DOMs of the consequents of each rule. Used by Defuzzify()
+     * @return the compiled variables and rules, compiling them if necessary
      */
-    private void SetConfidencesOfConsequentsToZero() {
-        Iterator<FuzzyRule> curRule = m_Rules.iterator();
-        while (curRule.hasNext()) {
-            curRule.next().SetConfidenceOfConsequentToZero();
+    private FuzzyProgram GetProgram() {
+        if (m_Program == null) {
+            m_Program = new FuzzyProgram(m_VariableList, m_Rules, NumSamples);
         }
+        return m_Program;
+    }
+
+    /**
+     * forgets the compiled variables and rules. Called when they change
+     */
+    void DiscardProgram() {
+        m_Program = null;
     }
 
     //------------------------------ dtor -----------------------------------------
@@ -58,13 +81,44 @@ public class FuzzyModule {
         super.finalize();
         m_Variables.clear();
         m_Rules.clear();
+        m_VariableList.clear();
+        m_Handles.clear();
     }
 
     /**
      *  creates a new 'empty' fuzzy variable and returns a reference to it.
      */
     public FuzzyVariable CreateFLV(String VarName) {
-        m_Variables.put(VarName, new FuzzyVariable());
+        final FuzzyVariable var = new FuzzyVariable(this);
+        m_Variables.put(VarName, var);
+        if (m_Handles.containsKey(VarName)) {
+            m_VariableList.set(m_Handles.get(VarName), var);
+        } else {
+            m_Handles.put(VarName, m_VariableList.size());
+            m_VariableList.add(var);
+        }
+        DiscardProgram();
+        return var;
+    }
+
+    /**
+     * returns the handle of the fuzzy variable with the given name, which can
+     * be used instead of the name from then on
+     */
+    public int GetHandle(String NameOfFLV) {
+        assert (m_Handles.get(NameOfFLV) != null) :
+                "<FuzzyModule::GetHandle>:key not found";
+
+        return m_Handles.get(NameOfFLV);
+    }
+
+    /**
+     * returns the fuzzy variable with the given name
+     */
+    FuzzyVariable GetFLV(String VarName) {
+        assert (m_Variables.get(VarName) != null) :
+                "<FuzzyModule::GetFLV>:key not found";
+
         return m_Variables.get(VarName);
     }
 
@@ -73,6 +127,7 @@ public class FuzzyModule {
      */
     public void AddRule(FuzzyTerm antecedent, FuzzyTerm consequence) {
         m_Rules.add(new FuzzyRule(antecedent, consequence));
+        DiscardProgram();
     }
 
     /**
@@ -84,7 +139,15 @@ public class FuzzyModule {
         assert (m_Variables.get(NameOfFLV) != null) :
                 "<FuzzyModule::Fuzzify>:key not found";
 
-        m_Variables.get(NameOfFLV).Fuzzify(val);
+        Fuzzify(m_Handles.get(NameOfFLV), val);
+    }
+
+    /**
+     * calculates the DOMs of the value in the sets of the variable with the
+     * given handle
+     */
+    public void Fuzzify(int FLV, double val) {
+        GetProgram().Fuzzify(FLV, val);
     }
 
     /**
@@ -96,21 +159,25 @@ public class FuzzyModule {
         assert (m_Variables.get(NameOfFLV) != null) :
                 "<FuzzyModule::DeFuzzifyMaxAv>:key not found";
 
-        //clear the DOMs of all the consequents of all the rules
-        SetConfidencesOfConsequentsToZero();
+        return DeFuzzify(m_Handles.get(NameOfFLV), method);
+    }
+
+    /**
+     * given the handle of a fuzzy variable and a deffuzification method this
+     * returns a crisp value
+     */
+    public double DeFuzzify(int FLV, DefuzzifyMethod method) {
+        final FuzzyProgram program = GetProgram();
 
         //process the rules
-        Iterator<FuzzyRule> curRule = m_Rules.iterator();
-        while (curRule.hasNext()) {
-            curRule.next().Calculate();
-        }
+        program.Calculate();
 
         //now defuzzify the resultant conclusion using the specified method
         switch (method) {
             case centroid:
-                return m_Variables.get(NameOfFLV).DeFuzzifyCentroid(NumSamples);
+                return program.DeFuzzifyCentroid(FLV);
             case max_av:
-                return m_Variables.get(NameOfFLV).DeFuzzifyMaxAv();
+                return program.DeFuzzifyMaxAv(FLV);
         }
 
         return 0.0;
@@ -122,6 +189,11 @@ public class FuzzyModule {
     public PrintStream WriteAllDOMs(PrintStream os) {
         os.print("\n\n");
 
+        //the DOMs are kept by the program
+        if (m_Program != null) {
+            m_Program.StoreDOMs();
+        }
+
         Set<Entry<String, FuzzyVariable>> set = m_Variables.entrySet();
         Iterator<Entry<String, FuzzyVariable>> it = set.iterator();
         while (it.hasNext()) {
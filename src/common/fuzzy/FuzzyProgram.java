@@ -0,0 +1,357 @@
+/**
+ * Desc: the variables and rules of a fuzzy module flattened into arrays, so
+ * evaluating the module needs no map lookups, no iterators and no calls
+ * through the terms of the rules.
+ *
+ * Every fuzzy set the rules use gets a slot holding its DOM. The sets of a
+ * variable take consecutive slots (in the order the variable goes through
+ * them), and the sets the hedges keep for themselves (FzVery and FzFairly
+ * work on a copy of their set) get slots of their own. The antecedent of
+ * every rule is turned into code for a small stack machine: a set pushes its
+ * DOM and an operator replaces the DOMs of its terms by their minimum or
+ * maximum. The consequent of every rule is the list of sets its DOM is ORed
+ * with. The code does what the terms would do in the same order, so the
+ * results are exactly those of the terms.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.fuzzy;
+
+import common.fuzzy.setTypes.FuzzySet;
+import static common.misc.utils.MaxDouble;
+import static common.misc.utils.MinFloat;
+import static common.misc.utils.isEqual;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FuzzyProgram {
+
+    /**
+     * the instructions of the code. A set pushes the DOM of its slot (squared
+     * by the very hedge or square rooted by the fairly one); an operator pops
+     * the given number of DOMs and pushes their minimum (AND) or maximum (OR)
+     */
+    public static final int Op_Set = 0;
+    public static final int Op_Very = 1;
+    public static final int Op_Fairly = 2;
+    public static final int Op_AND = 3;
+    public static final int Op_OR = 4;
+    /**
+     * the sets and their DOMs
+     */
+    private final FuzzySet[] m_Sets;
+    private final double[] m_dDOMs;
+    private final double[] m_dRepresentativeVals;
+    /**
+     * the slots of the sets of every variable are m_VarFirstSlot[v] up to
+     * m_VarFirstSlot[v + 1]
+     */
+    private final int[] m_VarFirstSlot;
+    private final double[] m_dMinRange;
+    private final double[] m_dMaxRange;
+    /**
+     * the DOMs of the sets of every variable at the samples the centroid
+     * method takes (NumSamples for every slot) and the positions of the
+     * samples (NumSamples for every variable)
+     */
+    private final int m_iNumSamples;
+    private final double[] m_dSampleDOMs;
+    private final double[] m_dSamplePos;
+    /**
+     * the code of the antecedent of rule r is m_Code[m_RuleCode[r]] up to
+     * m_Code[m_RuleCode[r + 1]] (with m_Args holding the slot of a set or the
+     * number of terms of an operator), and its consequent is the sets
+     * m_ConSlots[m_RuleCons[r]] up to m_ConSlots[m_RuleCons[r + 1]] (with the
+     * hedges in m_ConOps)
+     */
+    private final int m_iNumRules;
+    private final int[] m_RuleCode;
+    private final int[] m_Code;
+    private final int[] m_Args;
+    private final int[] m_RuleCons;
+    private final int[] m_ConSlots;
+    private final int[] m_ConOps;
+    private final double[] m_Stack;
+    //used only while the program is being compiled
+    private Map<FuzzySet, Integer> m_SlotOf;
+    private List<FuzzySet> m_NewSets;
+    private int[] m_CodeBuffer;
+    private int[] m_ArgBuffer;
+    private int m_iCodeLength;
+
+    FuzzyProgram(List<FuzzyVariable> variables, List<FuzzyRule> rules, int NumSamples) {
+        m_SlotOf = new IdentityHashMap<FuzzySet, Integer>();
+        m_NewSets = new ArrayList<FuzzySet>();
+        m_CodeBuffer = new int[16];
+        m_ArgBuffer = new int[16];
+        m_iCodeLength = 0;
+
+        //the sets of the variables first
+        m_VarFirstSlot = new int[variables.size() + 1];
+        m_dMinRange = new double[variables.size()];
+        m_dMaxRange = new double[variables.size()];
+        for (int v = 0; v < variables.size(); ++v) {
+            final FuzzyVariable var = variables.get(v);
+            m_VarFirstSlot[v] = m_NewSets.size();
+            m_dMinRange[v] = var.GetMinRange();
+            m_dMaxRange[v] = var.GetMaxRange();
+            for (FuzzySet set : var.GetSets()) {
+                SlotOf(set);
+            }
+        }
+        m_VarFirstSlot[variables.size()] = m_NewSets.size();
+
+        //then the rules
+        m_iNumRules = rules.size();
+        m_RuleCode = new int[m_iNumRules + 1];
+        m_RuleCons = new int[m_iNumRules + 1];
+        List<Integer> ConSlots = new ArrayList<Integer>();
+        List<Integer> ConOps = new ArrayList<Integer>();
+        for (int r = 0; r < m_iNumRules; ++r) {
+            m_RuleCode[r] = m_iCodeLength;
+            rules.get(r).GetAntecedent().Compile(this);
+
+            //the consequent is compiled the same way and its sets read back
+            final int start = m_iCodeLength;
+            rules.get(r).GetConsequence().Compile(this);
+            m_RuleCons[r] = ConSlots.size();
+            for (int pc = start; pc < m_iCodeLength; ++pc) {
+                assert m_CodeBuffer[pc] != Op_OR : "<FuzzyProgram>: OR in a consequent";
+                if (m_CodeBuffer[pc] != Op_AND) {
+                    ConSlots.add(m_ArgBuffer[pc]);
+                    ConOps.add(m_CodeBuffer[pc]);
+                }
+            }
+            m_iCodeLength = start;
+        }
+        m_RuleCode[m_iNumRules] = m_iCodeLength;
+        m_RuleCons[m_iNumRules] = ConSlots.size();
+        m_Code = Arrays.copyOf(m_CodeBuffer, m_iCodeLength);
+        m_Args = Arrays.copyOf(m_ArgBuffer, m_iCodeLength);
+        m_ConSlots = new int[ConSlots.size()];
+        m_ConOps = new int[ConOps.size()];
+        for (int i = 0; i < m_ConSlots.length; ++i) {
+            m_ConSlots[i] = ConSlots.get(i);
+            m_ConOps[i] = ConOps.get(i);
+        }
+        m_Stack = new double[Math.max(1, m_iCodeLength)];
+
+        //the sets start with the DOMs they have now
+        final int NumSlots = m_NewSets.size();
+        m_Sets = m_NewSets.toArray(new FuzzySet[NumSlots]);
+        m_dDOMs = new double[NumSlots];
+        m_dRepresentativeVals = new double[NumSlots];
+        for (int s = 0; s < NumSlots; ++s) {
+            m_dDOMs[s] = m_Sets[s].GetDOM();
+            m_dRepresentativeVals[s] = m_Sets[s].GetRepresentativeVal();
+        }
+
+        //the sets never change shape, so the samples of the centroid method
+        //are worked out here
+        m_iNumSamples = NumSamples;
+        m_dSamplePos = new double[variables.size() * NumSamples];
+        m_dSampleDOMs = new double[NumSlots * NumSamples];
+        for (int v = 0; v < variables.size(); ++v) {
+            final double StepSize = (m_dMaxRange[v] - m_dMinRange[v]) / (double) NumSamples;
+            for (int samp = 1; samp <= NumSamples; ++samp) {
+                final double pos = m_dMinRange[v] + samp * StepSize;
+                m_dSamplePos[v * NumSamples + samp - 1] = pos;
+                for (int s = m_VarFirstSlot[v]; s < m_VarFirstSlot[v + 1]; ++s) {
+                    m_dSampleDOMs[s * NumSamples + samp - 1] = m_Sets[s].CalculateDOM(pos);
+                }
+            }
+        }
+
+        m_SlotOf = null;
+        m_NewSets = null;
+        m_CodeBuffer = null;
+        m_ArgBuffer = null;
+    }
+
+    private int SlotOf(FuzzySet set) {
+        Integer slot = m_SlotOf.get(set);
+        if (slot == null) {
+            slot = m_NewSets.size();
+            m_SlotOf.put(set, slot);
+            m_NewSets.add(set);
+        }
+        return slot;
+    }
+
+    private void Emit(int op, int arg) {
+        if (m_iCodeLength == m_CodeBuffer.length) {
+            m_CodeBuffer = Arrays.copyOf(m_CodeBuffer, 2 * m_iCodeLength);
+            m_ArgBuffer = Arrays.copyOf(m_ArgBuffer, 2 * m_iCodeLength);
+        }
+        m_CodeBuffer[m_iCodeLength] = op;
+        m_ArgBuffer[m_iCodeLength] = arg;
+        ++m_iCodeLength;
+    }
+
+    /**
+     * adds a set (Op_Set, Op_Very or Op_Fairly) to the code being compiled.
+     * Used by FuzzyTerm.Compile
+     */
+    public void EmitSet(int op, FuzzySet set) {
+        Emit(op, SlotOf(set));
+    }
+
+    /**
+     * adds an operator (Op_AND or Op_OR) of the given number of terms, which
+     * must have been added before it, to the code being compiled. Used by
+     * FuzzyTerm.Compile
+     */
+    public void EmitOperator(int op, int NumTerms) {
+        Emit(op, NumTerms);
+    }
+
+    int NumVariables() {
+        return m_dMinRange.length;
+    }
+
+    /**
+     * calculates the DOM of the value in each set of the variable
+     */
+    void Fuzzify(int var, double val) {
+        //make sure the value is within the bounds of this variable
+        assert (val >= m_dMinRange[var]) && (val <= m_dMaxRange[var]) :
+                "<FuzzyProgram::Fuzzify>: value out of range";
+
+        for (int s = m_VarFirstSlot[var]; s < m_VarFirstSlot[var + 1]; ++s) {
+            final double DOM = m_Sets[s].CalculateDOM(val);
+            assert (DOM <= 1) && (DOM >= 0) : "<FuzzyProgram::Fuzzify>: invalid DOM";
+            m_dDOMs[s] = DOM;
+        }
+    }
+
+    /**
+     * processes the rules, updating the DOMs of their consequents
+     */
+    void Calculate() {
+        final double[] DOMs = m_dDOMs;
+        final double[] stack = m_Stack;
+
+        //clear the DOMs of all the consequents of all the rules
+        for (int c = 0; c < m_ConSlots.length; ++c) {
+            DOMs[m_ConSlots[c]] = 0.0;
+        }
+
+        for (int r = 0; r < m_iNumRules; ++r) {
+            int sp = 0;
+            for (int pc = m_RuleCode[r]; pc < m_RuleCode[r + 1]; ++pc) {
+                final int arg = m_Args[pc];
+                switch (m_Code[pc]) {
+                    case Op_Set:
+                        stack[sp++] = DOMs[arg];
+                        break;
+                    case Op_Very:
+                        stack[sp++] = DOMs[arg] * DOMs[arg];
+                        break;
+                    case Op_Fairly:
+                        stack[sp++] = Math.sqrt(DOMs[arg]);
+                        break;
+                    case Op_AND: {
+                        double smallest = MaxDouble;
+                        for (int t = sp - arg; t < sp; ++t) {
+                            if (stack[t] < smallest) {
+                                smallest = stack[t];
+                            }
+                        }
+                        sp -= arg;
+                        stack[sp++] = smallest;
+                        break;
+                    }
+                    case Op_OR: {
+                        double largest = MinFloat;
+                        for (int t = sp - arg; t < sp; ++t) {
+                            if (stack[t] > largest) {
+                                largest = stack[t];
+                            }
+                        }
+                        sp -= arg;
+                        stack[sp++] = largest;
+                        break;
+                    }
+                }
+            }
+            final double DOM = stack[0];
+
+            //OR the DOM of the antecedent with the sets of the consequent
+            for (int c = m_RuleCons[r]; c < m_RuleCons[r + 1]; ++c) {
+                final double val;
+                switch (m_ConOps[c]) {
+                    case Op_Very:
+                        val = DOM * DOM;
+                        break;
+                    case Op_Fairly:
+                        val = Math.sqrt(DOM);
+                        break;
+                    default:
+                        val = DOM;
+                }
+                if (val > DOMs[m_ConSlots[c]]) {
+                    DOMs[m_ConSlots[c]] = val;
+                }
+            }
+        }
+    }
+
+    /**
+     * see FuzzyVariable.DeFuzzifyMaxAv
+     */
+    double DeFuzzifyMaxAv(int var) {
+        double bottom = 0.0;
+        double top = 0.0;
+
+        for (int s = m_VarFirstSlot[var]; s < m_VarFirstSlot[var + 1]; ++s) {
+            bottom += m_dDOMs[s];
+            top += m_dRepresentativeVals[s] * m_dDOMs[s];
+        }
+
+        //make sure bottom is not equal to zero
+        if (isEqual(0, bottom)) {
+            return 0.0;
+        }
+
+        return top / bottom;
+    }
+
+    /**
+     * see FuzzyVariable.DeFuzzifyCentroid
+     */
+    double DeFuzzifyCentroid(int var) {
+        double TotalArea = 0.0;
+        double SumOfMoments = 0.0;
+
+        for (int samp = 0; samp < m_iNumSamples; ++samp) {
+            final double pos = m_dSamplePos[var * m_iNumSamples + samp];
+            for (int s = m_VarFirstSlot[var]; s < m_VarFirstSlot[var + 1]; ++s) {
+                final double contribution = Math.min(m_dSampleDOMs[s * m_iNumSamples + samp], m_dDOMs[s]);
+
+                TotalArea += contribution;
+
+                SumOfMoments += pos * contribution;
+            }
+        }
+
+        //make sure total area is not equal to zero
+        if (isEqual(0, TotalArea)) {
+            return 0.0;
+        }
+
+        return (SumOfMoments / TotalArea);
+    }
+
+    /**
+     * copies the DOMs of the slots to the sets (for writing them out)
+     */
+    void StoreDOMs() {
+        for (int s = 0; s < m_Sets.length; ++s) {
+            m_Sets[s].ClearDOM();
+            m_Sets[s].ORwithDOM(m_dDOMs[s]);
+        }
+    }
+}
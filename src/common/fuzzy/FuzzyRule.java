@@ -36,6 +36,14 @@ class FuzzyRule {
         m_pConsequence = null;
     }
 
+    FuzzyTerm GetAntecedent() {
+        return m_pAntecedent;
+    }
+
+    FuzzyTerm GetConsequence() {
+        return m_pConsequence;
+    }
+
     public void SetConfidenceOfConsequentToZero() {
         m_pConsequence.ClearDOM();
     }
@@ -0,0 +1,315 @@
+/**
+ * Desc: the response of a fuzzy module to one or two inputs, sampled on a
+ * grid over the ranges of the input variables and read back by bilinear
+ * interpolation. The rules of a module never change once it is set up, so
+ * the grid can be worked out once and then stands in for the fuzzification,
+ * the rules and the defuzzification, which take a few multiplications
+ * instead.
+ *
+ * The DOMs of the sets only change shape at the bounds and peaks of the
+ * sets (the breakpoints of a variable), and the response may jump there
+ * (when the last rule with a consequent stops firing, say). So the range of
+ * every input is split at its breakpoints and each piece gets a grid of its
+ * own. The samples at the ends of a piece are the limits of the response
+ * from inside the piece, and the response at a breakpoint itself is sampled
+ * separately. Between the breakpoints the response is smooth and the
+ * interpolation converges.
+ *
+ * The grids start with the given resolution and each is made twice as fine
+ * until the interpolated response is nowhere further than the given error
+ * from the response of the module (checked at the quarters of the cells). A
+ * block whose grid is still not within the error when it is as fine as
+ * allowed is dropped. (Where two sets of the rules stop firing at the same
+ * corner of a grid the response may depend on the direction the corner is
+ * approached from, and no grid converges there.) The inputs in the dropped
+ * blocks and outside the ranges of the variables are not covered (see
+ * Covers) and must be given to the module itself.
+ *
+ * A surface never changes once it is compiled, so any number of modules with
+ * the same rules (and threads) may share it.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.fuzzy;
+
+public class FuzzySurface {
+
+    /**
+     * the grids are compared with the module at this many points across
+     * every cell
+     */
+    private static final int Probes = 4;
+
+    /**
+     * the breakpoints of the inputs. The range of an input is split into
+     * segments: segment 2k is the k-th breakpoint and segment 2k+1 the open
+     * interval after it
+     */
+    private final double[] m_BreakpointsX;
+    private final double[] m_BreakpointsY;
+    private final int m_iNumSegmentsX;
+    /**
+     * the grid of every pair of segments (a block): the number of its cells
+     * along each input (0 along a breakpoint), the inverse sizes of the
+     * cells and where its samples start in m_Samples (row after row of
+     * m_iCellsX + 1 samples)
+     */
+    private final int[] m_iCellsX;
+    private final int[] m_iCellsY;
+    private final double[] m_dInvCellX;
+    private final double[] m_dInvCellY;
+    private final int[] m_iOffsets;
+    private double[] m_Samples;
+    /**
+     * false for the blocks whose grid did not get within the error
+     */
+    private final boolean[] m_bCovered;
+
+    private FuzzySurface(double[] BreakpointsX, double[] BreakpointsY) {
+        m_BreakpointsX = BreakpointsX;
+        m_BreakpointsY = BreakpointsY;
+        m_iNumSegmentsX = 2 * BreakpointsX.length - 1;
+        final int NumBlocks = m_iNumSegmentsX * (2 * BreakpointsY.length - 1);
+        m_iCellsX = new int[NumBlocks];
+        m_iCellsY = new int[NumBlocks];
+        m_dInvCellX = new double[NumBlocks];
+        m_dInvCellY = new double[NumBlocks];
+        m_iOffsets = new int[NumBlocks];
+        m_bCovered = new boolean[NumBlocks];
+    }
+
+    /**
+     * @return the number of cells of a grid with the given resolution along
+     * a segment (0 for a breakpoint)
+     */
+    private static int NumCells(double[] breakpoints, int seg, int resolution) {
+        if ((seg & 1) == 0) {
+            return 0;
+        }
+        final double range = breakpoints[breakpoints.length - 1] - breakpoints[0];
+        final double length = breakpoints[(seg >> 1) + 1] - breakpoints[seg >> 1];
+        return Math.max(1, (int) Math.ceil(resolution * length / range));
+    }
+
+    /**
+     * @return the position of the s-th sample of a segment divided into the
+     * given number of cells, moved the given part (0 up to 1) of a cell on
+     */
+    private static double SamplePos(double[] breakpoints, int seg, int cells, int s, double part) {
+        final int k = seg >> 1;
+        if ((seg & 1) == 0) {
+            return breakpoints[k];
+        }
+        final double a = breakpoints[k];
+        final double b = breakpoints[k + 1];
+        if (part > 0.0) {
+            return a + (b - a) * (s + part) / cells;
+        }
+
+        //the samples at the ends of an interval stand for the limits of the
+        //response from inside it
+        final double inside = (b - a) * 1e-9;
+        if (s == 0) {
+            return a + inside;
+        }
+        if (s == cells) {
+            return b - inside;
+        }
+        return a + (b - a) * s / cells;
+    }
+
+    /**
+     * @return the segment containing v, which must be within the range
+     */
+    private static int Segment(double[] breakpoints, double v) {
+        int k = 0;
+        while (v > breakpoints[k]) {
+            ++k;
+        }
+        return v == breakpoints[k] ? 2 * k : 2 * k - 1;
+    }
+
+    /**
+     * samples the response of the module
+     *
+     * @param module the module (its DOMs are changed by the sampling)
+     * @param Input1 the name of the first input variable
+     * @param Input2 the name of the second input variable, or null if the
+     * module has only one input
+     * @param Output the name of the output variable
+     * @param method the defuzzification method
+     * @param resolution the number of cells across the range of every input
+     * to start with
+     * @param MaxResolution the most cells across the range of every input
+     * @param MaxError the largest difference from the module allowed
+     */
+    public static FuzzySurface Compile(FuzzyModule module,
+            String Input1,
+            String Input2,
+            String Output,
+            FuzzyModule.DefuzzifyMethod method,
+            int resolution,
+            int MaxResolution,
+            double MaxError) {
+        assert resolution > 0 : "<FuzzySurface::Compile>: invalid resolution";
+
+        final FuzzySurface surface = new FuzzySurface(module.GetFLV(Input1).GetBreakpoints(),
+                Input2 != null ? module.GetFLV(Input2).GetBreakpoints() : new double[]{0.0});
+        final double[] bx = surface.m_BreakpointsX;
+        final double[] by = surface.m_BreakpointsY;
+        final double[][] blocks = new double[surface.m_iOffsets.length][];
+        final int FLV1 = module.GetHandle(Input1);
+        final int FLV2 = Input2 != null ? module.GetHandle(Input2) : -1;
+        final int OutFLV = module.GetHandle(Output);
+
+        int NumSamples = 0;
+        for (int b = 0; b < blocks.length; ++b) {
+            final int sx = b % surface.m_iNumSegmentsX;
+            final int sy = b / surface.m_iNumSegmentsX;
+
+            for (int cells = resolution;; cells *= 2) {
+                final int CellsX = NumCells(bx, sx, cells);
+                final int CellsY = NumCells(by, sy, cells);
+                final int row = CellsX + 1;
+                final double[] samples = new double[row * (CellsY + 1)];
+                for (int j = 0; j <= CellsY; ++j) {
+                    for (int i = 0; i <= CellsX; ++i) {
+                        samples[j * row + i] = Respond(module, FLV1, FLV2, OutFLV, method,
+                                SamplePos(bx, sx, CellsX, i, 0.0), SamplePos(by, sy, CellsY, j, 0.0));
+                    }
+                }
+                surface.m_iCellsX[b] = CellsX;
+                surface.m_iCellsY[b] = CellsY;
+                surface.m_dInvCellX[b] = CellsX > 0 ? CellsX / (bx[(sx >> 1) + 1] - bx[sx >> 1]) : 0.0;
+                surface.m_dInvCellY[b] = CellsY > 0 ? CellsY / (by[(sy >> 1) + 1] - by[sy >> 1]) : 0.0;
+                surface.m_iOffsets[b] = 0;
+                surface.m_Samples = samples;
+
+                //compare the grid with the module at the quarters of the cells
+                double error = 0.0;
+                for (int j = 0; j <= Probes * CellsY; ++j) {
+                    for (int i = 0; i <= Probes * CellsX; ++i) {
+                        if (i % Probes == 0 && j % Probes == 0) {
+                            continue;
+                        }
+                        final double px = SamplePos(bx, sx, CellsX, i / Probes, (double) (i % Probes) / Probes);
+                        final double py = SamplePos(by, sy, CellsY, j / Probes, (double) (j % Probes) / Probes);
+                        error = Math.max(error, Math.abs(surface.Evaluate(b, px, py)
+                                - Respond(module, FLV1, FLV2, OutFLV, method, px, py)));
+                    }
+                }
+
+                if (error <= MaxError) {
+                    blocks[b] = samples;
+                    surface.m_bCovered[b] = true;
+                    break;
+                }
+                if (cells * 2 > MaxResolution) {
+                    blocks[b] = new double[0];
+                    break;
+                }
+            }
+            surface.m_iOffsets[b] = NumSamples;
+            NumSamples += blocks[b].length;
+        }
+
+        //put the grids of all the blocks together
+        surface.m_Samples = new double[NumSamples];
+        for (int b = 0; b < blocks.length; ++b) {
+            System.arraycopy(blocks[b], 0, surface.m_Samples, surface.m_iOffsets[b], blocks[b].length);
+        }
+        return surface;
+    }
+
+    /**
+     * @return the response of the module (with the variables given by their
+     * handles, -1 for a missing second input)
+     */
+    private static double Respond(FuzzyModule module,
+            int Input1, int Input2, int Output,
+            FuzzyModule.DefuzzifyMethod method,
+            double x, double y) {
+        module.Fuzzify(Input1, x);
+        if (Input2 >= 0) {
+            module.Fuzzify(Input2, y);
+        }
+        return module.DeFuzzify(Output, method);
+    }
+
+    /**
+     * @return true if the inputs are within the ranges of the variables and
+     * the surface is within the error of the module there
+     */
+    public boolean Covers(double x, double y) {
+        return x >= m_BreakpointsX[0] && x <= m_BreakpointsX[m_BreakpointsX.length - 1]
+                && y >= m_BreakpointsY[0] && y <= m_BreakpointsY[m_BreakpointsY.length - 1]
+                && m_bCovered[Block(x, y)];
+    }
+
+    /**
+     * @return the block containing the inputs, which must be within the
+     * ranges
+     */
+    private int Block(double x, double y) {
+        return Segment(m_BreakpointsY, y) * m_iNumSegmentsX + Segment(m_BreakpointsX, x);
+    }
+
+    /**
+     * @return true if the input is within the range the surface of a module
+     * with one input covers
+     */
+    public boolean Covers(double x) {
+        return Covers(x, 0.0);
+    }
+
+    /**
+     * @return the response of the module to the inputs, which must be covered
+     * by the surface
+     */
+    public double Evaluate(double x, double y) {
+        return Evaluate(Block(x, y), x, y);
+    }
+
+    /**
+     * @return the response within the given block
+     */
+    private double Evaluate(int b, double x, double y) {
+        final int CellsX = m_iCellsX[b];
+        final int CellsY = m_iCellsY[b];
+
+        //find the cell and how far across it the inputs are
+        double tx = 0.0, ty = 0.0;
+        int i = 0, j = 0;
+        if (CellsX > 0) {
+            tx = (x - m_BreakpointsX[(b % m_iNumSegmentsX) >> 1]) * m_dInvCellX[b];
+            i = Math.min((int) tx, CellsX - 1);
+            tx -= i;
+        }
+        if (CellsY > 0) {
+            ty = (y - m_BreakpointsY[(b / m_iNumSegmentsX) >> 1]) * m_dInvCellY[b];
+            j = Math.min((int) ty, CellsY - 1);
+            ty -= j;
+        }
+
+        final int row = CellsX + 1;
+        final int k = m_iOffsets[b] + j * row + i;
+        final double a = m_Samples[k];
+        if (CellsY == 0) {
+            return CellsX > 0 ? a + (m_Samples[k + 1] - a) * tx : a;
+        }
+        if (CellsX == 0) {
+            return a + (m_Samples[k + row] - a) * ty;
+        }
+        final double bottom = a + (m_Samples[k + 1] - a) * tx;
+        final double top = m_Samples[k + row] + (m_Samples[k + row + 1] - m_Samples[k + row]) * tx;
+        return bottom + (top - bottom) * ty;
+    }
+
+    /**
+     * @return the response of a module with one input, which must be covered
+     * by the surface
+     */
+    public double Evaluate(double x) {
+        return Evaluate(x, 0.0);
+    }
+}
@@ -30,4 +30,9 @@ public abstract class FuzzyTerm {
      * method for updating the DOM of a consequent when a rule fires
      */
     public abstract void ORwithDOM(double val);
+
+    /**
+     * adds the code of the term to a program (see FuzzyProgram)
+     */
+    public abstract void Compile(FuzzyProgram program);
 }
\ No newline at end of file
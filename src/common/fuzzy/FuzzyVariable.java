@@ -13,10 +13,12 @@ import common.fuzzy.setTypes.FuzzySet_Triangle;
 import static common.misc.utils.MinOf;
 import static common.misc.utils.isEqual;
 import java.io.PrintStream;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 
 public class FuzzyVariable {
 
@@ -35,6 +37,15 @@ public class FuzzyVariable {
     //the minimum and maximum value of the range of this variable
     private double m_dMinRange;
     private double m_dMaxRange;
+    /**
+     * the bounds and peaks of the sets. The DOMs of the sets only change
+     * shape (or jump) at these values
+     */
+    private TreeSet<Double> m_Breakpoints = new TreeSet<Double>();
+    /**
+     * the module the variable belongs to (told when a set is added), or null
+     */
+    private FuzzyModule m_pModule = null;
 
     /**
      * this method is called with the upper and lower bound of a set each time a
@@ -49,6 +60,17 @@ public class FuzzyVariable {
         }
     }
 
+    private void AddBreakpoints(double minBound, double peak, double maxBound) {
+        m_Breakpoints.add(minBound);
+        m_Breakpoints.add(peak);
+        m_Breakpoints.add(maxBound);
+
+        //the sets of the variable have changed
+        if (m_pModule != null) {
+            m_pModule.DiscardProgram();
+        }
+    }
+
     /**
      * a client retrieves a reference to a fuzzy variable when an instance is
      * created via FuzzyModule::CreateFLV(). To prevent the client from deleting
@@ -67,6 +89,11 @@ public class FuzzyVariable {
         m_dMaxRange = 0.0;
     }
 
+    FuzzyVariable(FuzzyModule module) {
+        this();
+        m_pModule = module;
+    }
+
     //the following methods create instances of the sets named in the method
     //name and add them to the member set map. Each time a set of any type is
     //added the m_dMinRange and m_dMaxRange are adjusted accordingly. All of the
@@ -83,6 +110,7 @@ public class FuzzyVariable {
 
         //adjust range if necessary
         AdjustRangeToFit(minBound, maxBound);
+        AddBreakpoints(minBound, peak, maxBound);
 
         return new FzSet(m_MemberSets.get(name));
     }
@@ -98,6 +126,7 @@ public class FuzzyVariable {
 
         //adjust range if necessary
         AdjustRangeToFit(minBound, maxBound);
+        AddBreakpoints(minBound, peak, maxBound);
 
         return new FzSet(m_MemberSets.get(name));
     }
@@ -114,6 +143,7 @@ public class FuzzyVariable {
                 maxBound - peak));
         //adjust range if necessary
         AdjustRangeToFit(minBound, maxBound);
+        AddBreakpoints(minBound, peak, maxBound);
 
         return new FzSet(m_MemberSets.get(name));
     }
@@ -130,10 +160,45 @@ public class FuzzyVariable {
                 maxBound - peak));
 
         AdjustRangeToFit(minBound, maxBound);
+        AddBreakpoints(minBound, peak, maxBound);
 
         return new FzSet(m_MemberSets.get(name));
     }
 
+    /**
+     * the lower bound of the range of this variable
+     */
+    double GetMinRange() {
+        return m_dMinRange;
+    }
+
+    /**
+     * the upper bound of the range of this variable
+     */
+    double GetMaxRange() {
+        return m_dMaxRange;
+    }
+
+    /**
+     * the bounds and peaks of the sets of this variable in ascending order
+     */
+    double[] GetBreakpoints() {
+        double[] breakpoints = new double[m_Breakpoints.size()];
+        int i = 0;
+        for (double b : m_Breakpoints) {
+            breakpoints[i++] = b;
+        }
+        return breakpoints;
+    }
+
+    /**
+     * the sets of this variable in the order the defuzzification methods go
+     * through them
+     */
+    Collection<FuzzySet> GetSets() {
+        return m_MemberSets.values();
+    }
+
     /**
      * fuzzify a value by calculating its DOM in each of this variable's subsets
      * takes a crisp value and calculates its degree of membership for each set
@@ -40,4 +40,9 @@ public class FzSet extends FuzzyTerm {
     public void ORwithDOM(double val) {
         m_Set.ORwithDOM(val);
     }
+
+    @Override
+    public void Compile(FuzzyProgram program) {
+        program.EmitSet(FuzzyProgram.Op_Set, m_Set);
+    }
 }
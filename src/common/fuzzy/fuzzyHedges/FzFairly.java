@@ -5,6 +5,7 @@
  */
 package common.fuzzy.fuzzyHedges;
 
+import common.fuzzy.FuzzyProgram;
 import common.fuzzy.FuzzyTerm;
 import common.fuzzy.FzSet;
 import common.fuzzy.setTypes.FuzzySet;
@@ -49,4 +50,9 @@ public class FzFairly extends FuzzyTerm {
     public void ORwithDOM(double val) {
         m_Set.ORwithDOM(sqrt(val));
     }
+
+    @Override
+    public void Compile(FuzzyProgram program) {
+        program.EmitSet(FuzzyProgram.Op_Fairly, m_Set);
+    }
 }
\ No newline at end of file
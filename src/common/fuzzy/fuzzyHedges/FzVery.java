@@ -6,6 +6,7 @@
  */
 package common.fuzzy.fuzzyHedges;
 
+import common.fuzzy.FuzzyProgram;
 import common.fuzzy.FuzzyTerm;
 import common.fuzzy.FzSet;
 import common.fuzzy.setTypes.FuzzySet;
@@ -48,4 +49,9 @@ public class FzVery extends FuzzyTerm {
     public void ORwithDOM(double val) {
         m_Set.ORwithDOM(val * val);
     }
+
+    @Override
+    public void Compile(FuzzyProgram program) {
+        program.EmitSet(FuzzyProgram.Op_Very, m_Set);
+    }
 }
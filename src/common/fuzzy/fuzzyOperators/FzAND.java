@@ -3,6 +3,7 @@
  */
 package common.fuzzy.fuzzyOperators;
 
+import common.fuzzy.FuzzyProgram;
 import common.fuzzy.FuzzyTerm;
 import static common.misc.utils.MaxDouble;
 import java.util.ArrayList;
@@ -102,4 +103,13 @@ public class FzAND extends FuzzyTerm {
             curTerm.next().ORwithDOM(val);
         }
     }
+
+    @Override
+    public void Compile(FuzzyProgram program) {
+        Iterator<FuzzyTerm> curTerm = m_Terms.iterator();
+        while (curTerm.hasNext()) {
+            curTerm.next().Compile(program);
+        }
+        program.EmitOperator(FuzzyProgram.Op_AND, m_Terms.size());
+    }
 }
@@ -5,6 +5,7 @@
  */
 package common.fuzzy.fuzzyOperators;
 
+import common.fuzzy.FuzzyProgram;
 import common.fuzzy.FuzzyTerm;
 import static common.misc.utils.MinFloat;
 import java.util.ArrayList;
@@ -93,4 +94,13 @@ public class FzOR extends FuzzyTerm {
     public void ORwithDOM(double val) {
         assert false : "<FzOR::ORwithDOM>: invalid context";
     }
+
+    @Override
+    public void Compile(FuzzyProgram program) {
+        Iterator<FuzzyTerm> curTerm = m_Terms.iterator();
+        while (curTerm.hasNext()) {
+            curTerm.next().Compile(program);
+        }
+        program.EmitOperator(FuzzyProgram.Op_OR, m_Terms.size());
+    }
 }
@@ -86,6 +86,9 @@ final public class LuaHelperFunctions {
         if (val instanceof Boolean) {
             //grab the value, cast to the correct type and return
             return (Boolean) val;
+        } else if (val instanceof LuaValue && ((LuaValue) val).isboolean()) {
+            //the script engine hands booleans over as lua values
+            return ((LuaValue) val).toboolean();
         } else {
             String err = "<PopLuaBool> Cannot retrieve: ";
             throw new RuntimeException(err + name);
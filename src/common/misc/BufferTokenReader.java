@@ -0,0 +1,50 @@
+/**
+ * Desc: reads the tokens of a compiled binary map. Every token is stored as a
+ * double, so the reader just takes the next double from the buffer. An int
+ * token must hold a whole number, the same as when it is read from text.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.misc;
+
+import java.nio.ByteBuffer;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+public class BufferTokenReader implements TokenReader {
+
+    private final ByteBuffer m_Buffer;
+    private int m_iRemaining;
+
+    /**
+     * reads NumTokens doubles starting at the current position of the buffer
+     */
+    public BufferTokenReader(ByteBuffer buffer, int NumTokens) {
+        m_Buffer = buffer;
+        m_iRemaining = NumTokens;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return m_iRemaining > 0;
+    }
+
+    @Override
+    public int nextInt() {
+        double d = nextDouble();
+        int i = (int) d;
+        if (i != d) {
+            throw new InputMismatchException("<BufferTokenReader>: " + d + " is not an int");
+        }
+        return i;
+    }
+
+    @Override
+    public double nextDouble() {
+        if (m_iRemaining <= 0) {
+            throw new NoSuchElementException("<BufferTokenReader>: no more tokens");
+        }
+        --m_iRemaining;
+        return m_Buffer.getDouble();
+    }
+}
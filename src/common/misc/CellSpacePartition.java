@@ -86,6 +86,30 @@ public class CellSpacePartition<entity extends NavGraphNode> {
         return idx;
     }
 
+    /**
+     * @return the column of the cell the position is in
+     */
+    public int PositionToCellX(final Vector2D pos) {
+        int x = (int) (m_iNumCellsX * pos.x / m_dSpaceWidth);
+        return Math.max(0, Math.min(x, m_iNumCellsX - 1));
+    }
+
+    /**
+     * @return the row of the cell the position is in
+     */
+    public int PositionToCellY(final Vector2D pos) {
+        int y = (int) (m_iNumCellsY * pos.y / m_dSpaceHeight);
+        return Math.max(0, Math.min(y, m_iNumCellsY - 1));
+    }
+
+    public int NumCellsX() {
+        return m_iNumCellsX;
+    }
+
+    public int NumCellsY() {
+        return m_iNumCellsY;
+    }
+
 //----------------------------- ctor ---------------------------------------
 //--------------------------------------------------------------------------
     public CellSpacePartition(double width, //width of 2D space
@@ -169,7 +193,16 @@ public class CellSpacePartition<entity extends NavGraphNode> {
     public void CalculateNeighbors(Vector2D TargetPos, double QueryRadius) {
         //create an iterator and set it to the beginning of the neighbor vector
         //Iterator<entity> curNbor = m_Neighbors.iterator();
-        m_Neighbors.clear();
+        CalculateNeighbors(TargetPos, QueryRadius, m_Neighbors);
+    }
+
+    /**
+     * the same as above but the neighbors are stored in the given list instead
+     * of the one traversed by begin/next/end. Does not change the partition so
+     * it is safe to call from several threads at once.
+     */
+    public void CalculateNeighbors(Vector2D TargetPos, double QueryRadius, List<entity> Neighbors) {
+        Neighbors.clear();
 
         //create the query box that is the bounding box of the target's query
         //area
@@ -192,7 +225,7 @@ public class CellSpacePartition<entity extends NavGraphNode> {
                     if (Vec2DDistanceSq(e.Pos(), TargetPos)
                             < QueryRadius * QueryRadius) {
                         // *curNbor++ = *it;
-                        m_Neighbors.add(e);
+                        Neighbors.add(e);
                     }
                 }
             }
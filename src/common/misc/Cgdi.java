@@ -11,6 +11,7 @@ package common.misc;
 
 import java.awt.Stroke;
 import common.D2.Vector2D;
+import common.Game.GameContext;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
@@ -42,7 +43,12 @@ public class Cgdi {
         new Color(255, 230, 230) //light pink
     };
     final public int NumColors = colors.length;
-    public static final Cgdi gdi = new Cgdi();
+    /**
+     * @return the gdi of the match driven by the calling thread
+     */
+    public static Cgdi gdi() {
+        return GameContext.Current().GetGdi();
+    }
 
     public int NumPenColors() {
         return NumColors;
@@ -129,8 +135,8 @@ public class Cgdi {
     private Brush m_DarkGreenBrush;
     private Graphics2D m_hdc;
 
-//constructor is private
-    private Cgdi() {
+//one instance per GameContext
+    public Cgdi() {
         m_BlackPen = colors[black];
         m_WhitePen = colors[white];
         m_RedPen = colors[red];
@@ -183,7 +189,7 @@ public class Cgdi {
     }
 
     public static Cgdi Instance() {
-        return gdi;
+        return gdi();
     }
 
     public void BlackPen() {
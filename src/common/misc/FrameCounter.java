@@ -3,13 +3,22 @@
  */
 package common.misc;
 
+import common.Game.GameContext;
+
 public class FrameCounter {
 
-    public static final FrameCounter TickCounter = new FrameCounter();
+    /**
+     * @return the frame counter of the match driven by the calling thread
+     */
+    public static FrameCounter TickCounter() {
+        return GameContext.Current().GetTickCounter();
+    }
+
     private long m_lCount = 0;
     private int m_iFramesElapsed = 0;
 
-    private FrameCounter() {
+    //one instance per GameContext
+    public FrameCounter() {
     }
 
     //copy ctor and assignment should be private
@@ -22,7 +31,7 @@ public class FrameCounter {
     }
 
     public FrameCounter Instance() {
-        return TickCounter;
+        return TickCounter();
     }
 
     public void Update() {
@@ -387,4 +387,321 @@ public class PriorityQueue {
             ReorderUpwards(m_invHeap.get(idx));
         }
     }
+
+    /**
+     *  Indexed priority queue like IndexedPriorityQLow but specialized for
+     *  double keys. The queue stores the key of every index it holds, and the
+     *  keys, the heap and the inverse heap are primitive arrays so nothing is
+     *  boxed. Clear() empties the queue in constant time so one queue can be
+     *  reused by any number of searches.
+     *
+     *  The priority in this implementation is the lowest valued key
+     */
+    public static class IndexedPriorityQLowDouble {
+
+        private double[] m_Keys;
+        private int[] m_Heap;
+        private int[] m_invHeap;
+        private int m_iSize;
+
+        private void Swap(int a, int b) {
+            int temp = m_Heap[a];
+            m_Heap[a] = m_Heap[b];
+            m_Heap[b] = temp;
+
+            //change the handles too
+            m_invHeap[m_Heap[a]] = a;
+            m_invHeap[m_Heap[b]] = b;
+        }
+
+        private void ReorderUpwards(int nd) {
+            //move up the heap swapping the elements until the heap is ordered
+            while ((nd > 1) && (m_Keys[m_Heap[nd / 2]] > m_Keys[m_Heap[nd]])) {
+                Swap(nd / 2, nd);
+
+                nd = nd / 2;
+            }
+        }
+
+        private void ReorderDownwards(int nd, int HeapSize) {
+            //move down the heap from node nd swapping the elements until
+            //the heap is reordered
+            while (2 * nd <= HeapSize) {
+                int child = 2 * nd;
+
+                //set child to smaller of nd's two children
+                if ((child < HeapSize) && (m_Keys[m_Heap[child]] > m_Keys[m_Heap[child + 1]])) {
+                    ++child;
+                }
+
+                //if this nd is larger than its child, swap
+                if (m_Keys[m_Heap[nd]] > m_Keys[m_Heap[child]]) {
+                    Swap(child, nd);
+
+                    //move the current node down the tree
+                    nd = child;
+                } else {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * creates a queue for the indexes 0 .. MaxSize-1
+         */
+        public IndexedPriorityQLowDouble(int MaxSize) {
+            m_Keys = new double[MaxSize];
+            m_Heap = new int[MaxSize + 1];
+            m_invHeap = new int[MaxSize];
+            m_iSize = 0;
+        }
+
+        /**
+         * empties the queue and makes sure it can hold the indexes
+         * 0 .. MaxSize-1
+         */
+        public void Reset(int MaxSize) {
+            if (m_Keys.length < MaxSize) {
+                m_Keys = new double[MaxSize];
+                m_Heap = new int[MaxSize + 1];
+                m_invHeap = new int[MaxSize];
+            }
+            m_iSize = 0;
+        }
+
+        public void Clear() {
+            m_iSize = 0;
+        }
+
+        public boolean empty() {
+            return (m_iSize == 0);
+        }
+
+        public int Size() {
+            return m_iSize;
+        }
+
+        //to insert an item into the queue it gets added to the end of the heap
+        //and then the heap is reordered from the bottom up.
+        public void insert(final int idx, final double key) {
+            assert (m_iSize + 1 < m_Heap.length);
+
+            ++m_iSize;
+
+            m_Keys[idx] = key;
+
+            m_Heap[m_iSize] = idx;
+
+            m_invHeap[idx] = m_iSize;
+
+            ReorderUpwards(m_iSize);
+        }
+
+        //to get the min item the first element is exchanged with the lowest
+        //in the heap and then the heap is reordered from the top down. 
+        public int Pop() {
+            Swap(1, m_iSize);
+
+            ReorderDownwards(1, m_iSize - 1);
+
+            return m_Heap[m_iSize--];
+        }
+
+        /**
+         * @return the index with the lowest key without removing it
+         */
+        public int Peek() {
+            return m_Heap[1];
+        }
+
+        /**
+         * @return the key of the index at the front of the queue
+         */
+        public double PeekKey() {
+            return m_Keys[m_Heap[1]];
+        }
+
+        /**
+         * lowers the key of an index that is in the queue and adjusts the
+         * queue accordingly
+         */
+        public void ChangePriority(final int idx, final double key) {
+            m_Keys[idx] = key;
+
+            ReorderUpwards(m_invHeap[idx]);
+        }
+    }
+
+    /**
+     *  Indexed priority queue of double key pairs, ordered by the first key
+     *  and then by the second (as the incremental searches need). Unlike
+     *  IndexedPriorityQLowDouble the key of an index in the queue can be
+     *  raised as well as lowered, and an index can be removed from the
+     *  middle of the queue.
+     *
+     *  The priority in this implementation is the lowest valued key pair
+     */
+    public static class IndexedPriorityQLowKeyPair {
+
+        private double[] m_Keys1;
+        private double[] m_Keys2;
+        private int[] m_Heap;
+        /**
+         * the position of every index in the heap (0 if not in the queue)
+         */
+        private int[] m_invHeap;
+        private int m_iSize;
+
+        private boolean Less(int a, int b) {
+            int ia = m_Heap[a];
+            int ib = m_Heap[b];
+            return m_Keys1[ia] < m_Keys1[ib]
+                    || (m_Keys1[ia] == m_Keys1[ib] && m_Keys2[ia] < m_Keys2[ib]);
+        }
+
+        private void Swap(int a, int b) {
+            int temp = m_Heap[a];
+            m_Heap[a] = m_Heap[b];
+            m_Heap[b] = temp;
+
+            //change the handles too
+            m_invHeap[m_Heap[a]] = a;
+            m_invHeap[m_Heap[b]] = b;
+        }
+
+        private void ReorderUpwards(int nd) {
+            //move up the heap swapping the elements until the heap is ordered
+            while ((nd > 1) && Less(nd, nd / 2)) {
+                Swap(nd / 2, nd);
+
+                nd = nd / 2;
+            }
+        }
+
+        private void ReorderDownwards(int nd) {
+            //move down the heap from node nd swapping the elements until
+            //the heap is reordered
+            while (2 * nd <= m_iSize) {
+                int child = 2 * nd;
+
+                //set child to smaller of nd's two children
+                if ((child < m_iSize) && Less(child + 1, child)) {
+                    ++child;
+                }
+
+                //if this nd is larger than its child, swap
+                if (Less(child, nd)) {
+                    Swap(child, nd);
+
+                    //move the current node down the tree
+                    nd = child;
+                } else {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * creates a queue for the indexes 0 .. MaxSize-1
+         */
+        public IndexedPriorityQLowKeyPair(int MaxSize) {
+            m_Keys1 = new double[MaxSize];
+            m_Keys2 = new double[MaxSize];
+            m_Heap = new int[MaxSize + 1];
+            m_invHeap = new int[MaxSize];
+            m_iSize = 0;
+        }
+
+        /**
+         * empties the queue (in time proportional to the number of indexes
+         * in it)
+         */
+        public void Clear() {
+            for (int i = 1; i <= m_iSize; ++i) {
+                m_invHeap[m_Heap[i]] = 0;
+            }
+            m_iSize = 0;
+        }
+
+        public boolean empty() {
+            return (m_iSize == 0);
+        }
+
+        public boolean contains(final int idx) {
+            return m_invHeap[idx] != 0;
+        }
+
+        public void insert(final int idx, final double key1, final double key2) {
+            assert (m_iSize + 1 < m_Heap.length) && !contains(idx);
+
+            ++m_iSize;
+
+            m_Keys1[idx] = key1;
+            m_Keys2[idx] = key2;
+
+            m_Heap[m_iSize] = idx;
+
+            m_invHeap[idx] = m_iSize;
+
+            ReorderUpwards(m_iSize);
+        }
+
+        /**
+         * removes the index with the lowest key pair and returns it
+         */
+        public int Pop() {
+            int idx = m_Heap[1];
+            remove(idx);
+            return idx;
+        }
+
+        /**
+         * @return the index with the lowest key pair without removing it
+         */
+        public int Peek() {
+            return m_Heap[1];
+        }
+
+        /**
+         * @return the first key of the index at the front of the queue
+         */
+        public double PeekKey1() {
+            return m_Keys1[m_Heap[1]];
+        }
+
+        /**
+         * @return the second key of the index at the front of the queue
+         */
+        public double PeekKey2() {
+            return m_Keys2[m_Heap[1]];
+        }
+
+        /**
+         * changes the keys of an index that is in the queue and adjusts the
+         * queue accordingly
+         */
+        public void ChangePriority(final int idx, final double key1, final double key2) {
+            m_Keys1[idx] = key1;
+            m_Keys2[idx] = key2;
+
+            ReorderUpwards(m_invHeap[idx]);
+            ReorderDownwards(m_invHeap[idx]);
+        }
+
+        /**
+         * removes an index that is in the queue
+         */
+        public void remove(final int idx) {
+            int nd = m_invHeap[idx];
+            Swap(nd, m_iSize);
+            --m_iSize;
+            m_invHeap[idx] = 0;
+
+            //the index moved into the gap may belong higher or lower
+            if (nd <= m_iSize) {
+                ReorderUpwards(nd);
+                ReorderDownwards(nd);
+            }
+        }
+    }
 }
\ No newline at end of file
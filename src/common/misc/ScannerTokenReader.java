@@ -0,0 +1,32 @@
+/**
+ * Desc: reads the tokens of a text map file from a Scanner
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.misc;
+
+import java.util.Scanner;
+
+public class ScannerTokenReader implements TokenReader {
+
+    private final Scanner m_Scanner;
+
+    public ScannerTokenReader(Scanner in) {
+        m_Scanner = in;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return m_Scanner.hasNext();
+    }
+
+    @Override
+    public int nextInt() {
+        return m_Scanner.nextInt();
+    }
+
+    @Override
+    public double nextDouble() {
+        return m_Scanner.nextDouble();
+    }
+}
@@ -65,6 +65,20 @@ public class Stream_Utility_function {
         return val;
     }
 
+    /**
+     * grabs a value of the specified type from a map token reader
+     */
+    public static int GetValueFromStream_Int(TokenReader in) {
+        Integer val;
+        try {
+            val = in.nextInt();
+            //make sure it was the correct type
+        } catch (Exception e) {
+            throw new RuntimeException("Attempting to retrieve wrong type from stream", e);
+        }
+        return val;
+    }
+
     /**
      * /* writes the value as a binary string of bits
      */
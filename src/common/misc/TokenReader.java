@@ -0,0 +1,21 @@
+/**
+ * Desc: a source of the numbers an object reads when it is loaded from a map.
+ * The numbers come either from the text of a map file (see
+ * ScannerTokenReader) or from a compiled binary map (see BufferTokenReader),
+ * so an object needs only one Read method to be loaded from both.
+ *
+ * @author Petr (http://www.sallyx.org/)
+ */
+package common.misc;
+
+public interface TokenReader {
+
+    /**
+     * @return true if there is another token to read
+     */
+    public boolean hasNext();
+
+    public int nextInt();
+
+    public double nextDouble();
+}
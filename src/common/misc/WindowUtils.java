@@ -12,6 +12,7 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -113,6 +114,10 @@ public class WindowUtils {
     }
 
     public static void ErrorBox(String msg) {
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println("Error: " + msg);
+            return;
+        }
         JOptionPane.showMessageDialog(null, msg, "Error", JOptionPane.ERROR_MESSAGE);
     }
     
@@ -5,6 +5,7 @@
  */
 package common.misc;
 
+import common.Game.GameContext;
 import java.util.List;
 import java.util.Random;
 
@@ -55,21 +56,45 @@ T Maximum(final T v1, final T v2)
 //----------------------------------------------------------------------------
 //  some random number functions.
 //----------------------------------------------------------------------------
-    static private Random rand = new Random();
+    /**
+     * the random number generator of a match. It also keeps the spare value
+     * produced by RandGaussian.
+     */
+    public static class GameRandom extends Random {
+
+        private static final long serialVersionUID = 1L;
+
+        private double y2 = 0;
+        private boolean use_last = false;
+
+        @Override
+        public synchronized void setSeed(long seed) {
+            super.setSeed(seed);
+            use_last = false;
+        }
+    }
+
+    /**
+     * @return the random number generator of the match driven by the calling
+     * thread
+     */
+    static private GameRandom rand() {
+        return GameContext.Current().GetRandom();
+    }
 
     static public void setSeed(long seed) {
-        rand.setSeed(seed);
+        rand().setSeed(seed);
     }
 
 //returns a random integer between x and y
     static public int RandInt(int x, int y) {
         assert y >= x : "<RandInt>: y is less than x";
-        return rand.nextInt(Integer.MAX_VALUE - x) % (y - x + 1) + x;
+        return rand().nextInt(Integer.MAX_VALUE - x) % (y - x + 1) + x;
     }
 
 //returns a random double between zero and 1
     static public double RandFloat() {
-        return rand.nextDouble();
+        return rand().nextDouble();
     }
 
     static public double RandInRange(double x, double y) {
@@ -95,16 +120,14 @@ T Maximum(final T v1, final T v2)
     static public double RandGaussian() {
         return RandGaussian(0, 1);
     }
-    static private double y2 = 0;
-    static private boolean use_last = false;
-
     static public double RandGaussian(double mean, double standard_deviation) {
 
+        GameRandom rand = rand();
         double x1, x2, w, y1;
 
-        if (use_last) /* use value from previous call */ {
-            y1 = y2;
-            use_last = false;
+        if (rand.use_last) /* use value from previous call */ {
+            y1 = rand.y2;
+            rand.use_last = false;
         } else {
             do {
                 x1 = 2.0 * RandFloat() - 1.0;
@@ -114,8 +137,8 @@ T Maximum(final T v1, final T v2)
 
             w = Math.sqrt((-2.0 * Math.log(w)) / w);
             y1 = x1 * w;
-            y2 = x2 * w;
-            use_last = true;
+            rand.y2 = x2 * w;
+            rand.use_last = true;
         }
 
         return (mean + y1 * standard_deviation);